@@ -0,0 +1,55 @@
+-- Benchmark: búsqueda de usuarios por email con 1M de filas
+-- Compara la consulta anterior (LOWER(email) = LOWER(:email)) con la búsqueda por igualdad sobre
+-- el email normalizado (V017). Se ejecuta sobre una tabla temporal con la misma definición de
+-- email que usuarios (índice único y CHECK de V017), sin tocar los datos reales:
+--   psql -d <base> -f benchmarks/usuarios_email_lookup.sql
+\timing on
+
+CREATE TEMP TABLE usuarios_bench (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    email VARCHAR(100) NOT NULL UNIQUE CHECK (email = LOWER(BTRIM(email, ' ') COLLATE "C")),
+    estado VARCHAR(10) NOT NULL DEFAULT 'activo'
+);
+
+INSERT INTO usuarios_bench (email)
+SELECT 'usuario' || g || '@example.com'
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE usuarios_bench;
+
+-- 1) Consulta anterior: LOWER() sobre la columna impide usar el índice único (Seq Scan)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM usuarios_bench WHERE LOWER(email) = LOWER('Usuario765432@Example.com');
+
+-- 2) Consulta actual: el parámetro se normaliza en la aplicación y se compara por igualdad (Index Scan)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM usuarios_bench WHERE email = 'usuario765432@example.com';
+
+-- 3) Latencia repetida de cada variante (1000 búsquedas de emails aleatorios)
+-- El email se calcula antes de la consulta: random() en el WHERE es volátil, se evalúa por fila e
+-- impide usar el índice
+DO $$
+DECLARE
+    inicio TIMESTAMPTZ;
+    i INT;
+    buscado TEXT;
+    encontrado UUID;
+BEGIN
+    inicio := clock_timestamp();
+    FOR i IN 1..1000 LOOP
+        buscado := 'usuario' || (1 + floor(random() * 1000000))::INT || '@example.com';
+        SELECT id INTO encontrado FROM usuarios_bench WHERE email = buscado;
+    END LOOP;
+    RAISE NOTICE 'Igualdad sobre email normalizado: % ms por búsqueda',
+        round((EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000 / 1000)::NUMERIC, 4);
+
+    inicio := clock_timestamp();
+    FOR i IN 1..20 LOOP
+        buscado := 'Usuario' || (1 + floor(random() * 1000000))::INT || '@example.com';
+        SELECT id INTO encontrado FROM usuarios_bench WHERE LOWER(email) = LOWER(buscado);
+    END LOOP;
+    RAISE NOTICE 'LOWER(email) = LOWER(:email): % ms por búsqueda',
+        round((EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000 / 20)::NUMERIC, 4);
+END $$;
+
+DROP TABLE usuarios_bench;
@@ -0,0 +1,134 @@
+-- Benchmark: búsqueda por subcadena con 1M de usuarios y 10M de sesiones
+-- Compara la búsqueda anterior (LOWER(columna) LIKE '%termino%' combinada con OR, más el COUNT
+-- de la paginación) con la búsqueda sobre la columna generada "busqueda" y su índice GIN de
+-- trigramas (V020). Se ejecuta sobre tablas temporales con la misma definición, sin tocar los
+-- datos reales (requiere pg_trgm y unos 5 GB libres):
+--   psql -d <base> -f benchmarks/usuarios_sesiones_busqueda.sql
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TEMP TABLE usuarios_bench (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    nombres VARCHAR(100) NOT NULL,
+    apellidos VARCHAR(100) NOT NULL,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    estado VARCHAR(10) DEFAULT 'activo',
+    deleted_at TIMESTAMP WITH TIME ZONE NULL,
+    busqueda TEXT GENERATED ALWAYS AS (
+        lower(nombres || ' ' || apellidos || ' ' || email || ' ' || coalesce(estado, ''))
+    ) STORED
+);
+
+INSERT INTO usuarios_bench (nombres, apellidos, email, estado)
+SELECT (ARRAY['Juan', 'María', 'José', 'Ana', 'Luis', 'Carmen', 'Pedro', 'Lucía'])[1 + g % 8] || ' ' || md5(g::TEXT)::VARCHAR(6),
+       (ARRAY['Flores', 'Díaz', 'López', 'Martínez', 'Hernández', 'García'])[1 + g % 6] || ' ' || md5((g * 7)::TEXT)::VARCHAR(6),
+       'usuario' || g || '@example.com',
+       CASE WHEN g % 10 = 0 THEN 'inactivo' ELSE 'activo' END
+FROM generate_series(1, 1000000) AS g;
+
+CREATE TEMP TABLE sesiones_bench (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    usuario_id UUID NOT NULL,
+    ip_origen VARCHAR(45) NOT NULL,
+    email_usuario VARCHAR(100) NOT NULL,
+    informacion_dispositivo TEXT,
+    fecha_inicio TIMESTAMP WITH TIME ZONE NOT NULL,
+    estado VARCHAR(10) NOT NULL DEFAULT 'activa',
+    deleted_at TIMESTAMP WITH TIME ZONE NULL,
+    busqueda TEXT GENERATED ALWAYS AS (
+        lower(email_usuario || ' ' || ip_origen || ' ' || coalesce(informacion_dispositivo, '') || ' ' || estado)
+    ) STORED
+);
+
+INSERT INTO sesiones_bench (usuario_id, ip_origen, email_usuario, informacion_dispositivo, fecha_inicio, estado)
+SELECT u.id,
+       '10.' || (s % 250) || '.' || (s % 199) || '.' || (s % 97),
+       u.email,
+       (ARRAY['Mozilla/5.0 (Windows NT 10.0) Chrome/126', 'Mozilla/5.0 (Macintosh) Safari/17', 'Mozilla/5.0 (Linux; Android 14) Chrome/125'])[1 + s % 3],
+       now() - (s % 100000) * INTERVAL '1 minute',
+       (ARRAY['activa', 'cerrada', 'expirada'])[1 + s % 3]
+FROM usuarios_bench u
+CROSS JOIN generate_series(1, 10) AS s;
+
+CREATE INDEX ON sesiones_bench (usuario_id);
+ANALYZE usuarios_bench;
+ANALYZE sesiones_bench;
+
+-- 1) Consultas anteriores: LOWER() ... LIKE '%termino%' con OR (Seq Scan) y COUNT de la paginación
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM usuarios_bench u
+WHERE u.deleted_at IS NULL AND (LOWER(u.nombres) LIKE '%martínez 3f%' OR LOWER(u.email) LIKE '%martínez 3f%'
+   OR LOWER(u.apellidos) LIKE '%martínez 3f%' OR LOWER(u.estado) LIKE '%martínez 3f%')
+LIMIT 10;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM usuarios_bench u
+WHERE u.deleted_at IS NULL AND (LOWER(u.nombres) LIKE '%usuario76543%' OR LOWER(u.email) LIKE '%usuario76543%'
+   OR LOWER(u.apellidos) LIKE '%usuario76543%' OR LOWER(u.estado) LIKE '%usuario76543%');
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.* FROM sesiones_bench s JOIN usuarios_bench u ON u.id = s.usuario_id
+WHERE s.deleted_at IS NULL AND (LOWER(u.nombres) LIKE '%usuario76543%' OR LOWER(s.ip_origen) LIKE '%usuario76543%'
+   OR LOWER(s.email_usuario) LIKE '%usuario76543%' OR LOWER(s.informacion_dispositivo) LIKE '%usuario76543%'
+   OR LOWER(s.estado) LIKE '%usuario76543%')
+LIMIT 10;
+
+-- 2) Índices de trigramas (V020)
+CREATE INDEX idx_usuarios_bench_busqueda_trgm ON usuarios_bench USING GIN (busqueda gin_trgm_ops) WHERE deleted_at IS NULL;
+CREATE INDEX idx_sesiones_bench_busqueda_trgm ON sesiones_bench USING GIN (busqueda gin_trgm_ops) WHERE deleted_at IS NULL;
+ANALYZE usuarios_bench;
+ANALYZE sesiones_bench;
+
+-- 3) Consultas actuales: Bitmap Index Scan sobre el índice GIN y orden por relevancia
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM usuarios_bench u
+WHERE u.deleted_at IS NULL AND u.busqueda LIKE '%martínez 3f%'
+ORDER BY word_similarity('martínez 3f', u.busqueda) DESC, u.apellidos, u.nombres, u.id
+LIMIT 10;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM usuarios_bench u
+WHERE u.deleted_at IS NULL AND u.busqueda LIKE '%usuario76543%';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.* FROM sesiones_bench s JOIN usuarios_bench u ON u.id = s.usuario_id
+WHERE s.id IN (
+    SELECT id FROM sesiones_bench WHERE deleted_at IS NULL AND busqueda LIKE '%usuario76543%'
+    UNION SELECT s2.id FROM sesiones_bench s2 JOIN usuarios_bench u2 ON u2.id = s2.usuario_id
+    WHERE s2.deleted_at IS NULL AND u2.deleted_at IS NULL AND u2.busqueda LIKE '%usuario76543%')
+ORDER BY GREATEST(word_similarity('usuario76543', s.busqueda), word_similarity('usuario76543', u.busqueda)) DESC,
+         s.fecha_inicio DESC, s.id
+LIMIT 10;
+
+-- 4) Latencia repetida de la búsqueda de usuarios (página + COUNT) con términos aleatorios
+DO $$
+DECLARE
+    inicio TIMESTAMPTZ;
+    i INT;
+    termino TEXT;
+    total BIGINT;
+BEGIN
+    inicio := clock_timestamp();
+    FOR i IN 1..200 LOOP
+        termino := '%usuario' || (1 + floor(random() * 1000000))::INT || '@%';
+        PERFORM u.id FROM usuarios_bench u WHERE u.deleted_at IS NULL AND u.busqueda LIKE termino LIMIT 10;
+        SELECT COUNT(*) INTO total FROM usuarios_bench u WHERE u.deleted_at IS NULL AND u.busqueda LIKE termino;
+    END LOOP;
+    RAISE NOTICE 'Trigramas sobre busqueda: % ms por búsqueda',
+        round((EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000 / 200)::NUMERIC, 4);
+
+    inicio := clock_timestamp();
+    FOR i IN 1..5 LOOP
+        termino := '%usuario' || (1 + floor(random() * 1000000))::INT || '@%';
+        PERFORM u.id FROM usuarios_bench u WHERE u.deleted_at IS NULL AND (LOWER(u.nombres) LIKE termino
+            OR LOWER(u.email) LIKE termino OR LOWER(u.apellidos) LIKE termino OR LOWER(u.estado) LIKE termino) LIMIT 10;
+        SELECT COUNT(*) INTO total FROM usuarios_bench u WHERE u.deleted_at IS NULL AND (LOWER(u.nombres) LIKE termino
+            OR LOWER(u.email) LIKE termino OR LOWER(u.apellidos) LIKE termino OR LOWER(u.estado) LIKE termino);
+    END LOOP;
+    RAISE NOTICE 'LOWER(columna) LIKE con OR: % ms por búsqueda',
+        round((EXTRACT(EPOCH FROM clock_timestamp() - inicio) * 1000 / 5)::NUMERIC, 4);
+END $$;
+
+DROP TABLE sesiones_bench;
+DROP TABLE usuarios_bench;
@@ -0,0 +1,133 @@
+package com.api.api.audit;
+
+import com.api.api.dto.SimpleDTO.AccionSimpleDTO;
+import com.api.api.model.Acciones;
+import com.api.api.model.Aplicaciones;
+import com.api.api.repository.AccionesRepository;
+import com.api.api.repository.AplicacionesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Registro en memoria de las acciones de auditoría de la aplicación actual (nombre -> ID).
+ * Se construye al iniciar con una sola consulta de proyección y se recarga cuando
+ * AccionesService modifica la tabla acciones, de modo que AuditAspect no consulta la
+ * base de datos en cada método interceptado.
+ * Al cargar se informan las constantes de AuditActions sin fila en la tabla acciones,
+ * que de otro modo se registrarían silenciosamente como "Operación Exitosa".
+ */
+@Component
+public class AuditActionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditActionRegistry.class);
+
+    private final AccionesRepository accionesRepository;
+    private final AplicacionesRepository aplicacionesRepository;
+
+    @Value("${app.application.identifier}")
+    private String applicationIdentifier;
+
+    private UUID aplicacionId;
+
+    // Instantánea inmutable reemplazada completa en cada recarga
+    private volatile Map<String, UUID> actionIds = Collections.emptyMap();
+    private volatile Set<String> missingActions = Collections.emptySet();
+
+    public AuditActionRegistry(AccionesRepository accionesRepository,
+                               AplicacionesRepository aplicacionesRepository,
+                               MeterRegistry meterRegistry) {
+        this.accionesRepository = accionesRepository;
+        this.aplicacionesRepository = aplicacionesRepository;
+        meterRegistry.gauge("auditoria.acciones.sin_registrar", this, registry -> registry.missingActions.size());
+    }
+
+    @PostConstruct
+    public void init() {
+        Aplicaciones aplicacion = aplicacionesRepository.findByLlaveIdentificadora(applicationIdentifier);
+        if (aplicacion == null) {
+            throw new IllegalStateException("Aplicación con llave identificadora '" + applicationIdentifier + "' no encontrada para el registro de acciones de auditoría.");
+        }
+        this.aplicacionId = aplicacion.getId();
+        refresh();
+    }
+
+    /**
+     * Recarga el registro desde la tabla acciones.
+     * Debe invocarse después de crear, actualizar o eliminar acciones.
+     */
+    public synchronized void refresh() {
+        Map<String, UUID> loaded = new HashMap<>();
+        for (AccionSimpleDTO accion : accionesRepository.findSelectByAplicacionId(aplicacionId)) {
+            loaded.put(accion.getNombre(), accion.getId());
+        }
+        this.actionIds = Collections.unmodifiableMap(loaded);
+
+        Set<String> missing = new TreeSet<>(declaredActionNames());
+        missing.removeAll(loaded.keySet());
+        this.missingActions = Collections.unmodifiableSet(missing);
+        if (!missing.isEmpty()) {
+            logger.warn("Acciones de auditoría sin registro en la tabla acciones ({}): {}", missing.size(), missing);
+        }
+        logger.info("Registro de acciones de auditoría cargado: {} acciones.", loaded.size());
+    }
+
+    // Obtiene el ID de una acción por su nombre
+    public Optional<UUID> findId(String nombre) {
+        return Optional.ofNullable(actionIds.get(nombre));
+    }
+
+    /**
+     * Devuelve una referencia a la acción con solo el ID asignado, suficiente para la
+     * clave foránea de auditoria_accesos sin cargar la entidad.
+     * @param nombre Nombre de la acción.
+     * @return La referencia, o vacío si la acción no existe.
+     */
+    public Optional<Acciones> reference(String nombre) {
+        return findId(nombre).map(id -> {
+            Acciones accion = new Acciones();
+            accion.setId(id);
+            accion.setNombre(nombre);
+            return accion;
+        });
+    }
+
+    public UUID getAplicacionId() {
+        return aplicacionId;
+    }
+
+    public Set<String> getMissingActions() {
+        return missingActions;
+    }
+
+    // Nombres declarados como constantes String públicas y estáticas en AuditActions
+    private static List<String> declaredActionNames() {
+        List<String> names = new ArrayList<>();
+        for (Field field : AuditActions.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers) && field.getType() == String.class) {
+                try {
+                    names.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    logger.debug("No se pudo leer la constante {} de AuditActions", field.getName());
+                }
+            }
+        }
+        return names;
+    }
+}
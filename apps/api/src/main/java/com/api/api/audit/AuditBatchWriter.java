@@ -0,0 +1,265 @@
+package com.api.api.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritor asíncrono y por lotes de auditoria_accesos.
+ * Los hilos de las solicitudes solo encolan eventos en una cola acotada; un hilo en segundo
+ * plano los drena en lotes (por tamaño o por intervalo de vaciado) usando inserciones JDBC por lotes.
+ * Cuando la cola está llena se aplica la política de contrapresión configurada:
+ * - CALLER_RUNS (por defecto): escribe el evento de forma síncrona en el hilo que lo generó; no se
+ *   pierden registros y la solicitud espera lo que tarde la inserción.
+ * - WAIT_THEN_DROP: espera hasta app.audit.writer.offer-timeout-ms y, si sigue llena, descarta el evento.
+ * - DROP: descarta el evento inmediatamente.
+ * Los eventos descartados se cuentan en Micrometer. Al detenerse la aplicación el hilo vacía la
+ * cola hasta app.audit.writer.shutdown-timeout-ms; solo si lo excede se interrumpe y el resto se
+ * escribe de forma síncrona.
+ * Cada lote actualiza en la misma transacción los contadores de auditoria_accesos_resumen (AuditRollupWriter).
+ */
+@Component
+public class AuditBatchWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditBatchWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO auditoria_accesos " +
+            "(id, usuario_id, email_usuario, aplicacion_id, accion_id, fecha, ip_origen, informacion_dispositivo, mensaje, estado) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum BackpressurePolicy {
+        CALLER_RUNS, WAIT_THEN_DROP, DROP
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditRollupWriter auditRollupWriter;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long shutdownTimeoutMs;
+
+    private final Timer batchTimer;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = false;
+    private Thread worker;
+
+    public AuditBatchWriter(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            AuditRollupWriter auditRollupWriter,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.audit.writer.queue-capacity:10000}") int queueCapacity,
+                            @Value("${app.audit.writer.batch-size:500}") int batchSize,
+                            @Value("${app.audit.writer.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${app.audit.writer.offer-timeout-ms:50}") long offerTimeoutMs,
+                            @Value("${app.audit.writer.backpressure:CALLER_RUNS}") BackpressurePolicy backpressurePolicy,
+                            @Value("${app.audit.writer.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Transacción propia: la escritura síncrona (CALLER_RUNS) no debe unirse a la transacción del llamador
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.auditRollupWriter = auditRollupWriter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.backpressurePolicy = backpressurePolicy;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+        meterRegistry.gauge("auditoria.escritor.cola", queue, BlockingQueue::size);
+        this.batchTimer = Timer.builder("auditoria.escritor.lote")
+                .description("Latencia de escritura de cada lote de auditoría")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("auditoria.escritor.escritos");
+        this.droppedCounter = meterRegistry.counter("auditoria.escritor.descartados");
+        this.failedCounter = meterRegistry.counter("auditoria.escritor.fallidos");
+    }
+
+    /**
+     * Encola un evento de auditoría aplicando la política de contrapresión si la cola está llena.
+     * @param event El evento a registrar.
+     */
+    public void enqueue(AuditEvent event) {
+        if (!running) {
+            // Antes de iniciar o durante el apagado se escribe directamente
+            writeBatch(List.of(event));
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        switch (backpressurePolicy) {
+            case WAIT_THEN_DROP -> {
+                try {
+                    if (!queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        droppedCounter.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCounter.increment();
+                }
+            }
+            case CALLER_RUNS -> writeBatch(List.of(event));
+            case DROP -> droppedCounter.increment();
+        }
+    }
+
+    // Bucle del hilo escritor: acumula eventos hasta completar el lote o agotar el intervalo de vaciado
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    AuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // Solo stop() interrumpe, cuando el vaciado excede el plazo: se escribe lo acumulado y se
+                // termina; stop() escribe el resto de la cola
+                writeBatch(batch);
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Error inesperado en el escritor de auditoría: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Escribe un lote con una inserción JDBC por lotes y su resumen en una sola transacción;
+    // si falla, reintenta fila por fila para aislar el error
+    private void writeBatch(List<AuditEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bind(ps, batch.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                });
+                auditRollupWriter.apply(batch);
+            }));
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException batchError) {
+            logger.warn("Falló la escritura del lote de auditoría ({} eventos), se reintenta fila por fila: {}",
+                    batch.size(), batchError.getMessage());
+            for (AuditEvent event : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, event));
+                        auditRollupWriter.apply(List.of(event));
+                    });
+                    writtenCounter.increment();
+                } catch (RuntimeException rowError) {
+                    failedCounter.increment();
+                    logger.error("No se pudo registrar el evento de auditoría {}: {}", event.id(), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, AuditEvent event) throws SQLException {
+        ps.setObject(1, event.id());
+        ps.setObject(2, event.usuarioId(), Types.OTHER);
+        ps.setString(3, event.emailUsuario());
+        ps.setObject(4, event.aplicacionId());
+        ps.setObject(5, event.accionId());
+        ps.setObject(6, event.fecha());
+        ps.setString(7, event.ipOrigen());
+        ps.setString(8, event.informacionDispositivo());
+        ps.setString(9, event.mensaje());
+        ps.setString(10, event.estado());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "audit-batch-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        // Deja de aceptar eventos asíncronos; el hilo termina cuando la cola queda vacía
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(shutdownTimeoutMs);
+                if (worker.isAlive()) {
+                    logger.warn("El escritor de auditoría no vació la cola en {} ms ({} eventos pendientes); se interrumpe.",
+                            shutdownTimeoutMs, queue.size());
+                    worker.interrupt();
+                    worker.join(flushIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Garantiza el vaciado de cualquier evento restante
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            writeBatch(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Se detiene después del servidor web, para vaciar los eventos de las últimas solicitudes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,47 @@
+package com.api.api.audit;
+
+import java.util.function.Supplier;
+
+/**
+ * Contexto de auditoría asociado al hilo actual.
+ * Permite marcar bloques de código como internos del framework (por ejemplo, la carga de
+ * autoridades durante la autenticación). Las acciones auditables invocadas desde otra acción
+ * auditable conservan su alcance declarado: cada una se persiste según la política.
+ */
+public final class AuditContext {
+
+    private static final ThreadLocal<int[]> INTERNAL_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private AuditContext() {
+
+    }
+
+    /**
+     * Ejecuta el bloque indicado con alcance interno: las acciones auditables invocadas dentro
+     * de él se tratan como AuditScope.INTERNAL.
+     * @param action El bloque a ejecutar.
+     * @return El resultado del bloque.
+     */
+    public static <T> T runInternal(Supplier<T> action) {
+        int[] depth = INTERNAL_DEPTH.get();
+        depth[0]++;
+        try {
+            return action.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    // Indica si el hilo actual está dentro de un bloque interno
+    public static boolean isInternal() {
+        return INTERNAL_DEPTH.get()[0] > 0;
+    }
+
+    // Resuelve el alcance de una acción auditable a punto de ejecutarse en el hilo actual
+    static AuditScope currentScope(AuditScope declaredScope) {
+        if (declaredScope == AuditScope.INTERNAL || isInternal()) {
+            return AuditScope.INTERNAL;
+        }
+        return AuditScope.USER;
+    }
+}
@@ -0,0 +1,39 @@
+package com.api.api.audit;
+
+import com.api.api.model.AuditoriaAccesos;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Evento de auditoría inmutable listo para escribirse en auditoria_accesos.
+ * Solo guarda identificadores y valores planos, de modo que puede encolarse sin
+ * mantener entidades JPA vivas fuera de su contexto de persistencia.
+ */
+public record AuditEvent(
+        UUID id,
+        UUID usuarioId,
+        String emailUsuario,
+        UUID aplicacionId,
+        UUID accionId,
+        OffsetDateTime fecha,
+        String ipOrigen,
+        String informacionDispositivo,
+        String mensaje,
+        String estado) {
+
+    // Construye el evento a partir de una entidad AuditoriaAccesos (puede contener solo referencias por ID)
+    public static AuditEvent from(AuditoriaAccesos auditoria) {
+        return new AuditEvent(
+                auditoria.getUuidId() != null ? auditoria.getUuidId() : UUID.randomUUID(),
+                auditoria.getUsuario() != null ? auditoria.getUsuario().getId() : null,
+                auditoria.getEmailUsuario(),
+                auditoria.getAplicacion() != null ? auditoria.getAplicacion().getId() : null,
+                auditoria.getAccion() != null ? auditoria.getAccion().getId() : null,
+                auditoria.getFecha() != null ? auditoria.getFecha() : OffsetDateTime.now(),
+                auditoria.getIpOrigen() != null ? auditoria.getIpOrigen() : "N/A",
+                auditoria.getInformacionDispositivo(),
+                auditoria.getMensaje(),
+                auditoria.getEstado() != null ? auditoria.getEstado() : "exitoso");
+    }
+}
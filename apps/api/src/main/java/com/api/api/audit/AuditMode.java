@@ -0,0 +1,11 @@
+package com.api.api.audit;
+
+// Tratamiento que recibe un evento auditable
+public enum AuditMode {
+    // Se escribe una fila completa en auditoria_accesos
+    PERSIST,
+    // Solo se incrementa un contador en Micrometer, sin escribir en la base de datos
+    COUNT,
+    // No se registra de ninguna forma
+    IGNORE
+}
@@ -0,0 +1,237 @@
+package com.api.api.audit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Administra el ciclo de vida de las particiones de auditoria_accesos (PARTITION BY RANGE (fecha)).
+ * - Crea por adelantado las particiones futuras (diarias o mensuales, en UTC).
+ * - Mantiene una partición DEFAULT como red de seguridad; si contiene filas del rango de una
+ *   partición nueva, las mueve a la partición correspondiente al crearla.
+ * - Desvincula y elimina las particiones cuyo rango completo es anterior a la retención configurada.
+ * Se ejecuta al iniciar la aplicación y de forma programada. Un advisory lock transaccional evita
+ * que varios nodos ejecuten el mantenimiento a la vez.
+ * Publica en Micrometer la cantidad de particiones y su tamaño total en bytes.
+ */
+@Component
+public class AuditPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+
+    private static final String PARENT_TABLE = "auditoria_accesos";
+    private static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^" + PARENT_TABLE + "_p(\\d{6}|\\d{8})$");
+    private static final DateTimeFormatter MONTHLY_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter DAILY_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    // Clave del advisory lock del mantenimiento de particiones
+    private static final long LOCK_KEY = 0x4343415F50415254L;
+
+    public enum Granularity {
+        DAILY, MONTHLY
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Granularity granularity;
+    private final int premake;
+    private final int retentionDays;
+
+    private final AtomicLong partitionCount = new AtomicLong();
+    private final AtomicLong partitionBytes = new AtomicLong();
+    private final AtomicLong defaultPartitionBytes = new AtomicLong();
+
+    public AuditPartitionManager(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.audit.partitions.enabled:true}") boolean enabled,
+                                 @Value("${app.audit.partitions.granularity:MONTHLY}") Granularity granularity,
+                                 @Value("${app.audit.partitions.premake:3}") int premake,
+                                 @Value("${app.audit.partitions.retention-days:0}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.granularity = granularity;
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+
+        meterRegistry.gauge("auditoria.particiones.cantidad", partitionCount);
+        meterRegistry.gauge("auditoria.particiones.bytes", partitionBytes);
+        meterRegistry.gauge("auditoria.particiones.default.bytes", defaultPartitionBytes);
+    }
+
+    // Garantiza las particiones antes de recibir tráfico
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintain();
+    }
+
+    /**
+     * Ejecuta el mantenimiento completo: partición DEFAULT, particiones futuras y retención.
+     * Si otro nodo ya tiene el lock, esta ejecución se omite.
+     */
+    @Scheduled(cron = "${app.audit.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    logger.debug("Mantenimiento de particiones de auditoría en curso en otro nodo; se omite.");
+                    return;
+                }
+                ensureDefaultPartition();
+                createFuturePartitions();
+                applyRetention();
+            });
+        } catch (RuntimeException e) {
+            logger.error("Error en el mantenimiento de particiones de auditoría: {}", e.getMessage(), e);
+        }
+        refreshMetrics();
+    }
+
+    private void ensureDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + PARENT_TABLE + " DEFAULT");
+    }
+
+    // Crea la partición del periodo actual y las 'premake' siguientes que aún no existan
+    private void createFuturePartitions() {
+        List<Range> existing = existingRanges();
+        LocalDate start = periodStart(LocalDate.now(ZoneOffset.UTC));
+        for (int i = 0; i <= premake; i++) {
+            LocalDate from = plusPeriods(start, i);
+            Range range = new Range(partitionName(from), from, plusPeriods(from, 1));
+            boolean overlaps = existing.stream().anyMatch(r -> r.overlaps(range));
+            if (!overlaps) {
+                createPartition(range);
+                existing.add(range);
+            }
+        }
+    }
+
+    /**
+     * Crea una partición. Si la partición DEFAULT ya contiene filas de ese rango, PostgreSQL
+     * rechazaría la creación, por lo que primero se desvincula la DEFAULT, se crea la partición,
+     * se mueven las filas y se vuelve a vincular la DEFAULT (todo en la misma transacción).
+     */
+    private void createPartition(Range range) {
+        String from = bound(range.from());
+        String to = bound(range.to());
+        Boolean hasDefaultRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE fecha >= ?::timestamptz AND fecha < ?::timestamptz)",
+                Boolean.class, from, to);
+
+        if (Boolean.TRUE.equals(hasDefaultRows)) {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute("CREATE TABLE " + range.name() + " PARTITION OF " + PARENT_TABLE +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            int moved = jdbcTemplate.update("INSERT INTO " + PARENT_TABLE + " SELECT * FROM " + DEFAULT_PARTITION +
+                    " WHERE fecha >= ?::timestamptz AND fecha < ?::timestamptz", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE fecha >= ?::timestamptz AND fecha < ?::timestamptz", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+            logger.warn("Partición {} creada; se movieron {} filas desde la partición DEFAULT.", range.name(), moved);
+        } else {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + range.name() + " PARTITION OF " + PARENT_TABLE +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            logger.info("Partición de auditoría {} creada [{} - {}).", range.name(), range.from(), range.to());
+        }
+    }
+
+    // Desvincula y elimina las particiones cuyo límite superior es anterior al corte de retención
+    private void applyRetention() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+        for (Range range : existingRanges()) {
+            if (!range.to().isAfter(cutoff)) {
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + range.name());
+                jdbcTemplate.execute("DROP TABLE " + range.name());
+                logger.info("Partición de auditoría {} eliminada por retención ({} días).", range.name(), retentionDays);
+            }
+        }
+    }
+
+    private void refreshMetrics() {
+        try {
+            Map<String, Object> stats = jdbcTemplate.queryForMap(
+                    "SELECT COUNT(*) AS cantidad, COALESCE(SUM(pg_total_relation_size(i.inhrelid)), 0) AS bytes, " +
+                    "COALESCE(SUM(pg_total_relation_size(i.inhrelid)) FILTER (WHERE c.relname = ?), 0) AS default_bytes " +
+                    "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = '" + PARENT_TABLE + "'::regclass", DEFAULT_PARTITION);
+            partitionCount.set(((Number) stats.get("cantidad")).longValue());
+            partitionBytes.set(((Number) stats.get("bytes")).longValue());
+            defaultPartitionBytes.set(((Number) stats.get("default_bytes")).longValue());
+        } catch (RuntimeException e) {
+            logger.warn("No se pudieron obtener las métricas de particiones de auditoría: {}", e.getMessage());
+        }
+    }
+
+    // Particiones gestionadas (nombre auditoria_accesos_pYYYYMM o _pYYYYMMDD) con su rango deducido del nombre
+    private List<Range> existingRanges() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = '" + PARENT_TABLE + "'::regclass", String.class);
+        List<Range> ranges = new ArrayList<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String suffix = matcher.group(1);
+            if (suffix.length() == 6) {
+                LocalDate from = LocalDate.parse(suffix + "01", DAILY_SUFFIX);
+                ranges.add(new Range(name, from, from.plusMonths(1)));
+            } else {
+                LocalDate from = LocalDate.parse(suffix, DAILY_SUFFIX);
+                ranges.add(new Range(name, from, from.plusDays(1)));
+            }
+        }
+        return ranges;
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return granularity == Granularity.MONTHLY ? date.withDayOfMonth(1) : date;
+    }
+
+    private LocalDate plusPeriods(LocalDate date, int periods) {
+        return granularity == Granularity.MONTHLY ? date.plusMonths(periods) : date.plus(periods, ChronoUnit.DAYS);
+    }
+
+    private String partitionName(LocalDate from) {
+        DateTimeFormatter suffix = granularity == Granularity.MONTHLY ? MONTHLY_SUFFIX : DAILY_SUFFIX;
+        return PARENT_TABLE + "_p" + from.format(suffix);
+    }
+
+    // Límite de rango en UTC para la columna TIMESTAMP WITH TIME ZONE
+    private static String bound(LocalDate date) {
+        return date + " 00:00:00+00";
+    }
+
+    private record Range(String name, LocalDate from, LocalDate to) {
+        boolean overlaps(Range other) {
+            return from.isBefore(other.to) && other.from.isBefore(to);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.api.api.audit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Política de auditoría configurable por nombre de acción (constantes de AuditActions).
+ * - app.audit.ignored-actions: acciones que nunca se registran.
+ * - app.audit.count-only-actions: acciones que solo se cuentan en Micrometer.
+ * - app.audit.internal-mode: tratamiento de las acciones con alcance interno.
+ */
+@Component
+public class AuditPolicy {
+
+    private final Set<String> ignoredActions;
+    private final Set<String> countOnlyActions;
+    private final AuditMode internalMode;
+    private final MeterRegistry meterRegistry;
+
+    public AuditPolicy(@Value("${app.audit.ignored-actions:}") Set<String> ignoredActions,
+                       @Value("${app.audit.count-only-actions:}") Set<String> countOnlyActions,
+                       @Value("${app.audit.internal-mode:COUNT}") AuditMode internalMode,
+                       MeterRegistry meterRegistry) {
+        this.ignoredActions = Set.copyOf(ignoredActions);
+        this.countOnlyActions = Set.copyOf(countOnlyActions);
+        this.internalMode = internalMode;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Determina cómo tratar una acción auditable.
+     * @param actionName Nombre de la acción (constante de AuditActions).
+     * @param scope Alcance resuelto de la llamada.
+     * @return El modo de auditoría a aplicar.
+     */
+    public AuditMode resolve(String actionName, AuditScope scope) {
+        if (ignoredActions.contains(actionName)) {
+            return AuditMode.IGNORE;
+        }
+        if (countOnlyActions.contains(actionName)) {
+            return AuditMode.COUNT;
+        }
+        return scope == AuditScope.INTERNAL ? internalMode : AuditMode.PERSIST;
+    }
+
+    // Cuenta un evento que no se persiste en auditoria_accesos
+    public void count(String actionName, AuditScope scope, String estado) {
+        meterRegistry.counter("auditoria.eventos.contados",
+                "accion", actionName,
+                "alcance", scope.name(),
+                "estado", estado).increment();
+    }
+}
@@ -0,0 +1,201 @@
+package com.api.api.audit;
+
+import com.api.api.model.Acciones;
+import com.api.api.model.Aplicaciones;
+import com.api.api.model.AuditoriaAccesos;
+import com.api.api.model.Usuarios;
+import com.api.api.security.CustomUserDetails;
+import com.api.api.service.AuditoriaAccesosService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Construcción y registro de los eventos de auditoría.
+ * El evento se prepara con begin() en el hilo de la solicitud (usuario autenticado, IP, dispositivo,
+ * alcance y modo según AuditPolicy) y su resultado se registra después con success() o failure().
+ * AuditAspect registra el resultado al terminar el método anotado; las operaciones cuyo trabajo
+ * continúa fuera del método (por ejemplo, una respuesta en streaming que se escribe en otro hilo)
+ * registran el resultado al terminar ese trabajo.
+ */
+@Component
+public class AuditRecorder {
+
+    private static final String DEFAULT_SUCCESS_ACTION = "Operación Exitosa";
+    private static final String DEFAULT_FAIL_ACTION = "Operación Fallida";
+
+    private final AuditoriaAccesosService auditoriaAccesosService;
+    private final AuditActionRegistry auditActionRegistry;
+    private final AuditPolicy auditPolicy;
+
+    // Referencia a la aplicación actual (solo ID) resuelta al inicio para optimización
+    private Aplicaciones currentApplication;
+
+    public AuditRecorder(AuditoriaAccesosService auditoriaAccesosService,
+                         AuditActionRegistry auditActionRegistry,
+                         AuditPolicy auditPolicy) {
+        this.auditoriaAccesosService = auditoriaAccesosService;
+        this.auditActionRegistry = auditActionRegistry;
+        this.auditPolicy = auditPolicy;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.currentApplication = new Aplicaciones();
+        this.currentApplication.setId(auditActionRegistry.getAplicacionId());
+        // Verificar que existan las acciones por defecto para éxito y fallo
+        defaultAccion(DEFAULT_SUCCESS_ACTION);
+        defaultAccion(DEFAULT_FAIL_ACTION);
+    }
+
+    /**
+     * Prepara un evento de auditoría con los datos del hilo actual.
+     * Debe invocarse en el hilo de la solicitud: el usuario y la IP no están disponibles en otros hilos.
+     * @param actionName Nombre de la acción (constante de AuditActions).
+     * @param declaredScope Alcance declarado de la acción.
+     * @param message Mensaje base del evento.
+     * @return El evento pendiente de registrar su resultado.
+     */
+    public PendingAudit begin(String actionName, AuditScope declaredScope, String message) {
+        // Resolver el alcance (usuario o interno) y el tratamiento configurado para la acción
+        AuditScope scope = AuditContext.currentScope(declaredScope);
+        AuditMode mode = auditPolicy.resolve(actionName, scope);
+        if (mode != AuditMode.PERSIST) {
+            return new PendingAudit(actionName, scope, mode, null, null);
+        }
+
+        AuditoriaAccesos auditoria = new AuditoriaAccesos();
+        auditoria.setAplicacion(this.currentApplication);
+        auditoria.setFecha(OffsetDateTime.now());
+        auditoria.setUuidId(null);
+
+        // Obtener información del usuario autenticado
+        Usuarios usuario = getCurrentAuthenticatedUser();
+        auditoria.setUsuario(usuario);
+        auditoria.setEmailUsuario(usuario != null ? usuario.getEmail() : "anonimo@cca.com");
+
+        // Obtener IP y Device Info de la solicitud HTTP si está disponible
+        HttpServletRequest request = getHttpServletRequest();
+        if (request != null) {
+            auditoria.setIpOrigen(getClientIp(request));
+            auditoria.setInformacionDispositivo(request.getHeader("User-Agent"));
+        } else {
+            // Si no hay solicitud HTTP (ej. llamadas internas, tareas programadas), usar valores por defecto
+            auditoria.setIpOrigen("N/A");
+            auditoria.setInformacionDispositivo("Internal Process");
+        }
+
+        // Determinar la acción específica, si existe
+        // (referencia por ID desde el registro en memoria, sin consultar la base de datos)
+        Acciones accion = auditActionRegistry.reference(actionName).orElse(null);
+        auditoria.setAccion(accion != null ? accion : defaultAccion(DEFAULT_SUCCESS_ACTION));
+        auditoria.setMensaje(message);
+        return new PendingAudit(actionName, scope, mode, auditoria, accion);
+    }
+
+    /**
+     * Evento de auditoría preparado cuyo resultado aún no se registra.
+     * Solo se registra el primer resultado; las llamadas posteriores se ignoran.
+     */
+    public final class PendingAudit {
+
+        private final String actionName;
+        private final AuditScope scope;
+        private final AuditMode mode;
+        private final AuditoriaAccesos auditoria;
+        private final Acciones accion;
+        private final AtomicBoolean registrado = new AtomicBoolean(false);
+
+        private PendingAudit(String actionName, AuditScope scope, AuditMode mode,
+                             AuditoriaAccesos auditoria, Acciones accion) {
+            this.actionName = actionName;
+            this.scope = scope;
+            this.mode = mode;
+            this.auditoria = auditoria;
+            this.accion = accion;
+        }
+
+        // Indica si el evento se escribirá en auditoria_accesos (modo PERSIST)
+        public boolean persists() {
+            return mode == AuditMode.PERSIST;
+        }
+
+        // Registra el resultado exitoso con el mensaje indicado
+        public void success(String mensaje) {
+            record("exitoso", mensaje, DEFAULT_SUCCESS_ACTION);
+        }
+
+        // Registra el resultado fallido con el mensaje indicado
+        public void failure(String mensaje) {
+            record("fallido", mensaje, DEFAULT_FAIL_ACTION);
+        }
+
+        private void record(String estado, String mensaje, String accionPorDefecto) {
+            if (!registrado.compareAndSet(false, true)) {
+                return;
+            }
+            if (mode == AuditMode.COUNT) {
+                auditPolicy.count(actionName, scope, estado);
+            } else if (mode == AuditMode.PERSIST) {
+                auditoria.setEstado(estado);
+                auditoria.setAccion(accion != null ? accion : defaultAccion(accionPorDefecto));
+                auditoria.setMensaje(mensaje);
+                auditoriaAccesosService.createAsync(auditoria);
+            }
+        }
+    }
+
+    // Obtiene una acción por defecto del registro; su ausencia es un error de configuración
+    private Acciones defaultAccion(String nombre) {
+        return auditActionRegistry.reference(nombre)
+            .orElseThrow(() -> new IllegalStateException("Acción '" + nombre + "' no encontrada para la aplicación actual."));
+    }
+
+    /**
+     * Obtiene el usuario autenticado actualmente del contexto de seguridad de Spring.
+     * @return El objeto Usuarios autenticado, o null si no hay usuario autenticado.
+     */
+    private Usuarios getCurrentAuthenticatedUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
+            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+            Usuarios usuario = new Usuarios();
+            usuario.setId(userDetails.getId());
+            usuario.setEmail(userDetails.getUsername());
+            return usuario;
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene el HttpServletRequest del contexto, si la llamada viene de una solicitud web.
+     * @return HttpServletRequest o null.
+     */
+    private HttpServletRequest getHttpServletRequest() {
+        try {
+            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+            return attributes.getRequest();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Extrae la IP del cliente de la solicitud HTTP.
+     * X-Forwarded-For de un proxy de confianza ya está resuelto en getRemoteAddr()
+     * (server.forward-headers-strategy); el encabezado enviado por el cliente no se usa.
+     * @param request La solicitud HTTP.
+     * @return La dirección IP del cliente.
+     */
+    private String getClientIp(HttpServletRequest request) {
+        return request != null ? request.getRemoteAddr() : "";
+    }
+}
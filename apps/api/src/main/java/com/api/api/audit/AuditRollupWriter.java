@@ -0,0 +1,109 @@
+package com.api.api.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Mantiene los contadores agregados de auditoria_accesos_resumen (por minuto, hora y día en UTC,
+ * por aplicación y acción, separando exitosos y fallidos).
+ * AuditBatchWriter lo invoca en la misma transacción que inserta cada lote, de modo que los
+ * contadores coinciden con las filas crudas sin recorrer la tabla de auditoría.
+ * Las filas por minuto y por hora se depuran según la retención configurada.
+ */
+@Component
+public class AuditRollupWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRollupWriter.class);
+
+    public static final String MINUTO = "minuto";
+    public static final String HORA = "hora";
+    public static final String DIA = "dia";
+
+    private static final String UPSERT_SQL = "INSERT INTO auditoria_accesos_resumen " +
+            "(granularidad, periodo, aplicacion_id, accion_id, exitosos, fallidos) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularidad, periodo, aplicacion_id, accion_id) DO UPDATE SET " +
+            "exitosos = auditoria_accesos_resumen.exitosos + EXCLUDED.exitosos, " +
+            "fallidos = auditoria_accesos_resumen.fallidos + EXCLUDED.fallidos";
+
+    // Orden estable de las claves para que escritores concurrentes bloqueen las filas en el mismo orden
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::granularidad)
+            .thenComparing(RollupKey::periodo)
+            .thenComparing(RollupKey::aplicacionId)
+            .thenComparing(RollupKey::accionId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.audit.rollup.minute-retention-days:7}")
+    private int minuteRetentionDays;
+
+    @Value("${app.audit.rollup.hour-retention-days:180}")
+    private int hourRetentionDays;
+
+    public AuditRollupWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Acumula los eventos escritos en los contadores por minuto, hora y día.
+     * Debe ejecutarse dentro de la transacción que insertó los eventos.
+     * @param events Eventos persistidos en auditoria_accesos.
+     */
+    public void apply(List<AuditEvent> events) {
+        Map<RollupKey, long[]> counters = new TreeMap<>(KEY_ORDER);
+        for (AuditEvent event : events) {
+            if (event.aplicacionId() == null || event.accionId() == null) {
+                continue;
+            }
+            OffsetDateTime fecha = event.fecha().withOffsetSameInstant(ZoneOffset.UTC);
+            int slot = "fallido".equals(event.estado()) ? 1 : 0;
+            increment(counters, new RollupKey(MINUTO, fecha.truncatedTo(ChronoUnit.MINUTES), event.aplicacionId(), event.accionId()), slot);
+            increment(counters, new RollupKey(HORA, fecha.truncatedTo(ChronoUnit.HOURS), event.aplicacionId(), event.accionId()), slot);
+            increment(counters, new RollupKey(DIA, fecha.truncatedTo(ChronoUnit.DAYS), event.aplicacionId(), event.accionId()), slot);
+        }
+        if (counters.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(counters.size());
+        counters.forEach((key, count) -> rows.add(new Object[]{
+                key.granularidad(), key.periodo(), key.aplicacionId(), key.accionId(), count[0], count[1]}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    // Depura los contadores por minuto y por hora fuera de su retención (los diarios se conservan)
+    @Scheduled(cron = "${app.audit.rollup.cleanup-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        try {
+            int minutos = jdbcTemplate.update("DELETE FROM auditoria_accesos_resumen WHERE granularidad = ? AND periodo < ?",
+                    MINUTO, now.minusDays(minuteRetentionDays));
+            int horas = jdbcTemplate.update("DELETE FROM auditoria_accesos_resumen WHERE granularidad = ? AND periodo < ?",
+                    HORA, now.minusDays(hourRetentionDays));
+            logger.info("Resumen de auditoría depurado: {} filas por minuto y {} filas por hora.", minutos, horas);
+        } catch (RuntimeException e) {
+            logger.error("Error al depurar el resumen de auditoría: {}", e.getMessage(), e);
+        }
+    }
+
+    private static void increment(Map<RollupKey, long[]> counters, RollupKey key, int slot) {
+        counters.computeIfAbsent(key, k -> new long[2])[slot]++;
+    }
+
+    private record RollupKey(String granularidad, OffsetDateTime periodo, UUID aplicacionId, UUID accionId) {
+    }
+}
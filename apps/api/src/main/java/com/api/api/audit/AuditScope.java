@@ -0,0 +1,9 @@
+package com.api.api.audit;
+
+// Alcance de un evento auditable
+public enum AuditScope {
+    // Llamada iniciada por el usuario (controlador -> servicio): se persiste según la política configurada
+    USER,
+    // Consulta interna del framework (autenticación, autorización, bloques de AuditContext.runInternal): por defecto solo se cuenta
+    INTERNAL
+}
@@ -16,6 +16,8 @@ public @interface AuditableAction {
     String message();
     // Determina si la acción se audita en caso de éxito, fallo, o ambos
     AuditResultType auditResult() default AuditResultType.BOTH;
+    // Alcance declarado: INTERNAL para consultas que solo invoca el propio framework
+    AuditScope scope() default AuditScope.USER;
 
     // Enum para definir el tipo de resultado a auditar
     public enum AuditResultType {
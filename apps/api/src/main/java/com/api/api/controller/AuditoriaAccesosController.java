@@ -1,10 +1,12 @@
 package com.api.api.controller;
 
 import com.api.api.dto.ResponseDTO.AuditoriaAccesoResponseDTO;
+import com.api.api.dto.ResponseDTO.CursorPageResponseDTO;
 import com.api.api.dto.ResponseDTO.ErrorResponseDTO;
 import com.api.api.exception.ResourceNotFoundException;
 import com.api.api.model.AuditoriaAccesos;
 import com.api.api.service.AuditoriaAccesosService;
+import com.api.api.service.AuditoriaExportService;
 import com.api.api.service.UsuariosService;
 import com.api.api.service.AplicacionesService;
 import com.api.api.service.AccionesService;
@@ -22,9 +24,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.modelmapper.ModelMapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
@@ -35,16 +41,19 @@ import java.util.UUID;
 public class AuditoriaAccesosController {
 
     private final AuditoriaAccesosService auditoriaAccesosService;
+    private final AuditoriaExportService auditoriaExportService;
     private final AplicacionesService aplicacionesService;
     private final AccionesService accionesService;
     private final ModelMapper modelMapper;
 
     public AuditoriaAccesosController(AuditoriaAccesosService auditoriaAccesosService,
+                                      AuditoriaExportService auditoriaExportService,
                                       UsuariosService usuariosService,
                                       AplicacionesService aplicacionesService,
                                       AccionesService accionesService,
                                       ModelMapper modelMapper) {
         this.auditoriaAccesosService = auditoriaAccesosService;
+        this.auditoriaExportService = auditoriaExportService;
         this.aplicacionesService = aplicacionesService;
         this.accionesService = accionesService;
         this.modelMapper = modelMapper;
@@ -175,4 +184,163 @@ public class AuditoriaAccesosController {
         Page<AuditoriaAccesoResponseDTO> responsePage = auditoriaPage.map(audit -> modelMapper.map(audit, AuditoriaAccesoResponseDTO.class));
         return ResponseEntity.ok(responsePage);
     }
+
+    /**
+     * Obtiene registros de auditoría con paginación por cursor (keyset), ordenados por fecha descendente.
+     * No ejecuta conteo total y el costo de cada página no depende de su profundidad.
+     * @param cursor Cursor opaco devuelto por la página anterior (vacío para la primera página).
+     * @param limit Cantidad de elementos por página (máximo 100).
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con una CursorPageResponseDTO de AuditoriaAccesoResponseDTO.
+     */
+    @Operation(summary = "Obtener registros de auditoría por cursor",
+               description = "Recupera registros de auditoría ordenados por fecha descendente usando paginación por cursor. Use 'nextCursor' de la respuesta para obtener la siguiente página.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Página de registros de auditoría recuperada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Cursor inválido.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponseDTO<AuditoriaAccesoResponseDTO>> getAuditoriaAccesosByCursor(
+            @Parameter(description = "Cursor opaco de la página anterior (omitir para la primera página).") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de elementos por página (máximo 100).", example = "20") @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        CursorPageResponseDTO<AuditoriaAccesos> auditoriaPage = auditoriaAccesosService.findAllByCursor(cursor, limit);
+        return ResponseEntity.ok(auditoriaPage.map(audit -> modelMapper.map(audit, AuditoriaAccesoResponseDTO.class)));
+    }
+
+    /**
+     * Obtiene registros de auditoría de una aplicación con paginación por cursor (keyset).
+     * @param aplicacionId ID de la aplicación para filtrar los registros.
+     * @param cursor Cursor opaco devuelto por la página anterior (vacío para la primera página).
+     * @param limit Cantidad de elementos por página (máximo 100).
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con una CursorPageResponseDTO de AuditoriaAccesoResponseDTO.
+     */
+    @Operation(summary = "Filtrar registros de auditoría por aplicación con cursor",
+               description = "Recupera registros de auditoría de una aplicación ordenados por fecha descendente usando paginación por cursor.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Página de registros de auditoría recuperada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "ID de aplicación o cursor inválido.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/by-aplicacion/{aplicacionId}/cursor")
+    public ResponseEntity<CursorPageResponseDTO<AuditoriaAccesoResponseDTO>> getAuditoriaAccesosByAplicacionIdAndCursor(
+            @Parameter(description = "ID de la aplicación para filtrar los registros de auditoría.", example = "f1e2d3c4-b5a6-7890-1234-567890fedcba") @PathVariable UUID aplicacionId,
+            @Parameter(description = "Cursor opaco de la página anterior (omitir para la primera página).") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de elementos por página (máximo 100).", example = "20") @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        CursorPageResponseDTO<AuditoriaAccesos> auditoriaPage = auditoriaAccesosService.findByAplicacionIdByCursor(aplicacionId, cursor, limit);
+        return ResponseEntity.ok(auditoriaPage.map(audit -> modelMapper.map(audit, AuditoriaAccesoResponseDTO.class)));
+    }
+
+    /**
+     * Obtiene registros de auditoría de una acción con paginación por cursor (keyset).
+     * @param accionId ID de la acción para filtrar los registros.
+     * @param cursor Cursor opaco devuelto por la página anterior (vacío para la primera página).
+     * @param limit Cantidad de elementos por página (máximo 100).
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con una CursorPageResponseDTO de AuditoriaAccesoResponseDTO.
+     */
+    @Operation(summary = "Filtrar registros de auditoría por acción con cursor",
+               description = "Recupera registros de auditoría de una acción ordenados por fecha descendente usando paginación por cursor.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Página de registros de auditoría recuperada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "ID de acción o cursor inválido.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/by-accion/{accionId}/cursor")
+    public ResponseEntity<CursorPageResponseDTO<AuditoriaAccesoResponseDTO>> getAuditoriaAccesosByAccionIdAndCursor(
+            @Parameter(description = "ID de la acción para filtrar los registros de auditoría.", example = "09876543-21ab-cdef-1234-567890abcdef") @PathVariable UUID accionId,
+            @Parameter(description = "Cursor opaco de la página anterior (omitir para la primera página).") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de elementos por página (máximo 100).", example = "20") @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        CursorPageResponseDTO<AuditoriaAccesos> auditoriaPage = auditoriaAccesosService.findByAccionIdByCursor(accionId, cursor, limit);
+        return ResponseEntity.ok(auditoriaPage.map(audit -> modelMapper.map(audit, AuditoriaAccesoResponseDTO.class)));
+    }
+
+    /**
+     * Búsqueda multicriterio de registros de auditoría en una ventana de tiempo obligatoria.
+     * @param desde Inicio de la ventana (inclusive), formato ISO 8601.
+     * @param hasta Fin de la ventana (exclusive), formato ISO 8601.
+     * @param usuarioId Filtro opcional por usuario.
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param accionId Filtro opcional por acción.
+     * @param estado Filtro opcional por estado ('exitoso' o 'fallido').
+     * @param ip Filtro opcional por IP de origen.
+     * @param cursor Cursor opaco devuelto por la página anterior (vacío para la primera página).
+     * @param limit Cantidad de elementos por página (máximo 100).
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con una CursorPageResponseDTO de AuditoriaAccesoResponseDTO.
+     */
+    @Operation(summary = "Buscar registros de auditoría por criterios",
+               description = "Busca registros de auditoría en una ventana de tiempo obligatoria, con filtros opcionales por usuario, aplicación, acción, estado e IP. Los resultados se ordenan por fecha descendente y se paginan por cursor.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Búsqueda realizada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Ventana de tiempo, estado o cursor inválidos.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageResponseDTO<AuditoriaAccesoResponseDTO>> searchAuditoriaAccesos(
+            @Parameter(description = "Inicio de la ventana de tiempo (inclusive).", example = "2024-06-01T00:00:00Z", required = true) @RequestParam OffsetDateTime desde,
+            @Parameter(description = "Fin de la ventana de tiempo (exclusive).", example = "2024-06-15T00:00:00Z", required = true) @RequestParam OffsetDateTime hasta,
+            @Parameter(description = "ID del usuario.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef") @RequestParam(required = false) UUID usuarioId,
+            @Parameter(description = "ID de la aplicación.", example = "f1e2d3c4-b5a6-7890-1234-567890fedcba") @RequestParam(required = false) UUID aplicacionId,
+            @Parameter(description = "ID de la acción.", example = "09876543-21ab-cdef-1234-567890abcdef") @RequestParam(required = false) UUID accionId,
+            @Parameter(description = "Estado del evento ('exitoso' o 'fallido').", example = "fallido") @RequestParam(required = false) String estado,
+            @Parameter(description = "IP de origen (coincidencia exacta).", example = "192.168.1.10") @RequestParam(required = false) String ip,
+            @Parameter(description = "Cursor opaco de la página anterior (omitir para la primera página).") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de elementos por página (máximo 100).", example = "20") @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        CursorPageResponseDTO<AuditoriaAccesos> auditoriaPage = auditoriaAccesosService.search(desde, hasta, usuarioId, aplicacionId, accionId, estado, ip, cursor, limit);
+        return ResponseEntity.ok(auditoriaPage.map(audit -> modelMapper.map(audit, AuditoriaAccesoResponseDTO.class)));
+    }
+
+    /**
+     * Exporta en streaming los registros de auditoría de una ventana de tiempo en NDJSON o CSV.
+     * @param desde Inicio de la ventana (inclusive), formato ISO 8601.
+     * @param hasta Fin de la ventana (exclusive), formato ISO 8601.
+     * @param formato Formato de salida (NDJSON o CSV).
+     * @param gzip Si la salida se comprime con gzip.
+     * @param ultimoFecha Fecha del último registro ya recibido, para reanudar una exportación.
+     * @param ultimoId ID del último registro ya recibido, para reanudar una exportación.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con el cuerpo de la exportación en streaming.
+     */
+    @Operation(summary = "Exportar registros de auditoría",
+               description = "Exporta en streaming los registros de auditoría de una ventana de tiempo, ordenados por fecha ascendente, en NDJSON o CSV y opcionalmente comprimidos con gzip. Para reanudar, indique la fecha y el ID del último registro recibido.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Exportación generada exitosamente."),
+        @ApiResponse(responseCode = "400", description = "Ventana de tiempo o parámetros de reanudación inválidos.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAuditoriaAccesos(
+            @Parameter(description = "Inicio de la ventana de tiempo (inclusive).", example = "2024-06-01T00:00:00Z", required = true) @RequestParam OffsetDateTime desde,
+            @Parameter(description = "Fin de la ventana de tiempo (exclusive).", example = "2024-07-01T00:00:00Z", required = true) @RequestParam OffsetDateTime hasta,
+            @Parameter(description = "Formato de salida: NDJSON o CSV.", example = "NDJSON") @RequestParam(defaultValue = "NDJSON") AuditoriaExportService.Formato formato,
+            @Parameter(description = "Comprimir la salida con gzip.", example = "false") @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(description = "Fecha del último registro recibido (para reanudar).", example = "2024-06-15T14:30:00Z") @RequestParam(required = false) OffsetDateTime ultimoFecha,
+            @Parameter(description = "ID del último registro recibido (para reanudar).", example = "a1b2c3d4-e5f6-7890-1234-567890abcdef") @RequestParam(required = false) UUID ultimoId,
+            HttpServletRequest request) {
+        StreamingResponseBody body = auditoriaExportService.export(desde, hasta, formato, gzip, ultimoFecha, ultimoId);
+
+        String extension = formato == AuditoriaExportService.Formato.CSV ? "csv" : "ndjson";
+        MediaType mediaType = formato == AuditoriaExportService.Formato.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        if (gzip) {
+            extension += ".gz";
+            mediaType = new MediaType("application", "gzip");
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"auditoria_accesos." + extension + "\"")
+                .body(body);
+    }
 }
@@ -120,15 +120,11 @@ public class AuthController {
 
     /**
      * Helper para extraer la IP del cliente.
+     * Se usa la dirección de la conexión: X-Forwarded-For lo controla el cliente y solo se considera
+     * cuando lo agrega un proxy de confianza (server.forward-headers-strategy), que ya lo resolvió
+     * en request.getRemoteAddr() como un único salto.
      */
     private String getClientIp(HttpServletRequest request) {
-        String remoteAddr = "";
-        if (request != null) {
-            remoteAddr = request.getHeader("X-FORWARDED-FOR");
-            if (remoteAddr == null || "".equals(remoteAddr)) {
-                remoteAddr = request.getRemoteAddr();
-            }
-        }
-        return remoteAddr;
+        return request != null ? request.getRemoteAddr() : "";
     }
 }
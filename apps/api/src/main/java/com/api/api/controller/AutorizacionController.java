@@ -0,0 +1,123 @@
+package com.api.api.controller;
+
+import com.api.api.dto.RequestDTO.AutorizacionBatchRequestDTO;
+import com.api.api.dto.ResponseDTO.AutorizacionBatchResponseDTO;
+import com.api.api.dto.ResponseDTO.AutorizacionCheckResponseDTO;
+import com.api.api.dto.ResponseDTO.ErrorResponseDTO;
+import com.api.api.dto.ResponseDTO.PermisosEfectivosConsistenciaResponseDTO;
+import com.api.api.dto.ResponseDTO.PermisosEfectivosReconstruccionResponseDTO;
+import com.api.api.service.AutorizacionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/autorizacion")
+@Tag(name = "Autorización", description = "Endpoints para que las aplicaciones cliente consulten los permisos de sus usuarios.")
+@SecurityRequirement(name = "bearerAuth")
+public class AutorizacionController {
+
+    private final AutorizacionService autorizacionService;
+
+    public AutorizacionController(AutorizacionService autorizacionService) {
+        this.autorizacionService = autorizacionService;
+    }
+
+    /**
+     * Consulta si un usuario tiene permiso para una acción de una aplicación.
+     * @param usuarioId ID del usuario.
+     * @param llaveAplicacion Llave identificadora de la aplicación.
+     * @param accion Nombre de la acción.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con AutorizacionCheckResponseDTO.
+     */
+    @Operation(summary = "Consultar un permiso",
+               description = "Indica si el usuario puede ejecutar la acción en la aplicación. Se resuelve desde el modelo de permisos en memoria, sin consultar la base de datos.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Consulta resuelta exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = AutorizacionCheckResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "404", description = "Aplicación no encontrada.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "503", description = "El modelo de permisos aún se está cargando.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/check")
+    public ResponseEntity<AutorizacionCheckResponseDTO> check(
+            @Parameter(description = "ID del usuario.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef", required = true) @RequestParam UUID usuarioId,
+            @Parameter(description = "Llave identificadora de la aplicación.", example = "CCA_AUTH_SERVICE", required = true) @RequestParam String llaveAplicacion,
+            @Parameter(description = "Nombre de la acción.", example = "Crear usuario", required = true) @RequestParam String accion,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(autorizacionService.check(usuarioId, llaveAplicacion, accion));
+    }
+
+    /**
+     * Evalúa varias consultas de autorización en una sola solicitud.
+     * @param solicitud Lista de consultas, o un usuario y una aplicación con varias acciones.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con AutorizacionBatchResponseDTO.
+     */
+    @Operation(summary = "Consultar varios permisos",
+               description = "Evalúa un lote de consultas (usuario, aplicación, acción), o varias acciones de un mismo usuario, y devuelve un resultado por consulta en el mismo orden. Una aplicación o acción inexistente se responde con false.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote evaluado exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = AutorizacionBatchResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Lote vacío, mal formado o con más consultas de las permitidas.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "503", description = "El modelo de permisos aún se está cargando.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @PostMapping("/check/batch")
+    public ResponseEntity<AutorizacionBatchResponseDTO> checkBatch(
+            @Valid @RequestBody AutorizacionBatchRequestDTO solicitud,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(autorizacionService.checkBatch(solicitud));
+    }
+
+    /**
+     * Verifica que la tabla de permisos efectivos coincida con las asignaciones y permisos vigentes.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con PermisosEfectivosConsistenciaResponseDTO.
+     */
+    @Operation(summary = "Verificar los permisos efectivos",
+               description = "Compara la tabla materializada usuario_permisos_efectivos con los permisos calculados desde usuarios_tipo_usuario, tipo_usuario, permisos_tipo_usuario y acciones.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Verificación completada.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PermisosEfectivosConsistenciaResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "La tabla de permisos efectivos está deshabilitada.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/permisos-efectivos/consistencia")
+    public ResponseEntity<PermisosEfectivosConsistenciaResponseDTO> verificarPermisosEfectivos(HttpServletRequest request) {
+        return ResponseEntity.ok(autorizacionService.verificarPermisosEfectivos());
+    }
+
+    /**
+     * Reconstruye la tabla de permisos efectivos desde las asignaciones y permisos vigentes.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con PermisosEfectivosReconstruccionResponseDTO.
+     */
+    @Operation(summary = "Reconstruir los permisos efectivos",
+               description = "Recalcula por completo la tabla materializada usuario_permisos_efectivos. Las consultas siguen atendiéndose; los cambios de permisos y asignaciones esperan a que termine.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tabla reconstruida exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PermisosEfectivosReconstruccionResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "La tabla de permisos efectivos está deshabilitada.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @PostMapping("/permisos-efectivos/reconstruir")
+    public ResponseEntity<PermisosEfectivosReconstruccionResponseDTO> reconstruirPermisosEfectivos(HttpServletRequest request) {
+        return ResponseEntity.ok(autorizacionService.reconstruirPermisosEfectivos());
+    }
+}
@@ -0,0 +1,94 @@
+package com.api.api.controller;
+
+import com.api.api.dto.ResponseDTO.DashboardAccionResponseDTO;
+import com.api.api.dto.ResponseDTO.DashboardSerieResponseDTO;
+import com.api.api.dto.ResponseDTO.ErrorResponseDTO;
+import com.api.api.service.DashboardService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@Tag(name = "Dashboard", description = "Endpoints para las métricas del dashboard basadas en el resumen de auditoría.")
+@SecurityRequirement(name = "bearerAuth")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Obtiene la serie temporal de eventos de auditoría exitosos y fallidos.
+     * @param granularidad Granularidad de la serie ('minuto', 'hora' o 'dia').
+     * @param desde Inicio de la ventana de tiempo.
+     * @param hasta Fin de la ventana de tiempo (exclusive).
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param accionId Filtro opcional por acción.
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con la lista de DashboardSerieResponseDTO.
+     */
+    @Operation(summary = "Obtener la serie temporal de eventos de auditoría",
+               description = "Recupera los contadores preagregados de eventos exitosos y fallidos por minuto, hora o día (UTC), con filtros opcionales por aplicación y acción.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Serie temporal recuperada exitosamente.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = DashboardSerieResponseDTO.class)))),
+        @ApiResponse(responseCode = "400", description = "Granularidad o ventana de tiempo inválidas.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/metricas/serie")
+    public ResponseEntity<List<DashboardSerieResponseDTO>> getSerie(
+            @Parameter(description = "Granularidad de la serie: 'minuto', 'hora' o 'dia'.", example = "hora") @RequestParam(defaultValue = "hora") String granularidad,
+            @Parameter(description = "Inicio de la ventana de tiempo.", example = "2024-06-15T00:00:00Z", required = true) @RequestParam OffsetDateTime desde,
+            @Parameter(description = "Fin de la ventana de tiempo (exclusive).", example = "2024-06-16T00:00:00Z", required = true) @RequestParam OffsetDateTime hasta,
+            @Parameter(description = "ID de la aplicación.", example = "f1e2d3c4-b5a6-7890-1234-567890fedcba") @RequestParam(required = false) UUID aplicacionId,
+            @Parameter(description = "ID de la acción.", example = "09876543-21ab-cdef-1234-567890abcdef") @RequestParam(required = false) UUID accionId,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(dashboardService.getSerie(granularidad, desde, hasta, aplicacionId, accionId));
+    }
+
+    /**
+     * Obtiene los totales de eventos de auditoría por acción.
+     * @param desde Inicio de la ventana de tiempo.
+     * @param hasta Fin de la ventana de tiempo (exclusive).
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param limit Cantidad máxima de acciones (máximo 100).
+     * @param request HttpServletRequest para obtener la ruta de la solicitud.
+     * @return ResponseEntity con la lista de DashboardAccionResponseDTO.
+     */
+    @Operation(summary = "Obtener los totales de eventos por acción",
+               description = "Recupera las acciones con más eventos de auditoría en la ventana indicada, separando exitosos y fallidos.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Totales por acción recuperados exitosamente.", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = DashboardAccionResponseDTO.class)))),
+        @ApiResponse(responseCode = "400", description = "Ventana de tiempo inválida.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @GetMapping("/metricas/acciones")
+    public ResponseEntity<List<DashboardAccionResponseDTO>> getTotalesPorAccion(
+            @Parameter(description = "Inicio de la ventana de tiempo.", example = "2024-06-01T00:00:00Z", required = true) @RequestParam OffsetDateTime desde,
+            @Parameter(description = "Fin de la ventana de tiempo (exclusive).", example = "2024-06-16T00:00:00Z", required = true) @RequestParam OffsetDateTime hasta,
+            @Parameter(description = "ID de la aplicación.", example = "f1e2d3c4-b5a6-7890-1234-567890fedcba") @RequestParam(required = false) UUID aplicacionId,
+            @Parameter(description = "Cantidad máxima de acciones (máximo 100).", example = "10") @RequestParam(defaultValue = "10") int limit,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(dashboardService.getTotalesPorAccion(desde, hasta, aplicacionId, limit));
+    }
+}
@@ -58,7 +58,7 @@ public class SesionesController {
      * @return ResponseEntity con una página de SesionResponseDTO.
      */
     @Operation(summary = "Obtener todas las sesiones",
-               description = "Recupera una lista paginada de todas las sesiones de usuario, con opción de búsqueda.")
+               description = "Recupera una lista paginada de las sesiones de usuario no eliminadas, con opción de búsqueda.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de sesiones recuperada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
         @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
@@ -3,10 +3,12 @@ package com.api.api.controller;
 import com.api.api.dto.RequestDTO.UsuarioCreateRequestDTO;
 import com.api.api.dto.RequestDTO.UsuarioUpdateRequestDTO;
 import com.api.api.dto.ResponseDTO.UsuarioResponseDTO;
+import com.api.api.dto.ResponseDTO.UsuarioImportResponseDTO;
 import com.api.api.dto.ResponseDTO.ErrorResponseDTO; 
 import com.api.api.dto.SimpleDTO.UsuarioSimpleDTO; 
 import com.api.api.exception.ResourceNotFoundException; 
 import com.api.api.model.Usuarios; 
+import com.api.api.service.UsuariosImportService;
 import com.api.api.service.UsuariosService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -23,10 +25,13 @@ import jakarta.validation.Valid;
 import org.modelmapper.ModelMapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.UUID;
 import java.util.Optional;
 
@@ -37,10 +42,13 @@ import java.util.Optional;
 public class UsuariosController {
 
     private final UsuariosService usuariosService;
+    private final UsuariosImportService usuariosImportService;
     private final ModelMapper modelMapper;
 
-    public UsuariosController(UsuariosService usuariosService, ModelMapper modelMapper) {
+    public UsuariosController(UsuariosService usuariosService, UsuariosImportService usuariosImportService,
+                              ModelMapper modelMapper) {
         this.usuariosService = usuariosService;
+        this.usuariosImportService = usuariosImportService;
         this.modelMapper = modelMapper;
     }
 
@@ -53,7 +61,7 @@ public class UsuariosController {
      * @return ResponseEntity con una página de UsuarioResponseDTO.
      */
     @Operation(summary = "Obtener todos los usuarios",
-               description = "Recupera una lista paginada de todos los usuarios, con opción de búsqueda.")
+               description = "Recupera una lista paginada de los usuarios no eliminados, con opción de búsqueda.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Lista de usuarios recuperada exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
         @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
@@ -116,6 +124,31 @@ public class UsuariosController {
         return new ResponseEntity<>(modelMapper.map(createdUsuario, UsuarioResponseDTO.class), HttpStatus.CREATED);
     }
 
+    /**
+     * Importa usuarios de forma masiva desde un archivo CSV o NDJSON enviado como cuerpo de la solicitud.
+     * @param contentType Tipo de contenido: text/csv o application/x-ndjson.
+     * @param request HttpServletRequest del que se lee el archivo en streaming.
+     * @return ResponseEntity con el resumen de la importación.
+     * @throws IOException Si falla la lectura del cuerpo de la solicitud.
+     */
+    @Operation(summary = "Importar usuarios de forma masiva",
+               description = "Crea usuarios a partir de un archivo CSV (con encabezado) o NDJSON. Columnas: nombres, apellidos, email, contrasena, estado, dosFactorActivo y tiposUsuario (IDs separados por ';'). Las filas inválidas o con email ya registrado se rechazan sin detener la importación.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Importación procesada; el resultado detalla las filas rechazadas.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UsuarioImportResponseDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Archivo o tipo de contenido inválido.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
+        @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<UsuarioImportResponseDTO> importUsuarios(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) throws IOException {
+        UsuariosImportService.Formato formato = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? UsuariosImportService.Formato.CSV
+                : UsuariosImportService.Formato.NDJSON;
+        return ResponseEntity.ok(usuariosImportService.importar(request.getInputStream(), formato));
+    }
+
     /**
      * Actualiza un usuario existente por su ID (excluyendo la contraseña).
      * @param id ID del usuario a actualizar.
@@ -8,6 +8,7 @@ import com.api.api.exception.ResourceNotFoundException;
 import com.api.api.model.UsuariosTipoUsuario;
 import com.api.api.model.Usuarios;
 import com.api.api.model.TipoUsuario;
+import com.api.api.security.PermissionMatrix;
 import com.api.api.service.UsuariosTipoUsuarioService;
 import com.api.api.service.UsuariosService;
 import com.api.api.service.TipoUsuarioService;
@@ -26,6 +27,8 @@ import jakarta.validation.Valid;
 import org.modelmapper.ModelMapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -40,6 +43,9 @@ import java.util.Optional;
 @SecurityRequirement(name = "bearerAuth")
 public class UsuariosTipoUsuarioController {
 
+    // Versión del modelo de permisos con la que se compiló el menú
+    private static final String PERMISSIONS_VERSION_HEADER = "X-Permisos-Version";
+
     private final UsuariosTipoUsuarioService usuariosTipoUsuarioService;
     private final UsuariosService usuariosService;
     private final TipoUsuarioService tipoUsuarioService;
@@ -336,17 +342,25 @@ public class UsuariosTipoUsuarioController {
      * aplicación dada.
      * Esto es útil para construir menús dinámicos o interfaces de usuario basadas
      * en los permisos del usuario.
+     * La respuesta incluye un ETag; si coincide con If-None-Match se responde 304
+     * sin cuerpo y sin consultar la base de datos.
+     * El menú sale del modelo en memoria del nodo: un cambio hecho en otro nodo se
+     * refleja al recibir su notificación (en general, en menos de
+     * app.security.permissions.listener.min-interval-ms más la reconstrucción) y, si
+     * la notificación se pierde, a más tardar en la siguiente reconstrucción periódica.
      * 
      * @param userId                El UUID del usuario.
      * @param applicationIdentifier La llave identificadora de la aplicación (ej.
      *                              "mi_aplicacion_web").
+     * @param ifNoneMatch           ETags conocidos por el cliente (opcional).
      * @param request               HttpServletRequest para obtener la ruta de la
      *                              solicitud.
-     * @return ResponseEntity con una lista de SeccionPermisosDTO.
+     * @return ResponseEntity con una lista de SeccionPermisosDTO, o 304 si no cambió.
      */
-    @Operation(summary = "Obtener permisos agrupados por sección para un usuario y aplicación", description = "Recupera los permisos de un usuario, organizados por sección, para una aplicación específica. Ideal para construir menús de navegación dinámicos.")
+    @Operation(summary = "Obtener permisos agrupados por sección para un usuario y aplicación", description = "Recupera los permisos de un usuario, organizados por sección, para una aplicación específica. Ideal para construir menús de navegación dinámicos. Admite solicitudes condicionales con If-None-Match. Los cambios de permisos hechos en otro nodo pueden tardar alrededor de un segundo en reflejarse (hasta la siguiente reconstrucción periódica si el nodo perdió la notificación).")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Permisos recuperados y agrupados exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = SeccionPermisosDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Los permisos no cambiaron desde el ETag indicado."),
             @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
             @ApiResponse(responseCode = "404", description = "Usuario o Aplicación no encontrada.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class))),
             @ApiResponse(responseCode = "500", description = "Error interno del servidor.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponseDTO.class)))
@@ -355,9 +369,38 @@ public class UsuariosTipoUsuarioController {
     public ResponseEntity<List<SeccionPermisosDTO>> getPermissionsForUserAndApplicationGroupedBySection(
             @Parameter(description = "ID del usuario para el cual obtener los permisos.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef") @PathVariable UUID userId,
             @Parameter(description = "Llave identificadora de la aplicación.", example = "CCA_AUTH_SERVICE") @PathVariable String applicationIdentifier,
+            @Parameter(description = "ETag recibido en una respuesta anterior.") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             HttpServletRequest request) {
-        List<SeccionPermisosDTO> permissions = usuariosTipoUsuarioService
-                .getPermissionsForUserAndApplicationGroupedBySection(userId, applicationIdentifier);
-        return ResponseEntity.ok(permissions);
+        PermissionMatrix.MenuPermisos menu = usuariosTipoUsuarioService
+                .getMenuPermisos(userId, applicationIdentifier);
+        if (coincideEtag(ifNoneMatch, menu.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(menu.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .header(PERMISSIONS_VERSION_HEADER, String.valueOf(menu.version()))
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(menu.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(PERMISSIONS_VERSION_HEADER, String.valueOf(menu.version()))
+                .body(menu.secciones());
+    }
+
+    // If-None-Match puede traer varios ETags separados por comas, débiles (W/) o '*'
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
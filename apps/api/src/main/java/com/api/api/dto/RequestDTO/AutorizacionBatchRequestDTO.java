@@ -0,0 +1,31 @@
+package com.api.api.dto.RequestDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO para evaluar varias consultas de autorización en una sola solicitud. " +
+        "Se indica la lista 'consultas', o bien un usuario y una aplicación con la lista 'acciones'.")
+public class AutorizacionBatchRequestDTO {
+
+    @Valid
+    @Schema(description = "Consultas (usuario, aplicación, acción) a evaluar, en el orden de la respuesta.")
+    private List<AutorizacionConsultaDTO> consultas;
+
+    @Schema(description = "ID del usuario, cuando se consultan varias acciones de un mismo usuario.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef")
+    private UUID usuarioId;
+
+    @Schema(description = "Llave identificadora de la aplicación, cuando se consultan varias acciones de un mismo usuario.", example = "CCA_AUTH_SERVICE")
+    private String llaveAplicacion;
+
+    @Schema(description = "Nombres de las acciones a evaluar para el usuario, en el orden de la respuesta.", example = "[\"Crear usuario\", \"Eliminar usuario\"]")
+    private List<String> acciones;
+}
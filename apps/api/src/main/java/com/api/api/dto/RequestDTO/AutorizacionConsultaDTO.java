@@ -0,0 +1,29 @@
+package com.api.api.dto.RequestDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con una consulta de autorización (usuario, aplicación, acción).")
+public class AutorizacionConsultaDTO {
+
+    @NotNull(message = "El ID del usuario es obligatorio")
+    @Schema(description = "ID del usuario.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef")
+    private UUID usuarioId;
+
+    @NotBlank(message = "La llave de la aplicación es obligatoria")
+    @Schema(description = "Llave identificadora de la aplicación.", example = "CCA_AUTH_SERVICE")
+    private String llaveAplicacion;
+
+    @NotBlank(message = "El nombre de la acción es obligatorio")
+    @Schema(description = "Nombre de la acción.", example = "Crear usuario")
+    private String accion;
+}
@@ -0,0 +1,21 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con los resultados de un lote de consultas de autorización.")
+public class AutorizacionBatchResponseDTO {
+
+    @Schema(description = "Un resultado por consulta, en el mismo orden de la solicitud.", example = "[true, false]")
+    private List<Boolean> resultados;
+
+    @Schema(description = "Versión del modelo de permisos con la que se evaluó el lote.", example = "42")
+    private long version;
+}
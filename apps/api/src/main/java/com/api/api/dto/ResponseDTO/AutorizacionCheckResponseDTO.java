@@ -0,0 +1,19 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el resultado de una consulta de autorización.")
+public class AutorizacionCheckResponseDTO {
+
+    @Schema(description = "Indica si el usuario tiene permiso para la acción en la aplicación.", example = "true")
+    private boolean permitido;
+
+    @Schema(description = "Versión del modelo de permisos con la que se evaluó la consulta.", example = "42")
+    private long version;
+}
@@ -0,0 +1,30 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO para una página obtenida por cursor (paginación por keyset, sin conteo total).")
+public class CursorPageResponseDTO<T> {
+
+    @Schema(description = "Elementos de la página actual.")
+    private List<T> items;
+
+    @Schema(description = "Cursor opaco para solicitar la página siguiente; nulo si no hay más elementos.", example = "MjAyNC0wNi0xNVQxNDozMDowMFp8YTFiMmMzZDQtZTVmNi03ODkwLTEyMzQtNTY3ODkwYWJjZGVm", nullable = true)
+    private String nextCursor;
+
+    @Schema(description = "Indica si existen más elementos después de esta página.", example = "true")
+    private boolean hasMore;
+
+    // Transforma los elementos conservando el cursor (ej. entidad -> DTO de respuesta)
+    public <R> CursorPageResponseDTO<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPageResponseDTO<>(items.stream().<R>map(mapper).toList(), nextCursor, hasMore);
+    }
+}
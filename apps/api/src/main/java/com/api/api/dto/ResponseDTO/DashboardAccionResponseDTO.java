@@ -0,0 +1,27 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el total de eventos de auditoría de una acción en una ventana de tiempo.")
+public class DashboardAccionResponseDTO {
+
+    @Schema(description = "ID de la acción.", example = "09876543-21ab-cdef-1234-567890abcdef")
+    private UUID accionId;
+
+    @Schema(description = "Nombre de la acción.", example = "INICIO_SESION_EXITOSO")
+    private String accionNombre;
+
+    @Schema(description = "Cantidad de eventos exitosos.", example = "1520")
+    private long exitosos;
+
+    @Schema(description = "Cantidad de eventos fallidos.", example = "42")
+    private long fallidos;
+}
@@ -0,0 +1,24 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO para un punto de la serie temporal de eventos de auditoría del dashboard.")
+public class DashboardSerieResponseDTO {
+
+    @Schema(description = "Inicio del periodo (minuto, hora o día en UTC).", example = "2024-06-15T14:00:00Z")
+    private OffsetDateTime periodo;
+
+    @Schema(description = "Cantidad de eventos exitosos en el periodo.", example = "120")
+    private long exitosos;
+
+    @Schema(description = "Cantidad de eventos fallidos en el periodo.", example = "3")
+    private long fallidos;
+}
@@ -0,0 +1,25 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el resultado de la verificación de la tabla de permisos efectivos.")
+public class PermisosEfectivosConsistenciaResponseDTO {
+
+    @Schema(description = "Indica si la tabla coincide con los permisos calculados desde las asignaciones.", example = "true")
+    private boolean consistente;
+
+    @Schema(description = "Permisos que deberían existir y no están en la tabla.", example = "0")
+    private long faltantes;
+
+    @Schema(description = "Filas de la tabla que no corresponden a ningún permiso vigente.", example = "0")
+    private long sobrantes;
+
+    @Schema(description = "Filas con distinto conteo de orígenes o aplicación.", example = "0")
+    private long diferentes;
+}
@@ -0,0 +1,19 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el resultado de la reconstrucción de la tabla de permisos efectivos.")
+public class PermisosEfectivosReconstruccionResponseDTO {
+
+    @Schema(description = "Cantidad de filas (usuario, acción) de la tabla reconstruida.", example = "125000")
+    private int filas;
+
+    @Schema(description = "Duración de la reconstrucción en milisegundos.", example = "850")
+    private long duracionMs;
+}
@@ -16,9 +16,6 @@ public class SesionResponseDTO {
     @Schema(description = "ID único de la sesión.", example = "b1c2d3e4-f5a6-7890-1234-567890abcdef")
     private UUID id;
 
-    @Schema(description = "Token JWT asociado a la sesión.", example = "eyJhbGciOiJIUzI1Ni...")
-    private String token;
-
     @Schema(description = "ID del usuario propietario de la sesión.", example = "d1e2f3a4-b5c6-7890-1234-567890abcdef")
     private UUID usuarioId;
 
@@ -0,0 +1,22 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el error de una fila rechazada en la importación masiva de usuarios.")
+public class UsuarioImportErrorDTO {
+
+    @Schema(description = "Número de fila del archivo (sin contar el encabezado).", example = "17")
+    private long fila;
+
+    @Schema(description = "Email de la fila, si se pudo leer.", example = "carlos.gonzalez@example.com")
+    private String email;
+
+    @Schema(description = "Motivo del rechazo.", example = "El email ya está registrado")
+    private String mensaje;
+}
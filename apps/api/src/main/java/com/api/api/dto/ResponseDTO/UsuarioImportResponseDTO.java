@@ -0,0 +1,30 @@
+package com.api.api.dto.ResponseDTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO con el resultado de una importación masiva de usuarios.")
+public class UsuarioImportResponseDTO {
+
+    @Schema(description = "Cantidad de filas leídas del archivo.", example = "10000")
+    private long totalFilas;
+
+    @Schema(description = "Cantidad de usuarios creados.", example = "9985")
+    private long creados;
+
+    @Schema(description = "Cantidad de filas rechazadas.", example = "15")
+    private long rechazados;
+
+    @Schema(description = "Detalle de las filas rechazadas (limitado a los primeros errores).")
+    private List<UsuarioImportErrorDTO> errores;
+
+    @Schema(description = "Indica si la lista de errores se truncó.", example = "false")
+    private boolean erroresTruncados;
+}
@@ -1,6 +1,7 @@
 package com.api.api.exception;
 
 import com.api.api.dto.ResponseDTO.ErrorResponseDTO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -54,6 +55,52 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Maneja excepciones de tipo ServiceUnavailableException (HTTP 503 Service Unavailable).
+     * Se lanza cuando un recurso acotado (ej. el pool de hash de contraseñas) está saturado.
+     * @param ex La excepción ServiceUnavailableException.
+     * @param request La solicitud web actual.
+     * @return ResponseEntity con ErrorResponseDTO, cabecera Retry-After y HttpStatus.SERVICE_UNAVAILABLE.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponseDTO> handleServiceUnavailableException(
+            ServiceUnavailableException ex, WebRequest request) {
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO(
+            ex.getMessage(),
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            ex.getClass().getSimpleName(),
+            OffsetDateTime.now(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        System.err.println("ServiceUnavailableException en " + request.getDescription(false) + ": " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(errorResponse);
+    }
+
+    /**
+     * Maneja excepciones de tipo TooManyRequestsException (HTTP 429 Too Many Requests).
+     * Se lanza cuando un cliente supera el límite de intentos (ej. intentos de login por IP).
+     * @param ex La excepción TooManyRequestsException.
+     * @param request La solicitud web actual.
+     * @return ResponseEntity con ErrorResponseDTO, cabecera Retry-After y HttpStatus.TOO_MANY_REQUESTS.
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponseDTO> handleTooManyRequestsException(
+            TooManyRequestsException ex, WebRequest request) {
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO(
+            ex.getMessage(),
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            ex.getClass().getSimpleName(),
+            OffsetDateTime.now(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        System.err.println("TooManyRequestsException en " + request.getDescription(false) + ": " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(errorResponse);
+    }
+
     /**
      * Maneja errores de validación de campos (@Valid en DTOs) (HTTP 400 Bad Request).
      * @param ex La excepción MethodArgumentNotValidException.
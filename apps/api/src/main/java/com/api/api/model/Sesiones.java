@@ -14,9 +14,9 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode(callSuper = true)
 public class Sesiones extends BaseEntity {
 
-    @NotBlank(message = "El token es obligatorio")
-    @Column(name = "token", nullable = false, unique = true, length = 255)
-    private String token;
+    // SHA-256 (hex) del JWT emitido; el token referencia la sesión por su claim 'jti' (el ID de la sesión)
+    @Column(name = "token_hash", length = 64, columnDefinition = "CHAR(64)")
+    private String tokenHash;
 
     @NotNull(message = "El usuario es obligatorio")
     @ManyToOne
@@ -46,6 +46,10 @@ public class Sesiones extends BaseEntity {
     @Column(name = "fecha_fin", columnDefinition = "TIMESTAMP WITH TIME ZONE")
     private OffsetDateTime fechaFin; // Campo para el fin de la sesión (para logout/revocación)
 
+    // Momento de la revocación con el reloj de la base de datos; lo asigna SesionesRepository.marcarRevocacion
+    @Column(name = "fecha_revocacion", insertable = false, updatable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+    private OffsetDateTime fechaRevocacion;
+
     @NotBlank(message = "El estado es obligatorio")
     @Column(name = "estado", nullable = false, length = 10, columnDefinition = "VARCHAR(10) DEFAULT 'activa' CHECK (estado IN ('activa','cerrada','expirada'))")
     private String estado = "activa";
@@ -75,4 +75,32 @@ public class Usuarios extends BaseEntity {
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<AuditoriaAccesos> auditoriaAccesos;
 
+    /**
+     * Normaliza un email para guardarlo y buscarlo (sin espacios y en minúsculas).
+     * La columna email guarda siempre el valor normalizado, de modo que las búsquedas por
+     * igualdad usan el índice único de la columna. Coincide con el CHECK de V017
+     * (LOWER(BTRIM(email, ' ') COLLATE "C")): quita solo espacios U+0020 y convierte solo A-Z.
+     * @param email Email a normalizar.
+     * @return El email normalizado, o null si es null.
+     */
+    public static String normalizarEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        int inicio = 0;
+        int fin = email.length();
+        while (inicio < fin && email.charAt(inicio) == ' ') {
+            inicio++;
+        }
+        while (fin > inicio && email.charAt(fin - 1) == ' ') {
+            fin--;
+        }
+        char[] caracteres = email.substring(inicio, fin).toCharArray();
+        for (int i = 0; i < caracteres.length; i++) {
+            if (caracteres[i] >= 'A' && caracteres[i] <= 'Z') {
+                caracteres[i] = (char) (caracteres[i] + ('a' - 'A'));
+            }
+        }
+        return new String(caracteres);
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import com.api.api.dto.SimpleDTO.AccionSimpleDTO;
 import com.api.api.model.Acciones;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -29,4 +30,8 @@ public interface AccionesRepository extends JpaRepository<Acciones, UUID> {
 
     @Query("SELECT a.id AS id, a.nombre AS nombre FROM Acciones a")
     Iterable<AccionSimpleDTO> findAllSelect();
+
+    // Proyección id/nombre de las acciones de una aplicación (registro de acciones de auditoría)
+    @Query("SELECT a.id AS id, a.nombre AS nombre FROM Acciones a WHERE a.aplicacion.id = :aplicacionId")
+    List<AccionSimpleDTO> findSelectByAplicacionId(@Param("aplicacionId") UUID aplicacionId);
 }
@@ -3,15 +3,18 @@ package com.api.api.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.api.api.model.AuditoriaAccesos;
 import com.api.api.model.AuditoriaAccesosId;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface AuditoriaAccesosRepository extends JpaRepository<AuditoriaAccesos, AuditoriaAccesosId> {
+public interface AuditoriaAccesosRepository extends JpaRepository<AuditoriaAccesos, AuditoriaAccesosId>, JpaSpecificationExecutor<AuditoriaAccesos> {
     
     @Query("SELECT a FROM AuditoriaAccesos a WHERE " +
            "LOWER(a.usuario) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
@@ -25,4 +28,23 @@ public interface AuditoriaAccesosRepository extends JpaRepository<AuditoriaAcces
     @Query("SELECT a FROM AuditoriaAccesos a WHERE a.accion.id = :accionId")
     Page<AuditoriaAccesos> findByAccionId(@Param("accionId") UUID accionId, Pageable pageable);
 
+    // Paginación por keyset ordenada por (fecha DESC, id DESC) sin consulta de conteo.
+    // El predicado redundante "fecha <= :fecha" permite a PostgreSQL podar particiones.
+    @Query("SELECT a FROM AuditoriaAccesos a " +
+           "LEFT JOIN FETCH a.usuario LEFT JOIN FETCH a.aplicacion LEFT JOIN FETCH a.accion " +
+           "WHERE a.id.fecha <= :fecha AND (a.id.fecha, a.id.id) < (:fecha, :id) " +
+           "ORDER BY a.id.fecha DESC, a.id.id DESC")
+    List<AuditoriaAccesos> findPageAfter(@Param("fecha") OffsetDateTime fecha, @Param("id") UUID id, Pageable pageable);
+
+    @Query("SELECT a FROM AuditoriaAccesos a " +
+           "LEFT JOIN FETCH a.usuario LEFT JOIN FETCH a.aplicacion LEFT JOIN FETCH a.accion " +
+           "WHERE a.aplicacion.id = :aplicacionId AND a.id.fecha <= :fecha AND (a.id.fecha, a.id.id) < (:fecha, :id) " +
+           "ORDER BY a.id.fecha DESC, a.id.id DESC")
+    List<AuditoriaAccesos> findPageByAplicacionIdAfter(@Param("aplicacionId") UUID aplicacionId, @Param("fecha") OffsetDateTime fecha, @Param("id") UUID id, Pageable pageable);
+
+    @Query("SELECT a FROM AuditoriaAccesos a " +
+           "LEFT JOIN FETCH a.usuario LEFT JOIN FETCH a.aplicacion LEFT JOIN FETCH a.accion " +
+           "WHERE a.accion.id = :accionId AND a.id.fecha <= :fecha AND (a.id.fecha, a.id.id) < (:fecha, :id) " +
+           "ORDER BY a.id.fecha DESC, a.id.id DESC")
+    List<AuditoriaAccesos> findPageByAccionIdAfter(@Param("accionId") UUID accionId, @Param("fecha") OffsetDateTime fecha, @Param("id") UUID id, Pageable pageable);
 }
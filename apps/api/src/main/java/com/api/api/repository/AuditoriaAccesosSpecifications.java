@@ -0,0 +1,77 @@
+package com.api.api.repository;
+
+import com.api.api.model.AuditoriaAccesos;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Especificaciones reutilizables para la búsqueda dinámica en auditoria_accesos.
+ * Cada filtro opcional devuelve null cuando no se indica, de modo que la consulta final solo
+ * contiene los predicados solicitados y PostgreSQL puede elegir el índice compuesto (columna, fecha)
+ * correspondiente y podar particiones a partir de la ventana de fechas.
+ */
+public final class AuditoriaAccesosSpecifications {
+
+    private AuditoriaAccesosSpecifications() {
+    }
+
+    // Ventana de tiempo obligatoria: desde (inclusive) hasta (exclusive)
+    public static Specification<AuditoriaAccesos> fechaEntre(OffsetDateTime desde, OffsetDateTime hasta) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(fecha(root), desde),
+                cb.lessThan(fecha(root), hasta));
+    }
+
+    public static Specification<AuditoriaAccesos> usuarioId(UUID usuarioId) {
+        return usuarioId == null ? null : (root, query, cb) -> cb.equal(root.get("usuario").get("id"), usuarioId);
+    }
+
+    public static Specification<AuditoriaAccesos> aplicacionId(UUID aplicacionId) {
+        return aplicacionId == null ? null : (root, query, cb) -> cb.equal(root.get("aplicacion").get("id"), aplicacionId);
+    }
+
+    public static Specification<AuditoriaAccesos> accionId(UUID accionId) {
+        return accionId == null ? null : (root, query, cb) -> cb.equal(root.get("accion").get("id"), accionId);
+    }
+
+    public static Specification<AuditoriaAccesos> estado(String estado) {
+        return estado == null || estado.isBlank() ? null : (root, query, cb) -> cb.equal(root.get("estado"), estado);
+    }
+
+    public static Specification<AuditoriaAccesos> ipOrigen(String ipOrigen) {
+        return ipOrigen == null || ipOrigen.isBlank() ? null : (root, query, cb) -> cb.equal(root.get("ipOrigen"), ipOrigen);
+    }
+
+    // Posición de keyset: registros estrictamente anteriores a (fecha, id) en orden (fecha DESC, id DESC)
+    public static Specification<AuditoriaAccesos> antesDe(OffsetDateTime fechaCursor, UUID idCursor) {
+        return (root, query, cb) -> {
+            Path<OffsetDateTime> fecha = fecha(root);
+            Path<UUID> id = root.get("id").get("id");
+            return cb.and(
+                    cb.lessThanOrEqualTo(fecha, fechaCursor),
+                    cb.or(cb.lessThan(fecha, fechaCursor),
+                          cb.and(cb.equal(fecha, fechaCursor), cb.lessThan(id, idCursor))));
+        };
+    }
+
+    // Carga usuario, aplicación y acción en la misma consulta (se omite en consultas de conteo)
+    public static Specification<AuditoriaAccesos> conRelaciones() {
+        return (root, query, cb) -> {
+            if (query != null && query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("usuario", JoinType.LEFT);
+                root.fetch("aplicacion", JoinType.LEFT);
+                root.fetch("accion", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    private static Path<OffsetDateTime> fecha(Root<AuditoriaAccesos> root) {
+        return root.get("id").get("fecha");
+    }
+}
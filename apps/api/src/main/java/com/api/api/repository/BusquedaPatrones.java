@@ -0,0 +1,32 @@
+package com.api.api.repository;
+
+import java.util.Locale;
+
+/**
+ * Utilidades para las búsquedas por subcadena sobre las columnas "busqueda" (V020).
+ * El término se normaliza igual que la columna generada (minúsculas) y los comodines de LIKE
+ * se escapan para que '%' y '_' se busquen de forma literal.
+ */
+public final class BusquedaPatrones {
+
+    private BusquedaPatrones() {
+    }
+
+    // Normaliza el término de búsqueda como la columna generada
+    public static String normalizar(String termino) {
+        return termino == null ? "" : termino.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Patrón LIKE '%termino%' con los comodines escapados (se usa con ESCAPE '\')
+    public static String contiene(String termino) {
+        StringBuilder patron = new StringBuilder(termino.length() + 2).append('%');
+        for (int i = 0; i < termino.length(); i++) {
+            char c = termino.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                patron.append('\\');
+            }
+            patron.append(c);
+        }
+        return patron.append('%').toString();
+    }
+}
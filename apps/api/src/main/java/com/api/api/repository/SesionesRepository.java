@@ -3,29 +3,50 @@ package com.api.api.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.api.api.model.Sesiones;
 
-import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface SesionesRepository extends JpaRepository<Sesiones, UUID> {
 
-    @Query("SELECT s FROM Sesiones s WHERE " +
-            "LOWER(s.usuario.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.ipOrigen) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.emailUsuario) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.informacionDispositivo) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(s.estado) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Sesiones> searchAllFields(@Param("searchTerm") String searchTerm, Pageable pageable);
+    // IDs de las sesiones que coinciden por sus propios campos o por los de su usuario
+    String COINCIDENCIAS = "SELECT id FROM sesiones WHERE deleted_at IS NULL AND busqueda LIKE :patron ESCAPE '\\' " +
+            "UNION SELECT s2.id FROM sesiones s2 JOIN usuarios u2 ON u2.id = s2.usuario_id " +
+            "WHERE s2.deleted_at IS NULL AND u2.deleted_at IS NULL AND u2.busqueda LIKE :patron ESCAPE '\\'";
 
-    @Query("SELECT s FROM Sesiones s WHERE s.estado = :estado")
-    Page<Sesiones> findByEstado(@Param("estado") String estado, Pageable pageable);
+    // Búsqueda por subcadena en email, IP, dispositivo, estado y datos del usuario, ordenada por
+    // relevancia y luego por inicio más reciente. Cada rama usa el índice GIN de trigramas de su
+    // tabla (V020); la unión evita el OR entre tablas que obligaría a recorrer sesiones completa.
+    default Page<Sesiones> searchAllFields(String searchTerm, Pageable pageable) {
+        String termino = BusquedaPatrones.normalizar(searchTerm);
+        return searchBusqueda(BusquedaPatrones.contiene(termino), termino, pageable);
+    }
+
+    @Query(value = "SELECT s.* FROM sesiones s JOIN usuarios u ON u.id = s.usuario_id " +
+            "WHERE s.id IN (" + COINCIDENCIAS + ") " +
+            "ORDER BY GREATEST(word_similarity(:termino, s.busqueda), word_similarity(:termino, u.busqueda)) DESC, " +
+            "s.fecha_inicio DESC, s.id",
+            countQuery = "SELECT COUNT(*) FROM (" + COINCIDENCIAS + ") c",
+            nativeQuery = true)
+    Page<Sesiones> searchBusqueda(@Param("patron") String patron, @Param("termino") String termino, Pageable pageable);
+
+    // Asigna fecha_revocacion = now() si la sesión dejó de estar activa o fue eliminada lógicamente
+    // (TokenRevocationIndex sincroniza por esa columna); la limpia si la sesión volvió a estar activa
+    @Modifying
+    @Query(value = "UPDATE sesiones SET fecha_revocacion = CASE WHEN estado <> 'activa' OR deleted_at IS NOT NULL " +
+            "THEN now() END WHERE id = :id", nativeQuery = true)
+    int marcarRevocacion(@Param("id") UUID id);
 
-    // Buscar una sesión por su token JWT
-    @Query("SELECT s FROM Sesiones s WHERE s.token = :token")
-    Optional<Sesiones> findByToken(String token);
+    // Los listados excluyen las sesiones eliminadas lógicamente, igual que searchAllFields
+    // (el @Where de BaseEntity no se aplica a las entidades)
+    @Query("SELECT s FROM Sesiones s WHERE s.deletedAt IS NULL")
+    Page<Sesiones> findAllNoEliminadas(Pageable pageable);
+
+    @Query("SELECT s FROM Sesiones s WHERE s.estado = :estado AND s.deletedAt IS NULL")
+    Page<Sesiones> findByEstado(@Param("estado") String estado, Pageable pageable);
 }
@@ -3,35 +3,51 @@ package com.api.api.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.api.api.dto.SimpleDTO.UsuarioSimpleDTO;
 
 import com.api.api.model.Usuarios;
 
+import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface UsuariosRepository extends JpaRepository<Usuarios, UUID> {
 
-    @Query("SELECT u FROM Usuarios u WHERE " +
-            "LOWER(u.nombres) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(u.apellidos) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-            "LOWER(u.estado) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Usuarios> searchAllFields(@Param("searchTerm") String searchTerm, Pageable pageable);
+    // Búsqueda por subcadena en nombres, apellidos, email y estado ordenada por relevancia.
+    // Usa la columna generada "busqueda" y su índice GIN de trigramas (V020).
+    default Page<Usuarios> searchAllFields(String searchTerm, Pageable pageable) {
+        String termino = BusquedaPatrones.normalizar(searchTerm);
+        return searchBusqueda(BusquedaPatrones.contiene(termino), termino, pageable);
+    }
 
-    @Query("SELECT u FROM Usuarios u WHERE u.estado = :estado")
+    @Query(value = "SELECT u.* FROM usuarios u " +
+            "WHERE u.deleted_at IS NULL AND u.busqueda LIKE :patron ESCAPE '\\' " +
+            "ORDER BY word_similarity(:termino, u.busqueda) DESC, u.apellidos, u.nombres, u.id",
+            countQuery = "SELECT COUNT(*) FROM usuarios u " +
+            "WHERE u.deleted_at IS NULL AND u.busqueda LIKE :patron ESCAPE '\\'",
+            nativeQuery = true)
+    Page<Usuarios> searchBusqueda(@Param("patron") String patron, @Param("termino") String termino, Pageable pageable);
+
+    // Los listados excluyen a los usuarios eliminados lógicamente, igual que searchAllFields.
+    // El @Where de BaseEntity no se aplica: Hibernate lo ignora en un @MappedSuperclass.
+    @Query("SELECT u FROM Usuarios u WHERE u.deletedAt IS NULL")
+    Page<Usuarios> findAllNoEliminados(Pageable pageable);
+
+    @Query("SELECT u FROM Usuarios u WHERE u.estado = :estado AND u.deletedAt IS NULL")
     Page<Usuarios> findByEstado(@Param("estado") String estado, Pageable pageable);
 
     // Buscar usuarios por la propiedad dosFactorActivo
-    @Query("SELECT u FROM Usuarios u WHERE u.dosFactorActivo = :dosFactorActivo")
+    @Query("SELECT u FROM Usuarios u WHERE u.dosFactorActivo = :dosFactorActivo AND u.deletedAt IS NULL")
     Page<Usuarios> findByDosFactorActivo(@Param("dosFactorActivo") Boolean dosFactorActivo, Pageable pageable);
 
     // Buscar usuarios por la propiedad requiereCambioContrasena
-    @Query("SELECT u FROM Usuarios u WHERE u.requiereCambioContrasena = :requiereCambioContrasena")
+    @Query("SELECT u FROM Usuarios u WHERE u.requiereCambioContrasena = :requiereCambioContrasena AND u.deletedAt IS NULL")
     Page<Usuarios> findByRequiereCambioContrasena(@Param("requiereCambioContrasena") boolean requiereCambioContrasena, Pageable pageable);
 
     // Buscar si el usuario tiene la sesión bloqueada
@@ -44,9 +60,35 @@ public interface UsuariosRepository extends JpaRepository<Usuarios, UUID> {
         """)
     boolean isSessionBlocked(@Param("id") UUID id);
 
-    @Query("SELECT u.id AS id, u.nombres AS nombre, u.apellidos AS apellidos, u.email AS email FROM Usuarios u")
+    @Query("SELECT u.id AS id, u.nombres AS nombre, u.apellidos AS apellidos, u.email AS email FROM Usuarios u WHERE u.deletedAt IS NULL")
     Iterable<UsuarioSimpleDTO> findAllSelect();
 
-    @Query("SELECT u FROM Usuarios u WHERE LOWER(u.email) = LOWER(:email)")
-    Optional<Usuarios> findByEmail(String email);
+    // Búsqueda por igualdad sobre el email normalizado (usa el índice único de usuarios.email)
+    @Query("SELECT u FROM Usuarios u WHERE u.email = :email")
+    Optional<Usuarios> findByEmailNormalizado(@Param("email") String email);
+
+    // Busca un usuario por email sin distinguir mayúsculas; normaliza el parámetro antes de consultar
+    default Optional<Usuarios> findByEmail(String email) {
+        return findByEmailNormalizado(Usuarios.normalizarEmail(email));
+    }
+
+    // Persiste el bloqueo de la cuenta cuando LoginThrottle detecta que se alcanzó el máximo de intentos
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuarios u SET u.intentosFallidosSesion = :intentos, u.fechaUltimoIntentoFallido = :ahora, " +
+           "u.fechaBloqueoSesion = :fechaBloqueo WHERE u.id = :id")
+    int bloquearSesion(@Param("id") UUID id, @Param("intentos") int intentos, @Param("ahora") OffsetDateTime ahora,
+                       @Param("fechaBloqueo") OffsetDateTime fechaBloqueo);
+
+    // Guarda el nuevo hash solo si la contraseña sigue siendo la verificada (evita sobrescribir un cambio concurrente)
+    @Modifying
+    @Query("UPDATE Usuarios u SET u.contrasena = :nuevoHash, u.fechaUltimoCambioContrasena = :ahora, " +
+           "u.requiereCambioContrasena = false WHERE u.id = :id AND u.contrasena = :hashVerificado")
+    int cambiarContrasena(@Param("id") UUID id, @Param("hashVerificado") String hashVerificado,
+                          @Param("nuevoHash") String nuevoHash, @Param("ahora") OffsetDateTime ahora);
+
+    // Reinicia los contadores de intentos fallidos tras un login exitoso
+    @Modifying
+    @Query("UPDATE Usuarios u SET u.intentosFallidosSesion = 0, u.fechaUltimoIntentoFallido = NULL, u.fechaBloqueoSesion = NULL WHERE u.id = :id")
+    int reiniciarIntentosFallidos(@Param("id") UUID id);
 }
@@ -32,4 +32,8 @@ public interface UsuariosTipoUsuarioRepository extends JpaRepository<UsuariosTip
     // Método para buscar usuarios tipo usuario por ID de tipo de usuario y ID de usuario
     @Query("SELECT u FROM UsuariosTipoUsuario u WHERE u.tipoUsuario.id = :tipoUsuarioId AND u.usuario.id = :usuarioId")
     List<UsuariosTipoUsuario> findByTipoUsuarioIdAndUsuarioId(@Param("tipoUsuarioId") UUID tipoUsuarioId, @Param("usuarioId") UUID usuarioId);
+
+    // Obtener solo los IDs de los usuarios que tienen asignado un tipo de usuario
+    @Query("SELECT u.usuario.id FROM UsuariosTipoUsuario u WHERE u.tipoUsuario.id = :tipoUsuarioId")
+    List<UUID> findUsuarioIdsByTipoUsuarioId(@Param("tipoUsuarioId") UUID tipoUsuarioId);
 }
@@ -0,0 +1,26 @@
+package com.api.api.search;
+
+import com.api.api.model.Acciones;
+import com.api.api.repository.AccionesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Índice de búsqueda en memoria del catálogo de acciones (nombre y descripción)
+@Component
+public class AccionesSearchIndex extends CatalogSearchIndex<Acciones> {
+
+    public AccionesSearchIndex(AccionesRepository repository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        super("acciones", repository, transactionManager, meterRegistry);
+    }
+
+    @Override
+    protected List<String> campos(Acciones entidad) {
+        return Arrays.asList(entidad.getNombre(), entidad.getDescripcion());
+    }
+}
@@ -0,0 +1,26 @@
+package com.api.api.search;
+
+import com.api.api.model.Aplicaciones;
+import com.api.api.repository.AplicacionesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Índice de búsqueda en memoria del catálogo de aplicaciones (nombre, descripción, URL y llave identificadora)
+@Component
+public class AplicacionesSearchIndex extends CatalogSearchIndex<Aplicaciones> {
+
+    public AplicacionesSearchIndex(AplicacionesRepository repository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        super("aplicaciones", repository, transactionManager, meterRegistry);
+    }
+
+    @Override
+    protected List<String> campos(Aplicaciones entidad) {
+        return Arrays.asList(entidad.getNombre(), entidad.getDescripcion(), entidad.getUrl(), entidad.getLlaveIdentificadora());
+    }
+}
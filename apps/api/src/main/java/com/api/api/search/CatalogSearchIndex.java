@@ -0,0 +1,345 @@
+package com.api.api.search;
+
+import com.api.api.model.BaseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas en memoria para la búsqueda por subcadena de un catálogo pequeño.
+ * Resuelve en memoria el filtrado, el conteo y el orden por relevancia de la búsqueda paginada
+ * (misma semántica que LIKE '%termino%' sobre los campos del catálogo); de la base de datos solo
+ * se leen por ID las entidades de la página solicitada.
+ * - Se carga al iniciar y el servicio del catálogo lo actualiza tras cada creación, actualización
+ *   o eliminación; las escrituras que llegan durante una reconstrucción se vuelven a aplicar
+ *   sobre el índice nuevo.
+ * - Se reconstruye periódicamente para incorporar los cambios hechos en otros nodos.
+ * - Mientras no hay un índice válido (carga inicial o reconstrucción tras un error) search()
+ *   devuelve vacío y el servicio consulta la base de datos.
+ * @param <T> Entidad del catálogo.
+ */
+public abstract class CatalogSearchIndex<T extends BaseEntity> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+    private static final int GRAM = 3;
+
+    private final String nombre;
+    private final JpaRepository<T, UUID> repository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // ID -> campos normalizados del documento, en orden de prioridad para la relevancia
+    private Map<UUID, String[]> documentos = new HashMap<>();
+    // Trigrama -> IDs de los documentos que lo contienen en alguno de sus campos
+    private Map<String, Set<UUID>> postings = new HashMap<>();
+    private volatile boolean ready;
+    // Escrituras recibidas durante una reconstrucción (null si no hay reconstrucción en curso)
+    private List<Runnable> pendientes;
+
+    private final Counter consultasMemoria;
+    private final Counter consultasBaseDatos;
+
+    protected CatalogSearchIndex(String nombre,
+                                 JpaRepository<T, UUID> repository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.nombre = nombre;
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        meterRegistry.gauge("busqueda.catalogo.documentos", Tags.of("catalogo", nombre), this, CatalogSearchIndex::size);
+        this.consultasMemoria = meterRegistry.counter("busqueda.catalogo.consultas", "catalogo", nombre, "origen", "memoria");
+        this.consultasBaseDatos = meterRegistry.counter("busqueda.catalogo.consultas", "catalogo", nombre, "origen", "base_datos");
+    }
+
+    /**
+     * Campos buscables de la entidad, en orden de prioridad para la relevancia.
+     * Deben coincidir con los campos de searchAllFields del repositorio.
+     */
+    protected abstract List<String> campos(T entidad);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruye el índice desde la base de datos y lo reemplaza de forma atómica.
+     * El índice anterior sigue respondiendo mientras se lee el catálogo.
+     */
+    @Scheduled(initialDelayString = "${app.search.catalog.rebuild-interval-ms:300000}",
+               fixedDelayString = "${app.search.catalog.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Map<UUID, String[]> nuevosDocumentos = new HashMap<>();
+            Map<String, Set<UUID>> nuevosPostings = new HashMap<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                for (T entidad : repository.findAll()) {
+                    indexar(nuevosDocumentos, nuevosPostings, entidad.getId(), normalizarCampos(entidad));
+                }
+            });
+            lock.writeLock().lock();
+            try {
+                documentos = nuevosDocumentos;
+                postings = nuevosPostings;
+                pendientes.forEach(Runnable::run);
+                ready = true;
+            } finally {
+                pendientes = null;
+                lock.writeLock().unlock();
+            }
+            logger.info("Índice de búsqueda de {} reconstruido: {} documentos en {} ms.",
+                    nombre, nuevosDocumentos.size(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("Error al reconstruir el índice de búsqueda de {}: {}", nombre, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Vuelve a indexar una entidad tras guardarla, leyéndola por ID para tomar el estado confirmado
+     * (incluidas las relaciones de las que dependen sus campos). Si ya no existe, se elimina.
+     * @param id ID de la entidad creada o actualizada.
+     */
+    public void refresh(UUID id) {
+        if (id == null) {
+            return;
+        }
+        String[] campos = readOnlyTransaction.execute(status ->
+                repository.findById(id).map(this::normalizarCampos).orElse(null));
+        if (campos == null) {
+            remove(id);
+            return;
+        }
+        aplicar(() -> {
+            desindexar(documentos, postings, id);
+            indexar(documentos, postings, id, campos);
+        });
+    }
+
+    public void refreshAll(Iterable<? extends BaseEntity> entidades) {
+        for (BaseEntity entidad : entidades) {
+            refresh(entidad.getId());
+        }
+    }
+
+    /**
+     * Descarta el índice y lo reconstruye; mientras tanto las búsquedas van a la base de datos.
+     * Se usa cuando cambia un dato de otra tabla del que dependen muchos documentos.
+     */
+    public void reload() {
+        ready = false;
+        rebuild();
+    }
+
+    // Elimina el documento de una entidad eliminada
+    public void remove(UUID id) {
+        if (id != null) {
+            aplicar(() -> desindexar(documentos, postings, id));
+        }
+    }
+
+    /**
+     * Busca en memoria las entidades cuyos campos contienen el término.
+     * @param searchTerm Término de búsqueda.
+     * @param pageable Página solicitada.
+     * @return La página ordenada por relevancia, o vacío si el índice no está disponible.
+     */
+    public Optional<Page<T>> search(String searchTerm, Pageable pageable) {
+        if (!ready) {
+            consultasBaseDatos.increment();
+            return Optional.empty();
+        }
+        String termino = normalizar(searchTerm);
+        List<Coincidencia> coincidencias;
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                consultasBaseDatos.increment();
+                return Optional.empty();
+            }
+            coincidencias = new ArrayList<>();
+            for (UUID id : candidatos(termino)) {
+                String[] campos = documentos.get(id);
+                int puntaje = campos != null ? puntaje(campos, termino) : 0;
+                if (puntaje > 0) {
+                    coincidencias.add(new Coincidencia(id, puntaje, campos[0]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        consultasMemoria.increment();
+
+        coincidencias.sort(Comparator.comparingInt(Coincidencia::puntaje).reversed()
+                .thenComparing(Coincidencia::principal)
+                .thenComparing(Coincidencia::id));
+        int desde = (int) Math.min(pageable.getOffset(), coincidencias.size());
+        int hasta = Math.min(desde + pageable.getPageSize(), coincidencias.size());
+        List<UUID> ids = coincidencias.subList(desde, hasta).stream().map(Coincidencia::id).toList();
+        return Optional.of(new PageImpl<>(cargar(ids), pageable, coincidencias.size()));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Aplica una escritura al índice actual y la registra si hay una reconstrucción en curso
+    private void aplicar(Runnable escritura) {
+        lock.writeLock().lock();
+        try {
+            escritura.run();
+            if (pendientes != null) {
+                pendientes.add(escritura);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Documentos que contienen todos los trigramas del término (superconjunto de las coincidencias)
+    private Collection<UUID> candidatos(String termino) {
+        if (termino.length() < GRAM) {
+            return documentos.keySet();
+        }
+        List<Set<UUID>> listas = new ArrayList<>();
+        for (String gram : trigramas(termino)) {
+            Set<UUID> lista = postings.get(gram);
+            if (lista == null) {
+                return List.of();
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+        Set<UUID> resultado = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado;
+    }
+
+    // Relevancia: campo igual al término > empieza con él > una palabra empieza con él > lo contiene;
+    // a igual tipo de coincidencia pesa más el campo de mayor prioridad. 0 si no coincide.
+    private static int puntaje(String[] campos, String termino) {
+        int mejor = 0;
+        for (int i = 0; i < campos.length; i++) {
+            String campo = campos[i];
+            int posicion = campo.indexOf(termino);
+            if (posicion < 0) {
+                continue;
+            }
+            int tipo;
+            if (campo.length() == termino.length()) {
+                tipo = 4;
+            } else if (posicion == 0) {
+                tipo = 3;
+            } else if (!Character.isLetterOrDigit(campo.charAt(posicion - 1))) {
+                tipo = 2;
+            } else {
+                tipo = 1;
+            }
+            mejor = Math.max(mejor, tipo * 100 - i);
+        }
+        return mejor;
+    }
+
+    // Carga las entidades de la página por ID conservando el orden por relevancia
+    private List<T> cargar(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, T> porId = new HashMap<>();
+        for (T entidad : repository.findAllById(ids)) {
+            porId.put(entidad.getId(), entidad);
+        }
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    private String[] normalizarCampos(T entidad) {
+        return campos(entidad).stream().map(CatalogSearchIndex::normalizar).toArray(String[]::new);
+    }
+
+    private static void indexar(Map<UUID, String[]> documentos, Map<String, Set<UUID>> postings, UUID id, String[] campos) {
+        documentos.put(id, campos);
+        for (String campo : campos) {
+            for (String gram : trigramas(campo)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    private static void desindexar(Map<UUID, String[]> documentos, Map<String, Set<UUID>> postings, UUID id) {
+        String[] campos = documentos.remove(id);
+        if (campos == null) {
+            return;
+        }
+        for (String campo : campos) {
+            for (String gram : trigramas(campo)) {
+                Set<UUID> lista = postings.get(gram);
+                if (lista != null && lista.remove(id) && lista.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigramas(String texto) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= texto.length(); i++) {
+            grams.add(texto.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalizar(String texto) {
+        return texto == null ? "" : texto.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Coincidencia(UUID id, int puntaje, String principal) {
+    }
+}
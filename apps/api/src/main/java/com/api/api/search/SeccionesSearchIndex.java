@@ -0,0 +1,26 @@
+package com.api.api.search;
+
+import com.api.api.model.Secciones;
+import com.api.api.repository.SeccionesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Índice de búsqueda en memoria del catálogo de secciones (nombre y descripción)
+@Component
+public class SeccionesSearchIndex extends CatalogSearchIndex<Secciones> {
+
+    public SeccionesSearchIndex(SeccionesRepository repository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        super("secciones", repository, transactionManager, meterRegistry);
+    }
+
+    @Override
+    protected List<String> campos(Secciones entidad) {
+        return Arrays.asList(entidad.getNombre(), entidad.getDescripcion());
+    }
+}
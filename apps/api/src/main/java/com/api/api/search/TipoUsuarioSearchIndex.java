@@ -0,0 +1,27 @@
+package com.api.api.search;
+
+import com.api.api.model.TipoUsuario;
+import com.api.api.repository.TipoUsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Índice de búsqueda en memoria del catálogo de tipo_usuario (nombre, descripción, aplicación y estado)
+@Component
+public class TipoUsuarioSearchIndex extends CatalogSearchIndex<TipoUsuario> {
+
+    public TipoUsuarioSearchIndex(TipoUsuarioRepository repository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        super("tipo_usuario", repository, transactionManager, meterRegistry);
+    }
+
+    @Override
+    protected List<String> campos(TipoUsuario entidad) {
+        return Arrays.asList(entidad.getNombre(), entidad.getDescripcion(),
+                entidad.getAplicacion() != null ? entidad.getAplicacion().getNombre() : null, entidad.getEstado());
+    }
+}
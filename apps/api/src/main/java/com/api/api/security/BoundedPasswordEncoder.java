@@ -0,0 +1,114 @@
+package com.api.api.security;
+
+import com.api.api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder que ejecuta el hash de contraseñas (BCrypt) en un pool dedicado y acotado.
+ * Limita la cantidad de hashes concurrentes para que una ráfaga de logins no sature todos los
+ * núcleos y deje sin CPU al resto de la API. Cuando el pool y su cola están llenos, o la espera
+ * supera el tiempo máximo, se rechaza de inmediato con ServiceUnavailableException (HTTP 503).
+ * Publica en Micrometer la latencia de hash, la profundidad de la cola y los rechazos.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, long timeoutMs,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("seguridad.contrasena.hash")
+                .description("Latencia del hash de contraseñas, incluida la espera en cola")
+                .tag("operacion", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("seguridad.contrasena.hash")
+                .description("Latencia del hash de contraseñas, incluida la espera en cola")
+                .tag("operacion", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter("seguridad.contrasena.hash.rechazos");
+        meterRegistry.gauge("seguridad.contrasena.hash.cola", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("seguridad.contrasena.hash.activos", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // Ejecuta la operación en el pool y espera su resultado con un tiempo máximo
+    private <T> T submit(Callable<T> task, Timer timer) {
+        Timer.Sample sample = Timer.start();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("El servicio de autenticación está saturado. Intente nuevamente en unos segundos.", 1);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("El servicio de autenticación está saturado. Intente nuevamente en unos segundos.", 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió el hash de la contraseña.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error al procesar el hash de la contraseña.", cause);
+        } finally {
+            sample.stop(timer);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -8,6 +8,7 @@ import com.api.api.model.UsuariosTipoUsuario;
 import com.api.api.repository.UsuariosRepository;
 import com.api.api.repository.UsuariosTipoUsuarioRepository;
 import com.api.api.service.PermisosTipoUsuarioService;
+import com.api.api.audit.AuditContext;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -28,13 +29,22 @@ public class CustomUserDetailsService implements UserDetailsService {
     private final UsuariosRepository usuariosRepository;
     private final UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository;
     private final PermisosTipoUsuarioService permisosTipoUsuarioService;
+    private final PrincipalCache principalCache;
+    private final EmailMembershipFilter emailMembershipFilter;
+    private final EffectivePermissionsStore effectivePermissionsStore;
 
     public CustomUserDetailsService(UsuariosRepository usuariosRepository,
             UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository,
-            PermisosTipoUsuarioService permisosTipoUsuarioService) {
+            PermisosTipoUsuarioService permisosTipoUsuarioService,
+            PrincipalCache principalCache,
+            EmailMembershipFilter emailMembershipFilter,
+            EffectivePermissionsStore effectivePermissionsStore) {
         this.usuariosRepository = usuariosRepository;
         this.usuariosTipoUsuarioRepository = usuariosTipoUsuarioRepository;
         this.permisosTipoUsuarioService = permisosTipoUsuarioService;
+        this.principalCache = principalCache;
+        this.emailMembershipFilter = emailMembershipFilter;
+        this.effectivePermissionsStore = effectivePermissionsStore;
     }
 
     /**
@@ -52,10 +62,44 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     @Transactional // Asegura que las relaciones perezosas se carguen (e.g., usuariosTipoUsuarios)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        // Los emails que seguro no existen no consultan la base de datos
+        if (!emailMembershipFilter.mightContain(email)) {
+            throw new UsernameNotFoundException("Usuario no encontrado con email: " + email);
+        }
         // Busca el usuario en la base de datos por email
         Usuarios usuario = usuariosRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con email: " + email));
 
+        return buildUserDetails(usuario);
+    }
+
+    /**
+     * Carga los detalles del usuario por su ID usando la caché de principales.
+     * Es el camino utilizado por JwtAuthenticationFilter en cada solicitud autenticada:
+     * solo consulta la base de datos cuando el principal no está en caché.
+     *
+     * @param userId El ID del usuario (claim 'userId' del token).
+     * @return Un objeto CustomUserDetails con la información del usuario.
+     * @throws UsernameNotFoundException Si el usuario no es encontrado.
+     */
+    public CustomUserDetails loadUserById(UUID userId) throws UsernameNotFoundException {
+        return principalCache.get(userId, id -> buildUserDetails(usuariosRepository.findById(id)
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con ID: " + id))));
+    }
+
+    /**
+     * Obtiene el principal de un usuario ya cargado, usando la caché de principales.
+     * Lo utiliza el flujo de login para no volver a consultar el usuario por email.
+     *
+     * @param usuario El usuario ya cargado desde la base de datos.
+     * @return Un objeto CustomUserDetails con la información del usuario.
+     */
+    public CustomUserDetails loadUserDetails(Usuarios usuario) {
+        return principalCache.get(usuario.getId(), id -> buildUserDetails(usuario));
+    }
+
+    // Construye el principal (roles y permisos/acciones) a partir de la entidad del usuario
+    private CustomUserDetails buildUserDetails(Usuarios usuario) {
         // Colección para almacenar todas las autoridades (roles y permisos/acciones)
         // del usuario
         Set<GrantedAuthority> authorities = new HashSet<>();
@@ -88,8 +132,15 @@ public class CustomUserDetailsService implements UserDetailsService {
         // 2. Añadir permisos (acciones) específicos basados en los Tipos de Usuario
         // Si el usuario tiene tipos de usuario, busca los permisos asociados a esos
         // tipos de usuario.
-        if (!tipoUsuarioIds.isEmpty()) {
-            List<PermisosTipoUsuario> permisos = permisosTipoUsuarioService.findByTipoUsuarioIdIn(tipoUsuarioIds);
+        if (!tipoUsuarioIds.isEmpty() && effectivePermissionsStore.isEnabled()) {
+            // Una sola consulta sobre la clave primaria de usuario_permisos_efectivos
+            for (String nombreAccion : effectivePermissionsStore.nombresAcciones(usuario.getId())) {
+                authorities.add(new SimpleGrantedAuthority(nombreAccion.toUpperCase()));
+            }
+        } else if (!tipoUsuarioIds.isEmpty()) {
+            // Consulta interna de autenticación: no debe generar filas de auditoría por solicitud
+            List<PermisosTipoUsuario> permisos = AuditContext
+                    .runInternal(() -> permisosTipoUsuarioService.findByTipoUsuarioIdIn(tipoUsuarioIds));
 
             if (permisos != null && !permisos.isEmpty()) {
                 for (PermisosTipoUsuario permiso : permisos) {
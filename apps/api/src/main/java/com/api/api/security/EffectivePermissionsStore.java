@@ -0,0 +1,349 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tabla materializada usuario_permisos_efectivos: una fila por (usuario, aplicación, acción) que el
+ * usuario puede ejecutar, con la cantidad de pares (asignación, permiso) que la otorgan (origenes).
+ * - PermisosTipoUsuarioService, UsuariosTipoUsuarioService y UsuariosImportService aplican deltas
+ *   por conjuntos (INSERT ... ON CONFLICT para sumar, UPDATE/DELETE para restar) en la misma
+ *   transacción que el cambio; los métodos de delta exigen una transacción activa.
+ * - Los deltas de un mismo tipo de usuario se serializan con un advisory lock transaccional, para
+ *   que una asignación y un permiso nuevos del mismo tipo de usuario en transacciones concurrentes
+ *   no se omitan mutuamente.
+ * - Solo incluye usuarios activos y no eliminados, igual que PermissionMatrix; UsuariosService
+ *   recalcula las filas del usuario cuando cambia su estado o se elimina lógicamente.
+ * - rebuild() recalcula toda la tabla y check() la compara con la definición (también de forma
+ *   periódica, publicando las diferencias en Micrometer).
+ */
+@Component
+public class EffectivePermissionsStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EffectivePermissionsStore.class);
+
+    // Espacio (classid) de los advisory locks por tipo de usuario
+    private static final int LOCK_CLASS = 0x43434155;
+
+    // Definición completa; %s admite un filtro adicional sobre utu, tu, ptu o ac
+    private static final String DEFINICION_SQL = "SELECT utu.usuario_id, ac.aplicacion_id, ac.id AS accion_id, COUNT(*) AS origenes " +
+            "FROM usuarios_tipo_usuario utu " +
+            "JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "JOIN tipo_usuario tu ON tu.id = utu.tipo_usuario_id AND tu.deleted_at IS NULL " +
+            "JOIN permisos_tipo_usuario ptu ON ptu.tipo_usuario_id = tu.id AND ptu.deleted_at IS NULL " +
+            "JOIN acciones ac ON ac.id = ptu.accion_id AND ac.deleted_at IS NULL " +
+            "WHERE utu.deleted_at IS NULL %s " +
+            "GROUP BY utu.usuario_id, ac.aplicacion_id, ac.id";
+
+    // Aporte de asignar un tipo de usuario (2.º parámetro) a un usuario (1.er parámetro)
+    private static final String DELTA_ASIGNACION_SQL = "SELECT u.id AS usuario_id, ac.aplicacion_id, ac.id AS accion_id, COUNT(*) AS n " +
+            "FROM usuarios u " +
+            "JOIN tipo_usuario tu ON tu.deleted_at IS NULL " +
+            "JOIN permisos_tipo_usuario ptu ON ptu.tipo_usuario_id = tu.id AND ptu.deleted_at IS NULL " +
+            "JOIN acciones ac ON ac.id = ptu.accion_id AND ac.deleted_at IS NULL " +
+            "WHERE u.id = ? AND tu.id = ? AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "GROUP BY u.id, ac.aplicacion_id, ac.id";
+
+    // Aporte de varias asignaciones (arreglos paralelos de usuarios y tipos de usuario), p. ej. una importación
+    private static final String DELTA_ASIGNACIONES_SQL = "SELECT a.usuario_id, ac.aplicacion_id, ac.id AS accion_id, COUNT(*) AS n " +
+            "FROM unnest(?, ?) AS a(usuario_id, tipo_usuario_id) " +
+            "JOIN usuarios u ON u.id = a.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "JOIN tipo_usuario tu ON tu.id = a.tipo_usuario_id AND tu.deleted_at IS NULL " +
+            "JOIN permisos_tipo_usuario ptu ON ptu.tipo_usuario_id = tu.id AND ptu.deleted_at IS NULL " +
+            "JOIN acciones ac ON ac.id = ptu.accion_id AND ac.deleted_at IS NULL " +
+            "GROUP BY a.usuario_id, ac.aplicacion_id, ac.id";
+
+    // Aporte de permitir una acción (1.er parámetro) a un tipo de usuario (2.º parámetro)
+    private static final String DELTA_PERMISO_SQL = "SELECT utu.usuario_id, ac.aplicacion_id, ac.id AS accion_id, COUNT(*) AS n " +
+            "FROM usuarios_tipo_usuario utu " +
+            "JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "JOIN tipo_usuario tu ON tu.id = utu.tipo_usuario_id AND tu.deleted_at IS NULL " +
+            "JOIN acciones ac ON ac.id = ? AND ac.deleted_at IS NULL " +
+            "WHERE utu.tipo_usuario_id = ? AND utu.deleted_at IS NULL " +
+            "GROUP BY utu.usuario_id, ac.aplicacion_id, ac.id";
+
+    private static final String SUMAR_SQL = "INSERT INTO usuario_permisos_efectivos (usuario_id, aplicacion_id, accion_id, origenes) " +
+            "SELECT usuario_id, aplicacion_id, accion_id, n FROM (%s) delta " +
+            "ON CONFLICT (usuario_id, accion_id) DO UPDATE " +
+            "SET origenes = usuario_permisos_efectivos.origenes + EXCLUDED.origenes";
+
+    // Las filas que llegan a 0 se eliminan; el resto se decrementa (ambas sentencias ven la misma instantánea)
+    private static final String RESTAR_SQL = "WITH delta AS (%s), " +
+            "eliminadas AS (DELETE FROM usuario_permisos_efectivos e USING delta d " +
+            "WHERE e.usuario_id = d.usuario_id AND e.accion_id = d.accion_id AND e.origenes <= d.n RETURNING e.accion_id) " +
+            "UPDATE usuario_permisos_efectivos e SET origenes = e.origenes - d.n FROM delta d " +
+            "WHERE e.usuario_id = d.usuario_id AND e.accion_id = d.accion_id AND e.origenes > d.n";
+
+    private static final String INSERTAR_SQL = "INSERT INTO usuario_permisos_efectivos (usuario_id, aplicacion_id, accion_id, origenes) " +
+            DEFINICION_SQL;
+
+    // Bloquea la escritura de deltas concurrentes (no las lecturas) mientras se recalcula
+    private static final String LOCK_TABLE_SQL = "LOCK TABLE usuario_permisos_efectivos IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String CHECK_SQL = "SELECT " +
+            "COUNT(*) FILTER (WHERE a.usuario_id IS NULL) AS faltantes, " +
+            "COUNT(*) FILTER (WHERE e.usuario_id IS NULL) AS sobrantes, " +
+            "COUNT(*) FILTER (WHERE a.usuario_id IS NOT NULL AND e.usuario_id IS NOT NULL " +
+            "AND (a.origenes <> e.origenes OR a.aplicacion_id IS DISTINCT FROM e.aplicacion_id)) AS diferentes " +
+            "FROM (" + DEFINICION_SQL.formatted("") + ") e " +
+            "FULL OUTER JOIN usuario_permisos_efectivos a ON a.usuario_id = e.usuario_id AND a.accion_id = e.accion_id";
+
+    private static final String NOMBRES_ACCIONES_SQL = "SELECT ac.nombre FROM usuario_permisos_efectivos e " +
+            "JOIN acciones ac ON ac.id = e.accion_id WHERE e.usuario_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    private final Timer duracionReconstruccion;
+    private final AtomicLong inconsistencias = new AtomicLong();
+
+    public EffectivePermissionsStore(JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.security.effective-permissions.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+
+        this.duracionReconstruccion = meterRegistry.timer("seguridad.permisos_efectivos.reconstruccion");
+        meterRegistry.gauge("seguridad.permisos_efectivos.inconsistencias", inconsistencias);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Suma los permisos de un tipo de usuario recién asignado a un usuario.
+     * @param usuarioId ID del usuario.
+     * @param tipoUsuarioId ID del tipo de usuario asignado.
+     */
+    public void agregarAsignacion(UUID usuarioId, UUID tipoUsuarioId) {
+        if (prepararDelta(usuarioId, tipoUsuarioId)) {
+            jdbcTemplate.update(SUMAR_SQL.formatted(DELTA_ASIGNACION_SQL), usuarioId, tipoUsuarioId);
+        }
+    }
+
+    /**
+     * Suma en una sola sentencia los permisos de varias asignaciones nuevas (importación masiva).
+     * Los advisory locks de los tipos de usuario se toman en orden para evitar interbloqueos.
+     * @param asignaciones Pares (usuario, tipo de usuario) recién insertados.
+     */
+    public void agregarAsignaciones(List<Asignacion> asignaciones) {
+        if (!enabled || asignaciones.isEmpty()) {
+            return;
+        }
+        verificarTransaccion();
+        asignaciones.stream().map(Asignacion::tipoUsuarioId).distinct().sorted().forEach(this::bloquear);
+        UUID[] usuarios = asignaciones.stream().map(Asignacion::usuarioId).toArray(UUID[]::new);
+        UUID[] tipos = asignaciones.stream().map(Asignacion::tipoUsuarioId).toArray(UUID[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SUMAR_SQL.formatted(DELTA_ASIGNACIONES_SQL));
+            ps.setArray(1, connection.createArrayOf("uuid", usuarios));
+            ps.setArray(2, connection.createArrayOf("uuid", tipos));
+            return ps;
+        });
+    }
+
+    // Resta los permisos de un tipo de usuario que deja de estar asignado al usuario
+    public void quitarAsignacion(UUID usuarioId, UUID tipoUsuarioId) {
+        if (prepararDelta(usuarioId, tipoUsuarioId)) {
+            jdbcTemplate.update(RESTAR_SQL.formatted(DELTA_ASIGNACION_SQL), usuarioId, tipoUsuarioId);
+        }
+    }
+
+    /**
+     * Suma una acción recién permitida a todos los usuarios que tienen asignado el tipo de usuario.
+     * @param tipoUsuarioId ID del tipo de usuario.
+     * @param accionId ID de la acción permitida.
+     */
+    public void agregarPermiso(UUID tipoUsuarioId, UUID accionId) {
+        if (prepararDelta(accionId, tipoUsuarioId)) {
+            jdbcTemplate.update(SUMAR_SQL.formatted(DELTA_PERMISO_SQL), accionId, tipoUsuarioId);
+        }
+    }
+
+    // Resta una acción que deja de estar permitida al tipo de usuario
+    public void quitarPermiso(UUID tipoUsuarioId, UUID accionId) {
+        if (prepararDelta(accionId, tipoUsuarioId)) {
+            jdbcTemplate.update(RESTAR_SQL.formatted(DELTA_PERMISO_SQL), accionId, tipoUsuarioId);
+        }
+    }
+
+    // IDs de los usuarios con alguna asignación (activa o no) del tipo de usuario
+    public List<UUID> usuariosDeTipoUsuario(UUID tipoUsuarioId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT usuario_id FROM usuarios_tipo_usuario WHERE tipo_usuario_id = ?",
+                UUID.class, tipoUsuarioId);
+    }
+
+    /**
+     * Recalcula las filas de los usuarios que tienen asignado un tipo de usuario
+     * (eliminación lógica del tipo de usuario). Debe invocarse en la transacción del cambio,
+     * después de sincronizarlo con la base de datos (flush).
+     * @param tipoUsuarioId ID del tipo de usuario.
+     */
+    public void recalcularTipoUsuario(UUID tipoUsuarioId) {
+        if (enabled && tipoUsuarioId != null) {
+            recalcularUsuarios(usuariosDeTipoUsuario(tipoUsuarioId));
+        }
+    }
+
+    /**
+     * Recalcula las filas de los usuarios indicados, p. ej. los que tenían asignado un tipo de
+     * usuario eliminado definitivamente (sus asignaciones se eliminan en cascada) o un usuario
+     * cuyo estado cambió o que se eliminó lógicamente.
+     * Debe invocarse en la transacción del cambio, después del flush.
+     * @param usuarioIds IDs de los usuarios afectados.
+     */
+    public void recalcularUsuarios(Collection<UUID> usuarioIds) {
+        if (!enabled || usuarioIds.isEmpty()) {
+            return;
+        }
+        verificarTransaccion();
+        UUID[] ids = usuarioIds.toArray(UUID[]::new);
+        jdbcTemplate.execute(LOCK_TABLE_SQL);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("DELETE FROM usuario_permisos_efectivos WHERE usuario_id = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            return ps;
+        });
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERTAR_SQL.formatted("AND utu.usuario_id = ANY (?)"));
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            return ps;
+        });
+    }
+
+    /**
+     * Recalcula las filas de una acción (cambio de aplicación o eliminación lógica).
+     * Debe invocarse en la transacción del cambio, después del flush.
+     * @param accionId ID de la acción.
+     */
+    public void recalcularAccion(UUID accionId) {
+        if (!enabled || accionId == null) {
+            return;
+        }
+        verificarTransaccion();
+        jdbcTemplate.execute(LOCK_TABLE_SQL);
+        jdbcTemplate.update("DELETE FROM usuario_permisos_efectivos WHERE accion_id = ?", accionId);
+        jdbcTemplate.update(INSERTAR_SQL.formatted("AND ac.id = ?"), accionId);
+    }
+
+    /**
+     * Recalcula toda la tabla desde usuarios_tipo_usuario, tipo_usuario, permisos_tipo_usuario y acciones.
+     * Las lecturas siguen atendiéndose durante la reconstrucción; los deltas esperan a que termine.
+     * @return Cantidad de filas de la tabla reconstruida.
+     */
+    public int rebuild() {
+        long inicio = System.nanoTime();
+        try {
+            Integer filas = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(LOCK_TABLE_SQL);
+                jdbcTemplate.update("DELETE FROM usuario_permisos_efectivos");
+                return jdbcTemplate.update(INSERTAR_SQL.formatted(""));
+            });
+            inconsistencias.set(0);
+            logger.info("Permisos efectivos reconstruidos: {} filas en {} ms.", filas, (System.nanoTime() - inicio) / 1_000_000);
+            return filas != null ? filas : 0;
+        } finally {
+            duracionReconstruccion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Compara la tabla con su definición en una misma instantánea.
+     * @return Filas faltantes, sobrantes y con conteo o aplicación distintos.
+     */
+    public Consistencia check() {
+        Consistencia resultado = readOnlyTransaction.execute(status -> jdbcTemplate.queryForObject(CHECK_SQL,
+                (rs, rowNum) -> new Consistencia(rs.getLong("faltantes"), rs.getLong("sobrantes"), rs.getLong("diferentes"))));
+        inconsistencias.set(resultado.total());
+        return resultado;
+    }
+
+    // Verificación periódica; solo informa, la corrección se hace con rebuild()
+    @Scheduled(initialDelayString = "${app.security.effective-permissions.check-interval-ms:86400000}",
+               fixedDelayString = "${app.security.effective-permissions.check-interval-ms:86400000}")
+    public void checkPeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Consistencia resultado = check();
+            if (!resultado.consistente()) {
+                logger.warn("Permisos efectivos inconsistentes: {} faltantes, {} sobrantes, {} diferentes.",
+                        resultado.faltantes(), resultado.sobrantes(), resultado.diferentes());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error al verificar los permisos efectivos: {}", e.getMessage(), e);
+        }
+    }
+
+    // Nombres de las acciones que el usuario puede ejecutar (recorrido del prefijo de la clave primaria)
+    public List<String> nombresAcciones(UUID usuarioId) {
+        return jdbcTemplate.queryForList(NOMBRES_ACCIONES_SQL, String.class, usuarioId);
+    }
+
+    // Verifica los parámetros y la transacción, y toma el advisory lock del tipo de usuario
+    private boolean prepararDelta(UUID id, UUID tipoUsuarioId) {
+        if (!enabled || id == null || tipoUsuarioId == null) {
+            return false;
+        }
+        verificarTransaccion();
+        bloquear(tipoUsuarioId);
+        return true;
+    }
+
+    private static void verificarTransaccion() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Los deltas de permisos efectivos deben aplicarse dentro de la transacción del cambio");
+        }
+    }
+
+    private void bloquear(UUID tipoUsuarioId) {
+        jdbcTemplate.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(?, hashtext(?))", Integer.class,
+                LOCK_CLASS, tipoUsuarioId.toString());
+    }
+
+    // Asignación (usuario, tipo de usuario) para los deltas por lote
+    public record Asignacion(UUID usuarioId, UUID tipoUsuarioId) {
+    }
+
+    /**
+     * Resultado de la verificación de consistencia.
+     * @param faltantes Filas de la definición que no están en la tabla.
+     * @param sobrantes Filas de la tabla que no corresponden a la definición.
+     * @param diferentes Filas presentes en ambas con distinto conteo de orígenes o aplicación.
+     */
+    public record Consistencia(long faltantes, long sobrantes, long diferentes) {
+
+        public long total() {
+            return faltantes + sobrantes + diferentes;
+        }
+
+        public boolean consistente() {
+            return total() == 0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Sincronización de EmailMembershipFilter entre nodos con LISTEN/NOTIFY de PostgreSQL.
+ * Los triggers de V024 emiten NOTIFY usuarios_emails con el email de cada usuario creado, con el
+ * email modificado o restaurado, y la notificación se entrega al confirmar la transacción.
+ * - Al conectarse (y al reconectar) reconstruye el filtro después de LISTEN: lo confirmado antes de la
+ *   instantánea está en ella y lo confirmado después llega por notificación.
+ * - Solo entonces las ausencias del filtro son definitivas; al perder la conexión dejan de serlo hasta
+ *   la siguiente reconstrucción.
+ * Los emails eliminados siguen en el filtro hasta la reconstrucción periódica (solo cuestan una consulta).
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.email-filter.listener.enabled", havingValue = "true", matchIfMissing = true)
+public class EmailFilterSyncListener extends PostgresNotificationListener {
+
+    static final String CANAL = "usuarios_emails";
+
+    private final EmailMembershipFilter filter;
+    private final Counter notificacionesCounter;
+
+    public EmailFilterSyncListener(DataSource dataSource,
+                                   EmailMembershipFilter filter,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.security.email-filter.listener.reconnect-ms:5000}") long reconnectMs,
+                                   @Value("${app.security.email-filter.listener.heartbeat-ms:10000}") long heartbeatMs) {
+        super(dataSource, CANAL, "email-filter-sync-listener", reconnectMs, heartbeatMs);
+        this.filter = filter;
+        this.notificacionesCounter = meterRegistry.counter("seguridad.email_filter.notificaciones");
+    }
+
+    @Override
+    protected void alConectar(boolean reconexion) {
+        filter.sincronizar();
+    }
+
+    @Override
+    protected void alRecibir(PGNotification[] notificaciones) {
+        notificacionesCounter.increment(notificaciones.length);
+        for (PGNotification notificacion : notificaciones) {
+            filter.agregarConfirmado(notificacion.getParameter());
+        }
+    }
+
+    @Override
+    protected void alDesconectar() {
+        filter.desincronizar();
+    }
+}
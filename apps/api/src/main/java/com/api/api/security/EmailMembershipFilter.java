@@ -0,0 +1,293 @@
+package com.api.api.security;
+
+import com.api.api.model.Usuarios;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom con los emails normalizados de los usuarios no eliminados.
+ * AuthService lo consulta antes de buscar el usuario: si el email seguro no existe se omite la
+ * consulta a usuarios (los falsos positivos solo cuestan esa consulta).
+ * Se construye al iniciar, UsuariosService y UsuariosImportService agregan los emails nuevos al
+ * confirmarse su transacción, y se reconstruye periódicamente para descartar los emails eliminados
+ * o modificados (un filtro de Bloom no admite borrados) y redimensionarse según la cantidad de usuarios.
+ * Mientras no se haya construido responde "puede existir" para no rechazar emails válidos.
+ *
+ * El filtro es local a cada nodo: los usuarios creados en otro nodo no llegan por add(). Los emails
+ * confirmados en cualquier nodo llegan por NOTIFY usuarios_emails (EmailFilterSyncListener), y un
+ * email ausente solo se descarta mientras esa escucha está activa y el filtro se reconstruyó después
+ * de LISTEN (sincronizar()). Sin escucha (otra base de datos, conexión perdida, listener deshabilitado)
+ * o con app.security.email-filter.authoritative-misses=false la ausencia se contabiliza y se consulta
+ * la base de datos igualmente. Queda la ventana de entrega de la notificación (milisegundos) entre la
+ * confirmación en otro nodo y su llegada a este.
+ */
+@Component
+public class EmailMembershipFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailMembershipFilter.class);
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double falsePositiveRate;
+    private final double growthFactor;
+    private final boolean authoritativeMisses;
+    // Agregados de todos los nodos sincronizados por EmailFilterSyncListener
+    private volatile boolean sincronizado = false;
+
+    private volatile Bloom current;
+    // Filtro en construcción; recibe también los emails agregados durante la reconstrucción
+    private volatile Bloom building;
+
+    private final AtomicLong elementos = new AtomicLong();
+    private final Counter descartes;
+    private final Counter ausencias;
+
+    public EmailMembershipFilter(DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.security.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${app.security.email-filter.growth-factor:2.0}") double growthFactor,
+                                 @Value("${app.security.email-filter.fetch-size:5000}") int fetchSize,
+                                 @Value("${app.security.email-filter.authoritative-misses:true}") boolean authoritativeMisses) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.growthFactor = Math.max(1.0, growthFactor);
+        this.authoritativeMisses = authoritativeMisses;
+
+        meterRegistry.gauge("seguridad.email_filter.elementos", elementos);
+        this.descartes = meterRegistry.counter("seguridad.email_filter.descartes");
+        this.ausencias = meterRegistry.counter("seguridad.email_filter.ausencias");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // EmailFilterSyncListener ya lo construye al conectarse
+        if (current == null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reconstruye el filtro desde la tabla usuarios y lo reemplaza de forma atómica.
+     * Los emails agregados durante la lectura se incluyen en el filtro nuevo.
+     */
+    @Scheduled(initialDelayString = "${app.security.email-filter.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${app.security.email-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el filtro y marca sus ausencias como definitivas. EmailFilterSyncListener lo invoca
+     * después de LISTEN: los emails confirmados después de la instantánea llegan por notificación.
+     * @return true si la reconstrucción terminó; si falla las ausencias no se marcan como definitivas.
+     */
+    public boolean sincronizar() {
+        boolean reconstruido = reconstruir();
+        sincronizado = reconstruido;
+        return reconstruido;
+    }
+
+    /**
+     * Las ausencias dejan de ser definitivas (la escucha de usuarios_emails se interrumpió).
+     */
+    public void desincronizar() {
+        sincronizado = false;
+    }
+
+    private synchronized boolean reconstruir() {
+        long inicio = System.nanoTime();
+        try {
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuarios WHERE deleted_at IS NULL", Long.class);
+            long capacity = Math.max(MIN_CAPACITY, (long) ((total != null ? total : 0) * growthFactor));
+            Bloom nuevo = new Bloom(capacity, falsePositiveRate);
+            // Se publica antes de leer: todo email confirmado después de la instantánea de la consulta
+            // llega por add(), que se ejecuta tras la confirmación
+            building = nuevo;
+            readOnlyTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.query("SELECT email FROM usuarios WHERE deleted_at IS NULL",
+                            (RowCallbackHandler) rs -> nuevo.put(normalize(rs.getString(1)))));
+            current = nuevo;
+            elementos.set(nuevo.count());
+            logger.info("Filtro de emails reconstruido: {} emails, {} bits, {} funciones hash en {} ms.",
+                    nuevo.count(), nuevo.bitSize(), nuevo.hashCount(), (System.nanoTime() - inicio) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Error al reconstruir el filtro de emails; se conserva el anterior: {}", e.getMessage(), e);
+            return false;
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Agrega un email (creación, actualización o importación de usuarios).
+     * Dentro de una transacción se difiere hasta su confirmación: así una reconstrucción cuya
+     * instantánea no incluye el usuario recibe el email por esta vía, y no se agregan emails de
+     * transacciones revertidas.
+     * @param email Email a agregar.
+     */
+    public void add(String email) {
+        String normalized = normalize(email);
+        if (normalized == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    agregar(normalized);
+                }
+            });
+        } else {
+            agregar(normalized);
+        }
+    }
+
+    /**
+     * Agrega un email ya confirmado en la base de datos (NOTIFY usuarios_emails de cualquier nodo).
+     * @param email Email a agregar.
+     */
+    public void agregarConfirmado(String email) {
+        String normalized = normalize(email);
+        if (normalized != null) {
+            agregar(normalized);
+        }
+    }
+
+    // Se lee 'building' antes que 'current': si la reconstrucción termina entre ambas lecturas,
+    // 'current' ya es el filtro nuevo
+    private void agregar(String normalized) {
+        Bloom enConstruccion = building;
+        if (enConstruccion != null) {
+            enConstruccion.put(normalized);
+        }
+        Bloom filtro = current;
+        if (filtro != null) {
+            filtro.put(normalized);
+            elementos.set(filtro.count());
+        }
+    }
+
+    /**
+     * Indica si el email puede corresponder a un usuario existente.
+     * @param email Email a consultar.
+     * @return false solo si el email seguro no existe y las ausencias del filtro son definitivas
+     * (app.security.email-filter.authoritative-misses y agregados sincronizados entre nodos).
+     */
+    public boolean mightContain(String email) {
+        Bloom filtro = current;
+        String normalized = normalize(email);
+        if (filtro == null || normalized == null || filtro.mightContain(normalized)) {
+            return true;
+        }
+        if (!authoritativeMisses || !sincronizado) {
+            // Puede haberse creado en otro nodo después de la última reconstrucción
+            ausencias.increment();
+            return true;
+        }
+        descartes.increment();
+        return false;
+    }
+
+    private static String normalize(String email) {
+        return email == null || email.isBlank() ? null : Usuarios.normalizarEmail(email);
+    }
+
+    // Filtro de Bloom concurrente: los bits se activan con OR atómico, sin bloqueos
+    private static final class Bloom {
+        private final AtomicLongArray bits;
+        private final long bitSize;
+        private final int hashCount;
+        private final AtomicLong count = new AtomicLong();
+
+        Bloom(long capacity, double falsePositiveRate) {
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitSize = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+        }
+
+        void put(String value) {
+            long[] hashes = hash(value);
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bitSize);
+                long mask = 1L << (index & 63);
+                long previous = bits.getAndAccumulate((int) (index >>> 6), mask, (a, b) -> a | b);
+                changed |= (previous & mask) == 0;
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(String value) {
+            long[] hashes = hash(value);
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hashes[0] + i * hashes[1], bitSize);
+                if ((bits.get((int) (index >>> 6)) & (1L << (index & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        int hashCount() {
+            return hashCount;
+        }
+
+        // Dos hashes de 64 bits (FNV-1a con mezcla final de MurmurHash3) para el doble hashing
+        private static long[] hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            long h1 = mix(h);
+            long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L) | 1L;
+            return new long[]{h1, h2};
+        }
+
+        private static long mix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb93fe53e2ca3L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
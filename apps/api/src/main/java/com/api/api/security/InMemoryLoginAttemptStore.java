@@ -0,0 +1,78 @@
+package com.api.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Contadores de intentos de login en memoria del nodo.
+ * Las claves se guardan en una caché Caffeine acotada (mapa concurrente segmentado) y cada
+ * contador se actualiza sin bloqueos con compare-and-set sobre un estado inmutable.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.login-throttle.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private final Cache<String, AtomicReference<Ventana>> counters;
+    private final long windowMillis;
+
+    public InMemoryLoginAttemptStore(@Value("${app.security.login-throttle.window-minutes:15}") long windowMinutes,
+                                     @Value("${app.security.login-throttle.max-keys:100000}") long maxKeys) {
+        this.windowMillis = Duration.ofMinutes(windowMinutes).toMillis();
+        // Pasadas dos ventanas sin intentos el contador ya no aporta a la estimación
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMillis(windowMillis * 2))
+                .build();
+    }
+
+    @Override
+    public long recordFailure(String key, Instant now) {
+        long nowMillis = now.toEpochMilli();
+        long bucket = nowMillis / windowMillis;
+        AtomicReference<Ventana> ref = counters.get(key, k -> new AtomicReference<>(new Ventana(bucket, 0, 0)));
+        while (true) {
+            Ventana actual = ref.get();
+            Ventana avanzada = actual.advance(bucket);
+            Ventana siguiente = new Ventana(bucket, avanzada.previous(), avanzada.current() + 1);
+            if (ref.compareAndSet(actual, siguiente)) {
+                return LoginAttemptStore.estimate(siguiente.previous(), siguiente.current(), nowMillis, windowMillis);
+            }
+        }
+    }
+
+    @Override
+    public long countFailures(String key, Instant now) {
+        AtomicReference<Ventana> ref = counters.getIfPresent(key);
+        if (ref == null) {
+            return 0;
+        }
+        long nowMillis = now.toEpochMilli();
+        Ventana ventana = ref.get().advance(nowMillis / windowMillis);
+        return LoginAttemptStore.estimate(ventana.previous(), ventana.current(), nowMillis, windowMillis);
+    }
+
+    @Override
+    public void reset(String key) {
+        counters.invalidate(key);
+    }
+
+    // Conteos de la ventana fija 'bucket' y de la inmediatamente anterior
+    private record Ventana(long bucket, long previous, long current) {
+        Ventana advance(long target) {
+            if (target == bucket) {
+                return this;
+            }
+            if (target == bucket + 1) {
+                return new Ventana(target, current, 0);
+            }
+            return new Ventana(target, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.api.api.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Contadores de intentos de login compartidos entre nodos en la tabla intentos_login.
+ * Cada fila es el conteo de una clave en una ventana fija; un intento es un único upsert
+ * atómico sobre una tabla estrecha, sin tocar (ni bloquear) las filas de usuarios.
+ * Las ventanas que ya no aportan a la estimación se depuran periódicamente.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.login-throttle.store", havingValue = "jdbc")
+public class JdbcLoginAttemptStore implements LoginAttemptStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcLoginAttemptStore.class);
+
+    private static final String RECORD_SQL = "WITH actual AS (" +
+            "INSERT INTO intentos_login (clave, ventana, intentos, actualizado) VALUES (?, ?, 1, now()) " +
+            "ON CONFLICT (clave, ventana) DO UPDATE SET intentos = intentos_login.intentos + 1, actualizado = now() " +
+            "RETURNING intentos) " +
+            "SELECT (SELECT intentos FROM actual) AS actual, " +
+            "COALESCE((SELECT intentos FROM intentos_login WHERE clave = ? AND ventana = ?), 0) AS anterior";
+
+    private static final String COUNT_SQL = "SELECT " +
+            "COALESCE(SUM(intentos) FILTER (WHERE ventana = ?), 0) AS actual, " +
+            "COALESCE(SUM(intentos) FILTER (WHERE ventana = ?), 0) AS anterior " +
+            "FROM intentos_login WHERE clave = ? AND ventana IN (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long windowMillis;
+
+    public JdbcLoginAttemptStore(JdbcTemplate jdbcTemplate,
+                                 @Value("${app.security.login-throttle.window-minutes:15}") long windowMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowMillis = Duration.ofMinutes(windowMinutes).toMillis();
+    }
+
+    @Override
+    public long recordFailure(String key, Instant now) {
+        long nowMillis = now.toEpochMilli();
+        long bucket = nowMillis / windowMillis;
+        return jdbcTemplate.queryForObject(RECORD_SQL, (rs, rowNum) ->
+                        LoginAttemptStore.estimate(rs.getLong("anterior"), rs.getLong("actual"), nowMillis, windowMillis),
+                key, bucket, key, bucket - 1);
+    }
+
+    @Override
+    public long countFailures(String key, Instant now) {
+        long nowMillis = now.toEpochMilli();
+        long bucket = nowMillis / windowMillis;
+        return jdbcTemplate.queryForObject(COUNT_SQL, (rs, rowNum) ->
+                        LoginAttemptStore.estimate(rs.getLong("anterior"), rs.getLong("actual"), nowMillis, windowMillis),
+                bucket, bucket - 1, key, bucket, bucket - 1);
+    }
+
+    @Override
+    public void reset(String key) {
+        jdbcTemplate.update("DELETE FROM intentos_login WHERE clave = ?", key);
+    }
+
+    // Elimina las ventanas anteriores a la ventana previa, que ya no intervienen en la estimación
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.cleanup-interval-ms:300000}")
+    public void purgeExpired() {
+        long bucket = System.currentTimeMillis() / windowMillis;
+        try {
+            int eliminadas = jdbcTemplate.update("DELETE FROM intentos_login WHERE ventana < ?", bucket - 1);
+            if (eliminadas > 0) {
+                logger.debug("Intentos de login depurados: {} filas.", eliminadas);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error al depurar los intentos de login: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.api.api.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,6 +16,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.UUID;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -23,10 +25,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
+    private final TokenRevocationIndex tokenRevocationIndex;
 
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService,
+            TokenRevocationIndex tokenRevocationIndex) {
         this.tokenProvider = tokenProvider;
         this.customUserDetailsService = customUserDetailsService;
+        this.tokenRevocationIndex = tokenRevocationIndex;
     }
 
     @Override
@@ -37,12 +42,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Intenta obtener el token JWT de la cabecera de la solicitud
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                // Si el token es válido, obtiene el email de usuario
-                String email = tokenProvider.getUsernameFromToken(jwt);
+            // Verifica firma y expiración con un único parseo y reutiliza los claims obtenidos
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseToken(jwt).orElse(null) : null;
 
-                // Carga los detalles del usuario
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(email);
+            // Los tokens sin ID de sesión o de sesiones cerradas se rechazan con una búsqueda en memoria
+            if (claims != null) {
+                UUID sessionId = JwtTokenProvider.getSessionId(claims).orElse(null);
+                if (sessionId == null || tokenRevocationIndex.isRevoked(sessionId)) {
+                    logger.debug("Token sin sesión o de una sesión revocada rechazado");
+                    claims = null;
+                }
+            }
+
+            if (claims != null) {
+                // Si el token es válido, obtiene el ID del usuario
+                UUID userId = UUID.fromString(claims.get("userId", String.class));
+
+                // Carga los detalles del usuario (desde la caché de principales cuando es posible)
+                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
 
                 // Crea un token de autenticación para Spring Security
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,59 @@
+package com.api.api.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Anillo inmutable de claves de firma JWT indexado por 'kid'.
+ * Las claves se derivan una sola vez al iniciar la aplicación; la clave activa firma
+ * los tokens nuevos y las claves anteriores solo se conservan para verificar los
+ * tokens emitidos antes de una rotación.
+ */
+public final class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private final String activeKeyId;
+    private final Map<String, SecretKey> keys;
+
+    public JwtKeyRing(String activeKeyId, Map<String, SecretKey> keys) {
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("La clave activa '" + activeKeyId + "' no existe en el anillo de claves JWT.");
+        }
+        this.activeKeyId = activeKeyId;
+        this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKey getActiveKey() {
+        return keys.get(activeKeyId);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    // Resuelve la clave de verificación a partir del 'kid' del encabezado.
+    // Los tokens emitidos antes de introducir el 'kid' se verifican con la clave activa.
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String keyId = header.getKeyId();
+        if (keyId == null) {
+            return getActiveKey();
+        }
+        SecretKey key = keys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Identificador de clave JWT desconocido: " + keyId);
+        }
+        return key;
+    }
+}
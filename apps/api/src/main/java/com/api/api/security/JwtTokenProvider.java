@@ -7,14 +7,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
 
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.spec.KeySpec;
 import java.util.Base64;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
@@ -38,18 +49,49 @@ public class JwtTokenProvider {
     @Value("${app.jwt.salt}")
     private String jwtSalt; // Salt para la derivación de la clave PBKDF2
 
+    @Value("${app.jwt.key-id:v1}")
+    private String activeKeyId; // Identificador ('kid') de la clave activa para firmar
+
+    @Value("${app.jwt.previous-keys:}")
+    private String previousKeys; // Claves retiradas, formato "kid:secreto,kid:secreto", solo para verificación
+
+    // Anillo de claves y parser inmutables, construidos una sola vez al iniciar
+    private JwtKeyRing keyRing;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        keys.put(activeKeyId, deriveKey(jwtSecret));
+        if (StringUtils.hasText(previousKeys)) {
+            for (String entry : previousKeys.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalStateException("Formato inválido en app.jwt.previous-keys, se esperaba 'kid:secreto'.");
+                }
+                keys.putIfAbsent(entry.substring(0, separator).trim(), deriveKey(entry.substring(separator + 1).trim()));
+            }
+        }
+        this.keyRing = new JwtKeyRing(activeKeyId, keys);
+        // JwtParser es inmutable y seguro para hilos: se reutiliza en cada solicitud
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+        logger.info("Anillo de claves JWT inicializado con {} clave(s), clave activa '{}'.", keyRing.size(), activeKeyId);
+    }
+
     // Método para decodificar el salt de Base64
     private byte[] salt() {
         return Base64.getDecoder().decode(jwtSalt);
     }
 
-    // Método para generar la clave de firma JWT usando PBKDF2
-    private SecretKey getSigningKey() {
+    // Método para derivar una clave de firma JWT usando PBKDF2 (solo se invoca al iniciar)
+    private SecretKey deriveKey(String secret) {
         try {
             // Se utiliza PBKDF2WithHmacSHA512 para derivar una clave fuerte del secreto
             SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
             KeySpec spec = new PBEKeySpec(
-                    jwtSecret.toCharArray(), // El secreto JWT como array de caracteres
+                    secret.toCharArray(), // El secreto JWT como array de caracteres
                     salt(), // El salt decodificado
                     iterations, // Número de iteraciones
                     keyLength // Longitud de la clave
@@ -66,9 +108,10 @@ public class JwtTokenProvider {
      * Genera un token JWT para un usuario autenticado.
      * 
      * @param authentication Objeto Authentication de Spring Security.
+     * @param sessionId      ID de la sesión, incluido como claim 'jti'.
      * @return El token JWT generado.
      */
-    public String generateToken(Authentication authentication) {
+    public String generateToken(Authentication authentication, UUID sessionId) {
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal(); // Obtiene los detalles del
                                                                                            // usuario
         Date now = new Date(); // Fecha y hora actual
@@ -77,13 +120,40 @@ public class JwtTokenProvider {
         return Jwts.builder()
                 .setSubject(userDetails.getUsername()) // El email del usuario como 'subject' del token
                 .claim("userId", userDetails.getId().toString()) // Añade el ID del usuario como un claim personalizado
+                .setId(sessionId.toString()) // ID de la sesión: identifica el token para cierre y revocación
                 .setIssuedAt(now) // Fecha de emisión del token
                 .setExpiration(expiryDate) // Fecha de expiración del token
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512) // Firma el token con la clave secreta y el
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId()) // Clave usada, para permitir la rotación
+                .signWith(keyRing.getActiveKey(), SignatureAlgorithm.HS512) // Firma el token con la clave secreta y el
                                                                      // algoritmo HS512
                 .compact(); // Construye el token JWT
     }
 
+    /**
+     * Verifica la firma y la expiración del token con una única operación de parseo.
+     * 
+     * @param token El token JWT.
+     * @return Los claims del token si es válido, o vacío en caso contrario.
+     */
+    public Optional<Claims> parseToken(String token) {
+        try {
+            return Optional.of(jwtParser.parseClaimsJws(token).getBody());
+        } catch (SignatureException ex) {
+            logger.error("Firma JWT inválida: {}", ex.getMessage()); // Error de firma inválida
+        } catch (MalformedJwtException ex) {
+            logger.error("Token JWT mal formado: {}", ex.getMessage()); // Token mal formado
+        } catch (ExpiredJwtException ex) {
+            logger.error("Token JWT expirado: {}", ex.getMessage()); // Token expirado
+        } catch (UnsupportedJwtException ex) {
+            logger.error("Token JWT no soportado: {}", ex.getMessage()); // Token no soportado
+        } catch (IllegalArgumentException ex) {
+            logger.error("JWT claims string está vacío: {}", ex.getMessage()); // Claims vacíos
+        } catch (JwtException ex) {
+            logger.error("Error general JWT: {}", ex.getMessage()); // Cualquier otra excepción JWT
+        }
+        return Optional.empty(); // El token no es válido
+    }
+
     /**
      * Obtiene el nombre de usuario (email) del token JWT.
      * 
@@ -91,11 +161,7 @@ public class JwtTokenProvider {
      * @return El nombre de usuario (email).
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey()) // Establece la clave de firma para parsear el token
-                .build()
-                .parseClaimsJws(token) // Parsea el token JWT
-                .getBody(); // Obtiene el cuerpo de los claims
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
         return claims.getSubject(); // Retorna el 'subject' (que es el email del usuario)
     }
 
@@ -106,11 +172,7 @@ public class JwtTokenProvider {
      * @return El ID de usuario como String.
      */
     public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
         return claims.get("userId", String.class); // Retorna el claim 'userId'
     }
 
@@ -121,26 +183,7 @@ public class JwtTokenProvider {
      * @return true si el token es válido, false en caso contrario.
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey()) // Establece la clave de firma
-                    .build()
-                    .parseClaimsJws(token); // Intenta parsear y validar el token
-            return true;
-        } catch (SignatureException ex) {
-            logger.error("Firma JWT inválida: {}", ex.getMessage()); // Error de firma inválida
-        } catch (MalformedJwtException ex) {
-            logger.error("Token JWT mal formado: {}", ex.getMessage()); // Token mal formado
-        } catch (ExpiredJwtException ex) {
-            logger.error("Token JWT expirado: {}", ex.getMessage()); // Token expirado
-        } catch (UnsupportedJwtException ex) {
-            logger.error("Token JWT no soportado: {}", ex.getMessage()); // Token no soportado
-        } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string está vacío: {}", ex.getMessage()); // Claims vacíos
-        } catch (JwtException ex) {
-            logger.error("Error general JWT: {}", ex.getMessage()); // Cualquier otra excepción JWT
-        }
-        return false; // El token no es válido
+        return parseToken(token).isPresent();
     }
 
     // Método para obtener el tiempo de expiración en milisegundos (útil para la
@@ -148,4 +191,37 @@ public class JwtTokenProvider {
     public int getJwtExpirationInMs() {
         return jwtExpirationInMs;
     }
+
+    /**
+     * Calcula el hash que se almacena en sesiones.token_hash (SHA-256 en hexadecimal, 64 caracteres).
+     * 
+     * @param token El token JWT.
+     * @return El hash del token.
+     */
+    public static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Obtiene el ID de sesión (claim 'jti') de unos claims ya verificados.
+     * 
+     * @param claims Claims del token.
+     * @return El ID de la sesión, o vacío si el token no lo incluye o no es un UUID.
+     */
+    public static Optional<UUID> getSessionId(Claims claims) {
+        String jti = claims.getId();
+        if (!StringUtils.hasText(jti)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(UUID.fromString(jti));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.api.api.security;
+
+import java.time.Instant;
+
+/**
+ * Almacén de contadores de intentos de login fallidos para LoginThrottle.
+ * Cada clave (email o IP) lleva un contador de ventana deslizante aproximado con dos ventanas
+ * fijas consecutivas: la estimación es el conteo de la ventana actual más el de la anterior
+ * ponderado por la fracción de esa ventana que aún cae dentro del periodo deslizante.
+ * La implementación se elige con app.security.login-throttle.store: "memory" (por nodo)
+ * o "jdbc" (compartida entre nodos a través de PostgreSQL).
+ */
+public interface LoginAttemptStore {
+
+    /**
+     * Registra un intento fallido para la clave.
+     * @param key Clave del contador (ej. "email:usuario@dominio.com" o "ip:10.0.0.1").
+     * @param now Instante del intento.
+     * @return Estimación de intentos fallidos en la ventana deslizante, incluido este.
+     */
+    long recordFailure(String key, Instant now);
+
+    /**
+     * Obtiene la estimación de intentos fallidos de la clave en la ventana deslizante.
+     * @param key Clave del contador.
+     * @param now Instante de referencia.
+     * @return Estimación de intentos fallidos.
+     */
+    long countFailures(String key, Instant now);
+
+    // Elimina el contador de la clave (ej. tras un login exitoso)
+    void reset(String key);
+
+    // Estimación de la ventana deslizante a partir de los conteos de la ventana fija actual y la anterior
+    static long estimate(long previous, long current, long nowMillis, long windowMillis) {
+        double elapsed = (double) (nowMillis % windowMillis) / windowMillis;
+        return current + (long) Math.floor(previous * (1.0 - elapsed));
+    }
+}
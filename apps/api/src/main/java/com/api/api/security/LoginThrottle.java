@@ -0,0 +1,150 @@
+package com.api.api.security;
+
+import com.api.api.model.Usuarios;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Limitador de intentos de login por email y por IP de origen con ventana deslizante.
+ * Los contadores viven en un LoginAttemptStore (en memoria o compartido entre nodos), de modo que
+ * un intento fallido no escribe en usuarios; solo AuthService persiste fecha_bloqueo_sesion
+ * cuando el email de una cuenta existente cruza el umbral.
+ * Los emails inexistentes también se limitan, y las claves bloqueadas se recuerdan en memoria
+ * durante el bloqueo para rechazar los reintentos sin consultar el almacén.
+ * La IP es la de la conexión (AuthController usa request.getRemoteAddr()), nunca el X-Forwarded-For
+ * enviado por el cliente, que permitiría esquivar el límite o bloquear la IP de otro.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final int MAX_IP_LENGTH = 45;
+    // IPv4 o IPv6 (incluida la forma mixta ::ffff:1.2.3.4); sin comas, espacios ni puertos
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9]{1,3}(\\.[0-9]{1,3}){3}|[0-9a-fA-F:]*:[0-9a-fA-F:.]*");
+
+    public enum Bloqueo {
+        NINGUNO, EMAIL, IP
+    }
+
+    private final LoginAttemptStore store;
+    private final int maxFailuresPerEmail;
+    private final int maxFailuresPerIp;
+    private final Duration lockout;
+    // Claves bloqueadas en este nodo con el instante de fin del bloqueo
+    private final Cache<String, Instant> bloqueos;
+    private final Counter bloqueosEmail;
+    private final Counter bloqueosIp;
+
+    public LoginThrottle(LoginAttemptStore store,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.security.login-throttle.max-failures-per-email:5}") int maxFailuresPerEmail,
+                         @Value("${app.security.login-throttle.max-failures-per-ip:50}") int maxFailuresPerIp,
+                         @Value("${app.security.login-throttle.lockout-minutes:15}") long lockoutMinutes,
+                         @Value("${app.security.login-throttle.max-keys:100000}") long maxKeys) {
+        this.store = store;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.lockout = Duration.ofMinutes(lockoutMinutes);
+        this.bloqueos = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(lockout)
+                .build();
+        this.bloqueosEmail = meterRegistry.counter("seguridad.login.bloqueos", "tipo", "email");
+        this.bloqueosIp = meterRegistry.counter("seguridad.login.bloqueos", "tipo", "ip");
+    }
+
+    /**
+     * Indica si el intento debe rechazarse antes de verificar la contraseña.
+     * @param email Email del intento.
+     * @param ip IP de origen del intento (puede ser null).
+     * @return El tipo de bloqueo vigente, o NINGUNO.
+     */
+    public Bloqueo verificar(String email, String ip) {
+        Instant ahora = Instant.now();
+        String ipKey = ipKey(ip);
+        if (ipKey != null && (bloqueado(ipKey, ahora) || store.countFailures(ipKey, ahora) >= maxFailuresPerIp)) {
+            return Bloqueo.IP;
+        }
+        String emailKey = emailKey(email);
+        if (emailKey != null && (bloqueado(emailKey, ahora) || store.countFailures(emailKey, ahora) >= maxFailuresPerEmail)) {
+            return Bloqueo.EMAIL;
+        }
+        return Bloqueo.NINGUNO;
+    }
+
+    /**
+     * Registra un intento fallido para el email y la IP.
+     * @param email Email del intento.
+     * @param ip IP de origen del intento (puede ser null).
+     * @return Intentos fallidos del email en la ventana, incluido este.
+     */
+    public long registrarFallo(String email, String ip) {
+        Instant ahora = Instant.now();
+        String ipKey = ipKey(ip);
+        if (ipKey != null && store.recordFailure(ipKey, ahora) >= maxFailuresPerIp && bloquear(ipKey, ahora)) {
+            bloqueosIp.increment();
+        }
+        String emailKey = emailKey(email);
+        if (emailKey == null) {
+            return 0;
+        }
+        long intentos = store.recordFailure(emailKey, ahora);
+        if (intentos >= maxFailuresPerEmail && bloquear(emailKey, ahora)) {
+            bloqueosEmail.increment();
+        }
+        return intentos;
+    }
+
+    // Reinicia el contador del email tras un login exitoso
+    public void registrarExito(String email) {
+        String emailKey = emailKey(email);
+        if (emailKey != null) {
+            bloqueos.invalidate(emailKey);
+            store.reset(emailKey);
+        }
+    }
+
+    // Indica si la cantidad de intentos del email alcanza el umbral de bloqueo de la cuenta
+    public boolean alcanzaBloqueo(long intentos) {
+        return intentos >= maxFailuresPerEmail;
+    }
+
+    public Duration getLockout() {
+        return lockout;
+    }
+
+    private boolean bloqueado(String key, Instant ahora) {
+        Instant hasta = bloqueos.getIfPresent(key);
+        return hasta != null && hasta.isAfter(ahora);
+    }
+
+    // Devuelve true si la clave no estaba bloqueada en este nodo
+    private boolean bloquear(String key, Instant ahora) {
+        return bloqueos.asMap().putIfAbsent(key, ahora.plus(lockout)) == null;
+    }
+
+    private static String emailKey(String email) {
+        return email == null || email.isBlank() ? null : "email:" + Usuarios.normalizarEmail(email);
+    }
+
+    // Solo direcciones IPv4/IPv6 literales de un único salto (máximo 45 caracteres, como ip_origen);
+    // cualquier otro valor no se limita por IP para no llevar texto arbitrario al almacén
+    static String ipKey(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        String valor = ip.trim();
+        if (valor.isEmpty() || valor.length() > MAX_IP_LENGTH || !IP_LITERAL.matcher(valor).matches()) {
+            return null;
+        }
+        return "ip:" + valor.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,95 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Invalidación de PermissionMatrix entre nodos con LISTEN/NOTIFY de PostgreSQL.
+ * Los triggers de V023 emiten NOTIFY permisos_cambios al confirmar cualquier cambio del catálogo,
+ * de los permisos, de las asignaciones o del estado de un usuario. Un hilo en segundo plano mantiene
+ * una conexión dedicada con LISTEN y, al recibir notificaciones, reconstruye el modelo:
+ * - Las notificaciones se entregan después de la confirmación, por lo que la reconstrucción ya ve el cambio.
+ * - Entre dos reconstrucciones pasan al menos app.security.permissions.listener.min-interval-ms; las
+ *   notificaciones recibidas mientras tanto se agrupan en una sola reconstrucción.
+ * - El nodo también recibe sus propios cambios; la reconstrucción completa se suma a la actualización
+ *   incremental que ya hizo el servicio y deja ambos modelos iguales.
+ * - Si la conexión se pierde, al reconectar se reconstruye el modelo (pudo perder notificaciones).
+ * La reconstrucción periódica de PermissionMatrix se mantiene como respaldo.
+ * La conexión se toma del pool durante toda la vida de la aplicación (ver PostgresNotificationListener)
+ * y se comprueba con una consulta cada app.security.permissions.listener.heartbeat-ms sin actividad.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.permissions.listener.enabled", havingValue = "true", matchIfMissing = true)
+public class PermissionChangeListener extends PostgresNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionChangeListener.class);
+
+    static final String CANAL = "permisos_cambios";
+
+    private final PermissionMatrix permissionMatrix;
+    private final long minIntervalMs;
+
+    private final Counter notificacionesCounter;
+    private final Counter reconstruccionesCounter;
+
+    // Estado del agrupamiento; solo lo usa el hilo de escucha
+    private long ultimaReconstruccion = 0;
+    private boolean pendiente = false;
+
+    public PermissionChangeListener(DataSource dataSource,
+                                    PermissionMatrix permissionMatrix,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.security.permissions.listener.min-interval-ms:1000}") long minIntervalMs,
+                                    @Value("${app.security.permissions.listener.reconnect-ms:5000}") long reconnectMs,
+                                    @Value("${app.security.permissions.listener.heartbeat-ms:10000}") long heartbeatMs) {
+        super(dataSource, CANAL, "permission-change-listener", reconnectMs, heartbeatMs);
+        this.permissionMatrix = permissionMatrix;
+        this.minIntervalMs = minIntervalMs;
+        this.notificacionesCounter = meterRegistry.counter("seguridad.permisos.notificaciones");
+        this.reconstruccionesCounter = meterRegistry.counter("seguridad.permisos.reconstrucciones_remotas");
+    }
+
+    @Override
+    protected void alConectar(boolean reconexion) {
+        pendiente = false;
+        ultimaReconstruccion = 0;
+        if (reconexion) {
+            // Las notificaciones emitidas mientras no había conexión se perdieron
+            logger.info("Se reconstruye el modelo de permisos tras reconectar al canal {}.", CANAL);
+            reconstruir();
+        }
+    }
+
+    @Override
+    protected void alRecibir(PGNotification[] notificaciones) {
+        notificacionesCounter.increment(notificaciones.length);
+        pendiente = true;
+    }
+
+    @Override
+    protected long esperaMaxima(long ahora) {
+        return pendiente ? ultimaReconstruccion + minIntervalMs - ahora : POLL_MS;
+    }
+
+    @Override
+    protected void alEsperar(long ahora) {
+        if (pendiente && ahora - ultimaReconstruccion >= minIntervalMs) {
+            pendiente = false;
+            reconstruir();
+            ultimaReconstruccion = System.currentTimeMillis();
+        }
+    }
+
+    private void reconstruir() {
+        reconstruccionesCounter.increment();
+        permissionMatrix.rebuild();
+    }
+}
@@ -0,0 +1,532 @@
+package com.api.api.security;
+
+import com.api.api.dto.ResponseDTO.PermisoAccionDTO;
+import com.api.api.dto.ResponseDTO.SeccionPermisosDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modelo compilado de permisos para responder consultas de autorización desde memoria.
+ * - Cada aplicación numera sus acciones (ordinal) y cada tipo de usuario es un bitset inmutable
+ *   sobre los ordinales de las acciones de su aplicación.
+ * - El conjunto efectivo de un usuario es el OR de los bitsets de sus tipos de usuario; check()
+ *   lo evalúa con búsquedas en mapas hash y pruebas de bits, sin consultar la base de datos.
+ * - El catálogo (aplicaciones, acciones, tipos de usuario y permisos) y las asignaciones de
+ *   usuarios se cargan al iniciar. Los cambios hechos en otros nodos se incorporan al recibir su
+ *   notificación (PermissionChangeListener) y, como respaldo, con la reconstrucción periódica.
+ *   Localmente, PermisosTipoUsuarioService y UsuariosTipoUsuarioService recompilan solo el tipo
+ *   de usuario o el usuario afectado, UsuariosService y la importación recargan los usuarios
+ *   modificados, y los servicios del catálogo recargan el catálogo.
+ * - Solo los usuarios activos y no eliminados tienen tipos de usuario en el modelo.
+ * - getVersion() aumenta con cada cambio del modelo.
+ * - menu() devuelve el árbol de secciones y acciones de un usuario en una aplicación. Se compila
+ *   una vez por combinación de tipos de usuario y se guarda en una caché ligada al catálogo, que
+ *   se descarta al reemplazarlo; los cambios de asignaciones cambian la combinación del usuario.
+ */
+@Component
+public class PermissionMatrix {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionMatrix.class);
+
+    private static final String APLICACIONES_SQL = "SELECT id, llave_identificadora FROM aplicaciones WHERE deleted_at IS NULL";
+    private static final String ACCIONES_SQL = "SELECT id, aplicacion_id, seccion_id, nombre, descripcion FROM acciones " +
+            "WHERE deleted_at IS NULL ORDER BY aplicacion_id, created_at, id";
+    private static final String SECCIONES_SQL = "SELECT id, nombre, descripcion FROM secciones WHERE deleted_at IS NULL";
+    private static final String TIPOS_USUARIO_SQL = "SELECT id, aplicacion_id FROM tipo_usuario WHERE deleted_at IS NULL";
+    private static final String TIPO_USUARIO_SQL = "SELECT id, aplicacion_id FROM tipo_usuario WHERE deleted_at IS NULL AND id = ?";
+    private static final String PERMISOS_SQL = "SELECT tipo_usuario_id, accion_id FROM permisos_tipo_usuario WHERE deleted_at IS NULL";
+    private static final String PERMISOS_TIPO_USUARIO_SQL = "SELECT accion_id FROM permisos_tipo_usuario " +
+            "WHERE deleted_at IS NULL AND tipo_usuario_id = ?";
+    // Solo los usuarios activos y no eliminados tienen permisos
+    private static final String ASIGNACIONES_SQL = "SELECT utu.usuario_id, utu.tipo_usuario_id FROM usuarios_tipo_usuario utu " +
+            "JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "WHERE utu.deleted_at IS NULL ORDER BY utu.usuario_id";
+    private static final String ASIGNACIONES_USUARIO_SQL = "SELECT utu.tipo_usuario_id FROM usuarios_tipo_usuario utu " +
+            "JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "WHERE utu.deleted_at IS NULL AND utu.usuario_id = ?";
+    private static final String ASIGNACIONES_USUARIOS_SQL = "SELECT utu.usuario_id, utu.tipo_usuario_id FROM usuarios_tipo_usuario utu " +
+            "JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo' " +
+            "WHERE utu.deleted_at IS NULL AND utu.usuario_id = ANY (?)";
+
+    private static final UUID[] SIN_ROLES = new UUID[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer duracionReconstruccion;
+    private final long menuCacheSize;
+
+    // Catálogo compilado; se reemplaza completo en cada cambio (copy-on-write)
+    private volatile Catalogo catalogo;
+    // ID de usuario -> IDs de sus tipos de usuario (arreglos inmutables)
+    private volatile Map<UUID, UUID[]> rolesPorUsuario = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public PermissionMatrix(DataSource dataSource,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.security.permissions.fetch-size:5000}") int fetchSize,
+                            @Value("${app.security.permissions.menu-cache-size:10000}") long menuCacheSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.duracionReconstruccion = meterRegistry.timer("seguridad.permisos.reconstruccion");
+        this.menuCacheSize = Math.max(1, menuCacheSize);
+
+        meterRegistry.gauge("seguridad.permisos.version", Tags.empty(), version);
+        meterRegistry.gauge("seguridad.permisos.usuarios", Tags.empty(), this, matrix -> matrix.rolesPorUsuario.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruye todo el modelo (catálogo y asignaciones) y lo reemplaza de forma atómica.
+     */
+    @Scheduled(initialDelayString = "${app.security.permissions.rebuild-interval-ms:300000}",
+               fixedDelayString = "${app.security.permissions.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        long inicio = System.nanoTime();
+        try {
+            Map<UUID, UUID[]> nuevasAsignaciones = new ConcurrentHashMap<>();
+            Catalogo nuevo = readOnlyTransaction.execute(status -> {
+                Catalogo compilado = cargarCatalogo();
+                cargarAsignaciones(nuevasAsignaciones);
+                return compilado;
+            });
+            catalogo = nuevo;
+            rolesPorUsuario = nuevasAsignaciones;
+            version.incrementAndGet();
+            logger.info("Modelo de permisos compilado: {} aplicaciones, {} tipos de usuario, {} usuarios en {} ms.",
+                    nuevo.aplicacionesPorLlave().size(), nuevo.roles().size(), nuevasAsignaciones.size(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Error al compilar el modelo de permisos; se conserva el anterior: {}", e.getMessage(), e);
+        } finally {
+            duracionReconstruccion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Recarga aplicaciones, acciones, tipos de usuario y permisos (no las asignaciones de usuarios)
+    public synchronized void recargarCatalogo() {
+        try {
+            catalogo = readOnlyTransaction.execute(status -> cargarCatalogo());
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Error al recargar el catálogo de permisos: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompila el bitset de un tipo de usuario tras modificar sus permisos.
+     * Si el tipo de usuario o alguna de sus acciones no están en el catálogo compilado, recarga el catálogo.
+     * @param tipoUsuarioId ID del tipo de usuario modificado.
+     */
+    public synchronized void actualizarTipoUsuario(UUID tipoUsuarioId) {
+        Catalogo actual = catalogo;
+        if (tipoUsuarioId == null || actual == null) {
+            return;
+        }
+        try {
+            List<UUID> aplicacionIds = jdbcTemplate.query(TIPO_USUARIO_SQL,
+                    (rs, rowNum) -> rs.getObject("aplicacion_id", UUID.class), tipoUsuarioId);
+            Map<UUID, Rol> roles = new HashMap<>(actual.roles());
+            if (aplicacionIds.isEmpty()) {
+                roles.remove(tipoUsuarioId);
+            } else {
+                Aplicacion aplicacion = actual.aplicacionesPorId().get(aplicacionIds.get(0));
+                List<UUID> accionIds = jdbcTemplate.queryForList(PERMISOS_TIPO_USUARIO_SQL, UUID.class, tipoUsuarioId);
+                long[] bits = aplicacion != null ? aplicacion.compilar(accionIds) : null;
+                if (bits == null) {
+                    recargarCatalogo();
+                    return;
+                }
+                roles.put(tipoUsuarioId, new Rol(aplicacion.id(), bits));
+            }
+            catalogo = new Catalogo(actual.aplicacionesPorLlave(), actual.aplicacionesPorId(), actual.secciones(),
+                    Map.copyOf(roles), nuevaCacheMenus());
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Error al recompilar los permisos del tipo de usuario {}: {}", tipoUsuarioId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recarga los tipos de usuario asignados a un usuario tras modificar sus asignaciones, su
+     * estado o eliminarlo (los usuarios inactivos o eliminados quedan sin tipos de usuario).
+     * @param usuarioId ID del usuario modificado.
+     */
+    public synchronized void actualizarUsuario(UUID usuarioId) {
+        if (usuarioId == null) {
+            return;
+        }
+        try {
+            List<UUID> roles = jdbcTemplate.queryForList(ASIGNACIONES_USUARIO_SQL, UUID.class, usuarioId);
+            if (roles.isEmpty()) {
+                rolesPorUsuario.remove(usuarioId);
+            } else {
+                rolesPorUsuario.put(usuarioId, roles.toArray(UUID[]::new));
+            }
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Error al recargar los tipos de usuario del usuario {}: {}", usuarioId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recarga los tipos de usuario de varios usuarios con una sola consulta (importación masiva).
+     * @param usuarioIds IDs de los usuarios modificados.
+     */
+    public synchronized void actualizarUsuarios(Collection<UUID> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return;
+        }
+        try {
+            UUID[] ids = usuarioIds.toArray(UUID[]::new);
+            Map<UUID, UUID[]> destino = new HashMap<>();
+            cargarAsignaciones(connection -> {
+                PreparedStatement ps = connection.prepareStatement(ASIGNACIONES_USUARIOS_SQL);
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                return ps;
+            }, destino);
+            for (UUID usuarioId : ids) {
+                UUID[] roles = destino.get(usuarioId);
+                if (roles == null) {
+                    rolesPorUsuario.remove(usuarioId);
+                } else {
+                    rolesPorUsuario.put(usuarioId, roles);
+                }
+            }
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Error al recargar los tipos de usuario de {} usuarios: {}", usuarioIds.size(), e.getMessage(), e);
+        }
+    }
+
+    // Indica si el modelo ya se compiló al menos una vez
+    public boolean isReady() {
+        return catalogo != null;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Indica si el usuario tiene permiso para la acción en la aplicación.
+     * Debe verificarse antes isReady() y que la aplicación exista (existeAplicacion()).
+     * @param usuarioId ID del usuario.
+     * @param llaveAplicacion Llave identificadora de la aplicación.
+     * @param nombreAccion Nombre de la acción.
+     * @return true si alguno de sus tipos de usuario de esa aplicación incluye la acción;
+     *         false si no, o si el usuario o la acción no existen.
+     */
+    public boolean check(UUID usuarioId, String llaveAplicacion, String nombreAccion) {
+        Catalogo actual = catalogo;
+        Aplicacion aplicacion = actual != null ? actual.aplicacionesPorLlave().get(llaveAplicacion) : null;
+        if (aplicacion == null || nombreAccion == null) {
+            return false;
+        }
+        Integer ordinal = aplicacion.ordinales().get(nombreAccion);
+        if (ordinal == null) {
+            return false;
+        }
+        for (UUID rolId : rolesPorUsuario.getOrDefault(usuarioId, SIN_ROLES)) {
+            Rol rol = actual.roles().get(rolId);
+            if (rol != null && rol.aplicacionId().equals(aplicacion.id()) && rol.tiene(ordinal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evalúa varias acciones de un mismo usuario en una aplicación: calcula una sola vez el OR de
+     * los bitsets de sus tipos de usuario y prueba el bit de cada acción.
+     * @param usuarioId ID del usuario.
+     * @param llaveAplicacion Llave identificadora de la aplicación.
+     * @param nombresAcciones Nombres de las acciones.
+     * @return Un resultado por acción, en el mismo orden (false para acciones inexistentes).
+     */
+    public boolean[] check(UUID usuarioId, String llaveAplicacion, List<String> nombresAcciones) {
+        boolean[] resultados = new boolean[nombresAcciones.size()];
+        Catalogo actual = catalogo;
+        Aplicacion aplicacion = actual != null ? actual.aplicacionesPorLlave().get(llaveAplicacion) : null;
+        if (aplicacion == null) {
+            return resultados;
+        }
+        long[] efectivo = new long[(aplicacion.ordinalesPorAccion().size() + 63) >>> 6];
+        for (UUID rolId : rolesPorUsuario.getOrDefault(usuarioId, SIN_ROLES)) {
+            Rol rol = actual.roles().get(rolId);
+            if (rol != null && rol.aplicacionId().equals(aplicacion.id())) {
+                for (int i = 0; i < Math.min(efectivo.length, rol.bits().length); i++) {
+                    efectivo[i] |= rol.bits()[i];
+                }
+            }
+        }
+        for (int i = 0; i < resultados.length; i++) {
+            Integer ordinal = nombresAcciones.get(i) != null ? aplicacion.ordinales().get(nombresAcciones.get(i)) : null;
+            resultados[i] = ordinal != null && (efectivo[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+        return resultados;
+    }
+
+    public boolean existeAplicacion(String llaveAplicacion) {
+        Catalogo actual = catalogo;
+        return actual != null && llaveAplicacion != null && actual.aplicacionesPorLlave().containsKey(llaveAplicacion);
+    }
+
+    /**
+     * Obtiene el árbol de secciones y acciones permitidas de un usuario en una aplicación.
+     * Debe verificarse antes isReady() y que la aplicación exista (existeAplicacion()).
+     * @param usuarioId ID del usuario.
+     * @param llaveAplicacion Llave identificadora de la aplicación.
+     * @return Menú compilado (secciones ordenadas por nombre, acciones ordenadas por nombre) con su ETag.
+     */
+    public MenuPermisos menu(UUID usuarioId, String llaveAplicacion) {
+        Catalogo actual = catalogo;
+        long versionActual = version.get();
+        Aplicacion aplicacion = actual != null ? actual.aplicacionesPorLlave().get(llaveAplicacion) : null;
+        if (aplicacion == null) {
+            List<SeccionPermisosDTO> vacio = List.of();
+            return new MenuPermisos(vacio, etag(vacio), versionActual);
+        }
+        // La clave es la combinación (ordenada) de tipos de usuario del usuario en la aplicación
+        List<UUID> rolIds = new ArrayList<>(2);
+        for (UUID rolId : rolesPorUsuario.getOrDefault(usuarioId, SIN_ROLES)) {
+            Rol rol = actual.roles().get(rolId);
+            if (rol != null && rol.aplicacionId().equals(aplicacion.id()) && !rolIds.contains(rolId)) {
+                rolIds.add(rolId);
+            }
+        }
+        rolIds.sort(null);
+        return actual.menus().get(new ClaveMenu(aplicacion.id(), List.copyOf(rolIds)),
+                clave -> compilarMenu(actual, aplicacion, clave.rolIds(), versionActual));
+    }
+
+    /**
+     * Calcula el ETag de un árbol de permisos a partir de su contenido (SHA-256 truncado), de modo
+     * que dos nodos con el mismo modelo devuelven el mismo ETag.
+     * @param secciones Árbol de secciones y acciones.
+     * @return ETag fuerte, entre comillas.
+     */
+    public static String etag(List<SeccionPermisosDTO> secciones) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (SeccionPermisosDTO seccion : secciones) {
+                actualizar(digest, "S", seccion.getNombreSeccion(), seccion.getDescripcionSeccion());
+                for (PermisoAccionDTO accion : seccion.getAcciones()) {
+                    actualizar(digest, "A", accion.getNombreAccion(), accion.getDescripcionAccion());
+                }
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static void actualizar(MessageDigest digest, String tipo, String nombre, String descripcion) {
+        // Separadores de control para que ("ab","c") y ("a","bc") no produzcan el mismo resumen
+        digest.update((tipo + '\u001f' + (nombre != null ? nombre : "") + '\u001f'
+                + (descripcion != null ? descripcion : "\u0000") + '\u001e').getBytes(StandardCharsets.UTF_8));
+    }
+
+    // OR de los bitsets de la combinación, agrupado por sección y ordenado como el endpoint original
+    private static MenuPermisos compilarMenu(Catalogo actual, Aplicacion aplicacion, List<UUID> rolIds, long version) {
+        long[] efectivo = new long[(aplicacion.acciones().length + 63) >>> 6];
+        for (UUID rolId : rolIds) {
+            long[] bits = actual.roles().get(rolId).bits();
+            for (int i = 0; i < Math.min(efectivo.length, bits.length); i++) {
+                efectivo[i] |= bits[i];
+            }
+        }
+        Map<UUID, List<PermisoAccionDTO>> accionesPorSeccion = new HashMap<>();
+        for (int ordinal = 0; ordinal < aplicacion.acciones().length; ordinal++) {
+            Accion accion = aplicacion.acciones()[ordinal];
+            if ((efectivo[ordinal >>> 6] & (1L << ordinal)) != 0
+                    && accion.seccionId() != null && actual.secciones().containsKey(accion.seccionId())) {
+                accionesPorSeccion.computeIfAbsent(accion.seccionId(), k -> new ArrayList<>())
+                        .add(new PermisoAccionDTO(accion.nombre(), accion.descripcion()));
+            }
+        }
+        List<SeccionPermisosDTO> secciones = new ArrayList<>(accionesPorSeccion.size());
+        accionesPorSeccion.forEach((seccionId, acciones) -> {
+            Seccion seccion = actual.secciones().get(seccionId);
+            acciones.sort(Comparator.comparing(PermisoAccionDTO::getNombreAccion));
+            secciones.add(new SeccionPermisosDTO(seccion.nombre(), seccion.descripcion(), List.copyOf(acciones)));
+        });
+        secciones.sort(Comparator.comparing(SeccionPermisosDTO::getNombreSeccion));
+        List<SeccionPermisosDTO> menu = List.copyOf(secciones);
+        return new MenuPermisos(menu, etag(menu), version);
+    }
+
+    private Cache<ClaveMenu, MenuPermisos> nuevaCacheMenus() {
+        return Caffeine.newBuilder().maximumSize(menuCacheSize).build();
+    }
+
+    private Catalogo cargarCatalogo() {
+        Map<UUID, String> llaves = new HashMap<>();
+        jdbcTemplate.query(APLICACIONES_SQL, (RowCallbackHandler) rs ->
+                llaves.put(rs.getObject("id", UUID.class), rs.getString("llave_identificadora")));
+
+        // Ordinales consecutivos por aplicación, en orden de creación de las acciones
+        Map<UUID, Map<String, Integer>> ordinalesPorNombre = new HashMap<>();
+        Map<UUID, Map<UUID, Integer>> ordinalesPorAccion = new HashMap<>();
+        Map<UUID, List<Accion>> accionesPorAplicacion = new HashMap<>();
+        jdbcTemplate.query(ACCIONES_SQL, (RowCallbackHandler) rs -> {
+            UUID aplicacionId = rs.getObject("aplicacion_id", UUID.class);
+            Map<UUID, Integer> porAccion = ordinalesPorAccion.computeIfAbsent(aplicacionId, k -> new HashMap<>());
+            int ordinal = porAccion.size();
+            porAccion.put(rs.getObject("id", UUID.class), ordinal);
+            ordinalesPorNombre.computeIfAbsent(aplicacionId, k -> new HashMap<>()).putIfAbsent(rs.getString("nombre"), ordinal);
+            accionesPorAplicacion.computeIfAbsent(aplicacionId, k -> new ArrayList<>()).add(new Accion(
+                    rs.getString("nombre"), rs.getString("descripcion"), rs.getObject("seccion_id", UUID.class)));
+        });
+        Map<UUID, Seccion> secciones = new HashMap<>();
+        jdbcTemplate.query(SECCIONES_SQL, (RowCallbackHandler) rs -> secciones.put(rs.getObject("id", UUID.class),
+                new Seccion(rs.getString("nombre"), rs.getString("descripcion"))));
+
+        Map<String, Aplicacion> porLlave = new HashMap<>();
+        Map<UUID, Aplicacion> porId = new HashMap<>();
+        llaves.forEach((id, llave) -> {
+            Aplicacion aplicacion = new Aplicacion(id,
+                    Map.copyOf(ordinalesPorNombre.getOrDefault(id, Map.of())),
+                    Map.copyOf(ordinalesPorAccion.getOrDefault(id, Map.of())),
+                    accionesPorAplicacion.getOrDefault(id, List.of()).toArray(Accion[]::new));
+            porId.put(id, aplicacion);
+            if (llave != null) {
+                porLlave.put(llave, aplicacion);
+            }
+        });
+
+        Map<UUID, UUID> aplicacionPorRol = new HashMap<>();
+        jdbcTemplate.query(TIPOS_USUARIO_SQL, (RowCallbackHandler) rs ->
+                aplicacionPorRol.put(rs.getObject("id", UUID.class), rs.getObject("aplicacion_id", UUID.class)));
+        Map<UUID, List<UUID>> accionesPorRol = new HashMap<>();
+        jdbcTemplate.query(PERMISOS_SQL, (RowCallbackHandler) rs ->
+                accionesPorRol.computeIfAbsent(rs.getObject("tipo_usuario_id", UUID.class), k -> new ArrayList<>())
+                        .add(rs.getObject("accion_id", UUID.class)));
+
+        Map<UUID, Rol> roles = new HashMap<>();
+        aplicacionPorRol.forEach((rolId, aplicacionId) -> {
+            Aplicacion aplicacion = porId.get(aplicacionId);
+            if (aplicacion != null) {
+                // Los permisos sobre acciones eliminadas o de otra aplicación no otorgan nada
+                long[] bits = aplicacion.compilarIgnorandoDesconocidas(accionesPorRol.getOrDefault(rolId, List.of()));
+                roles.put(rolId, new Rol(aplicacionId, bits));
+            }
+        });
+        return new Catalogo(Map.copyOf(porLlave), Map.copyOf(porId), Map.copyOf(secciones), Map.copyOf(roles),
+                nuevaCacheMenus());
+    }
+
+    private void cargarAsignaciones(Map<UUID, UUID[]> destino) {
+        cargarAsignaciones(connection -> connection.prepareStatement(ASIGNACIONES_SQL), destino);
+    }
+
+    private void cargarAsignaciones(PreparedStatementCreator consulta, Map<UUID, UUID[]> destino) {
+        Map<UUID, List<UUID>> asignaciones = new HashMap<>();
+        jdbcTemplate.query(consulta, (RowCallbackHandler) rs ->
+                asignaciones.computeIfAbsent(rs.getObject("usuario_id", UUID.class), k -> new ArrayList<>(2))
+                        .add(rs.getObject("tipo_usuario_id", UUID.class)));
+        asignaciones.forEach((usuarioId, roles) -> destino.put(usuarioId, roles.toArray(UUID[]::new)));
+    }
+
+    /**
+     * Árbol de permisos de un usuario en una aplicación, listo para servir.
+     * @param secciones Secciones con sus acciones permitidas (listas inmutables).
+     * @param etag ETag calculado a partir del contenido.
+     * @param version Versión del modelo de permisos con la que se compiló.
+     */
+    public record MenuPermisos(List<SeccionPermisosDTO> secciones, String etag, long version) {
+    }
+
+    // Los menús compilados viven con el catálogo: al reemplazarlo se descarta la caché completa
+    private record Catalogo(Map<String, Aplicacion> aplicacionesPorLlave,
+                            Map<UUID, Aplicacion> aplicacionesPorId,
+                            Map<UUID, Seccion> secciones,
+                            Map<UUID, Rol> roles,
+                            Cache<ClaveMenu, MenuPermisos> menus) {
+    }
+
+    private record ClaveMenu(UUID aplicacionId, List<UUID> rolIds) {
+    }
+
+    private record Seccion(String nombre, String descripcion) {
+    }
+
+    private record Accion(String nombre, String descripcion, UUID seccionId) {
+    }
+
+    // acciones: metadatos de cada acción indexados por ordinal
+    private record Aplicacion(UUID id, Map<String, Integer> ordinales, Map<UUID, Integer> ordinalesPorAccion,
+                              Accion[] acciones) {
+
+        // Bitset de las acciones indicadas, o null si alguna no pertenece a la aplicación compilada
+        long[] compilar(List<UUID> accionIds) {
+            long[] bits = new long[(ordinalesPorAccion.size() + 63) >>> 6];
+            for (UUID accionId : accionIds) {
+                Integer ordinal = ordinalesPorAccion.get(accionId);
+                if (ordinal == null) {
+                    return null;
+                }
+                bits[ordinal >>> 6] |= 1L << ordinal;
+            }
+            return bits;
+        }
+
+        long[] compilarIgnorandoDesconocidas(List<UUID> accionIds) {
+            long[] bits = new long[(ordinalesPorAccion.size() + 63) >>> 6];
+            for (UUID accionId : accionIds) {
+                Integer ordinal = ordinalesPorAccion.get(accionId);
+                if (ordinal != null) {
+                    bits[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+            return bits;
+        }
+    }
+
+    // Tipo de usuario compilado: bitset inmutable sobre los ordinales de las acciones de su aplicación
+    private record Rol(UUID aplicacionId, long[] bits) {
+
+        boolean tiene(int ordinal) {
+            int palabra = ordinal >>> 6;
+            return palabra < bits.length && (bits[palabra] & (1L << ordinal)) != 0;
+        }
+    }
+}
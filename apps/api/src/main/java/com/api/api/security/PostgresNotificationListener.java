@@ -0,0 +1,161 @@
+package com.api.api.security;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Escucha de un canal LISTEN/NOTIFY de PostgreSQL en un hilo propio con una conexión dedicada.
+ * Las subclases reciben las notificaciones y los cambios de estado de la conexión:
+ * - alConectar(): después de ejecutar LISTEN; desde ese momento no se pierde ninguna notificación.
+ * - alRecibir(): notificaciones recibidas (solo de transacciones confirmadas).
+ * - alEsperar(): en cada vuelta del bucle, para el trabajo diferido.
+ * - alDesconectar(): la conexión se perdió o la escucha se detiene; las notificaciones emitidas hasta
+ *   la siguiente conexión se pierden.
+ * La espera por notificaciones es acotada para atender stop() sin cerrar la conexión desde otro hilo;
+ * la conexión se comprueba con una consulta cada heartbeatMs sin actividad y, al perderse, se
+ * reintenta cada reconnectMs. Si la base de datos no es PostgreSQL el hilo termina sin conectar.
+ */
+abstract class PostgresNotificationListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresNotificationListener.class);
+
+    static final long POLL_MS = 500;
+
+    private final DataSource dataSource;
+    private final String canal;
+    private final String nombreHilo;
+    private final long reconnectMs;
+    private final long heartbeatMs;
+
+    private volatile boolean running = false;
+    private Thread worker;
+
+    protected PostgresNotificationListener(DataSource dataSource, String canal, String nombreHilo,
+                                           long reconnectMs, long heartbeatMs) {
+        this.dataSource = dataSource;
+        this.canal = canal;
+        this.nombreHilo = nombreHilo;
+        this.reconnectMs = reconnectMs;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    /**
+     * Se invoca después de LISTEN en cada conexión.
+     * @param reconexion true si una conexión anterior se perdió (pudieron perderse notificaciones).
+     */
+    protected abstract void alConectar(boolean reconexion);
+
+    // Notificaciones recibidas del canal
+    protected abstract void alRecibir(PGNotification[] notificaciones);
+
+    // Trabajo diferido; se invoca en cada vuelta del bucle (al menos cada POLL_MS)
+    protected void alEsperar(long ahora) {
+    }
+
+    // Espera máxima hasta el próximo trabajo diferido (acotada a POLL_MS)
+    protected long esperaMaxima(long ahora) {
+        return POLL_MS;
+    }
+
+    // La escucha se interrumpió: las notificaciones siguientes se pierden hasta la próxima conexión
+    protected void alDesconectar() {
+    }
+
+    // Bucle del hilo: escucha mientras la conexión sea válida y reconecta tras cualquier error
+    private void listenLoop() {
+        boolean reconectando = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    logger.info("La base de datos no es PostgreSQL; no se escucha el canal {}.", canal);
+                    break;
+                }
+                connection.setAutoCommit(true);
+                ejecutar(connection, "LISTEN " + canal);
+                try {
+                    if (reconectando) {
+                        logger.info("Reconectado al canal {}.", canal);
+                    }
+                    alConectar(reconectando);
+                    reconectando = false;
+                    escuchar(connection);
+                } finally {
+                    alDesconectar();
+                    // La conexión vuelve al pool: deja de escuchar para no acumular notificaciones en ella
+                    ejecutar(connection, "UNLISTEN *");
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Se perdió la escucha del canal {}: {}. Reintento en {} ms.", canal, e.getMessage(), reconnectMs);
+                reconectando = true;
+                try {
+                    Thread.sleep(reconnectMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void escuchar(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long ultimaActividad = System.currentTimeMillis();
+        while (running) {
+            long espera = Math.max(1, Math.min(esperaMaxima(System.currentTimeMillis()), POLL_MS));
+            PGNotification[] notificaciones = pgConnection.getNotifications((int) espera);
+            long ahora = System.currentTimeMillis();
+            if (notificaciones != null && notificaciones.length > 0) {
+                ultimaActividad = ahora;
+                alRecibir(notificaciones);
+            } else if (ahora - ultimaActividad >= heartbeatMs) {
+                // Sin actividad: comprueba que la conexión sigue viva
+                ejecutar(connection, "SELECT 1");
+                ultimaActividad = ahora;
+            }
+            alEsperar(ahora);
+        }
+    }
+
+    private static void ejecutar(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::listenLoop, nombreHilo);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(POLL_MS * 4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,59 @@
+package com.api.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Caché acotada de principales autenticados (usuario + autoridades) indexada por ID de usuario.
+ * Evita que JwtAuthenticationFilter consulte la base de datos en cada solicitud.
+ * Los servicios que modifican usuarios, asignaciones de tipos de usuario o permisos deben
+ * invalidar las entradas afectadas; el TTL acota la desactualización entre nodos.
+ * Las métricas de aciertos/fallos se publican en Micrometer con el nombre "principales".
+ */
+@Component
+public class PrincipalCache {
+
+    private final Cache<UUID, CustomUserDetails> cache;
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.principal-cache.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principales");
+    }
+
+    // Obtiene el principal desde la caché o lo construye con el cargador indicado
+    public CustomUserDetails get(UUID userId, Function<UUID, CustomUserDetails> loader) {
+        return cache.get(userId, loader);
+    }
+
+    // Invalida el principal de un usuario
+    public void invalidate(UUID userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    // Invalida los principales de varios usuarios
+    public void invalidateAll(Collection<UUID> userIds) {
+        cache.invalidateAll(userIds);
+    }
+
+    // Invalida todos los principales (cambios que afectan a muchos usuarios, ej. nombre de una acción)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,119 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marca como 'expirada' las sesiones activas cuya fecha de expiración ya pasó.
+ * Trabaja por bloques acotados con UPDATE sobre conjuntos (sin cargar entidades), recorriendo
+ * idx_sesiones_fecha_expiracion; cada bloque es una transacción corta.
+ * Un advisory lock transaccional hace que solo un nodo barra a la vez y FOR UPDATE SKIP LOCKED
+ * evita esperar filas bloqueadas por un cierre de sesión concurrente.
+ * Publica en Micrometer las sesiones barridas y el retraso de la sesión expirada más antigua
+ * que sigue activa.
+ */
+@Component
+public class SessionExpirySweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionExpirySweeper.class);
+
+    // Clave del advisory lock del barrido de sesiones
+    private static final long LOCK_KEY = 0x4343415F53455353L;
+
+    private static final String SWEEP_SQL = "UPDATE sesiones SET estado = 'expirada', " +
+            "fecha_fin = COALESCE(fecha_fin, fecha_expiracion), fecha_revocacion = now(), updated_at = now() " +
+            "WHERE id IN (SELECT id FROM sesiones WHERE fecha_expiracion < now() AND estado = 'activa' " +
+            "ORDER BY fecha_expiracion LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+    private static final String LAG_SQL = "SELECT COALESCE(EXTRACT(EPOCH FROM now() - MIN(fecha_expiracion)), 0) " +
+            "FROM sesiones WHERE fecha_expiracion < now() AND estado = 'activa'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int maxChunks;
+
+    private final Counter barridas;
+    private final Timer duracion;
+    private final AtomicLong retrasoSegundos = new AtomicLong();
+
+    public SessionExpirySweeper(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.sessions.sweeper.enabled:true}") boolean enabled,
+                                @Value("${app.sessions.sweeper.chunk-size:1000}") int chunkSize,
+                                @Value("${app.sessions.sweeper.max-chunks:100}") int maxChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxChunks = Math.max(1, maxChunks);
+
+        this.barridas = meterRegistry.counter("sesiones.expiradas.barridas");
+        this.duracion = meterRegistry.timer("sesiones.expiradas.barrido");
+        meterRegistry.gauge("sesiones.expiradas.retraso.segundos", retrasoSegundos);
+    }
+
+    /**
+     * Ejecuta un barrido: hasta max-chunks bloques de chunk-size sesiones.
+     * Se detiene cuando un bloque queda incompleto o cuando otro nodo tiene el lock.
+     */
+    @Scheduled(initialDelayString = "${app.sessions.sweeper.interval-ms:60000}",
+               fixedDelayString = "${app.sessions.sweeper.interval-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long total = 0;
+        long inicio = System.nanoTime();
+        try {
+            for (int i = 0; i < maxChunks; i++) {
+                Integer marcadas = transactionTemplate.execute(status -> {
+                    Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+                    if (!Boolean.TRUE.equals(locked)) {
+                        return -1;
+                    }
+                    return jdbcTemplate.update(SWEEP_SQL, chunkSize);
+                });
+                if (marcadas == null || marcadas < 0) {
+                    logger.debug("Barrido de sesiones en curso en otro nodo; se omite.");
+                    break;
+                }
+                total += marcadas;
+                barridas.increment(marcadas);
+                if (marcadas < chunkSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                logger.info("Sesiones marcadas como expiradas: {}.", total);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error en el barrido de sesiones expiradas: {}", e.getMessage(), e);
+        } finally {
+            duracion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        refreshLag();
+    }
+
+    private void refreshLag() {
+        try {
+            Number lag = jdbcTemplate.queryForObject(LAG_SQL, Number.class);
+            retrasoSegundos.set(lag != null ? lag.longValue() : 0);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo calcular el retraso del barrido de sesiones: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria de las sesiones revocadas (cerradas, expiradas o eliminadas).
+ * JwtAuthenticationFilter lo consulta en cada solicitud con una sola búsqueda en un mapa hash,
+ * sin acceder a la tabla sesiones.
+ * - Las claves son los IDs de sesión (claim 'jti' del token); cada entrada se conserva solo hasta que el token
+ *   habría expirado por sí mismo (inicio de la sesión + duración del JWT), lo que acota el tamaño.
+ * - Se alimenta desde SesionesService al cerrar o eliminar sesiones.
+ * - Se reconstruye desde sesiones al iniciar y consulta periódicamente las sesiones revocadas
+ *   recientemente para sincronizar las revocaciones hechas en otros nodos. Se usa fecha_revocacion,
+ *   asignada con el reloj de la base de datos (fecha_fin la puede enviar el cliente), y la marca de
+ *   la última sincronización también se toma de la base de datos.
+ *   La eliminación definitiva de una sesión solo se propaga al nodo que la ejecuta, por lo que
+ *   las sesiones deben cerrarse antes de eliminarse.
+ */
+@Component
+public class TokenRevocationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationIndex.class);
+
+    // Sesiones revocadas cuyo token aún no expiró
+    private static final String REVOKED_SQL = "SELECT id, fecha_inicio FROM sesiones " +
+            "WHERE (estado <> 'activa' OR deleted_at IS NOT NULL) AND fecha_inicio > ?";
+
+    // Sesiones revocadas desde la última sincronización (usa idx_sesiones_fecha_revocacion)
+    private static final String RECENTLY_REVOKED_SQL = "SELECT id, fecha_inicio FROM sesiones " +
+            "WHERE fecha_revocacion >= ? AND (estado <> 'activa' OR deleted_at IS NOT NULL) AND fecha_inicio > ?";
+
+    private static final String NOW_SQL = "SELECT now()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final long syncOverlapMillis;
+
+    // ID de sesión -> instante (epoch ms) a partir del cual el token ya expiró por sí mismo
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>();
+    private volatile OffsetDateTime lastSync;
+
+    public TokenRevocationIndex(JdbcTemplate jdbcTemplate,
+                                JwtTokenProvider jwtTokenProvider,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.security.revocation.sync-interval-ms:5000}") long syncIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jwtTokenProvider = jwtTokenProvider;
+        // Margen para cubrir transacciones lentas (now() es el inicio de la transacción que revoca)
+        this.syncOverlapMillis = Math.max(syncIntervalMs * 2, 10_000);
+        meterRegistry.gaugeMapSize("seguridad.tokens.revocados", Tags.empty(), revoked);
+    }
+
+    // Carga las revocaciones vigentes antes de recibir tráfico
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            OffsetDateTime inicio = jdbcTemplate.queryForObject(NOW_SQL, OffsetDateTime.class);
+            int cargados = load(REVOKED_SQL, oldestLiveStart());
+            lastSync = inicio;
+            logger.info("Índice de sesiones revocadas cargado: {} sesiones.", cargados);
+        } catch (RuntimeException e) {
+            logger.error("Error al cargar el índice de sesiones revocadas: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Registra la revocación de una sesión.
+     * @param sessionId ID de la sesión (claim 'jti' de su token).
+     * @param fechaInicio Inicio de la sesión (determina hasta cuándo se conserva la entrada).
+     */
+    public void revoke(UUID sessionId, OffsetDateTime fechaInicio) {
+        if (sessionId == null) {
+            return;
+        }
+        long expiresAt = expiry(fechaInicio);
+        if (expiresAt > System.currentTimeMillis()) {
+            revoked.put(sessionId, expiresAt);
+        }
+    }
+
+    // Indica si la sesión del token fue revocada (una búsqueda en el mapa)
+    public boolean isRevoked(UUID sessionId) {
+        return revoked.containsKey(sessionId);
+    }
+
+    // Incorpora las sesiones cerradas recientemente (posiblemente en otros nodos)
+    @Scheduled(initialDelayString = "${app.security.revocation.sync-interval-ms:5000}",
+               fixedDelayString = "${app.security.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        OffsetDateTime desde = lastSync;
+        if (desde == null) {
+            onApplicationReady();
+            return;
+        }
+        try {
+            OffsetDateTime inicio = jdbcTemplate.queryForObject(NOW_SQL, OffsetDateTime.class);
+            load(RECENTLY_REVOKED_SQL, desde.minus(Duration.ofMillis(syncOverlapMillis)), oldestLiveStart());
+            lastSync = inicio;
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo sincronizar el índice de sesiones revocadas: {}", e.getMessage());
+        }
+    }
+
+    // Elimina las entradas de tokens que ya expiraron por sí mismos
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long ahora = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= ahora);
+    }
+
+    private int load(String sql, Object... params) {
+        int[] cargados = {0};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            revoke(rs.getObject("id", UUID.class), rs.getObject("fecha_inicio", OffsetDateTime.class));
+            cargados[0]++;
+        }, params);
+        return cargados[0];
+    }
+
+    // Las sesiones iniciadas antes de este instante tienen tokens ya expirados
+    private OffsetDateTime oldestLiveStart() {
+        return OffsetDateTime.now().minus(Duration.ofMillis(jwtTokenProvider.getJwtExpirationInMs()));
+    }
+
+    private long expiry(OffsetDateTime fechaInicio) {
+        long inicio = fechaInicio != null ? fechaInicio.toInstant().toEpochMilli() : System.currentTimeMillis();
+        return inicio + jwtTokenProvider.getJwtExpirationInMs();
+    }
+}
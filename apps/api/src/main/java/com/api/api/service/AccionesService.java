@@ -3,13 +3,18 @@ package com.api.api.service;
 import com.api.api.repository.AccionesRepository;
 import com.api.api.dto.SimpleDTO.AccionSimpleDTO;
 import com.api.api.model.Acciones;
+import com.api.api.search.AccionesSearchIndex;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.PermissionMatrix;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditActionRegistry;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -19,9 +24,19 @@ import java.util.List;
 public class AccionesService {
 
     private final AccionesRepository accionesRepository;
-
-    public AccionesService(AccionesRepository accionesRepository) {
+    private final AuditActionRegistry auditActionRegistry;
+    private final AccionesSearchIndex accionesSearchIndex;
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+
+    public AccionesService(AccionesRepository accionesRepository, AuditActionRegistry auditActionRegistry,
+                           AccionesSearchIndex accionesSearchIndex, PermissionMatrix permissionMatrix,
+                           EffectivePermissionsStore effectivePermissionsStore) {
         this.accionesRepository = accionesRepository;
+        this.auditActionRegistry = auditActionRegistry;
+        this.accionesSearchIndex = accionesSearchIndex;
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
     }
 
     // Auditar la acción de búsqueda de todas las acciones
@@ -38,7 +53,9 @@ public class AccionesService {
     public Page<Acciones> findAll(int page, int limit, String searchTerm) {
         Pageable pageable = PageRequest.of(page - 1, limit);
         if (searchTerm != null && !searchTerm.isEmpty()) {
-            return accionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
+            // Índice en memoria; la base de datos solo mientras el índice se reconstruye
+            return accionesSearchIndex.search(searchTerm, pageable)
+                    .orElseGet(() -> accionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable));
         }
         return accionesRepository.findAll(pageable);
     }
@@ -54,27 +71,45 @@ public class AccionesService {
     @AuditableAction(actionName = AuditActions.CREACION_ACCION, message = "Se intentó crear una nueva acción.")
     // Crear una nueva acción
     public Acciones create(Acciones accion) {
-        return accionesRepository.save(accion);
+        Acciones creada = accionesRepository.save(accion);
+        auditActionRegistry.refresh();
+        accionesSearchIndex.refresh(creada.getId());
+        permissionMatrix.recargarCatalogo();
+        return creada;
     }
 
     // Auditar la acción de creación de múltiples acciones
     @AuditableAction(actionName = AuditActions.CREACION_ACCION, message = "Se intentó crear múltiples acciones.")
     // Crear múltiples acciones
     public List<Acciones> createAll(List<Acciones> acciones) {
-        return accionesRepository.saveAll(acciones);
+        List<Acciones> creadas = accionesRepository.saveAll(acciones);
+        auditActionRegistry.refresh();
+        accionesSearchIndex.refreshAll(creadas);
+        permissionMatrix.recargarCatalogo();
+        return creadas;
     }
 
     // Auditar la acción de actualización de una acción
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_ACCION, message = "Se intentó actualizar una acción existente.")
     // Actualizar una acción existente
+    @Transactional
     public Optional<Acciones> update(UUID id, Acciones accionActualizada) {
-        return accionesRepository.findById(id).map(accion -> {
+        Optional<Acciones> actualizada = accionesRepository.findById(id).map(accion -> {
             accion.setNombre(accionActualizada.getNombre());
             accion.setDescripcion(accionActualizada.getDescripcion());
             accion.setAplicacion(accionActualizada.getAplicacion());
             accion.setSeccion(accionActualizada.getSeccion());
-            return accionesRepository.save(accion);
+            Acciones guardada = accionesRepository.saveAndFlush(accion);
+            // La aplicación de la acción se copia en usuario_permisos_efectivos (en la misma transacción)
+            effectivePermissionsStore.recalcularAccion(guardada.getId());
+            return guardada;
+        });
+        actualizada.ifPresent(accion -> {
+            auditActionRegistry.refresh();
+            accionesSearchIndex.refresh(accion.getId());
+            permissionMatrix.recargarCatalogo();
         });
+        return actualizada;
     }
 
     // Auditar la acción de eliminación de una acción por su ID
@@ -82,16 +117,28 @@ public class AccionesService {
     // Eliminar definitivamente una acción por su ID
     public void deleteById(UUID id) {
         accionesRepository.deleteById(id);
+        auditActionRegistry.refresh();
+        accionesSearchIndex.remove(id);
+        permissionMatrix.recargarCatalogo();
     }
 
     // Auditar la acción de eliminación lógica de una acción por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_ACCION, message = "Se intentó eliminar lógicamente una acción por su ID.")
     // Eliminar lógicamente una acción por su ID
+    @Transactional
     public Optional<Acciones> softDelete(UUID id) {
-        return accionesRepository.findById(id).map(accion -> {
+        Optional<Acciones> eliminada = accionesRepository.findById(id).map(accion -> {
             accion.softDelete();
-            return accionesRepository.save(accion);
+            Acciones guardada = accionesRepository.saveAndFlush(accion);
+            effectivePermissionsStore.recalcularAccion(guardada.getId());
+            return guardada;
+        });
+        eliminada.ifPresent(accion -> {
+            auditActionRegistry.refresh();
+            accionesSearchIndex.remove(accion.getId());
+            permissionMatrix.recargarCatalogo();
         });
+        return eliminada;
     }
 
     // Auditar la acción de búsqueda de acciones por aplicación con paginación
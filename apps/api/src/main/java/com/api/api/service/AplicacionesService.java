@@ -3,6 +3,9 @@ package com.api.api.service;
 import com.api.api.repository.AplicacionesRepository;
 import com.api.api.dto.SimpleDTO.AplicacionSimpleDTO;
 import com.api.api.model.Aplicaciones;
+import com.api.api.search.AplicacionesSearchIndex;
+import com.api.api.search.TipoUsuarioSearchIndex;
+import com.api.api.security.PermissionMatrix;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
@@ -18,9 +21,18 @@ import java.util.UUID;
 public class AplicacionesService {
 
     private final AplicacionesRepository aplicacionesRepository;
+    private final AplicacionesSearchIndex aplicacionesSearchIndex;
+    private final TipoUsuarioSearchIndex tipoUsuarioSearchIndex;
+    private final PermissionMatrix permissionMatrix;
 
-    public AplicacionesService(AplicacionesRepository aplicacionesRepository) {
+    public AplicacionesService(AplicacionesRepository aplicacionesRepository,
+                               AplicacionesSearchIndex aplicacionesSearchIndex,
+                               TipoUsuarioSearchIndex tipoUsuarioSearchIndex,
+                               PermissionMatrix permissionMatrix) {
         this.aplicacionesRepository = aplicacionesRepository;
+        this.aplicacionesSearchIndex = aplicacionesSearchIndex;
+        this.tipoUsuarioSearchIndex = tipoUsuarioSearchIndex;
+        this.permissionMatrix = permissionMatrix;
     }
     
     // Auditar la acción de búsqueda de todas las aplicaciones
@@ -36,7 +48,9 @@ public class AplicacionesService {
     public Page<Aplicaciones> findAll(int page, int limit, String searchTerm) {
         Pageable pageable = PageRequest.of(page - 1, limit);
         if (searchTerm != null && !searchTerm.isEmpty()) {
-            return aplicacionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
+            // Índice en memoria; la base de datos solo mientras el índice se reconstruye
+            return aplicacionesSearchIndex.search(searchTerm, pageable)
+                    .orElseGet(() -> aplicacionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable));
         }
         return aplicacionesRepository.findAll(pageable);
     }
@@ -52,36 +66,54 @@ public class AplicacionesService {
     @AuditableAction(actionName = AuditActions.CREACION_APLICACION, message = "Se intentó crear una nueva aplicación.")
     // Crear una nueva aplicación
     public Aplicaciones create(Aplicaciones aplicacion) {
-        return aplicacionesRepository.save(aplicacion);
+        Aplicaciones creada = aplicacionesRepository.save(aplicacion);
+        aplicacionesSearchIndex.refresh(creada.getId());
+        permissionMatrix.recargarCatalogo();
+        return creada;
     }
 
     // Auditar la acción de creación de múltiples aplicaciones
     @AuditableAction(actionName = AuditActions.CREACION_APLICACION, message = "Se intentó crear múltiples aplicaciones.")
     // Actualizar una aplicación existente
     public Optional<Aplicaciones> update(UUID id, Aplicaciones aplicacionActualizada) {
-        return aplicacionesRepository.findById(id).map(aplicacion -> {
+        Optional<Aplicaciones> actualizada = aplicacionesRepository.findById(id).map(aplicacion -> {
             aplicacion.setNombre(aplicacionActualizada.getNombre());
             aplicacion.setDescripcion(aplicacionActualizada.getDescripcion());
             aplicacion.setUrl(aplicacionActualizada.getUrl());
             aplicacion.setLlaveIdentificadora(aplicacionActualizada.getLlaveIdentificadora());
             return aplicacionesRepository.save(aplicacion);
         });
+        actualizada.ifPresent(aplicacion -> {
+            aplicacionesSearchIndex.refresh(aplicacion.getId());
+            // Los tipos de usuario se buscan también por el nombre de su aplicación
+            tipoUsuarioSearchIndex.reload();
+            permissionMatrix.recargarCatalogo();
+        });
+        return actualizada;
     }
     // Auditar la acción de eliminación de una aplicación por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_DEFINITIVA_APLICACION, message = "Se intentó eliminar una aplicación por su ID.")
     // Eliminar definitivamente una aplicación por su ID
     public void deleteById(UUID id) {
         aplicacionesRepository.deleteById(id);
+        aplicacionesSearchIndex.remove(id);
+        tipoUsuarioSearchIndex.reload();
+        permissionMatrix.recargarCatalogo();
     }
 
     // Auditar la acción de eliminación lógica de una aplicación por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_APLICACION, message = "Se intentó eliminar lógicamente una aplicación por su ID.")
     // Eliminar lógicamente una aplicación por su ID
     public Optional<Aplicaciones> softDelete(UUID id) {
-        return aplicacionesRepository.findById(id).map(aplicacion -> {
+        Optional<Aplicaciones> eliminada = aplicacionesRepository.findById(id).map(aplicacion -> {
             aplicacion.softDelete();
             return aplicacionesRepository.save(aplicacion);
         });
+        eliminada.ifPresent(aplicacion -> {
+            aplicacionesSearchIndex.remove(aplicacion.getId());
+            permissionMatrix.recargarCatalogo();
+        });
+        return eliminada;
     }
 
     // Auditar la acción de busqueda de aplicaciones por estado con paginación
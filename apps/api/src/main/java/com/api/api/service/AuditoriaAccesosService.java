@@ -3,14 +3,23 @@ package com.api.api.service;
 import com.api.api.repository.AuditoriaAccesosRepository;
 import com.api.api.model.AuditoriaAccesos;
 import com.api.api.model.AuditoriaAccesosId;
+import com.api.api.dto.ResponseDTO.CursorPageResponseDTO;
+import com.api.api.exception.BadRequestException;
+import com.api.api.repository.AuditoriaAccesosSpecifications;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditBatchWriter;
+import com.api.api.audit.AuditEvent;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,10 +28,20 @@ import java.util.List;
 @Service
 public class AuditoriaAccesosService {
 
+    // Tamaño máximo de página en la paginación por cursor
+    private static final int MAX_CURSOR_LIMIT = 100;
+
     private final AuditoriaAccesosRepository auditoriaAccesosRepository;
+    private final AuditBatchWriter auditBatchWriter;
+
+    // Ventana máxima permitida en la búsqueda multicriterio
+    @Value("${app.audit.search.max-window-days:31}")
+    private int maxWindowDays;
 
-    public AuditoriaAccesosService(AuditoriaAccesosRepository auditoriaAccesosRepository) {
+    public AuditoriaAccesosService(AuditoriaAccesosRepository auditoriaAccesosRepository,
+                                   AuditBatchWriter auditBatchWriter) {
         this.auditoriaAccesosRepository = auditoriaAccesosRepository;
+        this.auditBatchWriter = auditBatchWriter;
     }
 
     // Buscar todas las auditorías con paginación y búsqueda opcional
@@ -58,6 +77,12 @@ public class AuditoriaAccesosService {
         return auditoriaAccesosRepository.save(auditoria);
     }
 
+    // Registrar una auditoría de forma asíncrona (cola acotada + escritura por lotes).
+    // Es la vía usada por AuditAspect y AuthService para no bloquear la solicitud con un INSERT.
+    public void createAsync(AuditoriaAccesos auditoria) {
+        auditBatchWriter.enqueue(AuditEvent.from(auditoria));
+    }
+
     // Crear múltiples auditorías
     public List<AuditoriaAccesos> createAll(List<AuditoriaAccesos> auditorias) {
         auditorias.forEach(auditoria -> {
@@ -121,4 +146,92 @@ public class AuditoriaAccesosService {
         Pageable pageable = PageRequest.of(page - 1, limit);
         return auditoriaAccesosRepository.findByAccionId(accionId, pageable);
     }
+
+    // Auditar la consulta de auditorías por cursor
+    @AuditableAction(actionName = AuditActions.CONSULTA_AUDITORIAS_TODAS, message = "Se consultaron registros de auditoría por cursor.", auditResult = AuditResultType.SUCCESS)
+    // Buscar auditorías con paginación por keyset (fecha DESC, id DESC)
+    public CursorPageResponseDTO<AuditoriaAccesos> findAllByCursor(String cursor, int limit) {
+        AuditoriaCursor position = AuditoriaCursor.decode(cursor);
+        int size = cursorLimit(limit);
+        return toCursorPage(auditoriaAccesosRepository.findPageAfter(position.fecha(), position.id(), PageRequest.of(0, size + 1)), size);
+    }
+
+    // Auditar el filtrado de auditorías por aplicación con cursor
+    @AuditableAction(actionName = AuditActions.FILTRADO_AUDITORIAS_POR_APLICACION, message = "Se filtraron registros de auditoría por aplicación con cursor.", auditResult = AuditResultType.SUCCESS)
+    // Filtrar auditorías por aplicación con paginación por keyset
+    public CursorPageResponseDTO<AuditoriaAccesos> findByAplicacionIdByCursor(UUID aplicacionId, String cursor, int limit) {
+        AuditoriaCursor position = AuditoriaCursor.decode(cursor);
+        int size = cursorLimit(limit);
+        return toCursorPage(auditoriaAccesosRepository.findPageByAplicacionIdAfter(aplicacionId, position.fecha(), position.id(), PageRequest.of(0, size + 1)), size);
+    }
+
+    // Auditar el filtrado de auditorías por acción con cursor
+    @AuditableAction(actionName = AuditActions.FILTRADO_AUDITORIAS_POR_ACCION, message = "Se filtraron registros de auditoría por acción con cursor.", auditResult = AuditResultType.SUCCESS)
+    // Filtrar auditorías por acción con paginación por keyset
+    public CursorPageResponseDTO<AuditoriaAccesos> findByAccionIdByCursor(UUID accionId, String cursor, int limit) {
+        AuditoriaCursor position = AuditoriaCursor.decode(cursor);
+        int size = cursorLimit(limit);
+        return toCursorPage(auditoriaAccesosRepository.findPageByAccionIdAfter(accionId, position.fecha(), position.id(), PageRequest.of(0, size + 1)), size);
+    }
+
+    /**
+     * Búsqueda de auditorías en una ventana de tiempo obligatoria con filtros opcionales,
+     * paginada por keyset (fecha DESC, id DESC) y sin consulta de conteo.
+     * @param desde Inicio de la ventana (inclusive).
+     * @param hasta Fin de la ventana (exclusive).
+     * @param usuarioId Filtro opcional por usuario.
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param accionId Filtro opcional por acción.
+     * @param estado Filtro opcional por estado ('exitoso' o 'fallido').
+     * @param ipOrigen Filtro opcional por IP de origen (coincidencia exacta).
+     * @param cursor Cursor opaco de la página anterior.
+     * @param limit Tamaño de página.
+     * @return Página de auditorías con el cursor de la página siguiente.
+     */
+    // Auditar la búsqueda multicriterio de auditorías
+    @AuditableAction(actionName = AuditActions.CONSULTA_AUDITORIAS_TODAS, message = "Se realizó una búsqueda multicriterio de registros de auditoría.", auditResult = AuditResultType.BOTH)
+    public CursorPageResponseDTO<AuditoriaAccesos> search(OffsetDateTime desde, OffsetDateTime hasta, UUID usuarioId,
+                                                          UUID aplicacionId, UUID accionId, String estado,
+                                                          String ipOrigen, String cursor, int limit) {
+        if (desde == null || hasta == null || !desde.isBefore(hasta)) {
+            throw new BadRequestException("La ventana de tiempo es obligatoria y 'desde' debe ser anterior a 'hasta'.");
+        }
+        if (Duration.between(desde, hasta).compareTo(Duration.ofDays(maxWindowDays)) > 0) {
+            throw new BadRequestException("La ventana de tiempo no puede superar " + maxWindowDays + " días.");
+        }
+        if (estado != null && !estado.isBlank() && !estado.equals("exitoso") && !estado.equals("fallido")) {
+            throw new BadRequestException("El estado debe ser 'exitoso' o 'fallido'.");
+        }
+
+        Specification<AuditoriaAccesos> spec = Specification.allOf(
+                AuditoriaAccesosSpecifications.fechaEntre(desde, hasta),
+                AuditoriaAccesosSpecifications.usuarioId(usuarioId),
+                AuditoriaAccesosSpecifications.aplicacionId(aplicacionId),
+                AuditoriaAccesosSpecifications.accionId(accionId),
+                AuditoriaAccesosSpecifications.estado(estado),
+                AuditoriaAccesosSpecifications.ipOrigen(ipOrigen),
+                AuditoriaAccesosSpecifications.conRelaciones());
+        if (cursor != null && !cursor.isBlank()) {
+            AuditoriaCursor position = AuditoriaCursor.decode(cursor);
+            spec = spec.and(AuditoriaAccesosSpecifications.antesDe(position.fecha(), position.id()));
+        }
+
+        int size = cursorLimit(limit);
+        Sort sort = Sort.by(Sort.Order.desc("id.fecha"), Sort.Order.desc("id.id"));
+        List<AuditoriaAccesos> rows = auditoriaAccesosRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+        return toCursorPage(rows, size);
+    }
+
+    // Limita el tamaño de página por cursor al rango [1, MAX_CURSOR_LIMIT]
+    private static int cursorLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT));
+    }
+
+    // Se solicita un elemento extra para saber si hay más páginas sin ejecutar COUNT(*)
+    private static CursorPageResponseDTO<AuditoriaAccesos> toCursorPage(List<AuditoriaAccesos> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<AuditoriaAccesos> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? AuditoriaCursor.after(items.get(items.size() - 1)).encode() : null;
+        return new CursorPageResponseDTO<>(items, nextCursor, hasMore);
+    }
 }
@@ -0,0 +1,58 @@
+package com.api.api.service;
+
+import com.api.api.exception.BadRequestException;
+import com.api.api.model.AuditoriaAccesos;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Posición de continuación de la paginación por keyset de auditoria_accesos, ordenada por (fecha DESC, id DESC).
+ * Se serializa como un token opaco en Base64 URL-safe con la fecha y el ID del último registro entregado.
+ */
+public record AuditoriaCursor(OffsetDateTime fecha, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    // Posición inicial: posterior a cualquier registro posible
+    public static final AuditoriaCursor START = new AuditoriaCursor(
+            OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC),
+            new UUID(-1L, -1L));
+
+    public static AuditoriaCursor after(AuditoriaAccesos auditoria) {
+        return new AuditoriaCursor(auditoria.getFecha(), auditoria.getUuidId());
+    }
+
+    public String encode() {
+        String raw = fecha.toInstant() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido del cliente.
+     * @param token Cursor opaco; si es nulo o vacío se devuelve la posición inicial.
+     * @return La posición decodificada.
+     * @throws BadRequestException si el cursor no es válido.
+     */
+    public static AuditoriaCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BadRequestException("El cursor de paginación no es válido.");
+            }
+            OffsetDateTime fecha = OffsetDateTime.parse(raw.substring(0, separator));
+            UUID id = UUID.fromString(raw.substring(separator + 1));
+            return new AuditoriaCursor(fecha, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("El cursor de paginación no es válido.");
+        }
+    }
+}
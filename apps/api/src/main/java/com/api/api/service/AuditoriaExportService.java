@@ -0,0 +1,268 @@
+package com.api.api.service;
+
+import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditRecorder;
+import com.api.api.audit.AuditScope;
+import com.api.api.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación en streaming de auditoria_accesos en formato NDJSON o CSV.
+ * Las filas se leen con un cursor del servidor (fetch size fijo dentro de una transacción de solo
+ * lectura) y se escriben directamente en la respuesta, por lo que el uso de memoria es constante
+ * sin importar la cantidad de registros exportados.
+ * El orden es (fecha ASC, id ASC); una exportación interrumpida se reanuda indicando la fecha y el
+ * ID del último registro recibido.
+ * La auditoría se registra al terminar de escribir la respuesta (no al prepararla), con la cantidad
+ * de registros exportados y el estado fallido si la escritura se interrumpe.
+ */
+@Service
+public class AuditoriaExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaExportService.class);
+
+    public enum Formato {
+        NDJSON, CSV
+    }
+
+    private static final String[] COLUMNAS = {
+            "id", "fecha", "usuarioId", "emailUsuario", "aplicacionId", "aplicacionNombre",
+            "accionId", "accionNombre", "ipOrigen", "informacionDispositivo", "mensaje", "estado"
+    };
+
+    private static final String SELECT_SQL = "SELECT a.id, a.fecha, a.usuario_id, a.email_usuario, a.aplicacion_id, " +
+            "ap.nombre AS aplicacion_nombre, a.accion_id, ac.nombre AS accion_nombre, a.ip_origen, " +
+            "a.informacion_dispositivo, a.mensaje, a.estado " +
+            "FROM auditoria_accesos a " +
+            "LEFT JOIN aplicaciones ap ON ap.id = a.aplicacion_id " +
+            "LEFT JOIN acciones ac ON ac.id = a.accion_id " +
+            "WHERE a.fecha >= ? AND a.fecha < ?";
+
+    private static final String MENSAJE_AUDITORIA = "Se generó una exportación de registros de auditoría.";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final AuditRecorder auditRecorder;
+
+    @Value("${app.audit.export.max-window-days:366}")
+    private int maxWindowDays;
+
+    public AuditoriaExportService(DataSource dataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  AuditRecorder auditRecorder,
+                                  @Value("${app.audit.export.fetch-size:1000}") int fetchSize) {
+        // JdbcTemplate propio con fetch size: PostgreSQL solo usa un cursor del servidor
+        // cuando la conexión no está en autocommit, de ahí la transacción de solo lectura
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.auditRecorder = auditRecorder;
+    }
+
+    /**
+     * Prepara la exportación de una ventana de auditoria_accesos.
+     * Los parámetros se validan de inmediato; la consulta se ejecuta al escribir la respuesta.
+     * @param desde Inicio de la ventana (inclusive).
+     * @param hasta Fin de la ventana (exclusive).
+     * @param formato Formato de salida.
+     * @param gzip Si la salida se comprime con gzip.
+     * @param ultimoFecha Fecha del último registro ya exportado (para reanudar), opcional.
+     * @param ultimoId ID del último registro ya exportado (para reanudar), opcional.
+     * @return Cuerpo de respuesta que escribe la exportación en streaming.
+     */
+    public StreamingResponseBody export(OffsetDateTime desde, OffsetDateTime hasta, Formato formato, boolean gzip,
+                                        OffsetDateTime ultimoFecha, UUID ultimoId) {
+        // Auditar la generación de una exportación de auditoría: el evento se prepara en el hilo de la
+        // solicitud (usuario, IP) y el resultado se registra cuando termina el streaming
+        AuditRecorder.PendingAudit auditoria = auditRecorder.begin(AuditActions.GENERACION_REPORTE, AuditScope.USER, MENSAJE_AUDITORIA);
+        try {
+            validar(desde, hasta, ultimoFecha, ultimoId);
+        } catch (BadRequestException e) {
+            auditoria.failure(MENSAJE_AUDITORIA + " (Fallo: " + e.getMessage() + ")");
+            throw e;
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> params = new ArrayList<>(List.of(desde, hasta));
+        if (ultimoFecha != null) {
+            sql.append(" AND a.fecha >= ? AND (a.fecha, a.id) > (?, ?)");
+            params.add(ultimoFecha);
+            params.add(ultimoFecha);
+            params.add(ultimoId);
+        }
+        sql.append(" ORDER BY a.fecha ASC, a.id ASC");
+
+        return outputStream -> {
+            long[] rows = {0};
+            try {
+                OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+                Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+                RowWriter rowWriter = formato == Formato.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+                rowWriter.writeHeader();
+                readOnlyTransaction.executeWithoutResult(status ->
+                        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+                            try {
+                                rowWriter.writeRow(rs);
+                            } catch (IOException e) {
+                                // El cliente cerró la conexión: se aborta la consulta
+                                throw new UncheckedIOException(e);
+                            }
+                            rows[0]++;
+                        }, params.toArray()));
+                writer.flush();
+                if (target instanceof GZIPOutputStream gzipStream) {
+                    gzipStream.finish();
+                }
+                logger.info("Exportación de auditoría completada: {} registros ({}).", rows[0], formato);
+                auditoria.success(MENSAJE_AUDITORIA + " Registros exportados: " + rows[0] + " (" + formato + ").");
+            } catch (UncheckedIOException e) {
+                throw interrumpida(auditoria, rows[0], e.getCause());
+            } catch (IOException e) {
+                throw interrumpida(auditoria, rows[0], e);
+            } catch (RuntimeException e) {
+                // Error de la consulta: se audita como fallo y se propaga
+                auditoria.failure(MENSAJE_AUDITORIA + " (Fallo tras " + rows[0] + " registros: " + e.getMessage() + ")");
+                throw e;
+            }
+        };
+    }
+
+    // Registra la interrupción de la escritura (normalmente el cliente cerró la conexión)
+    private static IOException interrumpida(AuditRecorder.PendingAudit auditoria, long rows, IOException e) {
+        logger.warn("Exportación de auditoría interrumpida tras {} registros: {}", rows, e.getMessage());
+        auditoria.failure(MENSAJE_AUDITORIA + " (Fallo: interrumpida tras " + rows + " registros: " + e.getMessage() + ")");
+        return e;
+    }
+
+    // Valida la ventana de tiempo y los parámetros de reanudación
+    private void validar(OffsetDateTime desde, OffsetDateTime hasta, OffsetDateTime ultimoFecha, UUID ultimoId) {
+        if (desde == null || hasta == null || !desde.isBefore(hasta)) {
+            throw new BadRequestException("La ventana de tiempo es obligatoria y 'desde' debe ser anterior a 'hasta'.");
+        }
+        if (Duration.between(desde, hasta).compareTo(Duration.ofDays(maxWindowDays)) > 0) {
+            throw new BadRequestException("La ventana de exportación no puede superar " + maxWindowDays + " días.");
+        }
+        if ((ultimoFecha == null) != (ultimoId == null)) {
+            throw new BadRequestException("Para reanudar una exportación se requieren 'ultimoFecha' y 'ultimoId'.");
+        }
+    }
+
+    private interface RowWriter {
+        void writeHeader() throws IOException;
+
+        void writeRow(ResultSet rs) throws IOException, SQLException;
+    }
+
+    // Una línea JSON por registro
+    private final class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // El buffer del Writer se vacía por bloques, no en cada registro
+            this.generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            // Sin separador entre objetos raíz: cada registro termina con un salto de línea
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void writeHeader() {
+            // NDJSON no tiene encabezado
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws IOException, SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                String value = valueAt(rs, i + 1);
+                if (value == null) {
+                    generator.writeNullField(COLUMNAS[i]);
+                } else {
+                    generator.writeStringField(COLUMNAS[i], value);
+                }
+            }
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+
+    // CSV según RFC 4180 con encabezado
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write(String.join(",", COLUMNAS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws IOException, SQLException {
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = valueAt(rs, i + 1);
+                if (value != null) {
+                    writer.write(escapeCsv(value));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private static String escapeCsv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    // Valor de la columna como texto; la fecha se normaliza a ISO 8601
+    private static String valueAt(ResultSet rs, int column) throws SQLException {
+        if (column == 2) {
+            OffsetDateTime fecha = rs.getObject(column, OffsetDateTime.class);
+            return fecha != null ? fecha.toString() : null;
+        }
+        return rs.getString(column);
+    }
+}
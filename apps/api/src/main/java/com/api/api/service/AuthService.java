@@ -8,38 +8,50 @@ import com.api.api.model.Aplicaciones;
 import com.api.api.model.Acciones;
 import com.api.api.security.JwtTokenProvider;
 import com.api.api.security.CustomUserDetails;
+import com.api.api.security.CustomUserDetailsService;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.LoginThrottle;
+import com.api.api.security.PrincipalCache;
 import com.api.api.dto.RequestDTO.LoginRequestDTO;
 import com.api.api.dto.ResponseDTO.LoginResponseDTO;
 import com.api.api.dto.RequestDTO.PasswordChangeRequestDTO;
 import com.api.api.exception.BadRequestException;
 import com.api.api.exception.ResourceNotFoundException;
+import com.api.api.exception.TooManyRequestsException;
 import com.api.api.audit.AuditActions;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import jakarta.annotation.PostConstruct;
 
 import java.time.OffsetDateTime;
-import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
+    private static final String CREDENCIALES_SQL = "SELECT email, contrasena FROM usuarios WHERE id = ?";
+
     private final UsuariosRepository usuariosRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final TransactionTemplate transactionTemplate;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuditoriaAccesosService auditoriaAccesosService;
     private final SesionesService sesionesService;
     private final AplicacionesService aplicacionesService;
     private final AccionesService accionesService;
+    private final PrincipalCache principalCache;
+    private final LoginThrottle loginThrottle;
+    private final EmailMembershipFilter emailMembershipFilter;
 
     // Inyectar la llave identificadora de la aplicación desde las propiedades
     @Value("${app.application.identifier}")
@@ -52,22 +64,35 @@ public class AuthService {
     private Acciones cambioContrasenaAction;
     private Acciones cierreSesionAction;
 
-    public AuthService(AuthenticationManager authenticationManager,
-            UsuariosRepository usuariosRepository,
+    // Hash ficticio con el mismo costo que los reales, para igualar el tiempo de los emails inexistentes
+    private String dummyPasswordHash;
+
+    public AuthService(UsuariosRepository usuariosRepository,
+            JdbcTemplate jdbcTemplate,
+            CustomUserDetailsService customUserDetailsService,
+            TransactionTemplate transactionTemplate,
             PasswordEncoder passwordEncoder,
             JwtTokenProvider jwtTokenProvider,
             AuditoriaAccesosService auditoriaAccesosService,
             SesionesService sesionesService,
             AplicacionesService aplicacionesService,
-            AccionesService accionesService) {
-        this.authenticationManager = authenticationManager;
+            AccionesService accionesService,
+            PrincipalCache principalCache,
+            LoginThrottle loginThrottle,
+            EmailMembershipFilter emailMembershipFilter) {
         this.usuariosRepository = usuariosRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.customUserDetailsService = customUserDetailsService;
+        this.transactionTemplate = transactionTemplate;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
         this.auditoriaAccesosService = auditoriaAccesosService;
         this.sesionesService = sesionesService;
         this.aplicacionesService = aplicacionesService;
         this.accionesService = accionesService;
+        this.principalCache = principalCache;
+        this.loginThrottle = loginThrottle;
+        this.emailMembershipFilter = emailMembershipFilter;
     }
 
     // Método que se ejecuta después de que el bean se ha inicializado
@@ -95,11 +120,18 @@ public class AuthService {
                 .findByNombreAndAplicacionId(AuditActions.CIERRE_SESION, currentApplication.getId())
                 .orElseThrow(() -> new IllegalStateException(
                         "Acción 'Cierre de Sesión' no encontrada para la aplicación '" + applicationIdentifier + "'."));
+        this.dummyPasswordHash = passwordEncoder.encode(UUID.randomUUID().toString());
     }
 
     /**
      * Autentica a un usuario, genera un token JWT y gestiona el estado de sesión y
      * auditoría.
+     * El usuario y sus autoridades se cargan una sola vez y la contraseña se verifica
+     * fuera de cualquier transacción, de modo que BCrypt no retiene una conexión del pool.
+     * Los intentos fallidos se cuentan en LoginThrottle (ventana deslizante por email y por IP);
+     * en usuarios solo se escribe el bloqueo al cruzar el umbral y el reinicio tras un login
+     * exitoso. La sesión se inserta en una transacción corta al final y la auditoría se encola
+     * de forma asíncrona.
      * 
      * @param loginRequest DTO con las credenciales de login (email, contrasena).
      * @param clientIp     Dirección IP del cliente.
@@ -107,189 +139,211 @@ public class AuthService {
      * @return DTO de respuesta con el token JWT y detalles del usuario.
      * @throws BadRequestException Si las credenciales son inválidas o la cuenta
      *                             está bloqueada.
+     * @throws TooManyRequestsException Si la IP de origen superó el límite de intentos.
      */
-    @Transactional
     public LoginResponseDTO authenticateUser(LoginRequestDTO loginRequest, String clientIp, String deviceInfo) {
-        Optional<Usuarios> optionalUser = usuariosRepository.findByEmail(loginRequest.getEmail());
-        Usuarios userToAuthenticate = optionalUser.orElse(null);
-
-        if (userToAuthenticate != null && userToAuthenticate.getFechaBloqueoSesion() != null &&
-                userToAuthenticate.getFechaBloqueoSesion().isAfter(OffsetDateTime.now())) {
-            AuditoriaAccesos auditoriaBloqueo = new AuditoriaAccesos();
-            auditoriaBloqueo.setUsuario(userToAuthenticate);
-            auditoriaBloqueo.setFecha(OffsetDateTime.now());
-            auditoriaBloqueo.setUuidId(null);
-            auditoriaBloqueo.setIpOrigen(clientIp);
-            auditoriaBloqueo.setEstado("fallido");
-            auditoriaBloqueo.setEmailUsuario(loginRequest.getEmail());
-            auditoriaBloqueo.setInformacionDispositivo(deviceInfo);
-            auditoriaBloqueo.setMensaje("Intento de login fallido: Cuenta bloqueada temporalmente.");
-            auditoriaBloqueo.setAplicacion(this.currentApplication);
-            auditoriaBloqueo.setAccion(this.loginFallidoAction);
-            auditoriaAccesosService.create(auditoriaBloqueo);
-
+        // Los bloqueos por email o IP se resuelven antes de consultar la base de datos
+        LoginThrottle.Bloqueo bloqueo = loginThrottle.verificar(loginRequest.getEmail(), clientIp);
+        if (bloqueo == LoginThrottle.Bloqueo.IP) {
+            registrarAuditoriaLogin(null, loginRequest.getEmail(), clientIp, deviceInfo, "fallido",
+                    "Intento de login fallido: Demasiados intentos desde la IP de origen.");
+            throw new TooManyRequestsException("Demasiados intentos de inicio de sesión. Intente más tarde.",
+                    loginThrottle.getLockout().toSeconds());
+        }
+        if (bloqueo == LoginThrottle.Bloqueo.EMAIL) {
+            registrarAuditoriaLogin(null, loginRequest.getEmail(), clientIp, deviceInfo, "fallido",
+                    "Intento de login fallido: Cuenta bloqueada temporalmente.");
             throw new BadRequestException("La cuenta de usuario está bloqueada temporalmente. Intente más tarde.");
         }
 
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getEmail(),
-                            loginRequest.getContrasena()));
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            Usuarios authenticatedUser = usuariosRepository.findById(userDetails.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Usuario autenticado no encontrado en DB."));
+        // Los emails que seguro no existen (filtro de emails) no consultan la base de datos
+        Usuarios user = emailMembershipFilter.mightContain(loginRequest.getEmail())
+                ? usuariosRepository.findByEmail(loginRequest.getEmail()).orElse(null)
+                : null;
 
-            String jwt = jwtTokenProvider.generateToken(authentication);
-
-            authenticatedUser.setIntentosFallidosSesion(0);
-            authenticatedUser.setFechaBloqueoSesion(null);
-            authenticatedUser.setFechaUltimoIntentoFallido(null);
-            usuariosRepository.save(authenticatedUser);
-
-            AuditoriaAccesos auditoriaExito = new AuditoriaAccesos();
-            auditoriaExito.setUsuario(authenticatedUser);
-            auditoriaExito.setFecha(OffsetDateTime.now());
-            auditoriaExito.setUuidId(null);
-            auditoriaExito.setIpOrigen(clientIp);
-            auditoriaExito.setEstado("exitoso");
-            auditoriaExito.setEmailUsuario(authenticatedUser.getEmail());
-            auditoriaExito.setInformacionDispositivo(deviceInfo);
-            auditoriaExito.setMensaje("Inicio de sesión exitoso.");
-            auditoriaExito.setAplicacion(this.currentApplication);
-            auditoriaExito.setAccion(this.loginExitosoAction);
-            auditoriaAccesosService.create(auditoriaExito);
-
-            Sesiones nuevaSesion = new Sesiones();
-            nuevaSesion.setUsuario(authenticatedUser);
-            nuevaSesion.setToken(jwt);
-            nuevaSesion.setIpOrigen(clientIp);
-            nuevaSesion.setEmailUsuario(authenticatedUser.getEmail());
-            nuevaSesion.setInformacionDispositivo(deviceInfo);
-            nuevaSesion.setFechaExpiracion(OffsetDateTime.now().plus(jwtTokenProvider.getJwtExpirationInMs(),
-                    java.time.temporal.ChronoUnit.MILLIS));
-            nuevaSesion.setEstado("activa");
-            sesionesService.create(nuevaSesion);
+        if (user != null && user.getFechaBloqueoSesion() != null &&
+                user.getFechaBloqueoSesion().isAfter(OffsetDateTime.now())) {
+            registrarAuditoriaLogin(user, loginRequest.getEmail(), clientIp, deviceInfo, "fallido",
+                    "Intento de login fallido: Cuenta bloqueada temporalmente.");
+            throw new BadRequestException("La cuenta de usuario está bloqueada temporalmente. Intente más tarde.");
+        }
 
-            return new LoginResponseDTO(
-                    authenticatedUser.getId(),
-                    authenticatedUser.getNombres(),
-                    authenticatedUser.getApellidos(),
-                    authenticatedUser.getEmail(),
-                    jwt);
+        // Para emails inexistentes (descartados o no por el filtro) se compara contra un hash
+        // ficticio: el tiempo de respuesta no revela si la cuenta existe
+        boolean credencialesValidas;
+        if (user != null) {
+            credencialesValidas = passwordEncoder.matches(loginRequest.getContrasena(), user.getContrasena());
+        } else {
+            passwordEncoder.matches(loginRequest.getContrasena(), dummyPasswordHash);
+            credencialesValidas = false;
+        }
 
-        } catch (org.springframework.security.core.AuthenticationException e) {
-            Usuarios failedUser = userToAuthenticate;
-            if (failedUser == null) {
-                failedUser = new Usuarios();
-                failedUser.setEmail(loginRequest.getEmail());
+        if (!credencialesValidas) {
+            long intentos = loginThrottle.registrarFallo(loginRequest.getEmail(), clientIp);
+            // El bloqueo de la cuenta se persiste solo al cruzar el umbral
+            if (user != null && loginThrottle.alcanzaBloqueo(intentos)) {
+                OffsetDateTime ahora = OffsetDateTime.now();
+                usuariosRepository.bloquearSesion(user.getId(), (int) intentos, ahora,
+                        ahora.plus(loginThrottle.getLockout()));
+                principalCache.invalidate(user.getId());
             }
+            registrarAuditoriaLogin(user, loginRequest.getEmail(), clientIp, deviceInfo, "fallido",
+                    "Inicio de sesión fallido: Credenciales inválidas");
+            throw new BadRequestException("Credenciales inválidas. Intento " + intentos);
+        }
 
-            failedUser.setIntentosFallidosSesion(failedUser.getIntentosFallidosSesion() + 1);
-            failedUser.setFechaUltimoIntentoFallido(OffsetDateTime.now());
-
-            if (failedUser.getIntentosFallidosSesion() >= 5) {
-                failedUser.setFechaBloqueoSesion(OffsetDateTime.now().plusMinutes(15));
+        // Autoridades desde la caché de principales (o construidas a partir del usuario ya cargado)
+        CustomUserDetails userDetails = customUserDetailsService.loadUserDetails(user);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        Sesiones nuevaSesion = new Sesiones();
+        nuevaSesion.setUsuario(user);
+        nuevaSesion.setIpOrigen(clientIp);
+        nuevaSesion.setEmailUsuario(user.getEmail());
+        nuevaSesion.setInformacionDispositivo(deviceInfo);
+        nuevaSesion.setFechaExpiracion(OffsetDateTime.now().plus(jwtTokenProvider.getJwtExpirationInMs(),
+                java.time.temporal.ChronoUnit.MILLIS));
+        nuevaSesion.setEstado("activa");
+
+        // Transacción final corta: reinicio de contadores (solo si cambiaron), inserción de la sesión
+        // y emisión del token con el ID de la sesión como 'jti'
+        boolean reiniciarContadores = user.getIntentosFallidosSesion() != 0
+                || user.getFechaBloqueoSesion() != null
+                || user.getFechaUltimoIntentoFallido() != null;
+        String jwt = transactionTemplate.execute(status -> {
+            if (reiniciarContadores) {
+                usuariosRepository.reiniciarIntentosFallidos(user.getId());
             }
+            return sesionesService.createWithToken(nuevaSesion,
+                    sessionId -> jwtTokenProvider.generateToken(authentication, sessionId));
+        });
 
-            if (optionalUser.isPresent()) {
-                usuariosRepository.save(failedUser);
-            }
+        loginThrottle.registrarExito(loginRequest.getEmail());
+        registrarAuditoriaLogin(user, user.getEmail(), clientIp, deviceInfo, "exitoso", "Inicio de sesión exitoso.");
 
-            AuditoriaAccesos auditoriaFallo = new AuditoriaAccesos();
-            auditoriaFallo.setUsuario(optionalUser.orElse(null));
-            auditoriaFallo.setFecha(OffsetDateTime.now());
-            auditoriaFallo.setUuidId(null);
-            auditoriaFallo.setIpOrigen(clientIp);
-            auditoriaFallo.setEstado("fallido");
-            auditoriaFallo.setEmailUsuario(loginRequest.getEmail());
-            auditoriaFallo.setInformacionDispositivo(deviceInfo);
-            auditoriaFallo.setMensaje("Inicio de sesión fallido: " + e.getMessage());
-            auditoriaFallo.setAplicacion(this.currentApplication);
-            auditoriaFallo.setAccion(this.loginFallidoAction);
-            auditoriaAccesosService.create(auditoriaFallo);
-            throw new BadRequestException("Credenciales inválidas. Intento " + failedUser.getIntentosFallidosSesion());
-        }
+        return new LoginResponseDTO(
+                user.getId(),
+                user.getNombres(),
+                user.getApellidos(),
+                user.getEmail(),
+                jwt);
+    }
+
+    // Encola el registro de auditoría de un intento de login
+    private void registrarAuditoriaLogin(Usuarios usuario, String email, String clientIp, String deviceInfo,
+            String estado, String mensaje) {
+        AuditoriaAccesos auditoria = new AuditoriaAccesos();
+        auditoria.setUsuario(usuario);
+        auditoria.setFecha(OffsetDateTime.now());
+        auditoria.setUuidId(null);
+        auditoria.setIpOrigen(clientIp);
+        auditoria.setEstado(estado);
+        auditoria.setEmailUsuario(email);
+        auditoria.setInformacionDispositivo(deviceInfo);
+        auditoria.setMensaje(mensaje);
+        auditoria.setAplicacion(this.currentApplication);
+        auditoria.setAccion("exitoso".equals(estado) ? this.loginExitosoAction : this.loginFallidoAction);
+        auditoriaAccesosService.createAsync(auditoria);
     }
 
     /**
      * Permite a un usuario autenticado cambiar su contraseña.
+     * El hash actual se lee con JDBC y la verificación y el nuevo hash (BCrypt) se calculan fuera de
+     * cualquier transacción, de modo que no retienen una conexión del pool (tampoco con
+     * open-in-view, que conserva la conexión del EntityManager hasta el final de la solicitud).
+     * La actualización se hace en una transacción corta y solo si el hash sigue siendo el verificado;
+     * si otra solicitud cambió la contraseña entretanto, no se sobrescribe.
      * 
      * @param userId  ID del usuario que desea cambiar la contraseña.
      * @param request DTO con la contraseña actual y la nueva contraseña.
      * @throws ResourceNotFoundException Si el usuario no es encontrado.
-     * @throws BadRequestException       Si la contraseña actual es incorrecta.
+     * @throws BadRequestException       Si la contraseña actual es incorrecta o cambió durante la solicitud.
      */
-    @Transactional
     public void changePassword(UUID userId, PasswordChangeRequestDTO request) {
-        Usuarios user = usuariosRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado para cambiar contraseña."));
-
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getContrasena())) {
-            AuditoriaAccesos auditoriaFallo = new AuditoriaAccesos();
-            auditoriaFallo.setUsuario(user);
-            auditoriaFallo.setFecha(OffsetDateTime.now());
-            auditoriaFallo.setUuidId(null);
-            auditoriaFallo.setIpOrigen(null); // Debe obtenerse de la Http Request
-            auditoriaFallo.setEstado("fallido");
-            auditoriaFallo.setEmailUsuario(user.getEmail());
-            auditoriaFallo.setInformacionDispositivo(null); // Debe obtenerse de la Http Request
-            auditoriaFallo.setMensaje("Intento de cambio de contraseña fallido: contraseña actual incorrecta.");
-            auditoriaFallo.setAplicacion(this.currentApplication);
-            auditoriaFallo.setAccion(this.cambioContrasenaAction);
-            auditoriaAccesosService.create(auditoriaFallo);
+        Credenciales credenciales = jdbcTemplate.query(CREDENCIALES_SQL,
+                rs -> rs.next() ? new Credenciales(rs.getString("email"), rs.getString("contrasena")) : null,
+                userId);
+        if (credenciales == null) {
+            throw new ResourceNotFoundException("Usuario no encontrado para cambiar contraseña.");
+        }
 
+        if (!passwordEncoder.matches(request.getCurrentPassword(), credenciales.contrasena())) {
+            registrarAuditoriaCambioContrasena(userId, credenciales.email(), "fallido",
+                    "Intento de cambio de contraseña fallido: contraseña actual incorrecta.");
             throw new BadRequestException("La contraseña actual es incorrecta.");
         }
+        String nuevoHash = passwordEncoder.encode(request.getNewPassword());
+
+        Integer actualizados = transactionTemplate.execute(status -> usuariosRepository.cambiarContrasena(
+                userId, credenciales.contrasena(), nuevoHash, OffsetDateTime.now()));
+        if (actualizados == null || actualizados == 0) {
+            registrarAuditoriaCambioContrasena(userId, credenciales.email(), "fallido",
+                    "Intento de cambio de contraseña fallido: la contraseña cambió durante la solicitud.");
+            throw new BadRequestException("La contraseña cambió durante la solicitud. Intente de nuevo.");
+        }
+        // El principal en caché contiene el hash anterior de la contraseña
+        principalCache.invalidate(userId);
 
-        user.setContrasena(passwordEncoder.encode(request.getNewPassword()));
-        user.setFechaUltimoCambioContrasena(OffsetDateTime.now());
-        user.setRequiereCambioContrasena(false);
+        registrarAuditoriaCambioContrasena(userId, credenciales.email(), "exitoso", "Cambio de contraseña exitoso.");
+    }
 
-        usuariosRepository.save(user);
+    // Encola el registro de auditoría de un cambio de contraseña
+    private void registrarAuditoriaCambioContrasena(UUID userId, String email, String estado, String mensaje) {
+        AuditoriaAccesos auditoria = new AuditoriaAccesos();
+        // Referencia sin cargar: la auditoría solo usa el ID del usuario
+        auditoria.setUsuario(usuariosRepository.getReferenceById(userId));
+        auditoria.setFecha(OffsetDateTime.now());
+        auditoria.setUuidId(null);
+        auditoria.setIpOrigen(null); // Debe obtenerse de la Http Request
+        auditoria.setEstado(estado);
+        auditoria.setEmailUsuario(email);
+        auditoria.setInformacionDispositivo(null); // Debe obtenerse de la Http Request
+        auditoria.setMensaje(mensaje);
+        auditoria.setAplicacion(this.currentApplication);
+        auditoria.setAccion(this.cambioContrasenaAction);
+        auditoriaAccesosService.createAsync(auditoria);
+    }
 
-        AuditoriaAccesos auditoriaExito = new AuditoriaAccesos();
-        auditoriaExito.setUsuario(user);
-        auditoriaExito.setFecha(OffsetDateTime.now());
-        auditoriaExito.setUuidId(null); // Permitir que la DB genere el UUID para la parte del ID
-        auditoriaExito.setIpOrigen(null); // Debe obtenerse de la Http Request
-        auditoriaExito.setEstado("exitoso");
-        auditoriaExito.setEmailUsuario(user.getEmail());
-        auditoriaExito.setInformacionDispositivo(null); // Debe obtenerse de la Http Request
-        auditoriaExito.setMensaje("Cambio de contraseña exitoso.");
-        auditoriaExito.setAplicacion(this.currentApplication);
-        auditoriaExito.setAccion(this.cambioContrasenaAction);
-        auditoriaAccesosService.create(auditoriaExito);
+    // Email y hash de contraseña leídos para verificar un cambio de contraseña
+    private record Credenciales(String email, String contrasena) {
     }
 
     /**
      * Marca una sesión como inactiva (cierre de sesión lógico).
+     * La sesión se localiza por su clave primaria a partir del claim 'jti' del token.
      * 
      * @param jwtToken El token JWT que se desea invalidar.
      */
     @Transactional
     public void logout(String jwtToken) {
-        sesionesService.findByToken(jwtToken).ifPresent(sesion -> {
-            sesion.setEstado("cerrada");
-            sesion.setFechaExpiracion(OffsetDateTime.now());
-            sesion.setFechaFin(OffsetDateTime.now());
-            sesionesService.update(sesion.getId(), sesion);
-
-            AuditoriaAccesos auditoriaLogout = new AuditoriaAccesos();
-            auditoriaLogout.setUsuario(sesion.getUsuario());
-            auditoriaLogout.setFecha(OffsetDateTime.now());
-            auditoriaLogout.setUuidId(null);
-            auditoriaLogout.setIpOrigen(sesion.getIpOrigen());
-            auditoriaLogout.setEstado("exitoso");
-            auditoriaLogout.setEmailUsuario(sesion.getEmailUsuario());
-            auditoriaLogout.setInformacionDispositivo(sesion.getInformacionDispositivo());
-            auditoriaLogout.setMensaje("Cierre de sesión exitoso.");
-            auditoriaLogout.setAplicacion(this.currentApplication);
-            auditoriaLogout.setAccion(this.cierreSesionAction);
-            auditoriaAccesosService.create(auditoriaLogout);
-        });
+        UUID sessionId = jwtTokenProvider.parseToken(jwtToken)
+                .flatMap(JwtTokenProvider::getSessionId)
+                .orElse(null);
+        if (sessionId == null) {
+            return;
+        }
+        sesionesService.findBySessionId(sessionId)
+                .filter(sesion -> JwtTokenProvider.hashToken(jwtToken).equals(sesion.getTokenHash()))
+                .ifPresent(sesion -> {
+                    sesion.setEstado("cerrada");
+                    sesion.setFechaExpiracion(OffsetDateTime.now());
+                    sesion.setFechaFin(OffsetDateTime.now());
+                    sesionesService.update(sesion.getId(), sesion);
+
+                    AuditoriaAccesos auditoriaLogout = new AuditoriaAccesos();
+                    auditoriaLogout.setUsuario(sesion.getUsuario());
+                    auditoriaLogout.setFecha(OffsetDateTime.now());
+                    auditoriaLogout.setUuidId(null);
+                    auditoriaLogout.setIpOrigen(sesion.getIpOrigen());
+                    auditoriaLogout.setEstado("exitoso");
+                    auditoriaLogout.setEmailUsuario(sesion.getEmailUsuario());
+                    auditoriaLogout.setInformacionDispositivo(sesion.getInformacionDispositivo());
+                    auditoriaLogout.setMensaje("Cierre de sesión exitoso.");
+                    auditoriaLogout.setAplicacion(this.currentApplication);
+                    auditoriaLogout.setAccion(this.cierreSesionAction);
+                    auditoriaAccesosService.createAsync(auditoriaLogout);
+                });
     }
 }
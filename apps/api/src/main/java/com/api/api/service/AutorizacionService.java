@@ -0,0 +1,162 @@
+package com.api.api.service;
+
+import com.api.api.dto.RequestDTO.AutorizacionBatchRequestDTO;
+import com.api.api.dto.RequestDTO.AutorizacionConsultaDTO;
+import com.api.api.dto.ResponseDTO.AutorizacionBatchResponseDTO;
+import com.api.api.dto.ResponseDTO.AutorizacionCheckResponseDTO;
+import com.api.api.dto.ResponseDTO.PermisosEfectivosConsistenciaResponseDTO;
+import com.api.api.dto.ResponseDTO.PermisosEfectivosReconstruccionResponseDTO;
+import com.api.api.exception.BadRequestException;
+import com.api.api.exception.ResourceNotFoundException;
+import com.api.api.exception.ServiceUnavailableException;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.PermissionMatrix;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class AutorizacionService {
+
+    // Segundos sugeridos para reintentar mientras se compila el modelo de permisos al iniciar
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+    private final int maxItemsPorLote;
+
+    private final Timer latenciaIndividual;
+    private final Timer latenciaLote;
+    private final DistributionSummary tamanoLote;
+
+    public AutorizacionService(PermissionMatrix permissionMatrix,
+                               EffectivePermissionsStore effectivePermissionsStore,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.security.authorization.batch-max-items:1000}") int maxItemsPorLote) {
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
+        this.maxItemsPorLote = maxItemsPorLote;
+
+        this.latenciaIndividual = Timer.builder("autorizacion.consultas")
+                .description("Latencia de evaluación de las consultas de autorización")
+                .tag("tipo", "individual")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.latenciaLote = Timer.builder("autorizacion.consultas")
+                .description("Latencia de evaluación de las consultas de autorización")
+                .tag("tipo", "lote")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.tamanoLote = DistributionSummary.builder("autorizacion.lote.tamano")
+                .description("Cantidad de consultas por lote de autorización")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consulta si un usuario puede ejecutar una acción en una aplicación.
+     * Se resuelve desde el modelo compilado en memoria y no se audita en cada solicitud:
+     * las aplicaciones cliente la invocan en cada operación.
+     * @param usuarioId ID del usuario.
+     * @param llaveAplicacion Llave identificadora de la aplicación.
+     * @param nombreAccion Nombre de la acción.
+     * @return El resultado y la versión del modelo de permisos.
+     * @throws ResourceNotFoundException si la aplicación no existe.
+     * @throws ServiceUnavailableException si el modelo de permisos aún no se ha cargado.
+     */
+    public AutorizacionCheckResponseDTO check(UUID usuarioId, String llaveAplicacion, String nombreAccion) {
+        long inicio = System.nanoTime();
+        verificarModelo();
+        if (!permissionMatrix.existeAplicacion(llaveAplicacion)) {
+            throw new ResourceNotFoundException("Aplicación no encontrada con identificador: " + llaveAplicacion);
+        }
+        long version = permissionMatrix.getVersion();
+        boolean permitido = permissionMatrix.check(usuarioId, llaveAplicacion, nombreAccion);
+        latenciaIndividual.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return new AutorizacionCheckResponseDTO(permitido, version);
+    }
+
+    /**
+     * Evalúa un lote de consultas de autorización en memoria.
+     * Acepta una lista de consultas (usuario, aplicación, acción) o un usuario y una aplicación
+     * con varias acciones; en el lote, una aplicación o acción inexistente se responde con false.
+     * @param solicitud Lote de consultas.
+     * @return Un resultado por consulta, en el orden de la solicitud, y la versión del modelo.
+     * @throws BadRequestException si el lote está vacío, mezcla ambas formas o supera el máximo de consultas.
+     * @throws ServiceUnavailableException si el modelo de permisos aún no se ha cargado.
+     */
+    public AutorizacionBatchResponseDTO checkBatch(AutorizacionBatchRequestDTO solicitud) {
+        long inicio = System.nanoTime();
+        boolean porConsultas = solicitud.getConsultas() != null && !solicitud.getConsultas().isEmpty();
+        boolean porAcciones = solicitud.getAcciones() != null && !solicitud.getAcciones().isEmpty();
+        if (porConsultas == porAcciones) {
+            throw new BadRequestException("Debe indicar la lista 'consultas' o bien 'usuarioId', 'llaveAplicacion' y 'acciones'.");
+        }
+        int cantidad = porConsultas ? solicitud.getConsultas().size() : solicitud.getAcciones().size();
+        if (cantidad > maxItemsPorLote) {
+            throw new BadRequestException("El lote supera el máximo de " + maxItemsPorLote + " consultas.");
+        }
+        if (porAcciones && (solicitud.getUsuarioId() == null || solicitud.getLlaveAplicacion() == null)) {
+            throw new BadRequestException("Los campos 'usuarioId' y 'llaveAplicacion' son obligatorios al consultar 'acciones'.");
+        }
+        verificarModelo();
+
+        long version = permissionMatrix.getVersion();
+        List<Boolean> resultados = new ArrayList<>(cantidad);
+        if (porAcciones) {
+            for (boolean permitido : permissionMatrix.check(solicitud.getUsuarioId(), solicitud.getLlaveAplicacion(), solicitud.getAcciones())) {
+                resultados.add(permitido);
+            }
+        } else {
+            for (AutorizacionConsultaDTO consulta : solicitud.getConsultas()) {
+                resultados.add(permissionMatrix.check(consulta.getUsuarioId(), consulta.getLlaveAplicacion(), consulta.getAccion()));
+            }
+        }
+        tamanoLote.record(cantidad);
+        latenciaLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return new AutorizacionBatchResponseDTO(resultados, version);
+    }
+
+    /**
+     * Compara la tabla usuario_permisos_efectivos con los permisos calculados desde las asignaciones.
+     * @return Cantidad de filas faltantes, sobrantes y diferentes.
+     * @throws BadRequestException si la tabla de permisos efectivos está deshabilitada.
+     */
+    public PermisosEfectivosConsistenciaResponseDTO verificarPermisosEfectivos() {
+        verificarPermisosEfectivosHabilitados();
+        EffectivePermissionsStore.Consistencia consistencia = effectivePermissionsStore.check();
+        return new PermisosEfectivosConsistenciaResponseDTO(consistencia.consistente(),
+                consistencia.faltantes(), consistencia.sobrantes(), consistencia.diferentes());
+    }
+
+    /**
+     * Reconstruye por completo la tabla usuario_permisos_efectivos.
+     * @return Cantidad de filas y duración de la reconstrucción.
+     * @throws BadRequestException si la tabla de permisos efectivos está deshabilitada.
+     */
+    public PermisosEfectivosReconstruccionResponseDTO reconstruirPermisosEfectivos() {
+        verificarPermisosEfectivosHabilitados();
+        long inicio = System.nanoTime();
+        int filas = effectivePermissionsStore.rebuild();
+        return new PermisosEfectivosReconstruccionResponseDTO(filas, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private void verificarPermisosEfectivosHabilitados() {
+        if (!effectivePermissionsStore.isEnabled()) {
+            throw new BadRequestException("La tabla de permisos efectivos está deshabilitada (app.security.effective-permissions.enabled).");
+        }
+    }
+
+    private void verificarModelo() {
+        if (!permissionMatrix.isReady()) {
+            throw new ServiceUnavailableException("El modelo de permisos aún se está cargando.", RETRY_AFTER_SECONDS);
+        }
+    }
+}
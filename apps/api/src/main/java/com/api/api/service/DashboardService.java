@@ -0,0 +1,139 @@
+package com.api.api.service;
+
+import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditRollupWriter;
+import com.api.api.audit.AuditableAction;
+import com.api.api.audit.AuditableAction.AuditResultType;
+import com.api.api.dto.ResponseDTO.DashboardAccionResponseDTO;
+import com.api.api.dto.ResponseDTO.DashboardSerieResponseDTO;
+import com.api.api.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consultas del dashboard sobre auditoria_accesos_resumen.
+ * Nunca recorre la tabla cruda de auditoría: cada consulta lee a lo sumo un contador por
+ * periodo y acción, por lo que su costo depende de la ventana y no del volumen de eventos.
+ */
+@Service
+public class DashboardService {
+
+    // Cantidad máxima de puntos de una serie temporal
+    private static final long MAX_POINTS = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.audit.rollup.hour-retention-days:180}")
+    private int hourRetentionDays;
+
+    public DashboardService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Serie temporal de eventos exitosos y fallidos por periodo.
+     * @param granularidad 'minuto', 'hora' o 'dia'.
+     * @param desde Inicio de la ventana (se alinea al inicio de su periodo).
+     * @param hasta Fin de la ventana (exclusive).
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param accionId Filtro opcional por acción.
+     * @return Puntos de la serie ordenados por periodo (solo periodos con eventos).
+     */
+    // Auditar la visualización de la serie temporal del dashboard
+    @AuditableAction(actionName = AuditActions.VISUALIZACION_METRICAS_DASHBOARD, message = "Se visualizó la serie temporal de eventos de auditoría del dashboard.", auditResult = AuditResultType.BOTH)
+    public List<DashboardSerieResponseDTO> getSerie(String granularidad, OffsetDateTime desde, OffsetDateTime hasta,
+                                                    UUID aplicacionId, UUID accionId) {
+        ChronoUnit unit = unitOf(granularidad);
+        validateWindow(desde, hasta);
+        OffsetDateTime inicio = desde.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(unit);
+        if (Duration.between(inicio, hasta).dividedBy(unit.getDuration()) > MAX_POINTS) {
+            throw new BadRequestException("La ventana solicitada excede el máximo de " + MAX_POINTS + " puntos para la granularidad '" + granularidad + "'.");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT periodo, SUM(exitosos) AS exitosos, SUM(fallidos) AS fallidos " +
+                "FROM auditoria_accesos_resumen WHERE granularidad = ? AND periodo >= ? AND periodo < ?");
+        List<Object> params = new ArrayList<>(List.of(granularidad, inicio, hasta));
+        appendFilters(sql, params, aplicacionId, accionId);
+        sql.append(" GROUP BY periodo ORDER BY periodo");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new DashboardSerieResponseDTO(
+                rs.getObject("periodo", OffsetDateTime.class),
+                rs.getLong("exitosos"),
+                rs.getLong("fallidos")), params.toArray());
+    }
+
+    /**
+     * Totales de eventos por acción en una ventana, ordenados por volumen.
+     * Usa los contadores por hora mientras estén dentro de su retención y los diarios en caso contrario.
+     * @param desde Inicio de la ventana.
+     * @param hasta Fin de la ventana (exclusive).
+     * @param aplicacionId Filtro opcional por aplicación.
+     * @param limit Cantidad máxima de acciones.
+     * @return Totales por acción.
+     */
+    // Auditar la visualización de los totales por acción del dashboard
+    @AuditableAction(actionName = AuditActions.VISUALIZACION_METRICAS_DASHBOARD, message = "Se visualizaron los totales por acción del dashboard.", auditResult = AuditResultType.BOTH)
+    public List<DashboardAccionResponseDTO> getTotalesPorAccion(OffsetDateTime desde, OffsetDateTime hasta,
+                                                               UUID aplicacionId, int limit) {
+        validateWindow(desde, hasta);
+        boolean horaDisponible = desde.isAfter(OffsetDateTime.now(ZoneOffset.UTC).minusDays(hourRetentionDays));
+        String granularidad = horaDisponible ? AuditRollupWriter.HORA : AuditRollupWriter.DIA;
+        OffsetDateTime inicio = desde.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(horaDisponible ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+
+        StringBuilder sql = new StringBuilder("SELECT r.accion_id, a.nombre, SUM(r.exitosos) AS exitosos, SUM(r.fallidos) AS fallidos " +
+                "FROM auditoria_accesos_resumen r LEFT JOIN acciones a ON a.id = r.accion_id " +
+                "WHERE r.granularidad = ? AND r.periodo >= ? AND r.periodo < ?");
+        List<Object> params = new ArrayList<>(List.of(granularidad, inicio, hasta));
+        if (aplicacionId != null) {
+            sql.append(" AND r.aplicacion_id = ?");
+            params.add(aplicacionId);
+        }
+        sql.append(" GROUP BY r.accion_id, a.nombre ORDER BY SUM(r.exitosos) + SUM(r.fallidos) DESC LIMIT ?");
+        params.add(Math.max(1, Math.min(limit, 100)));
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new DashboardAccionResponseDTO(
+                rs.getObject("accion_id", UUID.class),
+                rs.getString("nombre"),
+                rs.getLong("exitosos"),
+                rs.getLong("fallidos")), params.toArray());
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, UUID aplicacionId, UUID accionId) {
+        if (aplicacionId != null) {
+            sql.append(" AND aplicacion_id = ?");
+            params.add(aplicacionId);
+        }
+        if (accionId != null) {
+            sql.append(" AND accion_id = ?");
+            params.add(accionId);
+        }
+    }
+
+    private static void validateWindow(OffsetDateTime desde, OffsetDateTime hasta) {
+        if (desde == null || hasta == null || !desde.isBefore(hasta)) {
+            throw new BadRequestException("La ventana de tiempo es obligatoria y 'desde' debe ser anterior a 'hasta'.");
+        }
+    }
+
+    private static ChronoUnit unitOf(String granularidad) {
+        if (AuditRollupWriter.MINUTO.equals(granularidad)) {
+            return ChronoUnit.MINUTES;
+        }
+        if (AuditRollupWriter.HORA.equals(granularidad)) {
+            return ChronoUnit.HOURS;
+        }
+        if (AuditRollupWriter.DIA.equals(granularidad)) {
+            return ChronoUnit.DAYS;
+        }
+        throw new BadRequestException("La granularidad debe ser 'minuto', 'hora' o 'dia'.");
+    }
+}
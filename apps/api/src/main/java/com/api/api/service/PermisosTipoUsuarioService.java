@@ -1,14 +1,20 @@
 package com.api.api.service;
 
 import com.api.api.repository.PermisosTipoUsuarioRepository;
+import com.api.api.repository.UsuariosTipoUsuarioRepository;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.security.PrincipalCache;
 import com.api.api.model.PermisosTipoUsuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditScope;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -19,9 +25,24 @@ import java.util.List;
 public class PermisosTipoUsuarioService {
 
     private final PermisosTipoUsuarioRepository permisosTipoUsuarioRepository;
-
-    public PermisosTipoUsuarioService(PermisosTipoUsuarioRepository permisosTipoUsuarioRepository) {
+    private final UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository;
+    private final PrincipalCache principalCache;
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+    private final TransactionTemplate transactionTemplate;
+
+    public PermisosTipoUsuarioService(PermisosTipoUsuarioRepository permisosTipoUsuarioRepository,
+            UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository,
+            PrincipalCache principalCache,
+            PermissionMatrix permissionMatrix,
+            EffectivePermissionsStore effectivePermissionsStore,
+            TransactionTemplate transactionTemplate) {
         this.permisosTipoUsuarioRepository = permisosTipoUsuarioRepository;
+        this.usuariosTipoUsuarioRepository = usuariosTipoUsuarioRepository;
+        this.principalCache = principalCache;
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // Auditar la acción de búsqueda de todos los permisos
@@ -46,32 +67,64 @@ public class PermisosTipoUsuarioService {
     @AuditableAction(actionName = AuditActions.CREACION_PERMISO, message = "Se intentó crear un nuevo permiso.")
     // Crear un nuevo permiso
     public PermisosTipoUsuario create(PermisosTipoUsuario permiso) {
-        return permisosTipoUsuarioRepository.save(permiso);
+        // El permiso y su delta en usuario_permisos_efectivos se confirman en la misma transacción
+        PermisosTipoUsuario guardado = transactionTemplate.execute(status -> {
+            PermisosTipoUsuario nuevo = permisosTipoUsuarioRepository.save(permiso);
+            effectivePermissionsStore.agregarPermiso(tipoUsuarioIdDe(nuevo), accionIdDe(nuevo));
+            return nuevo;
+        });
+        invalidarPrincipales(guardado);
+        return guardado;
     }
 
     // Auditar la acción de creación de múltiples permisos
     @AuditableAction(actionName = AuditActions.CREACION_PERMISO, message = "Se intentó crear múltiples permisos.")
     // Crear múltiples permisos
     public List<PermisosTipoUsuario> createAll(List<PermisosTipoUsuario> permisos) {
-        return permisosTipoUsuarioRepository.saveAll(permisos);
+        List<PermisosTipoUsuario> guardados = transactionTemplate.execute(status -> {
+            List<PermisosTipoUsuario> nuevos = permisosTipoUsuarioRepository.saveAll(permisos);
+            nuevos.forEach(nuevo -> effectivePermissionsStore.agregarPermiso(tipoUsuarioIdDe(nuevo), accionIdDe(nuevo)));
+            return nuevos;
+        });
+        guardados.stream().map(this::tipoUsuarioIdDe).distinct().forEach(this::invalidarPrincipales);
+        return guardados;
     }
 
     // Auditar la acción de actualización de un permiso
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_PERMISO, message = "Se intentó actualizar un permiso existente.")
     // Actualizar un permiso existente
     public Optional<PermisosTipoUsuario> update(UUID id, PermisosTipoUsuario permisoActualizado) {
-        return permisosTipoUsuarioRepository.findById(id).map(permiso -> {
-            permiso.setAccion(permisoActualizado.getAccion());
-            permiso.setTipoUsuario(permisoActualizado.getTipoUsuario());
-            return permisosTipoUsuarioRepository.save(permiso);
+        UUID[] tipoUsuarioAnteriorId = new UUID[1];
+        Optional<PermisosTipoUsuario> actualizado = transactionTemplate.execute(status ->
+                permisosTipoUsuarioRepository.findById(id).map(permiso -> {
+                    tipoUsuarioAnteriorId[0] = tipoUsuarioIdDe(permiso);
+                    effectivePermissionsStore.quitarPermiso(tipoUsuarioAnteriorId[0], accionIdDe(permiso));
+                    permiso.setAccion(permisoActualizado.getAccion());
+                    permiso.setTipoUsuario(permisoActualizado.getTipoUsuario());
+                    PermisosTipoUsuario guardado = permisosTipoUsuarioRepository.save(permiso);
+                    effectivePermissionsStore.agregarPermiso(tipoUsuarioIdDe(guardado), accionIdDe(guardado));
+                    return guardado;
+                }));
+        actualizado.ifPresent(guardado -> {
+            invalidarPrincipales(tipoUsuarioAnteriorId[0]);
+            invalidarPrincipales(guardado);
         });
+        return actualizado;
     }
 
     // Auditar la acción de eliminación de un permiso por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_DEFINITIVA_PERMISO, message = "Se intentó eliminar un permiso por su ID.")
     // Eliminar definitivamente un permiso por su ID
     public void deleteById(UUID id) {
-        permisosTipoUsuarioRepository.deleteById(id);
+        UUID tipoUsuarioId = transactionTemplate.execute(status -> {
+            UUID anteriorId = permisosTipoUsuarioRepository.findById(id).map(permiso -> {
+                effectivePermissionsStore.quitarPermiso(tipoUsuarioIdDe(permiso), accionIdDe(permiso));
+                return tipoUsuarioIdDe(permiso);
+            }).orElse(null);
+            permisosTipoUsuarioRepository.deleteById(id);
+            return anteriorId;
+        });
+        invalidarPrincipales(tipoUsuarioId);
     }
 
     // Auditar la acción de eliminación lógica de un permiso por su ID
@@ -79,10 +132,14 @@ public class PermisosTipoUsuarioService {
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_PERMISO, message = "Se intentó eliminar lógicamente un permiso por su ID.")
     // Eliminar lógicamente un permiso por su ID
     public Optional<PermisosTipoUsuario> softDelete(UUID id) {
-        return permisosTipoUsuarioRepository.findById(id).map(permiso -> {
-            permiso.softDelete();
-            return permisosTipoUsuarioRepository.save(permiso);
-        });
+        Optional<PermisosTipoUsuario> eliminado = transactionTemplate.execute(status ->
+                permisosTipoUsuarioRepository.findById(id).map(permiso -> {
+                    permiso.softDelete();
+                    effectivePermissionsStore.quitarPermiso(tipoUsuarioIdDe(permiso), accionIdDe(permiso));
+                    return permisosTipoUsuarioRepository.save(permiso);
+                }));
+        eliminado.ifPresent(this::invalidarPrincipales);
+        return eliminado;
     }
 
     // Auditar la acción de búsqueda de permisos por tipo de usuario
@@ -103,12 +160,34 @@ public class PermisosTipoUsuarioService {
 
     /**
      * Obtiene una lista de permisos de tipo de usuario para una colección de IDs de tipo de usuario.
-     * No está auditado directamente para evitar bucles si es llamado por el aspecto de auditoría o por sí mismo.
+     * Solo lo invoca el framework (carga de autoridades y agrupación de permisos), por lo que su
+     * alcance es interno: se cuenta, pero no escribe en auditoria_accesos en cada solicitud.
      * @param tipoUsuarioIds Colección de UUIDs de tipos de usuario.
      * @return Lista de PermisosTipoUsuario.
      */
-    @AuditableAction(actionName = AuditActions.FILTRADO_PERMISOS_POR_TIPO_USUARIO, message = "Se intentó buscar permisos por tipos de usuarios", auditResult = AuditResultType.BOTH)
+    @AuditableAction(actionName = AuditActions.FILTRADO_PERMISOS_POR_TIPO_USUARIO, message = "Se intentó buscar permisos por tipos de usuarios", auditResult = AuditResultType.BOTH, scope = AuditScope.INTERNAL)
     public List<PermisosTipoUsuario> findByTipoUsuarioIdIn(Collection<UUID> tipoUsuarioIds) {
         return permisosTipoUsuarioRepository.findByTipoUsuarioIdIn(tipoUsuarioIds);
     }
-}
\ No newline at end of file
+
+    // Invalida en la caché de principales a todos los usuarios que tienen asignado el tipo de usuario del permiso
+    // y recompila el tipo de usuario en el modelo de permisos
+    private void invalidarPrincipales(PermisosTipoUsuario permiso) {
+        invalidarPrincipales(tipoUsuarioIdDe(permiso));
+    }
+
+    private void invalidarPrincipales(UUID tipoUsuarioId) {
+        if (tipoUsuarioId != null) {
+            principalCache.invalidateAll(usuariosTipoUsuarioRepository.findUsuarioIdsByTipoUsuarioId(tipoUsuarioId));
+            permissionMatrix.actualizarTipoUsuario(tipoUsuarioId);
+        }
+    }
+
+    private UUID tipoUsuarioIdDe(PermisosTipoUsuario permiso) {
+        return permiso.getTipoUsuario() != null ? permiso.getTipoUsuario().getId() : null;
+    }
+
+    private UUID accionIdDe(PermisosTipoUsuario permiso) {
+        return permiso.getAccion() != null ? permiso.getAccion().getId() : null;
+    }
+}
@@ -3,6 +3,7 @@ package com.api.api.service;
 import com.api.api.repository.SeccionesRepository;
 import com.api.api.dto.SimpleDTO.SeccionSimpleDTO;
 import com.api.api.model.Secciones;
+import com.api.api.search.SeccionesSearchIndex;
 
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
@@ -19,9 +20,11 @@ public class SeccionesService {
 
     // Inyección de dependencias
     private final SeccionesRepository seccionesRepository;
+    private final SeccionesSearchIndex seccionesSearchIndex;
 
-    public SeccionesService(SeccionesRepository seccionesRepository) {
+    public SeccionesService(SeccionesRepository seccionesRepository, SeccionesSearchIndex seccionesSearchIndex) {
         this.seccionesRepository = seccionesRepository;
+        this.seccionesSearchIndex = seccionesSearchIndex;
     }
 
     // Auditar la acción de búsqueda de todas las secciones
@@ -40,7 +43,9 @@ public class SeccionesService {
     public Page<Secciones> findAll(int page, int limit, String searchTerm) {
         Pageable pageable = PageRequest.of(page - 1, limit);
         if (searchTerm != null && !searchTerm.isEmpty()) {
-            return seccionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
+            // Índice en memoria; la base de datos solo mientras el índice se reconstruye
+            return seccionesSearchIndex.search(searchTerm, pageable)
+                    .orElseGet(() -> seccionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable));
         }
         return seccionesRepository.findAll(pageable);
     }
@@ -56,25 +61,31 @@ public class SeccionesService {
     @AuditableAction(actionName = AuditActions.CREACION_SECCION, message = "Se intentó crear una nueva sección.")
     // Crear una nueva sección
     public Secciones create(Secciones seccion) {
-        return seccionesRepository.save(seccion);
+        Secciones creada = seccionesRepository.save(seccion);
+        seccionesSearchIndex.refresh(creada.getId());
+        return creada;
     }
 
     // Auditar la acción de creación de múltiples secciones
     @AuditableAction(actionName = AuditActions.CREACION_SECCION, message = "Se intentó crear múltiples secciones.")
     // Crear múltiples secciones
     public Iterable<Secciones> createAll(Iterable<Secciones> secciones) {
-        return seccionesRepository.saveAll(secciones);
+        Iterable<Secciones> creadas = seccionesRepository.saveAll(secciones);
+        seccionesSearchIndex.refreshAll(creadas);
+        return creadas;
     }
 
     // Auditar la acción de actualización de una sección
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_SECCION, message = "Se intentó actualizar una sección.")
     // Actualizar una sección existente
     public Optional<Secciones> update(UUID id, Secciones seccionActualizada) {
-        return seccionesRepository.findById(id).map(seccion -> {
+        Optional<Secciones> actualizada = seccionesRepository.findById(id).map(seccion -> {
             seccion.setNombre(seccionActualizada.getNombre());
             seccion.setDescripcion(seccionActualizada.getDescripcion());
             return seccionesRepository.save(seccion);
         });
+        actualizada.ifPresent(seccion -> seccionesSearchIndex.refresh(seccion.getId()));
+        return actualizada;
     }
 
     // Auditar la acción de eliminación de una sección por su ID
@@ -82,16 +93,19 @@ public class SeccionesService {
     // Eliminar definitivamente una sección por su ID
     public void deleteById(UUID id) {
         seccionesRepository.deleteById(id);
+        seccionesSearchIndex.remove(id);
     }
 
     // Auditar la acción de eliminación lógica de una sección por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_SECCION, message = "Se intentó eliminar lógicamente una sección por su ID.")
     // Eliminar lógicamente una sección por su ID
     public Optional<Secciones> softDelete(UUID id) {
-        return seccionesRepository.findById(id).map(seccion -> {
+        Optional<Secciones> eliminada = seccionesRepository.findById(id).map(seccion -> {
             seccion.softDelete();
             return seccionesRepository.save(seccion);
         });
+        eliminada.ifPresent(seccion -> seccionesSearchIndex.remove(seccion.getId()));
+        return eliminada;
     }
 
 }
@@ -2,10 +2,13 @@ package com.api.api.service;
 
 import com.api.api.repository.SesionesRepository;
 import com.api.api.model.Sesiones;
+import com.api.api.security.JwtTokenProvider;
+import com.api.api.security.TokenRevocationIndex;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
@@ -14,14 +17,19 @@ import java.util.Optional;
 import java.util.UUID;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class SesionesService {
 
+    private static final String ESTADO_ACTIVA = "activa";
+
     private final SesionesRepository sesionesRepository;
+    private final TokenRevocationIndex tokenRevocationIndex;
 
-    public SesionesService(SesionesRepository sesionesRepository) {
+    public SesionesService(SesionesRepository sesionesRepository, TokenRevocationIndex tokenRevocationIndex) {
         this.sesionesRepository = sesionesRepository;
+        this.tokenRevocationIndex = tokenRevocationIndex;
     }
 
     // Auditar la acción de búsqueda de todas las sesiones
@@ -32,7 +40,7 @@ public class SesionesService {
         if (searchTerm != null && !searchTerm.isEmpty()) {
             return sesionesRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
         }
-        return sesionesRepository.findAll(pageable);
+        return sesionesRepository.findAllNoEliminadas(pageable);
     }
 
     // Auditar la acción de búsqueda de una sesión por su ID
@@ -47,6 +55,26 @@ public class SesionesService {
         return sesionesRepository.save(sesion);
     }
 
+    /**
+     * Crea una sesión y emite su token. El JWT lleva el ID de la sesión como 'jti', por lo que la
+     * fila se inserta primero y el hash del token se guarda después en la misma transacción.
+     * Debe invocarse dentro de una transacción.
+     * @param sesion Sesión a crear (sin ID).
+     * @param tokenIssuer Función que emite el token para el ID de sesión asignado.
+     * @return El token emitido.
+     */
+    public String createWithToken(Sesiones sesion, Function<UUID, String> tokenIssuer) {
+        Sesiones creada = sesionesRepository.saveAndFlush(sesion);
+        String token = tokenIssuer.apply(creada.getId());
+        creada.setTokenHash(JwtTokenProvider.hashToken(token));
+        return token;
+    }
+
+    // Buscar una sesión por el ID incluido en su token (claim 'jti'), sin auditar
+    public Optional<Sesiones> findBySessionId(UUID sessionId) {
+        return sesionesRepository.findById(sessionId);
+    }
+
     // Crear múltiples sesiones
     public List<Sesiones> createAll(List<Sesiones> sesiones) {
         return sesionesRepository.saveAll(sesiones);
@@ -55,9 +83,9 @@ public class SesionesService {
     // Auditar la acción de actualización de una sesión
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_SESION, message = "Se intentó actualizar una sesión existente.", auditResult = AuditResultType.BOTH)
     // Actualizar una sesión existente
+    @Transactional
     public Optional<Sesiones> update(UUID id, Sesiones sesionActualizada) {
         return sesionesRepository.findById(id).map(sesion -> {
-            sesion.setToken(sesionActualizada.getToken());
             sesion.setUsuario(sesionActualizada.getUsuario());
             sesion.setIpOrigen(sesionActualizada.getIpOrigen());
             sesion.setEmailUsuario(sesionActualizada.getEmailUsuario());
@@ -66,18 +94,23 @@ public class SesionesService {
             sesion.setFechaInicio(sesionActualizada.getFechaInicio()); 
             sesion.setFechaFin(sesionActualizada.getFechaFin()); 
             sesion.setEstado(sesionActualizada.getEstado());
-            return sesionesRepository.save(sesion);
+            Sesiones guardada = guardarConRevocacion(sesion);
+            revocarSiNoActiva(guardada);
+            return guardada;
         });
     }
 
     // Auditar la acción de actualización del estado de una sesión
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_ESTADO_SESION, message = "Se intentó actualizar el estado de una sesión.", auditResult = AuditResultType.BOTH)
     // Actualizar el estado de una sesión por su ID
+    @Transactional
     public Optional<Sesiones> updateStatus(UUID id, String newStatus, OffsetDateTime endDate) {
         return sesionesRepository.findById(id).map(sesion -> {
             sesion.setEstado(newStatus);
-            sesion.setFechaFin(endDate);
-            return sesionesRepository.save(sesion);
+            sesion.setFechaFin(endDate == null && !ESTADO_ACTIVA.equals(newStatus) ? OffsetDateTime.now() : endDate);
+            Sesiones guardada = guardarConRevocacion(sesion);
+            revocarSiNoActiva(guardada);
+            return guardada;
         });
     }
 
@@ -85,16 +118,24 @@ public class SesionesService {
     @AuditableAction(actionName = AuditActions.ELIMINACION_DEFINITIVA_SESION, message = "Se intentó eliminar una sesión por su ID.", auditResult = AuditResultType.BOTH)
     // Eliminar definitivamente una sesión por su ID
     public void deleteById(UUID id) {
+        sesionesRepository.findById(id)
+                .ifPresent(sesion -> tokenRevocationIndex.revoke(sesion.getId(), sesion.getFechaInicio()));
         sesionesRepository.deleteById(id);
     }
 
     // Auditar la acción de eliminación lógica de una sesión por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_SESION, message = "Se intentó eliminar lógicamente una sesión por su ID.", auditResult = AuditResultType.BOTH)
     // Eliminar lógicamente una sesión por su ID
+    @Transactional
     public Optional<Sesiones> softDelete(UUID id) {
         return sesionesRepository.findById(id).map(sesion -> {
             sesion.softDelete();
-            return sesionesRepository.save(sesion);
+            if (sesion.getFechaFin() == null) {
+                sesion.setFechaFin(OffsetDateTime.now());
+            }
+            Sesiones eliminada = guardarConRevocacion(sesion);
+            tokenRevocationIndex.revoke(eliminada.getId(), eliminada.getFechaInicio());
+            return eliminada;
         });
     }
 
@@ -106,8 +147,17 @@ public class SesionesService {
         return sesionesRepository.findByEstado(estado, pageable);
     }
 
-    // Buscar una sesión por su token JWT
-    public Optional<Sesiones> findByToken(String token) {
-        return sesionesRepository.findByToken(token);
+    // Guarda la sesión y marca fecha_revocacion con el reloj de la base de datos (en la misma transacción)
+    private Sesiones guardarConRevocacion(Sesiones sesion) {
+        Sesiones guardada = sesionesRepository.saveAndFlush(sesion);
+        sesionesRepository.marcarRevocacion(guardada.getId());
+        return guardada;
+    }
+
+    // Registra el token en el índice de revocación si la sesión dejó de estar activa
+    private void revocarSiNoActiva(Sesiones sesion) {
+        if (!ESTADO_ACTIVA.equals(sesion.getEstado())) {
+            tokenRevocationIndex.revoke(sesion.getId(), sesion.getFechaInicio());
+        }
     }
-}
\ No newline at end of file
+}
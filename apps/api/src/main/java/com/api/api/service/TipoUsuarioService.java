@@ -3,14 +3,19 @@ package com.api.api.service;
 import com.api.api.repository.TipoUsuarioRepository;
 import com.api.api.dto.SimpleDTO.TipoUsuarioSimpleDTO;
 import com.api.api.model.TipoUsuario;
+import com.api.api.search.TipoUsuarioSearchIndex;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.PermissionMatrix;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,9 +23,16 @@ import java.util.UUID;
 public class TipoUsuarioService {
 
     private final TipoUsuarioRepository tipoUsuarioRepository;
+    private final TipoUsuarioSearchIndex tipoUsuarioSearchIndex;
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
 
-    public TipoUsuarioService(TipoUsuarioRepository tipoUsuarioRepository) {
+    public TipoUsuarioService(TipoUsuarioRepository tipoUsuarioRepository, TipoUsuarioSearchIndex tipoUsuarioSearchIndex,
+                              PermissionMatrix permissionMatrix, EffectivePermissionsStore effectivePermissionsStore) {
         this.tipoUsuarioRepository = tipoUsuarioRepository;
+        this.tipoUsuarioSearchIndex = tipoUsuarioSearchIndex;
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
     }
 
     // Auditar la acción de búsqueda de todos los tipos de usuario
@@ -37,7 +49,9 @@ public class TipoUsuarioService {
     public Page<TipoUsuario> findAll(int page, int limit, String searchTerm) {
         Pageable pageable = PageRequest.of(page - 1, limit);
         if (searchTerm != null && !searchTerm.isEmpty()) {
-            return tipoUsuarioRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
+            // Índice en memoria; la base de datos solo mientras el índice se reconstruye
+            return tipoUsuarioSearchIndex.search(searchTerm, pageable)
+                    .orElseGet(() -> tipoUsuarioRepository.searchAllFields(searchTerm.toLowerCase(), pageable));
         }
         return tipoUsuarioRepository.findAll(pageable);
     }
@@ -53,44 +67,69 @@ public class TipoUsuarioService {
     @AuditableAction(actionName = AuditActions.CREACION_TIPO_USUARIO, message = "Se intentó crear un nuevo tipo de usuario.")
     // Crear un nuevo tipo de usuario
     public TipoUsuario create(TipoUsuario tipoUsuario) {
-        return tipoUsuarioRepository.save(tipoUsuario);
+        TipoUsuario creado = tipoUsuarioRepository.save(tipoUsuario);
+        tipoUsuarioSearchIndex.refresh(creado.getId());
+        return creado;
     }
 
     // Auditar la acción de creación de múltiples tipos de usuario
     @AuditableAction(actionName = AuditActions.CREACION_TIPO_USUARIO, message = "Se intentó crear múltiples tipos de usuario.")
     // Crear múltiples tipos de usuario
     public Iterable<TipoUsuario> createAll(Iterable<TipoUsuario> tiposUsuario) {
-        return tipoUsuarioRepository.saveAll(tiposUsuario);
+        Iterable<TipoUsuario> creados = tipoUsuarioRepository.saveAll(tiposUsuario);
+        tipoUsuarioSearchIndex.refreshAll(creados);
+        return creados;
     }
 
     // Auditar la acción de actualización de un tipo de usuario
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_TIPO_USUARIO, message = "Se intentó actualizar un tipo de usuario existente.", auditResult = AuditResultType.BOTH)
     // Actualizar un tipo de usuario existente
     public Optional<TipoUsuario> update(UUID id, TipoUsuario tipoUsuarioActualizado) {
-        return tipoUsuarioRepository.findById(id).map(tipoUsuario -> {
+        Optional<TipoUsuario> actualizado = tipoUsuarioRepository.findById(id).map(tipoUsuario -> {
             tipoUsuario.setNombre(tipoUsuarioActualizado.getNombre());
             tipoUsuario.setDescripcion(tipoUsuarioActualizado.getDescripcion());
             tipoUsuario.setAplicacion(tipoUsuarioActualizado.getAplicacion());
             tipoUsuario.setEstado(tipoUsuarioActualizado.getEstado());
             return tipoUsuarioRepository.save(tipoUsuario);
         });
+        actualizado.ifPresent(tipoUsuario -> {
+            tipoUsuarioSearchIndex.refresh(tipoUsuario.getId());
+            permissionMatrix.actualizarTipoUsuario(tipoUsuario.getId());
+        });
+        return actualizado;
     }
 
     // Auditar la acción de eliminación de un tipo de usuario por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_DEFINITIVA_TIPO_USUARIO, message = "Se intentó eliminar un tipo de usuario por su ID.", auditResult = AuditResultType.BOTH)
     // Eliminar definitivamente un tipo de usuario por su ID
+    @Transactional
     public void deleteById(UUID id) {
+        // Sus asignaciones y permisos se eliminan en cascada: se recalculan los usuarios que lo tenían
+        List<UUID> afectados = effectivePermissionsStore.usuariosDeTipoUsuario(id);
         tipoUsuarioRepository.deleteById(id);
+        tipoUsuarioRepository.flush();
+        effectivePermissionsStore.recalcularUsuarios(afectados);
+        tipoUsuarioSearchIndex.remove(id);
+        permissionMatrix.actualizarTipoUsuario(id);
     }
 
     // Auditar la acción de eliminación lógica de un tipo de usuario por su ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_TIPO_USUARIO, message = "Se intentó eliminar lógicamente un tipo de usuario por su ID.", auditResult = AuditResultType.BOTH)
     // Eliminar lógicamente un tipo de usuario por su ID
+    @Transactional
     public Optional<TipoUsuario> softDelete(UUID id) {
-        return tipoUsuarioRepository.findById(id).map(tipoUsuario -> {
+        Optional<TipoUsuario> eliminado = tipoUsuarioRepository.findById(id).map(tipoUsuario -> {
             tipoUsuario.softDelete();
-            return tipoUsuarioRepository.save(tipoUsuario);
+            TipoUsuario guardado = tipoUsuarioRepository.saveAndFlush(tipoUsuario);
+            // Sus asignaciones dejan de otorgar permisos (en la misma transacción)
+            effectivePermissionsStore.recalcularTipoUsuario(guardado.getId());
+            return guardado;
+        });
+        eliminado.ifPresent(tipoUsuario -> {
+            tipoUsuarioSearchIndex.remove(tipoUsuario.getId());
+            permissionMatrix.actualizarTipoUsuario(tipoUsuario.getId());
         });
+        return eliminado;
     }
 
     // Auditar la acción de actualización del estado de un tipo de usuario
@@ -0,0 +1,498 @@
+package com.api.api.service;
+
+import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditableAction;
+import com.api.api.audit.AuditableAction.AuditResultType;
+import com.api.api.dto.RequestDTO.UsuarioCreateRequestDTO;
+import com.api.api.dto.ResponseDTO.UsuarioImportErrorDTO;
+import com.api.api.dto.ResponseDTO.UsuarioImportResponseDTO;
+import com.api.api.dto.SimpleDTO.TipoUsuarioSimpleDTO;
+import com.api.api.exception.BadRequestException;
+import com.api.api.model.Usuarios;
+import com.api.api.repository.TipoUsuarioRepository;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.PermissionMatrix;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de usuarios desde CSV o NDJSON.
+ * El archivo se lee en streaming y se procesa por lotes:
+ * - Cada fila se valida con las mismas reglas que UsuarioCreateRequestDTO; los emails repetidos
+ *   dentro del archivo y los tipos de usuario inexistentes se rechazan sin tocar la base de datos.
+ * - Las contraseñas del lote se cifran en paralelo en un pool dedicado, separado del encoder
+ *   acotado del login para que una importación no compita con los inicios de sesión.
+ * - Cada lote se inserta con JDBC batch en una transacción corta; los emails ya registrados
+ *   se omiten con ON CONFLICT y se informan como filas rechazadas.
+ * Una fila inválida nunca aborta la importación: el resultado detalla qué filas se rechazaron.
+ */
+@Service
+public class UsuariosImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsuariosImportService.class);
+
+    public enum Formato {
+        CSV, NDJSON
+    }
+
+    private static final String INSERT_USUARIO_SQL = "INSERT INTO usuarios (id, nombres, apellidos, email, contrasena, estado, " +
+            "dos_factor_activo, intentos_fallidos_sesion, fecha_ultimo_cambio_contrasena, requiere_cambio_contrasena, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, FALSE, ?, ?) ON CONFLICT (email) DO NOTHING";
+
+    private static final String INSERT_TIPO_USUARIO_SQL = "INSERT INTO usuarios_tipo_usuario " +
+            "(id, usuario_id, tipo_usuario_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final Set<String> ESTADOS = Set.of("activo", "inactivo");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TipoUsuarioRepository tipoUsuarioRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EmailMembershipFilter emailMembershipFilter;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+    private final PermissionMatrix permissionMatrix;
+    // BCrypt sin el límite de concurrencia del login; el paralelismo lo acota hashExecutor
+    private final BCryptPasswordEncoder hashEncoder = new BCryptPasswordEncoder();
+    private final ExecutorService hashExecutor;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public UsuariosImportService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 TipoUsuarioRepository tipoUsuarioRepository,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 EmailMembershipFilter emailMembershipFilter,
+                                 EffectivePermissionsStore effectivePermissionsStore,
+                                 PermissionMatrix permissionMatrix,
+                                 @Value("${app.usuarios.import.batch-size:500}") int batchSize,
+                                 @Value("${app.usuarios.import.hash-parallelism:0}") int hashParallelism,
+                                 @Value("${app.usuarios.import.max-errors:1000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tipoUsuarioRepository = tipoUsuarioRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.emailMembershipFilter = emailMembershipFilter;
+        this.effectivePermissionsStore = effectivePermissionsStore;
+        this.permissionMatrix = permissionMatrix;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxErrors = maxErrors;
+
+        int threads = hashParallelism > 0 ? hashParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.hashExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "usuarios-import-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * Importa usuarios desde un archivo CSV (con encabezado) o NDJSON (un objeto por línea).
+     * Campos: nombres, apellidos, email, contrasena, estado, dosFactorActivo y tiposUsuario
+     * (IDs de tipo de usuario separados por ';' en CSV, o un arreglo en NDJSON).
+     * @param input Contenido del archivo; se lee en streaming.
+     * @param formato Formato del archivo.
+     * @return Resumen con la cantidad de usuarios creados y el detalle de las filas rechazadas.
+     */
+    // Auditar la importación masiva de usuarios
+    @AuditableAction(actionName = AuditActions.CREACION_USUARIO, message = "Se intentó importar usuarios de forma masiva.", auditResult = AuditResultType.BOTH)
+    public UsuarioImportResponseDTO importar(InputStream input, Formato formato) throws IOException {
+        Set<UUID> tiposValidos = new HashSet<>();
+        for (TipoUsuarioSimpleDTO tipo : tipoUsuarioRepository.findAllSelect()) {
+            tiposValidos.add(tipo.getId());
+        }
+
+        Resultado resultado = new Resultado(maxErrors);
+        Set<String> emailsVistos = new HashSet<>();
+        List<Pendiente> lote = new ArrayList<>(batchSize);
+        long inicio = System.nanoTime();
+
+        Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        FilaSource source = formato == Formato.CSV ? new CsvFilaSource(reader) : new NdjsonFilaSource(reader);
+        Fila fila;
+        while ((fila = source.next()) != null) {
+            resultado.totalFilas++;
+            Pendiente pendiente = validar(fila, tiposValidos, emailsVistos, resultado);
+            if (pendiente != null) {
+                lote.add(pendiente);
+                if (lote.size() >= batchSize) {
+                    procesarLote(lote, resultado);
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            procesarLote(lote, resultado);
+        }
+
+        logger.info("Importación de usuarios ({}): {} filas, {} creados, {} rechazados en {} ms.", formato,
+                resultado.totalFilas, resultado.creados, resultado.rechazados, (System.nanoTime() - inicio) / 1_000_000);
+        return resultado.toResponse();
+    }
+
+    // Valida una fila; devuelve null si se rechaza (el error queda registrado en el resultado)
+    private Pendiente validar(Fila fila, Set<UUID> tiposValidos, Set<String> emailsVistos, Resultado resultado) {
+        if (fila.error() != null) {
+            resultado.rechazar(fila.numero(), null, fila.error());
+            return null;
+        }
+        Map<String, String> valores = fila.valores();
+        UsuarioCreateRequestDTO datos = new UsuarioCreateRequestDTO(
+                trimToNull(valores.get("nombres")),
+                trimToNull(valores.get("apellidos")),
+                Usuarios.normalizarEmail(trimToNull(valores.get("email"))),
+                valores.get("contrasena"),
+                trimToNull(valores.get("estado")),
+                Boolean.parseBoolean(trimToNull(valores.get("dosFactorActivo"))));
+
+        Set<ConstraintViolation<UsuarioCreateRequestDTO>> violaciones = validator.validate(datos);
+        if (!violaciones.isEmpty()) {
+            String mensaje = violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            resultado.rechazar(fila.numero(), datos.getEmail(), mensaje);
+            return null;
+        }
+        if (!ESTADOS.contains(datos.getEstado())) {
+            resultado.rechazar(fila.numero(), datos.getEmail(), "El estado debe ser 'activo' o 'inactivo'");
+            return null;
+        }
+        if (!emailsVistos.add(datos.getEmail())) {
+            resultado.rechazar(fila.numero(), datos.getEmail(), "El email está repetido en el archivo");
+            return null;
+        }
+
+        List<UUID> tipos = new ArrayList<>();
+        String tiposTexto = trimToNull(valores.get("tiposUsuario"));
+        if (tiposTexto != null) {
+            for (String parte : tiposTexto.split(";")) {
+                if (parte.isBlank()) {
+                    continue;
+                }
+                UUID tipoId;
+                try {
+                    tipoId = UUID.fromString(parte.trim());
+                } catch (IllegalArgumentException e) {
+                    resultado.rechazar(fila.numero(), datos.getEmail(), "ID de tipo de usuario inválido: " + parte.trim());
+                    return null;
+                }
+                if (!tiposValidos.contains(tipoId)) {
+                    resultado.rechazar(fila.numero(), datos.getEmail(), "Tipo de usuario no encontrado: " + tipoId);
+                    return null;
+                }
+                if (!tipos.contains(tipoId)) {
+                    tipos.add(tipoId);
+                }
+            }
+        }
+        return new Pendiente(fila.numero(), datos, tipos);
+    }
+
+    // Cifra las contraseñas del lote en paralelo y lo inserta en una sola transacción
+    private void procesarLote(List<Pendiente> lote, Resultado resultado) {
+        List<String> hashes = cifrarContrasenas(lote);
+        OffsetDateTime ahora = OffsetDateTime.now();
+
+        List<Object[]> usuarios = new ArrayList<>(lote.size());
+        List<UUID> ids = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            UsuarioCreateRequestDTO datos = lote.get(i).datos();
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            usuarios.add(new Object[]{id, datos.getNombres(), datos.getApellidos(), datos.getEmail(), hashes.get(i),
+                    datos.getEstado(), datos.isDosFactorActivo(), ahora, ahora, ahora});
+        }
+
+        try {
+            int[] filas = transactionTemplate.execute(status -> {
+                int[] insertadas = jdbcTemplate.batchUpdate(INSERT_USUARIO_SQL, usuarios);
+                List<Object[]> asignaciones = new ArrayList<>();
+                List<EffectivePermissionsStore.Asignacion> pares = new ArrayList<>();
+                for (int i = 0; i < lote.size(); i++) {
+                    if (insertadas[i] == 0) {
+                        continue;
+                    }
+                    for (UUID tipoId : lote.get(i).tipos()) {
+                        asignaciones.add(new Object[]{UUID.randomUUID(), ids.get(i), tipoId, ahora, ahora});
+                        pares.add(new EffectivePermissionsStore.Asignacion(ids.get(i), tipoId));
+                    }
+                }
+                if (!asignaciones.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_TIPO_USUARIO_SQL, asignaciones);
+                    // Delta de usuario_permisos_efectivos en la misma transacción del lote
+                    effectivePermissionsStore.agregarAsignaciones(pares);
+                }
+                return insertadas;
+            });
+            List<UUID> conTipos = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                if (filas[i] == 0) {
+                    // ON CONFLICT (email) DO NOTHING: el email ya estaba registrado
+                    resultado.rechazar(lote.get(i).fila(), lote.get(i).datos().getEmail(), "El email ya está registrado");
+                } else {
+                    resultado.creados++;
+                    emailMembershipFilter.add(lote.get(i).datos().getEmail());
+                    if (!lote.get(i).tipos().isEmpty()) {
+                        conTipos.add(ids.get(i));
+                    }
+                }
+            }
+            // Tipos de usuario de los usuarios creados en el modelo compilado de permisos
+            permissionMatrix.actualizarUsuarios(conTipos);
+        } catch (DataAccessException e) {
+            logger.error("Error al insertar un lote de {} usuarios importados: {}", lote.size(), e.getMessage(), e);
+            for (Pendiente pendiente : lote) {
+                resultado.rechazar(pendiente.fila(), pendiente.datos().getEmail(), "No se pudo insertar el lote de la fila");
+            }
+        }
+    }
+
+    private List<String> cifrarContrasenas(List<Pendiente> lote) {
+        List<Callable<String>> tareas = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            String contrasena = pendiente.datos().getContrasena();
+            tareas.add(() -> hashEncoder.encode(contrasena));
+        }
+        try {
+            List<String> hashes = new ArrayList<>(lote.size());
+            for (Future<String> future : hashExecutor.invokeAll(tareas)) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación de usuarios interrumpida.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al cifrar las contraseñas de la importación.", e.getCause());
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // Fila leída del archivo: valores por nombre de campo, o el error de lectura
+    record Fila(long numero, Map<String, String> valores, String error) {
+    }
+
+    private record Pendiente(long fila, UsuarioCreateRequestDTO datos, List<UUID> tipos) {
+    }
+
+    interface FilaSource {
+        Fila next() throws IOException;
+    }
+
+    // CSV según RFC 4180; la primera línea es el encabezado con los nombres de campo
+    static final class CsvFilaSource implements FilaSource {
+        private static final int NINGUNO = -2;
+
+        private final Reader reader;
+        private final List<String> encabezado;
+        private int pendiente = NINGUNO;
+        private long numero = 0;
+
+        CsvFilaSource(Reader reader) throws IOException {
+            this.reader = reader;
+            List<String> campos = readRecord();
+            if (campos == null) {
+                throw new BadRequestException("El archivo CSV está vacío.");
+            }
+            this.encabezado = campos.stream().map(String::trim).toList();
+            if (!encabezado.contains("email")) {
+                throw new BadRequestException("El encabezado del CSV debe incluir la columna 'email'.");
+            }
+        }
+
+        @Override
+        public Fila next() throws IOException {
+            List<String> campos;
+            do {
+                campos = readRecord();
+                if (campos == null) {
+                    return null;
+                }
+                numero++;
+            } while (campos.size() == 1 && campos.get(0).isBlank());
+
+            if (campos.size() != encabezado.size()) {
+                return new Fila(numero, null, "La fila tiene " + campos.size() + " columnas; se esperaban " + encabezado.size());
+            }
+            Map<String, String> valores = new HashMap<>();
+            for (int i = 0; i < campos.size(); i++) {
+                valores.put(encabezado.get(i), campos.get(i));
+            }
+            return new Fila(numero, valores, null);
+        }
+
+        // Lee un registro completo; los campos entre comillas pueden contener comas y saltos de línea
+        private List<String> readRecord() throws IOException {
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            boolean leido = false;
+            int c;
+            while ((c = read()) != -1) {
+                leido = true;
+                if (entreComillas) {
+                    if (c == '"') {
+                        int siguiente = read();
+                        if (siguiente == '"') {
+                            campo.append('"');
+                        } else {
+                            entreComillas = false;
+                            pendiente = siguiente;
+                        }
+                    } else {
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.length() == 0) {
+                    entreComillas = true;
+                } else if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\r') {
+                    int siguiente = read();
+                    if (siguiente != '\n') {
+                        pendiente = siguiente;
+                    }
+                    break;
+                } else if (c == '\n') {
+                    break;
+                } else {
+                    campo.append((char) c);
+                }
+            }
+            if (!leido) {
+                return null;
+            }
+            campos.add(campo.toString());
+            return campos;
+        }
+
+        private int read() throws IOException {
+            if (pendiente != NINGUNO) {
+                int c = pendiente;
+                pendiente = NINGUNO;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+
+    // NDJSON: cada línea se interpreta por separado, así una línea mal formada solo rechaza esa fila
+    private final class NdjsonFilaSource implements FilaSource {
+        private final BufferedReader reader;
+        private long numero = 0;
+
+        NdjsonFilaSource(Reader reader) {
+            this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        }
+
+        @Override
+        public Fila next() throws IOException {
+            String linea;
+            do {
+                linea = reader.readLine();
+                if (linea == null) {
+                    return null;
+                }
+                numero++;
+            } while (linea.isBlank());
+
+            JsonNode nodo;
+            try {
+                nodo = objectMapper.readTree(linea);
+            } catch (JsonProcessingException e) {
+                return new Fila(numero, null, "JSON inválido: " + e.getOriginalMessage());
+            }
+            if (nodo == null || !nodo.isObject()) {
+                return new Fila(numero, null, "Cada línea debe contener un objeto JSON");
+            }
+            Map<String, String> valores = new HashMap<>();
+            nodo.fields().forEachRemaining(entry -> {
+                JsonNode valor = entry.getValue();
+                if (valor.isArray()) {
+                    List<String> partes = new ArrayList<>();
+                    valor.forEach(item -> partes.add(item.asText()));
+                    valores.put(entry.getKey(), String.join(";", partes));
+                } else if (!valor.isNull()) {
+                    valores.put(entry.getKey(), valor.asText());
+                }
+            });
+            return new Fila(numero, valores, null);
+        }
+    }
+
+    // Acumulador del resultado; la lista de errores se limita a maxErrors entradas
+    private static final class Resultado {
+        private final int maxErrors;
+        private final List<UsuarioImportErrorDTO> errores = new ArrayList<>();
+        private long totalFilas;
+        private long creados;
+        private long rechazados;
+
+        Resultado(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void rechazar(long fila, String email, String mensaje) {
+            rechazados++;
+            if (errores.size() < maxErrors) {
+                errores.add(new UsuarioImportErrorDTO(fila, email, mensaje));
+            }
+        }
+
+        UsuarioImportResponseDTO toResponse() {
+            errores.sort((a, b) -> Long.compare(a.getFila(), b.getFila()));
+            return new UsuarioImportResponseDTO(totalFilas, creados, rechazados, errores, rechazados > errores.size());
+        }
+    }
+}
@@ -8,10 +8,16 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.security.PrincipalCache;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
 
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.time.OffsetDateTime;
@@ -22,10 +28,20 @@ public class UsuariosService {
 
     private final UsuariosRepository usuariosRepository;
     private final PasswordEncoder passwordEncoder;
-
-    public UsuariosService(UsuariosRepository usuariosRepository, PasswordEncoder passwordEncoder) {
+    private final PrincipalCache principalCache;
+    private final EmailMembershipFilter emailMembershipFilter;
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+
+    public UsuariosService(UsuariosRepository usuariosRepository, PasswordEncoder passwordEncoder,
+            PrincipalCache principalCache, EmailMembershipFilter emailMembershipFilter,
+            PermissionMatrix permissionMatrix, EffectivePermissionsStore effectivePermissionsStore) {
         this.usuariosRepository = usuariosRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
+        this.emailMembershipFilter = emailMembershipFilter;
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
     }
 
     // Auditar la acción de búsqueda de todos los usuarios
@@ -45,7 +61,7 @@ public class UsuariosService {
         if (searchTerm != null && !searchTerm.isEmpty()) {
             return usuariosRepository.searchAllFields(searchTerm.toLowerCase(), pageable);
         }
-        return usuariosRepository.findAll(pageable);
+        return usuariosRepository.findAllNoEliminados(pageable);
     }
 
     // Auditar la acción de búsqueda de un usuario por su ID
@@ -59,6 +75,7 @@ public class UsuariosService {
     @AuditableAction(actionName = AuditActions.CREACION_USUARIO, message = "Se intentó crear un nuevo usuario.", auditResult = AuditResultType.BOTH)
     // Crear un nuevo usuario
     public Usuarios create(Usuarios usuario) {
+        usuario.setEmail(Usuarios.normalizarEmail(usuario.getEmail()));
         // Encriptar la contraseña antes de guardar
         if (usuario.getContrasena() != null && !usuario.getContrasena().isEmpty()) {
             usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
@@ -67,7 +84,9 @@ public class UsuariosService {
         usuario.setFechaUltimoCambioContrasena(OffsetDateTime.now()); 
         usuario.setRequiereCambioContrasena(false); 
         usuario.setIntentosFallidosSesion(0);
-        return usuariosRepository.save(usuario);
+        Usuarios creado = usuariosRepository.save(usuario);
+        emailMembershipFilter.add(creado.getEmail());
+        return creado;
     }
 
     // Auditar la creación de múltiples usuarios
@@ -75,6 +94,7 @@ public class UsuariosService {
     // Crear múltiples usuarios
     public List<Usuarios> createAll(List<Usuarios> usuarios) {
         for (Usuarios usuario : usuarios) {
+            usuario.setEmail(Usuarios.normalizarEmail(usuario.getEmail()));
             if (usuario.getContrasena() != null && !usuario.getContrasena().isEmpty()) {
                 usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
             }
@@ -82,24 +102,38 @@ public class UsuariosService {
             usuario.setRequiereCambioContrasena(false);
             usuario.setIntentosFallidosSesion(0);
         }
-        return usuariosRepository.saveAll(usuarios);
+        List<Usuarios> creados = usuariosRepository.saveAll(usuarios);
+        creados.forEach(creado -> emailMembershipFilter.add(creado.getEmail()));
+        return creados;
     }
 
     // Auditar la acción de actualización de un usuario existente
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_USUARIO, message = "Se intentó actualizar un usuario.", auditResult = AuditResultType.BOTH)
     // Actualizar un usuario existente
+    @Transactional
     public Optional<Usuarios> update(UUID id, Usuarios usuarioActualizado) {
         return usuariosRepository.findById(id).map(usuarioExistente -> {
+            String estadoAnterior = usuarioExistente.getEstado();
             usuarioExistente.setNombres(usuarioActualizado.getNombres());
             usuarioExistente.setApellidos(usuarioActualizado.getApellidos());
-            usuarioExistente.setEmail(usuarioActualizado.getEmail());
+            usuarioExistente.setEmail(Usuarios.normalizarEmail(usuarioActualizado.getEmail()));
             usuarioExistente.setEstado(usuarioActualizado.getEstado());
             usuarioExistente.setDosFactorActivo(usuarioActualizado.isDosFactorActivo());
             usuarioExistente.setIntentosFallidosSesion(usuarioActualizado.getIntentosFallidosSesion());
             usuarioExistente.setFechaUltimoIntentoFallido(usuarioActualizado.getFechaUltimoIntentoFallido());
             usuarioExistente.setFechaBloqueoSesion(usuarioActualizado.getFechaBloqueoSesion());
             usuarioExistente.setRequiereCambioContrasena(usuarioActualizado.isRequiereCambioContrasena());
-            return usuariosRepository.save(usuarioExistente);
+            Usuarios guardado = usuariosRepository.saveAndFlush(usuarioExistente);
+            if (!Objects.equals(estadoAnterior, guardado.getEstado())) {
+                // Solo los usuarios activos tienen permisos efectivos (en la misma transacción)
+                effectivePermissionsStore.recalcularUsuarios(List.of(id));
+            }
+            principalCache.invalidate(id);
+            // Un usuario inactivo no conserva sus permisos en el modelo compilado
+            permissionMatrix.actualizarUsuario(id);
+            // El email anterior permanece en el filtro hasta su próxima reconstrucción
+            emailMembershipFilter.add(guardado.getEmail());
+            return guardado;
         });
     }
 
@@ -108,15 +142,22 @@ public class UsuariosService {
     // Eliminar definitivamente un usuario por su ID
     public void deleteById(UUID id) {
         usuariosRepository.deleteById(id);
+        principalCache.invalidate(id);
+        permissionMatrix.actualizarUsuario(id);
     }
 
     // Auditar la acción de actualización de eliminación lógica de un usuario
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_USUARIO, message = "Se intentó eliminar lógicamente un usuario.")
     // Eliminar lógicamente un usuario por su ID
+    @Transactional
     public Optional<Usuarios> softDelete(UUID id) {
         return usuariosRepository.findById(id).map(usuario -> {
             usuario.softDelete();
-            return usuariosRepository.save(usuario);
+            Usuarios eliminado = usuariosRepository.saveAndFlush(usuario);
+            effectivePermissionsStore.recalcularUsuarios(List.of(id));
+            principalCache.invalidate(id);
+            permissionMatrix.actualizarUsuario(id);
+            return eliminado;
         });
     }
 
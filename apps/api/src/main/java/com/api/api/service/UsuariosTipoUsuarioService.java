@@ -14,9 +14,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.security.PrincipalCache;
 import com.api.api.audit.AuditableAction;
 import com.api.api.audit.AuditableAction.AuditResultType;
 import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditScope;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -32,13 +37,25 @@ public class UsuariosTipoUsuarioService {
     private final UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository;
     private final AplicacionesService aplicacionesService;
     private final PermisosTipoUsuarioService permisosTipoUsuarioService;
+    private final PrincipalCache principalCache;
+    private final PermissionMatrix permissionMatrix;
+    private final EffectivePermissionsStore effectivePermissionsStore;
+    private final TransactionTemplate transactionTemplate;
 
     public UsuariosTipoUsuarioService(UsuariosTipoUsuarioRepository usuariosTipoUsuarioRepository,
             AplicacionesService aplicacionesService,
-            PermisosTipoUsuarioService permisosTipoUsuarioService) {
+            PermisosTipoUsuarioService permisosTipoUsuarioService,
+            PrincipalCache principalCache,
+            PermissionMatrix permissionMatrix,
+            EffectivePermissionsStore effectivePermissionsStore,
+            TransactionTemplate transactionTemplate) {
         this.usuariosTipoUsuarioRepository = usuariosTipoUsuarioRepository;
         this.aplicacionesService = aplicacionesService;
         this.permisosTipoUsuarioService = permisosTipoUsuarioService;
+        this.principalCache = principalCache;
+        this.permissionMatrix = permissionMatrix;
+        this.effectivePermissionsStore = effectivePermissionsStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // Auditar la acción de búsqueda de todos los usuarios tipo usuario
@@ -63,42 +80,78 @@ public class UsuariosTipoUsuarioService {
     @AuditableAction(actionName = AuditActions.CREACION_TIPO_USUARIO, message = "Se intentó crear un nuevo usuario tipo usuario.")
     // Crear uno nuevo
     public UsuariosTipoUsuario create(UsuariosTipoUsuario usuarioTipoUsuario) {
-        return usuariosTipoUsuarioRepository.save(usuarioTipoUsuario);
+        // La asignación y su delta en usuario_permisos_efectivos se confirman en la misma transacción
+        UsuariosTipoUsuario guardado = transactionTemplate.execute(status -> {
+            UsuariosTipoUsuario nuevo = usuariosTipoUsuarioRepository.save(usuarioTipoUsuario);
+            effectivePermissionsStore.agregarAsignacion(usuarioIdDe(nuevo), tipoUsuarioIdDe(nuevo));
+            return nuevo;
+        });
+        invalidarUsuario(usuarioIdDe(guardado));
+        return guardado;
     }
 
     // Auditar la acción de creación de múltiples usuarios tipo usuario
     @AuditableAction(actionName = AuditActions.CREACION_TIPO_USUARIO, message = "Se intentó crear múltiples usuarios tipo usuario.")
     // Crear múltiples
     public List<UsuariosTipoUsuario> createAll(List<UsuariosTipoUsuario> lista) {
-        return usuariosTipoUsuarioRepository.saveAll(lista);
+        List<UsuariosTipoUsuario> guardados = transactionTemplate.execute(status -> {
+            List<UsuariosTipoUsuario> nuevos = usuariosTipoUsuarioRepository.saveAll(lista);
+            nuevos.forEach(nuevo -> effectivePermissionsStore.agregarAsignacion(usuarioIdDe(nuevo), tipoUsuarioIdDe(nuevo)));
+            return nuevos;
+        });
+        guardados.stream().map(this::usuarioIdDe).distinct().forEach(this::invalidarUsuario);
+        return guardados;
     }
 
     // Auditar la acción de actualización de un usuario tipo usuario
     @AuditableAction(actionName = AuditActions.ACTUALIZACION_TIPO_USUARIO, message = "Se intentó actualizar un usuario tipo usuario existente.")
     // Actualizar existente
     public Optional<UsuariosTipoUsuario> update(UUID id, UsuariosTipoUsuario actualizado) {
-        return usuariosTipoUsuarioRepository.findById(id).map(usuTipoUsu -> {
-            usuTipoUsu.setUsuario(actualizado.getUsuario());
-            usuTipoUsu.setTipoUsuario(actualizado.getTipoUsuario());
-            return usuariosTipoUsuarioRepository.save(usuTipoUsu);
+        UUID[] usuarioAnteriorId = new UUID[1];
+        Optional<UsuariosTipoUsuario> resultado = transactionTemplate.execute(status ->
+                usuariosTipoUsuarioRepository.findById(id).map(usuTipoUsu -> {
+                    usuarioAnteriorId[0] = usuarioIdDe(usuTipoUsu);
+                    effectivePermissionsStore.quitarAsignacion(usuarioAnteriorId[0], tipoUsuarioIdDe(usuTipoUsu));
+                    usuTipoUsu.setUsuario(actualizado.getUsuario());
+                    usuTipoUsu.setTipoUsuario(actualizado.getTipoUsuario());
+                    UsuariosTipoUsuario guardado = usuariosTipoUsuarioRepository.save(usuTipoUsu);
+                    effectivePermissionsStore.agregarAsignacion(usuarioIdDe(guardado), tipoUsuarioIdDe(guardado));
+                    return guardado;
+                }));
+        resultado.ifPresent(guardado -> {
+            invalidarUsuario(usuarioAnteriorId[0]);
+            invalidarUsuario(usuarioIdDe(guardado));
         });
+        return resultado;
     }
 
     // Auditar la acción de eliminación de un usuario tipo usuario por ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_DEFINITIVA_TIPO_USUARIO, message = "Se intentó eliminar un usuario tipo usuario por su ID.")
     // Eliminar definitivamente por ID
     public void deleteById(UUID id) {
-        usuariosTipoUsuarioRepository.deleteById(id);
+        UUID usuarioId = transactionTemplate.execute(status -> {
+            UUID anteriorId = usuariosTipoUsuarioRepository.findById(id).map(usuTipoUsu -> {
+                effectivePermissionsStore.quitarAsignacion(usuarioIdDe(usuTipoUsu), tipoUsuarioIdDe(usuTipoUsu));
+                return usuarioIdDe(usuTipoUsu);
+            }).orElse(null);
+            usuariosTipoUsuarioRepository.deleteById(id);
+            return anteriorId;
+        });
+        invalidarUsuario(usuarioId);
     }
 
     // Auditar la acción de eliminación lógica de un usuario tipo usuario por ID
     @AuditableAction(actionName = AuditActions.ELIMINACION_LOGICA_TIPO_USUARIO, message = "Se intentó eliminar lógicamente un usuario tipo usuario por su ID.")
     // Eliminar lógicamente por ID
     public Optional<UsuariosTipoUsuario> softDelete(UUID id) {
-        return usuariosTipoUsuarioRepository.findById(id).map(usuTipoUsu -> {
-            usuTipoUsu.softDelete();
-            return usuariosTipoUsuarioRepository.save(usuTipoUsu);
-        });
+        Optional<UsuariosTipoUsuario> eliminado = transactionTemplate.execute(status ->
+                usuariosTipoUsuarioRepository.findById(id).map(usuTipoUsu -> {
+                    usuTipoUsu.softDelete();
+                    effectivePermissionsStore.quitarAsignacion(usuarioIdDe(usuTipoUsu), tipoUsuarioIdDe(usuTipoUsu));
+                    return usuariosTipoUsuarioRepository.save(usuTipoUsu);
+                }));
+        eliminado.ifPresent(usuTipoUsu -> invalidarUsuario(usuarioIdDe(usuTipoUsu)));
+        return eliminado;
     }
 
     // Auditar la acción de busqueda de usuarios tipo usuario por usuario ID
@@ -177,6 +230,44 @@ public class UsuariosTipoUsuarioService {
                 .collect(Collectors.toList());
     }
 
+    // Auditar la consulta del menú de permisos (alcance interno: las aplicaciones la invocan en cada carga de página)
+    @AuditableAction(actionName = AuditActions.CONSULTA_PERMISOS_USUARIO_APLICACION_SECCION, message = "Se intentó obtener el menú de permisos de un usuario en una aplicación específica.", auditResult = AuditResultType.BOTH, scope = AuditScope.INTERNAL)
+    /**
+     * Obtiene los permisos agrupados por sección desde el modelo compilado de permisos, con su ETag.
+     * El árbol se compila una vez por combinación de tipos de usuario; mientras el modelo no esté
+     * listo se calcula desde la base de datos.
+     *
+     * @param userId El UUID del usuario.
+     * @param applicationIdentifier La llave identificadora de la aplicación.
+     * @return Menú con las secciones, su ETag y la versión del modelo de permisos.
+     * @throws ResourceNotFoundException si la aplicación no es encontrada.
+     */
+    public PermissionMatrix.MenuPermisos getMenuPermisos(UUID userId, String applicationIdentifier) {
+        if (permissionMatrix.isReady()) {
+            if (!permissionMatrix.existeAplicacion(applicationIdentifier)) {
+                throw new ResourceNotFoundException("Aplicación no encontrada con identificador: " + applicationIdentifier);
+            }
+            return permissionMatrix.menu(userId, applicationIdentifier);
+        }
+        List<SeccionPermisosDTO> secciones = getPermissionsForUserAndApplicationGroupedBySection(userId, applicationIdentifier);
+        return new PermissionMatrix.MenuPermisos(secciones, PermissionMatrix.etag(secciones), permissionMatrix.getVersion());
+    }
+
+    // Invalida el principal en caché del usuario y recarga sus tipos de usuario en el modelo de permisos
+    private void invalidarUsuario(UUID usuarioId) {
+        principalCache.invalidate(usuarioId);
+        permissionMatrix.actualizarUsuario(usuarioId);
+    }
+
+    // Obtiene el ID del usuario de una asignación (puede ser nulo si la asignación no tiene usuario)
+    private UUID usuarioIdDe(UsuariosTipoUsuario usuarioTipoUsuario) {
+        return usuarioTipoUsuario.getUsuario() != null ? usuarioTipoUsuario.getUsuario().getId() : null;
+    }
+
+    private UUID tipoUsuarioIdDe(UsuariosTipoUsuario usuarioTipoUsuario) {
+        return usuarioTipoUsuario.getTipoUsuario() != null ? usuarioTipoUsuario.getTipoUsuario().getId() : null;
+    }
+
     // Método para buscar usuarios tipo usuario por ID de tipo de usuario y ID de usuario
     public List<UsuariosTipoUsuario> findByTipoUsuarioIdAndUsuarioId(UUID tipoUsuarioId, UUID usuarioId) {
         return usuariosTipoUsuarioRepository.findByTipoUsuarioIdAndUsuarioId(tipoUsuarioId, usuarioId);
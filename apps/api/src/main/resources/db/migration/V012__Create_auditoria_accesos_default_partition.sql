@@ -0,0 +1,5 @@
+-- Partición DEFAULT de auditoria_accesos
+-- Red de seguridad para que los INSERT no fallen si aún no existe la partición del periodo.
+-- Las particiones por rango (diarias o mensuales) las crea y elimina AuditPartitionManager;
+-- al crear una partición, las filas de su rango que estén en la DEFAULT se mueven a ella.
+CREATE TABLE IF NOT EXISTS auditoria_accesos_default PARTITION OF auditoria_accesos DEFAULT;
@@ -0,0 +1,6 @@
+-- Índices para la paginación por keyset de auditoria_accesos
+-- Las consultas por cursor ordenan por (fecha DESC, id DESC) y filtran por la tupla (fecha, id),
+-- por lo que cada página es un recorrido de índice acotado por partición, sin OFFSET ni COUNT(*).
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_fecha_id ON auditoria_accesos (fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_aplicacion_fecha_id ON auditoria_accesos (aplicacion_id, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_accion_fecha_id ON auditoria_accesos (accion_id, fecha DESC, id DESC);
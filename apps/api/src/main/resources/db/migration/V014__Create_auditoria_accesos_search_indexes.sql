@@ -0,0 +1,4 @@
+-- Índices para la búsqueda multicriterio de auditoria_accesos
+-- La búsqueda siempre filtra por una ventana de fecha; cada filtro opcional se apoya en un índice
+-- (columna, fecha DESC). Usuario, aplicación y estado ya están cubiertos por V010 y la acción por V013.
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_ip_origen_fecha ON auditoria_accesos (ip_origen, fecha DESC);
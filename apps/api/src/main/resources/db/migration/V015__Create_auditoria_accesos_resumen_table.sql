@@ -0,0 +1,29 @@
+-- Crear tabla de resumen de auditoría (contadores preagregados para el dashboard)
+-- Se mantiene de forma incremental desde el escritor por lotes de auditoría (AuditRollupWriter),
+-- en la misma transacción que inserta los eventos. Los periodos se truncan en UTC.
+CREATE TABLE IF NOT EXISTS auditoria_accesos_resumen (
+    granularidad VARCHAR(6) NOT NULL CHECK (granularidad IN ('minuto', 'hora', 'dia')),
+    periodo TIMESTAMP WITH TIME ZONE NOT NULL, -- Inicio del minuto, hora o día (UTC)
+    aplicacion_id UUID NOT NULL,
+    accion_id UUID NOT NULL,
+    exitosos BIGINT NOT NULL DEFAULT 0,
+    fallidos BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, aplicacion_id, accion_id)
+);
+
+-- Consultas del dashboard filtradas por aplicación o acción dentro de una ventana
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_resumen_aplicacion ON auditoria_accesos_resumen (granularidad, aplicacion_id, periodo);
+CREATE INDEX IF NOT EXISTS idx_auditoria_accesos_resumen_accion ON auditoria_accesos_resumen (granularidad, accion_id, periodo);
+
+-- Carga inicial a partir de los registros de auditoría existentes
+INSERT INTO auditoria_accesos_resumen (granularidad, periodo, aplicacion_id, accion_id, exitosos, fallidos)
+SELECT g.granularidad,
+       date_trunc(g.unidad, a.fecha AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       a.aplicacion_id,
+       a.accion_id,
+       COUNT(*) FILTER (WHERE a.estado = 'exitoso'),
+       COUNT(*) FILTER (WHERE a.estado = 'fallido')
+FROM auditoria_accesos a
+CROSS JOIN (VALUES ('minuto', 'minute'), ('hora', 'hour'), ('dia', 'day')) AS g(granularidad, unidad)
+GROUP BY 1, 2, 3, 4
+ON CONFLICT (granularidad, periodo, aplicacion_id, accion_id) DO NOTHING;
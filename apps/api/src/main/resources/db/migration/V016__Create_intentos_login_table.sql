@@ -0,0 +1,13 @@
+-- Crear tabla de contadores de intentos de login (LoginThrottle con app.security.login-throttle.store=jdbc)
+-- Una fila por clave (email o IP) y ventana fija; la ventana es el número de ventana desde epoch
+-- (epoch_ms / duración de la ventana). Los intentos fallidos ya no escriben en usuarios.
+CREATE TABLE IF NOT EXISTS intentos_login (
+    clave VARCHAR(320) NOT NULL, -- 'email:<email normalizado>' o 'ip:<dirección>'
+    ventana BIGINT NOT NULL,
+    intentos INT NOT NULL DEFAULT 0,
+    actualizado TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (clave, ventana)
+);
+
+-- Depuración de ventanas vencidas
+CREATE INDEX IF NOT EXISTS idx_intentos_login_ventana ON intentos_login (ventana);
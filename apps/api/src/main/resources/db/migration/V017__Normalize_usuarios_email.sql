@@ -0,0 +1,30 @@
+-- Normalizar usuarios.email (sin espacios y en minúsculas)
+-- UsuariosService guarda el email normalizado y UsuariosRepository.findByEmail busca por igualdad,
+-- de modo que la consulta usa el índice único de la columna en lugar de LOWER(email), que obligaba
+-- a recorrer la tabla en cada login.
+-- La normalización es la misma que Usuarios.normalizarEmail: quita solo espacios (U+0020) al inicio y
+-- al final y pasa a minúsculas solo A-Z. LOWER con COLLATE "C" convierte únicamente letras ASCII, sin
+-- depender de la intercalación de la base de datos.
+
+-- Emails que colisionan al normalizarse: deben resolverse manualmente antes de aplicar la migración
+DO $$
+DECLARE
+    duplicados TEXT;
+BEGIN
+    SELECT string_agg(normalizado, ', ') INTO duplicados
+    FROM (
+        SELECT LOWER(BTRIM(email, ' ') COLLATE "C") AS normalizado
+        FROM usuarios
+        GROUP BY LOWER(BTRIM(email, ' ') COLLATE "C")
+        HAVING COUNT(*) > 1
+    ) d;
+    IF duplicados IS NOT NULL THEN
+        RAISE EXCEPTION 'Emails duplicados sin distinguir mayúsculas en usuarios: %', duplicados;
+    END IF;
+END $$;
+
+UPDATE usuarios SET email = LOWER(BTRIM(email, ' ') COLLATE "C") WHERE email <> LOWER(BTRIM(email, ' ') COLLATE "C");
+
+-- Garantiza que toda escritura futura guarde el email normalizado
+ALTER TABLE usuarios DROP CONSTRAINT IF EXISTS chk_usuarios_email_normalizado;
+ALTER TABLE usuarios ADD CONSTRAINT chk_usuarios_email_normalizado CHECK (email = LOWER(BTRIM(email, ' ') COLLATE "C"));
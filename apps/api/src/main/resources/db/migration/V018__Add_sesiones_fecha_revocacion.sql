@@ -0,0 +1,12 @@
+-- Momento de la revocación de una sesión, con el reloj de la base de datos
+-- TokenRevocationIndex consulta periódicamente las sesiones revocadas desde la última sincronización.
+-- fecha_fin la puede enviar el cliente (actualización de sesiones), por lo que no sirve para que
+-- TokenRevocationIndex sincronice las revocaciones entre nodos. SesionesService y SessionExpirySweeper
+-- asignan now() en cada paso a un estado distinto de 'activa' o eliminación lógica.
+ALTER TABLE sesiones ADD COLUMN IF NOT EXISTS fecha_revocacion TIMESTAMP WITH TIME ZONE;
+
+UPDATE sesiones
+SET fecha_revocacion = COALESCE(fecha_fin, now())
+WHERE fecha_revocacion IS NULL AND (estado <> 'activa' OR deleted_at IS NOT NULL);
+
+CREATE INDEX IF NOT EXISTS idx_sesiones_fecha_revocacion ON sesiones (fecha_revocacion) WHERE fecha_revocacion IS NOT NULL;
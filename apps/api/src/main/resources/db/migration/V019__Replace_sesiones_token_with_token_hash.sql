@@ -0,0 +1,13 @@
+-- Reemplazar sesiones.token (JWT completo, VARCHAR(255) UNIQUE) por un hash de tamaño fijo
+-- Los tokens incluyen el ID de la sesión como claim 'jti', por lo que el cierre de sesión, la
+-- revocación y las búsquedas de sesiones usan la clave primaria; el índice único sobre el token
+-- completo deja de ser necesario.
+-- Los tokens emitidos antes de esta migración no tienen 'jti' y dejan de aceptarse.
+ALTER TABLE sesiones ADD COLUMN IF NOT EXISTS token_hash CHAR(64);
+
+UPDATE sesiones
+SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex')
+WHERE token_hash IS NULL;
+
+-- Elimina también la restricción UNIQUE y su índice
+ALTER TABLE sesiones DROP COLUMN IF EXISTS token;
@@ -0,0 +1,19 @@
+-- Búsqueda por subcadena de usuarios y sesiones con índices de trigramas (pg_trgm)
+-- Cada tabla tiene una columna generada "busqueda" con los campos buscables ya en minúsculas;
+-- un índice GIN de trigramas sobre ella resuelve LIKE '%termino%' sin recorrer la tabla y
+-- permite ordenar por relevancia con word_similarity().
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS busqueda TEXT GENERATED ALWAYS AS (
+    lower(nombres || ' ' || apellidos || ' ' || email || ' ' || coalesce(estado, ''))
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_usuarios_busqueda_trgm ON usuarios
+    USING GIN (busqueda gin_trgm_ops) WHERE deleted_at IS NULL;
+
+ALTER TABLE sesiones ADD COLUMN IF NOT EXISTS busqueda TEXT GENERATED ALWAYS AS (
+    lower(email_usuario || ' ' || ip_origen || ' ' || coalesce(informacion_dispositivo, '') || ' ' || estado)
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_sesiones_busqueda_trgm ON sesiones
+    USING GIN (busqueda gin_trgm_ops) WHERE deleted_at IS NULL;
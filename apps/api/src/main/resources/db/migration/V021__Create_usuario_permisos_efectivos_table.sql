@@ -0,0 +1,33 @@
+-- Crear tabla materializada de permisos efectivos (EffectivePermissionsStore)
+-- Una fila por (usuario, aplicación, acción) que el usuario puede ejecutar a través de alguno de sus
+-- tipos de usuario (solo usuarios activos y no eliminados). 'origenes' cuenta los pares (asignación activa, permiso activo) que otorgan la
+-- acción, de modo que quitar un tipo de usuario o un permiso solo elimina la fila cuando llega a 0.
+-- Se mantiene con deltas en la misma transacción que los cambios en usuarios_tipo_usuario y
+-- permisos_tipo_usuario. El ID de la acción ya determina su aplicación, por lo que la clave primaria
+-- (usuario, acción) resuelve cada consulta de autorización con una sola búsqueda en el índice.
+CREATE TABLE IF NOT EXISTS usuario_permisos_efectivos (
+    usuario_id UUID NOT NULL REFERENCES usuarios(id) ON DELETE CASCADE,
+    aplicacion_id UUID REFERENCES aplicaciones(id) ON DELETE CASCADE, -- copia de acciones.aplicacion_id
+    accion_id UUID NOT NULL REFERENCES acciones(id) ON DELETE CASCADE,
+    origenes INT NOT NULL CHECK (origenes > 0),
+    PRIMARY KEY (usuario_id, accion_id)
+);
+
+-- Acciones de un usuario en una aplicación (solo índice)
+CREATE INDEX IF NOT EXISTS idx_usuario_permisos_efectivos_aplicacion
+    ON usuario_permisos_efectivos (usuario_id, aplicacion_id) INCLUDE (accion_id);
+
+-- Recalcular y borrar las filas de una acción (eliminación o cambio de aplicación)
+CREATE INDEX IF NOT EXISTS idx_usuario_permisos_efectivos_accion ON usuario_permisos_efectivos (accion_id);
+
+-- Carga inicial (equivale a EffectivePermissionsStore.rebuild())
+INSERT INTO usuario_permisos_efectivos (usuario_id, aplicacion_id, accion_id, origenes)
+SELECT utu.usuario_id, ac.aplicacion_id, ac.id, COUNT(*)
+FROM usuarios_tipo_usuario utu
+JOIN usuarios u ON u.id = utu.usuario_id AND u.deleted_at IS NULL AND u.estado = 'activo'
+JOIN tipo_usuario tu ON tu.id = utu.tipo_usuario_id AND tu.deleted_at IS NULL
+JOIN permisos_tipo_usuario ptu ON ptu.tipo_usuario_id = tu.id AND ptu.deleted_at IS NULL
+JOIN acciones ac ON ac.id = ptu.accion_id AND ac.deleted_at IS NULL
+WHERE utu.deleted_at IS NULL
+GROUP BY utu.usuario_id, ac.aplicacion_id, ac.id
+ON CONFLICT DO NOTHING;
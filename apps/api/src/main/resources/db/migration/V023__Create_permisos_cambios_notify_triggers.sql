@@ -0,0 +1,50 @@
+-- Notificación de cambios del modelo de permisos entre nodos (PermissionChangeListener)
+-- Cada sentencia que modifica el catálogo o las asignaciones emite NOTIFY permisos_cambios. PostgreSQL
+-- entrega la notificación solo al confirmar la transacción (y agrupa las repetidas), por lo que el nodo
+-- que la recibe y recompila PermissionMatrix ya ve el cambio.
+CREATE OR REPLACE FUNCTION notificar_cambio_permisos() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('permisos_cambios', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_aplicaciones_permisos_cambios ON aplicaciones;
+CREATE TRIGGER trg_aplicaciones_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON aplicaciones
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+DROP TRIGGER IF EXISTS trg_secciones_permisos_cambios ON secciones;
+CREATE TRIGGER trg_secciones_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON secciones
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+DROP TRIGGER IF EXISTS trg_acciones_permisos_cambios ON acciones;
+CREATE TRIGGER trg_acciones_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON acciones
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+DROP TRIGGER IF EXISTS trg_tipo_usuario_permisos_cambios ON tipo_usuario;
+CREATE TRIGGER trg_tipo_usuario_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON tipo_usuario
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+DROP TRIGGER IF EXISTS trg_permisos_tipo_usuario_permisos_cambios ON permisos_tipo_usuario;
+CREATE TRIGGER trg_permisos_tipo_usuario_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON permisos_tipo_usuario
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+DROP TRIGGER IF EXISTS trg_usuarios_tipo_usuario_permisos_cambios ON usuarios_tipo_usuario;
+CREATE TRIGGER trg_usuarios_tipo_usuario_permisos_cambios
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON usuarios_tipo_usuario
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambio_permisos();
+
+-- En usuarios solo importan el estado y la eliminación lógica: JPA actualiza todas las columnas en cada
+-- guardado (inicio de sesión, contraseña), por lo que se compara por fila en lugar de usar UPDATE OF.
+-- La eliminación definitiva borra en cascada sus asignaciones, que ya notifican.
+DROP TRIGGER IF EXISTS trg_usuarios_permisos_cambios ON usuarios;
+CREATE TRIGGER trg_usuarios_permisos_cambios
+    AFTER UPDATE ON usuarios
+    FOR EACH ROW
+    WHEN (OLD.estado IS DISTINCT FROM NEW.estado OR OLD.deleted_at IS DISTINCT FROM NEW.deleted_at)
+    EXECUTE FUNCTION notificar_cambio_permisos();
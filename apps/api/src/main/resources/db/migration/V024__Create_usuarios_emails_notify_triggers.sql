@@ -0,0 +1,26 @@
+-- Sincronización del filtro de emails entre nodos (EmailFilterSyncListener)
+-- Cada usuario creado, con el email modificado o restaurado emite NOTIFY usuarios_emails con su email.
+-- PostgreSQL entrega la notificación solo al confirmar la transacción, por lo que ningún nodo agrega al
+-- filtro emails de transacciones revertidas. Las eliminaciones no notifican: el filtro no admite
+-- borrados y los descarta en la reconstrucción periódica.
+CREATE OR REPLACE FUNCTION notificar_email_usuario() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('usuarios_emails', NEW.email);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_usuarios_emails_insert ON usuarios;
+CREATE TRIGGER trg_usuarios_emails_insert
+    AFTER INSERT ON usuarios
+    FOR EACH ROW
+    WHEN (NEW.deleted_at IS NULL)
+    EXECUTE FUNCTION notificar_email_usuario();
+
+-- JPA actualiza todas las columnas en cada guardado: se compara por fila en lugar de usar UPDATE OF
+DROP TRIGGER IF EXISTS trg_usuarios_emails_update ON usuarios;
+CREATE TRIGGER trg_usuarios_emails_update
+    AFTER UPDATE ON usuarios
+    FOR EACH ROW
+    WHEN (NEW.deleted_at IS NULL AND (OLD.email IS DISTINCT FROM NEW.email OR OLD.deleted_at IS NOT NULL))
+    EXECUTE FUNCTION notificar_email_usuario();
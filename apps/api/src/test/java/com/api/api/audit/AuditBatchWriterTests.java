@@ -0,0 +1,291 @@
+package com.api.api.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditBatchWriterTests {
+
+    private static final String HILO_ESCRITOR = "audit-batch-writer";
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    // Eventos escritos (por id) y el hilo que los escribió
+    private final ConcurrentLinkedQueue<UUID> escritos = new ConcurrentLinkedQueue<>();
+    private final Set<String> hilos = ConcurrentHashMap.newKeySet();
+
+    // Permite retener el primer lote del hilo escritor para llenar la cola
+    private final CountDownLatch escribiendo = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final AtomicBoolean retenerPrimerLote = new AtomicBoolean(false);
+
+    private AuditBatchWriter writer;
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            if (HILO_ESCRITOR.equals(Thread.currentThread().getName()) && retenerPrimerLote.compareAndSet(true, false)) {
+                escribiendo.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataAccessResourceFailureException("Escritura interrumpida", e);
+                }
+            }
+            List<UUID> lote = new ArrayList<>();
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                setter.setValues(sentencia(lote), i);
+            }
+            registrar(lote);
+            return new int[setter.getBatchSize()];
+        });
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            PreparedStatementSetter setter = invocation.getArgument(1);
+            List<UUID> fila = new ArrayList<>();
+            setter.setValues(sentencia(fila));
+            registrar(fila);
+            return 1;
+        });
+    }
+
+    @AfterEach
+    void detener() {
+        liberar.countDown();
+        if (writer != null && writer.isRunning()) {
+            writer.stop();
+        }
+    }
+
+    private AuditBatchWriter writer(int capacidad, int lote, AuditBatchWriter.BackpressurePolicy politica,
+                                    long offerTimeoutMs, long shutdownTimeoutMs) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        writer = new AuditBatchWriter(jdbcTemplate, transactionManager, mock(AuditRollupWriter.class), meterRegistry,
+                capacidad, lote, 20, offerTimeoutMs, politica, shutdownTimeoutMs);
+        return writer;
+    }
+
+    private void registrar(List<UUID> ids) {
+        escritos.addAll(ids);
+        hilos.add(Thread.currentThread().getName());
+    }
+
+    // Sentencia que solo captura el id (parámetro 1) de cada fila
+    private static PreparedStatement sentencia(List<UUID> ids) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if ("setObject".equals(method.getName()) && Integer.valueOf(1).equals(args[0])) {
+                        ids.add((UUID) args[1]);
+                    }
+                    return null;
+                });
+    }
+
+    private static AuditEvent evento() {
+        return new AuditEvent(UUID.randomUUID(), UUID.randomUUID(), "ana@example.com", UUID.randomUUID(),
+                UUID.randomUUID(), OffsetDateTime.now(), "10.0.0.1", "JUnit", "Prueba", "exitoso");
+    }
+
+    private double contador(String nombre) {
+        return meterRegistry.counter(nombre).count();
+    }
+
+    // Inicia el escritor y deja su primer lote retenido con la cola (de capacidad 2) llena
+    private List<AuditEvent> llenarCola(AuditBatchWriter writer) throws InterruptedException {
+        retenerPrimerLote.set(true);
+        writer.start();
+        List<AuditEvent> eventos = List.of(evento(), evento(), evento());
+        writer.enqueue(eventos.get(0));
+        assertThat(escribiendo.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.enqueue(eventos.get(1));
+        writer.enqueue(eventos.get(2));
+        return eventos;
+    }
+
+    private List<UUID> ids(List<AuditEvent> eventos) {
+        return eventos.stream().map(AuditEvent::id).toList();
+    }
+
+    @Test
+    void dropDescartaCuandoLaColaEstaLlena() throws Exception {
+        AuditBatchWriter writer = writer(2, 1, AuditBatchWriter.BackpressurePolicy.DROP, 1000, 5000);
+        List<AuditEvent> eventos = llenarCola(writer);
+
+        long inicio = System.nanoTime();
+        writer.enqueue(evento());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(500);
+        assertThat(contador("auditoria.escritor.descartados")).isEqualTo(1);
+
+        liberar.countDown();
+        writer.stop();
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+        assertThat(contador("auditoria.escritor.escritos")).isEqualTo(3);
+    }
+
+    @Test
+    void waitThenDropEsperaElPlazoYLuegoDescarta() throws Exception {
+        AuditBatchWriter writer = writer(2, 1, AuditBatchWriter.BackpressurePolicy.WAIT_THEN_DROP, 100, 5000);
+        List<AuditEvent> eventos = llenarCola(writer);
+
+        long inicio = System.nanoTime();
+        writer.enqueue(evento());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isGreaterThanOrEqualTo(90);
+        assertThat(contador("auditoria.escritor.descartados")).isEqualTo(1);
+
+        liberar.countDown();
+        writer.stop();
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+    }
+
+    @Test
+    void waitThenDropEncolaSiSeLiberaEspacioDentroDelPlazo() throws Exception {
+        AuditBatchWriter writer = writer(2, 1, AuditBatchWriter.BackpressurePolicy.WAIT_THEN_DROP, 5000, 5000);
+        List<AuditEvent> eventos = new ArrayList<>(llenarCola(writer));
+
+        Thread liberador = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            liberar.countDown();
+        });
+        liberador.start();
+        AuditEvent ultimo = evento();
+        writer.enqueue(ultimo);
+        eventos.add(ultimo);
+        liberador.join();
+
+        writer.stop();
+        assertThat(contador("auditoria.escritor.descartados")).isZero();
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+        assertThat(hilos).containsOnly(HILO_ESCRITOR);
+    }
+
+    @Test
+    void callerRunsEscribeEnElHiloQueLoGenera() throws Exception {
+        AuditBatchWriter writer = writer(2, 1, AuditBatchWriter.BackpressurePolicy.CALLER_RUNS, 1000, 5000);
+        List<AuditEvent> eventos = new ArrayList<>(llenarCola(writer));
+
+        AuditEvent sincrono = evento();
+        writer.enqueue(sincrono);
+        eventos.add(sincrono);
+        assertThat(escritos).containsExactly(sincrono.id());
+        assertThat(hilos).containsOnly(Thread.currentThread().getName());
+
+        liberar.countDown();
+        writer.stop();
+        assertThat(contador("auditoria.escritor.descartados")).isZero();
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+    }
+
+    @Test
+    void stopVaciaLaColaSinInterrumpirAlEscritor() {
+        AuditBatchWriter writer = writer(1000, 10, AuditBatchWriter.BackpressurePolicy.CALLER_RUNS, 50, 5000);
+        writer.start();
+        List<AuditEvent> eventos = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            AuditEvent evento = evento();
+            eventos.add(evento);
+            writer.enqueue(evento);
+        }
+
+        writer.stop();
+
+        assertThat(writer.isRunning()).isFalse();
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+        assertThat(hilos).containsOnly(HILO_ESCRITOR);
+        assertThat(contador("auditoria.escritor.escritos")).isEqualTo(95);
+
+        // Tras detenerse, los eventos se escriben de forma síncrona
+        AuditEvent tardio = evento();
+        writer.enqueue(tardio);
+        assertThat(escritos).contains(tardio.id());
+    }
+
+    @Test
+    void siElVaciadoExcedeElPlazoSeInterrumpeYCadaEventoSeEscribeUnaVez() throws Exception {
+        AuditBatchWriter writer = writer(1000, 10, AuditBatchWriter.BackpressurePolicy.CALLER_RUNS, 50, 100);
+        retenerPrimerLote.set(true);
+        writer.start();
+        List<AuditEvent> eventos = new ArrayList<>();
+        AuditEvent primero = evento();
+        eventos.add(primero);
+        writer.enqueue(primero);
+        assertThat(escribiendo.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 50; i++) {
+            AuditEvent evento = evento();
+            eventos.add(evento);
+            writer.enqueue(evento);
+        }
+
+        // El primer lote sigue retenido: stop() interrumpe al escritor y escribe el resto
+        writer.stop();
+
+        assertThat(escritos).hasSize(eventos.size());
+        assertThat(escritos).containsExactlyInAnyOrderElementsOf(ids(eventos));
+        assertThat(hilos).contains(Thread.currentThread().getName());
+        assertThat(contador("auditoria.escritor.escritos")).isEqualTo(eventos.size());
+    }
+
+    @Test
+    void unLoteFallidoSeReintentaFilaPorFila() {
+        AuditEvent invalido = evento();
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Lote rechazado"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            PreparedStatementSetter setter = invocation.getArgument(1);
+            List<UUID> fila = new ArrayList<>();
+            setter.setValues(sentencia(fila));
+            if (fila.contains(invalido.id())) {
+                throw new DataAccessResourceFailureException("Fila rechazada");
+            }
+            registrar(fila);
+            return 1;
+        });
+        AuditBatchWriter writer = writer(1000, 10, AuditBatchWriter.BackpressurePolicy.CALLER_RUNS, 50, 5000);
+        writer.start();
+        AuditEvent primero = evento();
+        AuditEvent segundo = evento();
+        writer.enqueue(primero);
+        writer.enqueue(invalido);
+        writer.enqueue(segundo);
+
+        writer.stop();
+
+        assertThat(escritos).containsExactlyInAnyOrder(primero.id(), segundo.id());
+        assertThat(contador("auditoria.escritor.escritos")).isEqualTo(2);
+        assertThat(contador("auditoria.escritor.fallidos")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,18 @@
+package com.api.api.audit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditContextTests {
+
+    @Test
+    void soloRunInternalYElAlcanceDeclaradoSonInternos() {
+        assertThat(AuditContext.currentScope(AuditScope.USER)).isEqualTo(AuditScope.USER);
+        assertThat(AuditContext.currentScope(AuditScope.INTERNAL)).isEqualTo(AuditScope.INTERNAL);
+        assertThat(AuditContext.runInternal(() -> AuditContext.currentScope(AuditScope.USER)))
+                .isEqualTo(AuditScope.INTERNAL);
+        // Al salir del bloque interno se recupera el alcance declarado
+        assertThat(AuditContext.currentScope(AuditScope.USER)).isEqualTo(AuditScope.USER);
+    }
+}
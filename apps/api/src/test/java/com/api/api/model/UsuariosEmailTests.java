@@ -0,0 +1,40 @@
+package com.api.api.model;
+
+import com.api.api.support.PostgresEmbebido;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Usuarios.normalizarEmail debe producir exactamente el valor que exige el CHECK de V017
+class UsuariosEmailTests {
+
+    private static final List<String> EMAILS = List.of(
+            " Ana@Example.COM ",
+            "\tana@example.com\n",
+            " ana@example.com",
+            "ÁLVARO@EXAMPLE.COM",
+            "İSTANBUL@example.com",
+            "STRASSE@ÉXAMPLE.com",
+            "ana@example.com");
+
+    @Test
+    void normalizaSoloEspaciosYLetrasAscii() {
+        assertThat(Usuarios.normalizarEmail("  Ana@Example.COM ")).isEqualTo("ana@example.com");
+        assertThat(Usuarios.normalizarEmail("\tAna@example.com")).isEqualTo("\tana@example.com");
+        assertThat(Usuarios.normalizarEmail("ÁLVARO@EXAMPLE.COM")).isEqualTo("Álvaro@example.com");
+        assertThat(Usuarios.normalizarEmail(null)).isNull();
+    }
+
+    @Test
+    void coincideConLaNormalizacionDePostgres() {
+        JdbcTemplate jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        for (String email : EMAILS) {
+            String normalizado = jdbcTemplate.queryForObject(
+                    "SELECT LOWER(BTRIM(CAST(? AS VARCHAR), ' ') COLLATE \"C\")", String.class, email);
+            assertThat(Usuarios.normalizarEmail(email)).as(email).isEqualTo(normalizado);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.api.api.repository;
+
+import com.api.api.model.Sesiones;
+import com.api.api.model.Usuarios;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.security.PrincipalCache;
+import com.api.api.security.TokenRevocationIndex;
+import com.api.api.service.SesionesService;
+import com.api.api.service.UsuariosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Los listados de usuarios y sesiones excluyen las filas eliminadas lógicamente, igual que la búsqueda.
+// La unidad de persistencia no arranca en las pruebas, por lo que se verifican las consultas declaradas.
+class ListadosNoEliminadosTests {
+
+    private static String consulta(Class<?> repositorio, String metodo) {
+        return List.of(repositorio.getMethods()).stream()
+                .filter(m -> m.getName().equals(metodo))
+                .findFirst()
+                .map(m -> m.getAnnotation(Query.class))
+                .map(Query::value)
+                .orElseThrow(() -> new AssertionError("Sin @Query: " + repositorio.getSimpleName() + "." + metodo));
+    }
+
+    @Test
+    void lasConsultasDeListadoFiltranLosEliminados() {
+        for (String metodo : List.of("findAllNoEliminados", "findByEstado", "findByDosFactorActivo",
+                "findByRequiereCambioContrasena", "findAllSelect")) {
+            assertThat(consulta(UsuariosRepository.class, metodo)).as(metodo).contains("u.deletedAt IS NULL");
+        }
+        for (String metodo : List.of("findAllNoEliminadas", "findByEstado")) {
+            assertThat(consulta(SesionesRepository.class, metodo)).as(metodo).contains("s.deletedAt IS NULL");
+        }
+    }
+
+    @Test
+    void elListadoPaginadoNoUsaFindAll() {
+        // findAll() devuelve también las filas eliminadas: el @Where de BaseEntity no se aplica
+        UsuariosRepository usuariosRepository = mock(UsuariosRepository.class);
+        Page<Usuarios> usuarios = new PageImpl<>(List.of());
+        when(usuariosRepository.findAllNoEliminados(any())).thenReturn(usuarios);
+        UsuariosService usuariosService = new UsuariosService(usuariosRepository, mock(PasswordEncoder.class),
+                mock(PrincipalCache.class), mock(EmailMembershipFilter.class), mock(PermissionMatrix.class),
+                mock(EffectivePermissionsStore.class));
+
+        assertThat(usuariosService.findAll(2, 10, null)).isSameAs(usuarios);
+        verify(usuariosRepository).findAllNoEliminados(PageRequest.of(1, 10));
+        verify(usuariosRepository, never()).findAll(any(Pageable.class));
+
+        SesionesRepository sesionesRepository = mock(SesionesRepository.class);
+        Page<Sesiones> sesiones = new PageImpl<>(List.of());
+        when(sesionesRepository.findAllNoEliminadas(any())).thenReturn(sesiones);
+        SesionesService sesionesService = new SesionesService(sesionesRepository, mock(TokenRevocationIndex.class));
+
+        assertThat(sesionesService.findAll(1, 10, "")).isSameAs(sesiones);
+        verify(sesionesRepository).findAllNoEliminadas(PageRequest.of(0, 10));
+        verify(sesionesRepository, never()).findAll(any(Pageable.class));
+    }
+}
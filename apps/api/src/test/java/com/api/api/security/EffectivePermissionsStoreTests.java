@@ -0,0 +1,281 @@
+package com.api.api.security;
+
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EffectivePermissionsStoreTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private DatosPermisos datos;
+    private EffectivePermissionsStore store;
+
+    private UUID crm;
+    private UUID ver;
+    private UUID editar;
+    private UUID borrar;
+    private UUID vendedor;
+    private UUID supervisor;
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        transactionTemplate = PostgresEmbebido.transactionTemplate();
+        PostgresEmbebido.limpiar();
+        datos = new DatosPermisos(jdbcTemplate);
+        store = new EffectivePermissionsStore(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), true);
+
+        crm = datos.aplicacion("crm");
+        UUID seccion = datos.seccion("Clientes");
+        ver = datos.accion(crm, seccion, "ver");
+        editar = datos.accion(crm, seccion, "editar");
+        borrar = datos.accion(crm, seccion, "borrar");
+        vendedor = datos.tipoUsuario(crm, "Vendedor");
+        supervisor = datos.tipoUsuario(crm, "Supervisor");
+        datos.permiso(vendedor, ver);
+        datos.permiso(vendedor, editar);
+        datos.permiso(supervisor, editar);
+        datos.permiso(supervisor, borrar);
+    }
+
+    private void enTransaccion(Runnable cambio) {
+        transactionTemplate.executeWithoutResult(status -> cambio.run());
+    }
+
+    private void assertConsistente() {
+        assertThat(store.check()).isEqualTo(new EffectivePermissionsStore.Consistencia(0, 0, 0));
+    }
+
+    private Integer origenes(UUID usuarioId, UUID accionId) {
+        List<Integer> filas = jdbcTemplate.queryForList(
+                "SELECT origenes FROM usuario_permisos_efectivos WHERE usuario_id = ? AND accion_id = ?",
+                Integer.class, usuarioId, accionId);
+        return filas.isEmpty() ? null : filas.get(0);
+    }
+
+    @Test
+    void losDeltasMantienenLaTablaIgualALaDefinicion() {
+        UUID ana = datos.usuario("ana@example.com");
+
+        // Asignaciones: editar lo otorgan ambos tipos de usuario
+        enTransaccion(() -> {
+            datos.asignacion(ana, vendedor);
+            store.agregarAsignacion(ana, vendedor);
+        });
+        assertConsistente();
+        UUID[] asignacionSupervisor = new UUID[1];
+        enTransaccion(() -> {
+            asignacionSupervisor[0] = datos.asignacion(ana, supervisor);
+            store.agregarAsignacion(ana, supervisor);
+        });
+        assertConsistente();
+        assertThat(origenes(ana, editar)).isEqualTo(2);
+        assertThat(store.nombresAcciones(ana)).containsExactlyInAnyOrder("ver", "editar", "borrar");
+
+        // Quitar una asignación solo elimina las filas que llegan a 0
+        enTransaccion(() -> {
+            datos.eliminarLogicamente("usuarios_tipo_usuario", asignacionSupervisor[0]);
+            store.quitarAsignacion(ana, supervisor);
+        });
+        assertConsistente();
+        assertThat(origenes(ana, editar)).isEqualTo(1);
+        assertThat(origenes(ana, borrar)).isNull();
+
+        // Permisos
+        UUID[] permisoBorrar = new UUID[1];
+        enTransaccion(() -> {
+            permisoBorrar[0] = datos.permiso(vendedor, borrar);
+            store.agregarPermiso(vendedor, borrar);
+        });
+        assertConsistente();
+        assertThat(origenes(ana, borrar)).isNotNull();
+        enTransaccion(() -> {
+            datos.eliminarLogicamente("permisos_tipo_usuario", permisoBorrar[0]);
+            store.quitarPermiso(vendedor, borrar);
+        });
+        assertConsistente();
+        assertThat(origenes(ana, borrar)).isNull();
+
+        // Asignaciones por lote (importación)
+        UUID luis = datos.usuario("luis@example.com");
+        UUID eva = datos.usuario("eva@example.com");
+        enTransaccion(() -> {
+            datos.asignacion(luis, vendedor);
+            datos.asignacion(luis, supervisor);
+            datos.asignacion(eva, supervisor);
+            store.agregarAsignaciones(List.of(
+                    new EffectivePermissionsStore.Asignacion(luis, vendedor),
+                    new EffectivePermissionsStore.Asignacion(luis, supervisor),
+                    new EffectivePermissionsStore.Asignacion(eva, supervisor)));
+        });
+        assertConsistente();
+        assertThat(origenes(luis, editar)).isEqualTo(2);
+    }
+
+    @Test
+    void recalculosPorTipoDeUsuarioAccionYUsuarios() {
+        UUID ana = datos.usuario("ana@example.com");
+        UUID luis = datos.usuario("luis@example.com");
+        datos.asignacion(ana, vendedor);
+        datos.asignacion(ana, supervisor);
+        datos.asignacion(luis, supervisor);
+        store.rebuild();
+        assertConsistente();
+
+        // Eliminación lógica de un tipo de usuario
+        enTransaccion(() -> {
+            datos.eliminarLogicamente("tipo_usuario", vendedor);
+            store.recalcularTipoUsuario(vendedor);
+        });
+        assertConsistente();
+        assertThat(origenes(ana, ver)).isNull();
+        assertThat(origenes(ana, editar)).isEqualTo(1);
+
+        // Cambio de aplicación de una acción: se actualiza la copia de aplicacion_id
+        UUID erp = datos.aplicacion("erp");
+        enTransaccion(() -> {
+            jdbcTemplate.update("UPDATE acciones SET aplicacion_id = ? WHERE id = ?", erp, borrar);
+            store.recalcularAccion(borrar);
+        });
+        assertConsistente();
+
+        // Eliminación definitiva: las asignaciones se borran en cascada, sin FK hacia la tabla materializada
+        enTransaccion(() -> {
+            List<UUID> afectados = store.usuariosDeTipoUsuario(supervisor);
+            jdbcTemplate.update("DELETE FROM tipo_usuario WHERE id = ?", supervisor);
+            store.recalcularUsuarios(afectados);
+        });
+        assertConsistente();
+        assertThat(store.nombresAcciones(ana)).isEmpty();
+        assertThat(store.nombresAcciones(luis)).isEmpty();
+    }
+
+    @Test
+    void losUsuariosInactivosOEliminadosNoTienenPermisosEfectivos() {
+        UUID ana = datos.usuario("ana@example.com");
+        UUID luis = datos.usuario("luis@example.com");
+        jdbcTemplate.update("UPDATE usuarios SET estado = 'inactivo' WHERE id = ?", ana);
+        datos.eliminarLogicamente("usuarios", luis);
+
+        // Los deltas no agregan filas para ellos, igual que la definición
+        enTransaccion(() -> {
+            datos.asignacion(ana, vendedor);
+            store.agregarAsignacion(ana, vendedor);
+            datos.asignacion(luis, vendedor);
+            datos.asignacion(luis, supervisor);
+            store.agregarAsignaciones(List.of(
+                    new EffectivePermissionsStore.Asignacion(luis, vendedor),
+                    new EffectivePermissionsStore.Asignacion(luis, supervisor)));
+        });
+        UUID[] permisoBorrar = new UUID[1];
+        enTransaccion(() -> {
+            permisoBorrar[0] = datos.permiso(vendedor, borrar);
+            store.agregarPermiso(vendedor, borrar);
+        });
+        assertConsistente();
+        assertThat(store.nombresAcciones(ana)).isEmpty();
+        assertThat(store.nombresAcciones(luis)).isEmpty();
+
+        // Al reactivarse se recalculan sus filas; los deltas posteriores las mantienen
+        enTransaccion(() -> {
+            jdbcTemplate.update("UPDATE usuarios SET estado = 'activo' WHERE id = ?", ana);
+            store.recalcularUsuarios(List.of(ana));
+        });
+        assertConsistente();
+        assertThat(store.nombresAcciones(ana)).containsExactlyInAnyOrder("ver", "editar", "borrar");
+        enTransaccion(() -> {
+            datos.eliminarLogicamente("permisos_tipo_usuario", permisoBorrar[0]);
+            store.quitarPermiso(vendedor, borrar);
+        });
+        assertConsistente();
+
+        // Al desactivarse se eliminan
+        enTransaccion(() -> {
+            jdbcTemplate.update("UPDATE usuarios SET estado = 'inactivo' WHERE id = ?", ana);
+            store.recalcularUsuarios(List.of(ana));
+        });
+        assertConsistente();
+        assertThat(store.nombresAcciones(ana)).isEmpty();
+    }
+
+    @Test
+    void checkDetectaDiferenciasYRebuildLasCorrige() {
+        UUID ana = datos.usuario("ana@example.com");
+        UUID luis = datos.usuario("luis@example.com");
+        datos.asignacion(ana, vendedor);
+        datos.asignacion(ana, supervisor);
+        store.rebuild();
+        assertConsistente();
+
+        jdbcTemplate.update("UPDATE usuario_permisos_efectivos SET origenes = origenes + 1 WHERE usuario_id = ? AND accion_id = ?",
+                ana, ver);
+        jdbcTemplate.update("DELETE FROM usuario_permisos_efectivos WHERE usuario_id = ? AND accion_id = ?", ana, borrar);
+        jdbcTemplate.update("INSERT INTO usuario_permisos_efectivos (usuario_id, aplicacion_id, accion_id, origenes) VALUES (?, ?, ?, 1)",
+                luis, crm, ver);
+
+        EffectivePermissionsStore.Consistencia consistencia = store.check();
+        assertThat(consistencia).isEqualTo(new EffectivePermissionsStore.Consistencia(1, 1, 1));
+        assertThat(consistencia.consistente()).isFalse();
+
+        assertThat(store.rebuild()).isEqualTo(3);
+        assertConsistente();
+    }
+
+    @Test
+    void losDeltasExigenUnaTransaccionActiva() {
+        UUID ana = datos.usuario("ana@example.com");
+        assertThatThrownBy(() -> store.agregarAsignacion(ana, vendedor)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> store.recalcularAccion(ver)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void asignacionYPermisoConcurrentesDelMismoTipoDeUsuarioNoSeOmiten() throws Exception {
+        UUID ana = datos.usuario("ana@example.com");
+        UUID permisoBorrar = UUID.randomUUID();
+        CountDownLatch asignacionAplicada = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+
+        // La asignación toma el advisory lock de 'vendedor' y espera antes de confirmar
+        CompletableFuture<Void> asignacion = CompletableFuture.runAsync(() -> enTransaccion(() -> {
+            datos.asignacion(ana, vendedor);
+            store.agregarAsignacion(ana, vendedor);
+            asignacionAplicada.countDown();
+            try {
+                assertThat(confirmar.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertThat(asignacionAplicada.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // El permiso espera el lock; al obtenerlo su delta ya ve la asignación confirmada
+        CompletableFuture<Void> permiso = CompletableFuture.runAsync(() -> enTransaccion(() -> {
+            jdbcTemplate.update("INSERT INTO permisos_tipo_usuario (id, tipo_usuario_id, accion_id) VALUES (?, ?, ?)",
+                    permisoBorrar, vendedor, borrar);
+            store.agregarPermiso(vendedor, borrar);
+        }));
+        Thread.sleep(200);
+        assertThat(permiso).isNotDone();
+        confirmar.countDown();
+
+        asignacion.get(10, TimeUnit.SECONDS);
+        permiso.get(10, TimeUnit.SECONDS);
+        assertConsistente();
+        assertThat(origenes(ana, borrar)).isNotNull();
+    }
+}
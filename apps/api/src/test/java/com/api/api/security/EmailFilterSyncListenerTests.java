@@ -0,0 +1,101 @@
+package com.api.api.security;
+
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailFilterSyncListenerTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DatosPermisos datos;
+    private EmailMembershipFilter filtro;
+    private EmailFilterSyncListener listener;
+
+    @BeforeEach
+    void preparar() throws InterruptedException {
+        jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        PostgresEmbebido.limpiar();
+        datos = new DatosPermisos(jdbcTemplate);
+        datos.usuario("ana@example.com");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Filtro de este nodo; los usuarios se crean con SQL directo, como si vinieran de otro nodo
+        filtro = new EmailMembershipFilter(PostgresEmbebido.dataSource(), PostgresEmbebido.transactionManager(),
+                meterRegistry, 0.01, 2.0, 1000, true);
+
+        listener = new EmailFilterSyncListener(PostgresEmbebido.dataSource(), filtro, meterRegistry, 200, 10_000);
+        listener.start();
+        // LISTEN y la reconstrucción son asíncronas: espera a que las ausencias sean definitivas
+        assertThat(esperar(() -> !filtro.mightContain("nadie@example.com"))).isTrue();
+    }
+
+    @AfterEach
+    void detener() {
+        // Sin PostgreSQL embebido (ejecución como root) la preparación se omite antes de crear el listener
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    private static boolean esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < limite) {
+            if (condicion.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return condicion.getAsBoolean();
+    }
+
+    @Test
+    void losUsuariosCreadosEnOtroNodoSeIncorporan() throws Exception {
+        assertThat(filtro.mightContain("ana@example.com")).isTrue();
+        assertThat(filtro.mightContain("luis@example.com")).isFalse();
+
+        datos.usuario("luis@example.com");
+        assertThat(esperar(() -> filtro.mightContain("luis@example.com"))).isTrue();
+    }
+
+    @Test
+    void losEmailsModificadosYRestauradosSeIncorporan() throws Exception {
+        UUID usuario = datos.usuario("eva@example.com");
+        assertThat(esperar(() -> filtro.mightContain("eva@example.com"))).isTrue();
+
+        jdbcTemplate.update("UPDATE usuarios SET email = 'eva.nueva@example.com' WHERE id = ?", usuario);
+        assertThat(esperar(() -> filtro.mightContain("eva.nueva@example.com"))).isTrue();
+
+        // Eliminado y restaurado después de una reconstrucción que ya no lo incluye
+        datos.eliminarLogicamente("usuarios", usuario);
+        filtro.sincronizar();
+        assertThat(filtro.mightContain("eva.nueva@example.com")).isFalse();
+        jdbcTemplate.update("UPDATE usuarios SET deleted_at = NULL WHERE id = ?", usuario);
+        assertThat(esperar(() -> filtro.mightContain("eva.nueva@example.com"))).isTrue();
+    }
+
+    @Test
+    void losUsuariosRevertidosNoSeIncorporan() throws Exception {
+        PostgresEmbebido.transactionTemplate().executeWithoutResult(status -> {
+            datos.usuario("revertido@example.com");
+            status.setRollbackOnly();
+        });
+        // Un usuario confirmado después confirma que la escucha ya procesó lo anterior
+        datos.usuario("confirmado@example.com");
+        assertThat(esperar(() -> filtro.mightContain("confirmado@example.com"))).isTrue();
+        assertThat(filtro.mightContain("revertido@example.com")).isFalse();
+    }
+
+    @Test
+    void alDetenerLaEscuchaLasAusenciasDejanDeSerDefinitivas() {
+        listener.stop();
+        assertThat(filtro.mightContain("nadie@example.com")).isTrue();
+    }
+}
@@ -0,0 +1,203 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailMembershipFilterTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void preparar() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE usuarios (id IDENTITY PRIMARY KEY, email VARCHAR(100) NOT NULL, deleted_at TIMESTAMP)");
+        transactionManager = new DataSourceTransactionManager(database);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void cerrar() {
+        database.shutdown();
+    }
+
+    private EmailMembershipFilter filtro(boolean authoritativeMisses) {
+        return new EmailMembershipFilter(database, transactionManager, meterRegistry, 0.01, 2.0, 1000, authoritativeMisses);
+    }
+
+    private void insertar(String email) {
+        jdbcTemplate.update("INSERT INTO usuarios (email) VALUES (?)", email);
+    }
+
+    @Test
+    void sinConstruirRespondePuedeExistir() {
+        EmailMembershipFilter filtro = filtro(true);
+        assertThat(filtro.mightContain("nadie@example.com")).isTrue();
+        assertThat(filtro.mightContain(null)).isTrue();
+    }
+
+    @Test
+    void sinFalsosNegativosTrasReconstruir() {
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            filas.add(new Object[]{"usuario" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO usuarios (email) VALUES (?)", filas);
+        EmailMembershipFilter filtro = filtro(true);
+        filtro.sincronizar();
+
+        for (int i = 0; i < 5000; i++) {
+            // La consulta se normaliza igual que los emails guardados
+            assertThat(filtro.mightContain(" Usuario" + i + "@EXAMPLE.com ")).as("usuario%d", i).isTrue();
+        }
+
+        // Con ausencias definitivas, la tasa de falsos positivos se mantiene cerca de la configurada
+        int positivos = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filtro.mightContain("otro" + i + "@example.com")) {
+                positivos++;
+            }
+        }
+        assertThat(positivos).isLessThan(300);
+        assertThat(meterRegistry.counter("seguridad.email_filter.descartes").count()).isEqualTo(10000 - positivos);
+    }
+
+    @Test
+    void sinSincronizarLasAusenciasNoSonDefinitivas() {
+        insertar("ana@example.com");
+        EmailMembershipFilter filtro = filtro(true);
+        filtro.rebuild();
+
+        // Sin escucha de usuarios_emails pudo crearse en otro nodo después de la reconstrucción
+        for (int i = 0; i < 100; i++) {
+            assertThat(filtro.mightContain("otro" + i + "@example.com")).isTrue();
+        }
+        assertThat(meterRegistry.counter("seguridad.email_filter.ausencias").count()).isGreaterThan(90);
+        assertThat(meterRegistry.counter("seguridad.email_filter.descartes").count()).isZero();
+
+        assertThat(filtro.sincronizar()).isTrue();
+        assertThat(filtro.mightContain("otro@example.com")).isFalse();
+
+        // Al perder la escucha vuelve a consultarse la base de datos
+        filtro.desincronizar();
+        assertThat(filtro.mightContain("otro@example.com")).isTrue();
+    }
+
+    @Test
+    void conAusenciasNoDefinitivasSeConsultaSiempre() {
+        EmailMembershipFilter filtro = filtro(false);
+        filtro.sincronizar();
+
+        assertThat(filtro.mightContain("otro@example.com")).isTrue();
+        assertThat(meterRegistry.counter("seguridad.email_filter.descartes").count()).isZero();
+    }
+
+    @Test
+    void siLaSincronizacionFallaLasAusenciasNoSonDefinitivas() {
+        EmailMembershipFilter filtro = filtro(true);
+        jdbcTemplate.execute("DROP TABLE usuarios");
+
+        assertThat(filtro.sincronizar()).isFalse();
+        assertThat(filtro.mightContain("otro@example.com")).isTrue();
+    }
+
+    @Test
+    void dentroDeUnaTransaccionSeAgregaAlConfirmar() {
+        EmailMembershipFilter filtro = filtro(true);
+        filtro.sincronizar();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            insertar("ana@example.com");
+            filtro.add("ana@example.com");
+            assertThat(filtro.mightContain("ana@example.com")).isFalse();
+        });
+        assertThat(filtro.mightContain("ana@example.com")).isTrue();
+
+        transaction.executeWithoutResult(status -> {
+            insertar("revertido@example.com");
+            filtro.add("revertido@example.com");
+            status.setRollbackOnly();
+        });
+        assertThat(filtro.mightContain("revertido@example.com")).isFalse();
+
+        // Fuera de una transacción se agrega de inmediato
+        filtro.add("luis@example.com");
+        assertThat(filtro.mightContain("luis@example.com")).isTrue();
+    }
+
+    @Test
+    void losEmailsConfirmadosDuranteUnaReconstruccionNoSePierden() throws Exception {
+        for (int i = 0; i < 2000; i++) {
+            insertar("inicial" + i + "@example.com");
+        }
+        EmailMembershipFilter filtro = filtro(true);
+        filtro.sincronizar();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        AtomicBoolean activo = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> confirmados = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> reconstrucciones = executor.submit(() -> {
+                while (activo.get()) {
+                    filtro.rebuild();
+                }
+            });
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int hilo = 0; hilo < 3; hilo++) {
+                int h = hilo;
+                escritores.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        String email = "nuevo" + h + "-" + i + "@example.com";
+                        transaction.executeWithoutResult(status -> {
+                            insertar(email);
+                            filtro.add(email);
+                        });
+                        confirmados.add(email);
+                    }
+                }));
+            }
+            for (Future<?> escritor : escritores) {
+                escritor.get(60, TimeUnit.SECONDS);
+            }
+            activo.set(false);
+            reconstrucciones.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(confirmados).hasSize(900);
+        for (String email : confirmados) {
+            assertThat(filtro.mightContain(email)).as(email).isTrue();
+        }
+        for (int i = 0; i < 2000; i++) {
+            assertThat(filtro.mightContain("inicial" + i + "@example.com")).isTrue();
+        }
+    }
+}
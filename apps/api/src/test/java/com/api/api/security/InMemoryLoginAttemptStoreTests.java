@@ -0,0 +1,130 @@
+package com.api.api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryLoginAttemptStoreTests {
+
+    private static final long VENTANA_MS = Duration.ofMinutes(15).toMillis();
+    // Inicio de una ventana fija: los contadores se alinean a múltiplos de la ventana
+    private static final Instant INICIO = Instant.ofEpochMilli(1_000 * VENTANA_MS);
+
+    private final InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(15, 1000);
+
+    private static Instant en(double ventanas) {
+        return INICIO.plusMillis((long) (ventanas * VENTANA_MS));
+    }
+
+    @Test
+    void estimacionPonderaLaVentanaAnterior() {
+        assertThat(LoginAttemptStore.estimate(10, 3, 0, 1000)).isEqualTo(13);
+        assertThat(LoginAttemptStore.estimate(10, 3, 500, 1000)).isEqualTo(8);
+        assertThat(LoginAttemptStore.estimate(10, 3, 999, 1000)).isEqualTo(3);
+        // Solo cuenta la posición dentro de la ventana fija actual
+        assertThat(LoginAttemptStore.estimate(10, 3, 7_250, 1000)).isEqualTo(10);
+        // La parte ponderada se redondea hacia abajo
+        assertThat(LoginAttemptStore.estimate(3, 0, 500, 1000)).isEqualTo(1);
+    }
+
+    @Test
+    void acumulaEnLaVentanaActualYArrastraLaAnterior() {
+        for (int i = 1; i <= 4; i++) {
+            assertThat(store.recordFailure("email:ana@example.com", en(0.1))).isEqualTo(i);
+        }
+        assertThat(store.countFailures("email:ana@example.com", en(0.9))).isEqualTo(4);
+
+        // En la ventana siguiente los 4 intentos pesan según lo que queda de su ventana
+        assertThat(store.countFailures("email:ana@example.com", en(1.0))).isEqualTo(4);
+        assertThat(store.countFailures("email:ana@example.com", en(1.5))).isEqualTo(2);
+        assertThat(store.recordFailure("email:ana@example.com", en(1.5))).isEqualTo(3);
+        assertThat(store.countFailures("email:ana@example.com", en(1.75))).isEqualTo(2);
+
+        // Dos ventanas después ya no queda nada de la primera
+        assertThat(store.countFailures("email:ana@example.com", en(2.5))).isZero();
+        assertThat(store.recordFailure("email:ana@example.com", en(3.2))).isEqualTo(1);
+    }
+
+    @Test
+    void clavesDesconocidasYReinicio() {
+        assertThat(store.countFailures("ip:10.0.0.1", en(0.5))).isZero();
+
+        store.recordFailure("ip:10.0.0.1", en(0.5));
+        store.recordFailure("ip:10.0.0.2", en(0.5));
+        store.reset("ip:10.0.0.1");
+
+        assertThat(store.countFailures("ip:10.0.0.1", en(0.5))).isZero();
+        assertThat(store.countFailures("ip:10.0.0.2", en(0.5))).isEqualTo(1);
+    }
+
+    @Test
+    void losIncrementosConcurrentesNoSePierden() throws Exception {
+        int hilos = 8;
+        int intentosPorHilo = 5_000;
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < intentosPorHilo; i++) {
+                        store.recordFailure("email:ana@example.com", en(0.2));
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(store.countFailures("email:ana@example.com", en(0.2))).isEqualTo((long) hilos * intentosPorHilo);
+    }
+
+    @Test
+    void elCambioDeVentanaConcurrenteConservaElConteo() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            store.recordFailure("email:ana@example.com", en(0.5));
+        }
+        int hilos = 4;
+        int intentosPorHilo = 1_000;
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < intentosPorHilo; i++) {
+                        store.recordFailure("email:ana@example.com", en(1.0));
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Solo un hilo avanza la ventana: la anterior conserva sus 100 intentos y la actual suma todos
+        assertThat(store.countFailures("email:ana@example.com", en(1.0))).isEqualTo(100L + hilos * intentosPorHilo);
+        assertThat(store.countFailures("email:ana@example.com", en(1.5))).isEqualTo(50L + hilos * intentosPorHilo);
+    }
+}
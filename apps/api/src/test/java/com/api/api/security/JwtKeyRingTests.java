@@ -0,0 +1,124 @@
+package com.api.api.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyRingTests {
+
+    private static final SecretKey V1 = clave();
+    private static final SecretKey V2 = clave();
+
+    private static SecretKey clave() {
+        byte[] bytes = new byte[64];
+        new SecureRandom().nextBytes(bytes);
+        return Keys.hmacShaKeyFor(bytes);
+    }
+
+    private static Map<String, SecretKey> claves(Object... pares) {
+        Map<String, SecretKey> claves = new LinkedHashMap<>();
+        for (int i = 0; i < pares.length; i += 2) {
+            claves.put((String) pares[i], (SecretKey) pares[i + 1]);
+        }
+        return claves;
+    }
+
+    // Emite un token como JwtTokenProvider: firmado con la clave activa y su 'kid' en el encabezado
+    private static String emitir(JwtKeyRing anillo, String usuario) {
+        return Jwts.builder()
+                .setSubject(usuario)
+                .setHeaderParam(JwsHeader.KEY_ID, anillo.getActiveKeyId())
+                .signWith(anillo.getActiveKey(), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    private static Claims verificar(JwtKeyRing anillo, String token) {
+        return Jwts.parserBuilder().setSigningKeyResolver(anillo).build().parseClaimsJws(token).getBody();
+    }
+
+    @Test
+    void resuelveLaClavePorKid() {
+        JwtKeyRing anillo = new JwtKeyRing("v2", claves("v1", V1, "v2", V2));
+
+        assertThat(anillo.getActiveKeyId()).isEqualTo("v2");
+        assertThat(anillo.getActiveKey()).isEqualTo(V2);
+        assertThat(anillo.size()).isEqualTo(2);
+        assertThat(verificar(anillo, emitir(anillo, "ana@example.com")).getSubject()).isEqualTo("ana@example.com");
+    }
+
+    @Test
+    void rotacionConservaLaVerificacionDeTokensAnteriores() {
+        JwtKeyRing antes = new JwtKeyRing("v1", claves("v1", V1));
+        String tokenAnterior = emitir(antes, "ana@example.com");
+
+        // v2 pasa a firmar; v1 queda retirada, solo para verificación
+        JwtKeyRing despues = new JwtKeyRing("v2", claves("v2", V2, "v1", V1));
+        String tokenNuevo = emitir(despues, "luis@example.com");
+
+        assertThat(verificar(despues, tokenAnterior).getSubject()).isEqualTo("ana@example.com");
+        assertThat(verificar(despues, tokenNuevo).getSubject()).isEqualTo("luis@example.com");
+        // Un nodo que aún no rotó rechaza los tokens de la clave nueva
+        assertThatThrownBy(() -> verificar(antes, tokenNuevo)).isInstanceOf(SignatureException.class);
+
+        // Al retirar v1 del anillo sus tokens dejan de aceptarse
+        JwtKeyRing sinV1 = new JwtKeyRing("v2", claves("v2", V2));
+        assertThatThrownBy(() -> verificar(sinV1, tokenAnterior))
+                .isInstanceOf(SignatureException.class)
+                .hasMessageContaining("v1");
+    }
+
+    @Test
+    void kidDesconocidoOFirmaConOtraClave() {
+        JwtKeyRing anillo = new JwtKeyRing("v1", claves("v1", V1));
+
+        String kidDesconocido = Jwts.builder().setSubject("ana@example.com")
+                .setHeaderParam(JwsHeader.KEY_ID, "v9").signWith(V1, SignatureAlgorithm.HS512).compact();
+        assertThatThrownBy(() -> verificar(anillo, kidDesconocido))
+                .isInstanceOf(SignatureException.class)
+                .hasMessageContaining("v9");
+
+        // El 'kid' existe pero la firma no corresponde a su clave
+        String firmaAjena = Jwts.builder().setSubject("ana@example.com")
+                .setHeaderParam(JwsHeader.KEY_ID, "v1").signWith(V2, SignatureAlgorithm.HS512).compact();
+        assertThatThrownBy(() -> verificar(anillo, firmaAjena)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void tokensSinKidSeVerificanConLaClaveActiva() {
+        String sinKid = Jwts.builder().setSubject("ana@example.com").signWith(V2, SignatureAlgorithm.HS512).compact();
+
+        assertThat(verificar(new JwtKeyRing("v2", claves("v1", V1, "v2", V2)), sinKid).getSubject())
+                .isEqualTo("ana@example.com");
+        assertThatThrownBy(() -> verificar(new JwtKeyRing("v1", claves("v1", V1, "v2", V2)), sinKid))
+                .isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void laClaveActivaDebeExistirYElAnilloEsInmutable() {
+        assertThatThrownBy(() -> new JwtKeyRing("v3", claves("v1", V1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("v3");
+
+        Map<String, SecretKey> origen = new HashMap<>(claves("v1", V1));
+        JwtKeyRing anillo = new JwtKeyRing("v1", origen);
+        String token = Jwts.builder().setSubject("ana@example.com")
+                .setHeaderParam(JwsHeader.KEY_ID, "v2").signWith(V2, SignatureAlgorithm.HS512).compact();
+        origen.put("v2", V2);
+
+        assertThat(anillo.size()).isEqualTo(1);
+        assertThatThrownBy(() -> verificar(anillo, token)).isInstanceOf(SignatureException.class);
+    }
+}
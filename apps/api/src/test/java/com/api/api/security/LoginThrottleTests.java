@@ -0,0 +1,46 @@
+package com.api.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleTests {
+
+    private final LoginThrottle throttle = new LoginThrottle(new InMemoryLoginAttemptStore(15, 1000),
+            new SimpleMeterRegistry(), 5, 3, 15, 1000);
+
+    @Test
+    void laClaveDeIpAceptaSoloUnaDireccion() {
+        assertThat(LoginThrottle.ipKey(" 10.0.0.1 ")).isEqualTo("ip:10.0.0.1");
+        assertThat(LoginThrottle.ipKey("2001:DB8::1")).isEqualTo("ip:2001:db8::1");
+        assertThat(LoginThrottle.ipKey("::ffff:10.0.0.1")).isEqualTo("ip:::ffff:10.0.0.1");
+
+        // Listas de X-Forwarded-For, nombres, puertos y valores largos no llegan al almacén
+        assertThat(LoginThrottle.ipKey("10.0.0.1, 10.0.0.2")).isNull();
+        assertThat(LoginThrottle.ipKey("proxy.example.com")).isNull();
+        assertThat(LoginThrottle.ipKey("10.0.0.1:8080")).isNull();
+        assertThat(LoginThrottle.ipKey(":".repeat(400))).isNull();
+        assertThat(LoginThrottle.ipKey("")).isNull();
+        assertThat(LoginThrottle.ipKey(null)).isNull();
+    }
+
+    @Test
+    void laIpSeBloqueaTrasElUmbral() {
+        for (int i = 0; i < 3; i++) {
+            throttle.registrarFallo("usuario" + i + "@example.com", "10.0.0.1");
+        }
+        assertThat(throttle.verificar("otro@example.com", "10.0.0.1")).isEqualTo(LoginThrottle.Bloqueo.IP);
+        assertThat(throttle.verificar("otro@example.com", "10.0.0.2")).isEqualTo(LoginThrottle.Bloqueo.NINGUNO);
+    }
+
+    @Test
+    void unaIpInvalidaSigueLimitadaPorEmail() {
+        String encabezado = "1.1.1.1, ".repeat(100);
+        for (int i = 0; i < 5; i++) {
+            assertThat(throttle.verificar("ana@example.com", encabezado)).isEqualTo(LoginThrottle.Bloqueo.NINGUNO);
+            throttle.registrarFallo("ana@example.com", encabezado);
+        }
+        assertThat(throttle.verificar("ana@example.com", encabezado)).isEqualTo(LoginThrottle.Bloqueo.EMAIL);
+    }
+}
@@ -0,0 +1,126 @@
+package com.api.api.security;
+
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionChangeListenerTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DatosPermisos datos;
+    private SimpleMeterRegistry meterRegistry;
+    private PermissionMatrix matrix;
+    private PermissionChangeListener listener;
+
+    private UUID rol;
+    private UUID usuario;
+
+    @BeforeEach
+    void preparar() throws InterruptedException {
+        jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        PostgresEmbebido.limpiar();
+        datos = new DatosPermisos(jdbcTemplate);
+        meterRegistry = new SimpleMeterRegistry();
+        // Matriz de este nodo; los cambios se hacen con SQL directo, como si vinieran de otro nodo
+        matrix = new PermissionMatrix(PostgresEmbebido.dataSource(), PostgresEmbebido.transactionManager(),
+                meterRegistry, 100, 100);
+
+        UUID crm = datos.aplicacion("crm");
+        UUID ver = datos.accion(crm, datos.seccion("General"), "ver");
+        rol = datos.tipoUsuario(crm, "Vendedor");
+        datos.permiso(rol, ver);
+        usuario = datos.usuario("ana@example.com");
+        matrix.rebuild();
+
+        iniciar(100);
+    }
+
+    private void iniciar(long minIntervalMs) throws InterruptedException {
+        listener = new PermissionChangeListener(PostgresEmbebido.dataSource(), matrix, meterRegistry, minIntervalMs, 200, 10_000);
+        listener.start();
+        // LISTEN se ejecuta de forma asíncrona: espera a que el hilo esté escuchando
+        assertThat(esperar(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_stat_activity WHERE query = 'LISTEN permisos_cambios'", Integer.class) > 0))
+                .isTrue();
+    }
+
+    @AfterEach
+    void detener() {
+        // Sin PostgreSQL embebido (ejecución como root) la preparación se omite antes de crear el listener
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    private static boolean esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < limite) {
+            if (condicion.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return condicion.getAsBoolean();
+    }
+
+    private double reconstrucciones() {
+        return meterRegistry.counter("seguridad.permisos.reconstrucciones_remotas").count();
+    }
+
+    @Test
+    void losCambiosConfirmadosEnOtroNodoSeIncorporan() throws Exception {
+        assertThat(matrix.check(usuario, "crm", "ver")).isFalse();
+        String etag = matrix.menu(usuario, "crm").etag();
+
+        datos.asignacion(usuario, rol);
+        assertThat(esperar(() -> matrix.check(usuario, "crm", "ver"))).isTrue();
+        assertThat(matrix.menu(usuario, "crm").etag()).isNotEqualTo(etag);
+
+        // Estado del usuario
+        jdbcTemplate.update("UPDATE usuarios SET estado = 'inactivo' WHERE id = ?", usuario);
+        assertThat(esperar(() -> !matrix.check(usuario, "crm", "ver"))).isTrue();
+    }
+
+    @Test
+    void losCambiosSinEfectoEnPermisosNoReconstruyen() throws Exception {
+        // Actualizaciones de usuarios que no tocan estado ni deleted_at (ej. inicio de sesión)
+        jdbcTemplate.update("UPDATE usuarios SET nombres = 'Ana' WHERE id = ?", usuario);
+        // Cambio revertido: la notificación solo se entrega al confirmar
+        PostgresEmbebido.transactionTemplate().executeWithoutResult(status -> {
+            datos.asignacion(usuario, rol);
+            status.setRollbackOnly();
+        });
+        Thread.sleep(500);
+        assertThat(reconstrucciones()).isZero();
+        assertThat(matrix.check(usuario, "crm", "ver")).isFalse();
+
+        // Un cambio confirmado sí reconstruye
+        datos.asignacion(usuario, rol);
+        assertThat(esperar(() -> reconstrucciones() > 0)).isTrue();
+    }
+
+    @Test
+    void variasNotificacionesSeAgrupanEnPocasReconstrucciones() throws Exception {
+        // Intervalo mayor que la duración de los cambios, que no depende de la velocidad del equipo
+        listener.stop();
+        iniciar(2_000);
+        for (int i = 0; i < 50; i++) {
+            datos.usuario("usuario" + i + "@example.com");
+            jdbcTemplate.update("UPDATE tipo_usuario SET descripcion = ? WHERE id = ?", "v" + i, rol);
+        }
+        datos.asignacion(usuario, rol);
+
+        assertThat(esperar(() -> matrix.check(usuario, "crm", "ver"))).isTrue();
+        // 100 cambios en alrededor de un intervalo mínimo generan muy pocas reconstrucciones
+        assertThat(reconstrucciones()).isLessThan(5);
+    }
+}
@@ -0,0 +1,173 @@
+package com.api.api.security;
+
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionMatrixTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DatosPermisos datos;
+    private PermissionMatrix matrix;
+
+    private UUID crm;
+    private UUID seccion;
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        PostgresEmbebido.limpiar();
+        datos = new DatosPermisos(jdbcTemplate);
+        matrix = new PermissionMatrix(PostgresEmbebido.dataSource(), PostgresEmbebido.transactionManager(),
+                new SimpleMeterRegistry(), 100, 100);
+        crm = datos.aplicacion("crm");
+        seccion = datos.seccion("General");
+    }
+
+    @Test
+    void sinCompilarNingunaConsultaOtorgaPermiso() {
+        assertThat(matrix.isReady()).isFalse();
+        assertThat(matrix.check(UUID.randomUUID(), "crm", "ver")).isFalse();
+        assertThat(matrix.check(UUID.randomUUID(), "crm", List.of("ver"))).containsExactly(false);
+    }
+
+    @Test
+    void masDeSesentaYCuatroAccionesPorAplicacion() {
+        List<UUID> acciones = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            acciones.add(datos.accion(crm, seccion, "accion_" + i));
+        }
+        UUID rol = datos.tipoUsuario(crm, "Operador");
+        // Bordes de las palabras del bitset: 0, 63 (última de la primera), 64 y 69 (segunda palabra)
+        int[] permitidas = {0, 63, 64, 69};
+        for (int indice : permitidas) {
+            datos.permiso(rol, acciones.get(indice));
+        }
+        UUID usuario = datos.usuario("ana@example.com");
+        datos.asignacion(usuario, rol);
+
+        matrix.rebuild();
+
+        List<String> nombres = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            nombres.add("accion_" + i);
+        }
+        boolean[] resultados = matrix.check(usuario, "crm", nombres);
+        for (int i = 0; i < 70; i++) {
+            boolean esperado = i == 0 || i == 63 || i == 64 || i == 69;
+            assertThat(resultados[i]).as("accion_%d (lote)", i).isEqualTo(esperado);
+            assertThat(matrix.check(usuario, "crm", "accion_" + i)).as("accion_%d", i).isEqualTo(esperado);
+        }
+    }
+
+    @Test
+    void losTiposDeUsuarioDeOtraAplicacionNoOtorganPermisos() {
+        UUID erp = datos.aplicacion("erp");
+        datos.accion(crm, seccion, "ver");
+        UUID verErp = datos.accion(erp, seccion, "ver");
+        UUID rolErp = datos.tipoUsuario(erp, "Contador");
+        datos.permiso(rolErp, verErp);
+        UUID usuario = datos.usuario("ana@example.com");
+        datos.asignacion(usuario, rolErp);
+
+        matrix.rebuild();
+
+        // La acción existe con el mismo nombre en ambas aplicaciones
+        assertThat(matrix.check(usuario, "erp", "ver")).isTrue();
+        assertThat(matrix.check(usuario, "crm", "ver")).isFalse();
+        assertThat(matrix.check(usuario, "crm", List.of("ver", "inexistente"))).containsExactly(false, false);
+        assertThat(matrix.menu(usuario, "crm").secciones()).isEmpty();
+        assertThat(matrix.menu(usuario, "erp").secciones()).hasSize(1);
+    }
+
+    @Test
+    void permisosSobreAccionesEliminadasODeOtraAplicacionSeIgnoran() {
+        UUID erp = datos.aplicacion("erp");
+        UUID ver = datos.accion(crm, seccion, "ver");
+        UUID eliminada = datos.accion(crm, seccion, "eliminada");
+        UUID ajena = datos.accion(erp, seccion, "ajena");
+        UUID rol = datos.tipoUsuario(crm, "Vendedor");
+        datos.permiso(rol, ver);
+        datos.permiso(rol, eliminada);
+        // Permiso inconsistente: acción de otra aplicación
+        datos.permiso(rol, ajena);
+        datos.eliminarLogicamente("acciones", eliminada);
+        UUID usuario = datos.usuario("ana@example.com");
+        datos.asignacion(usuario, rol);
+
+        matrix.rebuild();
+
+        // El tipo de usuario se compila igualmente con las acciones válidas
+        assertThat(matrix.check(usuario, "crm", "ver")).isTrue();
+        assertThat(matrix.check(usuario, "crm", "eliminada")).isFalse();
+        assertThat(matrix.check(usuario, "erp", "ajena")).isFalse();
+        assertThat(matrix.check(usuario, "crm", "ajena")).isFalse();
+    }
+
+    @Test
+    void usuariosInactivosOEliminadosNoTienenPermisos() {
+        UUID ver = datos.accion(crm, seccion, "ver");
+        UUID rol = datos.tipoUsuario(crm, "Vendedor");
+        datos.permiso(rol, ver);
+        UUID inactivo = datos.usuario("inactivo@example.com");
+        UUID eliminado = datos.usuario("eliminado@example.com");
+        UUID activo = datos.usuario("activo@example.com");
+        for (UUID usuario : List.of(inactivo, eliminado, activo)) {
+            datos.asignacion(usuario, rol);
+        }
+        jdbcTemplate.update("UPDATE usuarios SET estado = 'inactivo' WHERE id = ?", inactivo);
+        datos.eliminarLogicamente("usuarios", eliminado);
+
+        matrix.rebuild();
+
+        assertThat(matrix.check(activo, "crm", "ver")).isTrue();
+        assertThat(matrix.check(inactivo, "crm", "ver")).isFalse();
+        assertThat(matrix.check(eliminado, "crm", "ver")).isFalse();
+
+        // Cambios posteriores de estado se aplican al recargar el usuario
+        jdbcTemplate.update("UPDATE usuarios SET estado = 'inactivo' WHERE id = ?", activo);
+        jdbcTemplate.update("UPDATE usuarios SET estado = 'activo' WHERE id = ?", inactivo);
+        matrix.actualizarUsuarios(List.of(activo, inactivo));
+        assertThat(matrix.check(activo, "crm", "ver")).isFalse();
+        assertThat(matrix.check(inactivo, "crm", "ver")).isTrue();
+    }
+
+    @Test
+    void actualizacionesIncrementalesDeTipoDeUsuarioYUsuario() {
+        UUID ver = datos.accion(crm, seccion, "ver");
+        UUID editar = datos.accion(crm, seccion, "editar");
+        UUID rol = datos.tipoUsuario(crm, "Vendedor");
+        datos.permiso(rol, ver);
+        UUID usuario = datos.usuario("ana@example.com");
+
+        matrix.rebuild();
+        long version = matrix.getVersion();
+        assertThat(matrix.check(usuario, "crm", "ver")).isFalse();
+
+        datos.asignacion(usuario, rol);
+        matrix.actualizarUsuario(usuario);
+        assertThat(matrix.check(usuario, "crm", "ver")).isTrue();
+        assertThat(matrix.check(usuario, "crm", "editar")).isFalse();
+
+        datos.permiso(rol, editar);
+        matrix.actualizarTipoUsuario(rol);
+        assertThat(matrix.check(usuario, "crm", List.of("ver", "editar"))).containsExactly(true, true);
+        assertThat(matrix.getVersion()).isGreaterThan(version);
+
+        // El ETag del menú cambia con el contenido
+        String etag = matrix.menu(usuario, "crm").etag();
+        jdbcTemplate.update("UPDATE permisos_tipo_usuario SET deleted_at = now() WHERE accion_id = ?", editar);
+        matrix.actualizarTipoUsuario(rol);
+        assertThat(matrix.check(usuario, "crm", "editar")).isFalse();
+        assertThat(matrix.menu(usuario, "crm").etag()).isNotEqualTo(etag);
+    }
+}
@@ -0,0 +1,116 @@
+package com.api.api.service;
+
+import com.api.api.audit.AuditActionRegistry;
+import com.api.api.audit.AuditActions;
+import com.api.api.audit.AuditMode;
+import com.api.api.audit.AuditPolicy;
+import com.api.api.audit.AuditRecorder;
+import com.api.api.exception.BadRequestException;
+import com.api.api.model.Acciones;
+import com.api.api.model.AuditoriaAccesos;
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditoriaExportServiceTests {
+
+    private static final OffsetDateTime DESDE = OffsetDateTime.parse("2024-06-01T00:00:00Z");
+    private static final OffsetDateTime HASTA = OffsetDateTime.parse("2024-07-01T00:00:00Z");
+
+    private AuditoriaAccesosService auditoriaAccesosService;
+    private AuditoriaExportService service;
+
+    @BeforeEach
+    void preparar() {
+        JdbcTemplate jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        PostgresEmbebido.limpiar();
+        DatosPermisos datos = new DatosPermisos(jdbcTemplate);
+        UUID cca = datos.aplicacion("cca");
+        UUID accion = datos.accion(cca, datos.seccion("Auditoría"), AuditActions.GENERACION_REPORTE);
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update("INSERT INTO auditoria_accesos (email_usuario, aplicacion_id, accion_id, fecha, ip_origen, mensaje) " +
+                    "VALUES ('ana@example.com', ?, ?, ?, '10.0.0.1', ?)", cca, accion, DESDE.plusDays(i), "evento " + i);
+        }
+
+        Acciones referencia = new Acciones();
+        referencia.setId(accion);
+        AuditActionRegistry registry = mock(AuditActionRegistry.class);
+        when(registry.reference(any())).thenReturn(Optional.of(referencia));
+        auditoriaAccesosService = mock(AuditoriaAccesosService.class);
+        AuditRecorder recorder = new AuditRecorder(auditoriaAccesosService, registry,
+                new AuditPolicy(Set.of(), Set.of(), AuditMode.COUNT, new SimpleMeterRegistry()));
+
+        service = new AuditoriaExportService(PostgresEmbebido.dataSource(), PostgresEmbebido.transactionManager(),
+                new ObjectMapper(), recorder, 2);
+        ReflectionTestUtils.setField(service, "maxWindowDays", 366);
+    }
+
+    private AuditoriaAccesos auditoriaRegistrada() {
+        ArgumentCaptor<AuditoriaAccesos> captor = ArgumentCaptor.forClass(AuditoriaAccesos.class);
+        verify(auditoriaAccesosService).createAsync(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void laAuditoriaSeRegistraAlTerminarElStreamingConLaCantidadDeRegistros() throws IOException {
+        StreamingResponseBody body = service.export(DESDE, HASTA, AuditoriaExportService.Formato.CSV, false, null, null);
+        // Preparar la respuesta no registra nada: la consulta aún no se ejecuta
+        verify(auditoriaAccesosService, never()).createAsync(any());
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        body.writeTo(salida);
+
+        assertThat(salida.toString(StandardCharsets.UTF_8).split("\r\n")).hasSize(6);
+        AuditoriaAccesos auditoria = auditoriaRegistrada();
+        assertThat(auditoria.getEstado()).isEqualTo("exitoso");
+        assertThat(auditoria.getMensaje()).contains("Registros exportados: 5");
+    }
+
+    @Test
+    void laInterrupcionDelStreamingSeAuditaComoFallo() {
+        StreamingResponseBody body = service.export(DESDE, HASTA, AuditoriaExportService.Formato.NDJSON, false, null, null);
+        // El cliente cerró la conexión: cualquier escritura falla
+        OutputStream clienteDesconectado = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> body.writeTo(clienteDesconectado)).isInstanceOf(IOException.class);
+        AuditoriaAccesos auditoria = auditoriaRegistrada();
+        assertThat(auditoria.getEstado()).isEqualTo("fallido");
+        assertThat(auditoria.getMensaje()).contains("interrumpida tras").contains("Broken pipe");
+    }
+
+    @Test
+    void losParametrosInvalidosSeAuditanComoFallo() {
+        assertThatThrownBy(() -> service.export(HASTA, DESDE, AuditoriaExportService.Formato.CSV, false, null, null))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(auditoriaRegistrada().getEstado()).isEqualTo("fallido");
+    }
+}
@@ -0,0 +1,283 @@
+package com.api.api.service;
+
+import com.api.api.dto.ResponseDTO.UsuarioImportErrorDTO;
+import com.api.api.dto.ResponseDTO.UsuarioImportResponseDTO;
+import com.api.api.dto.SimpleDTO.TipoUsuarioSimpleDTO;
+import com.api.api.exception.BadRequestException;
+import com.api.api.repository.TipoUsuarioRepository;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.support.DatosPermisos;
+import com.api.api.support.PostgresEmbebido;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UsuariosImportServiceTests {
+
+    private static final String ENCABEZADO = "nombres,apellidos,email,contrasena,estado,dosFactorActivo,tiposUsuario\r\n";
+
+    @Nested
+    class Csv {
+
+        private List<UsuariosImportService.Fila> leer(String contenido) throws IOException {
+            UsuariosImportService.CsvFilaSource source = new UsuariosImportService.CsvFilaSource(new StringReader(contenido));
+            List<UsuariosImportService.Fila> filas = new ArrayList<>();
+            UsuariosImportService.Fila fila;
+            while ((fila = source.next()) != null) {
+                filas.add(fila);
+            }
+            return filas;
+        }
+
+        @Test
+        void camposEntreComillasConComasYComillasEscapadas() throws IOException {
+            List<UsuariosImportService.Fila> filas = leer("email,nombres,apellidos\n" +
+                    "ana@example.com,\"Pérez, Ana\",\"dice \"\"hola\"\"\"\n");
+
+            assertThat(filas).hasSize(1);
+            assertThat(filas.get(0).error()).isNull();
+            assertThat(filas.get(0).valores()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                    "email", "ana@example.com", "nombres", "Pérez, Ana", "apellidos", "dice \"hola\""));
+        }
+
+        @Test
+        void saltosDeLineaCrlfYCampoEntreComillasConSaltoDeLinea() throws IOException {
+            List<UsuariosImportService.Fila> filas = leer("email,nombres\r\n" +
+                    "ana@example.com,\"Ana\r\nMaría\"\r\n" +
+                    "luis@example.com,Luis\r\n");
+
+            assertThat(filas).extracting(UsuariosImportService.Fila::numero).containsExactly(1L, 2L);
+            assertThat(filas.get(0).valores()).containsEntry("nombres", "Ana\r\nMaría");
+            // El CR del fin de registro no queda en el último campo
+            assertThat(filas.get(1).valores()).containsEntry("nombres", "Luis");
+        }
+
+        @Test
+        void ultimoRegistroSinSaltoDeLineaYLineasEnBlanco() throws IOException {
+            List<UsuariosImportService.Fila> filas = leer(" email ,nombres\n\nana@example.com,Ana\n\r\nluis@example.com,Luis");
+
+            assertThat(filas).hasSize(2);
+            assertThat(filas).extracting(fila -> fila.valores().get("email"))
+                    .containsExactly("ana@example.com", "luis@example.com");
+            // Las líneas en blanco cuentan para el número de fila informado
+            assertThat(filas).extracting(UsuariosImportService.Fila::numero).containsExactly(2L, 4L);
+        }
+
+        @Test
+        void filaConDistintaCantidadDeColumnasQueElEncabezado() throws IOException {
+            List<UsuariosImportService.Fila> filas = leer("email,nombres,apellidos\n" +
+                    "ana@example.com,Ana\n" +
+                    "luis@example.com,Luis,Díaz,extra\n" +
+                    "eva@example.com,Eva,Ruiz\n");
+
+            assertThat(filas).hasSize(3);
+            assertThat(filas.get(0).valores()).isNull();
+            assertThat(filas.get(0).error()).isEqualTo("La fila tiene 2 columnas; se esperaban 3");
+            assertThat(filas.get(1).error()).isEqualTo("La fila tiene 4 columnas; se esperaban 3");
+            // Una fila inválida no afecta a las siguientes
+            assertThat(filas.get(2).error()).isNull();
+            assertThat(filas.get(2).valores()).containsEntry("apellidos", "Ruiz");
+        }
+
+        @Test
+        void archivoVacioOEncabezadoSinEmail() {
+            assertThatThrownBy(() -> leer(""))
+                    .isInstanceOf(BadRequestException.class)
+                    .hasMessageContaining("vacío");
+            assertThatThrownBy(() -> leer("nombres,apellidos\nAna,Pérez\n"))
+                    .isInstanceOf(BadRequestException.class)
+                    .hasMessageContaining("'email'");
+        }
+    }
+
+    @Nested
+    class Importacion {
+
+        private final JdbcTemplate jdbcTemplate = PostgresEmbebido.jdbcTemplate();
+        private final DatosPermisos datos = new DatosPermisos(jdbcTemplate);
+        private final EffectivePermissionsStore store = new EffectivePermissionsStore(jdbcTemplate,
+                PostgresEmbebido.transactionTemplate(), new SimpleMeterRegistry(), true);
+        private final TipoUsuarioRepository tipoUsuarioRepository = mock(TipoUsuarioRepository.class);
+        private final EmailMembershipFilter emailMembershipFilter = mock(EmailMembershipFilter.class);
+        private final PermissionMatrix permissionMatrix = mock(PermissionMatrix.class);
+        private final UsuariosImportService service = new UsuariosImportService(jdbcTemplate,
+                PostgresEmbebido.transactionTemplate(), tipoUsuarioRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                emailMembershipFilter, store, permissionMatrix, 2, 2, 1000);
+
+        private UUID tipoId;
+        private UUID accionId;
+
+        Importacion() {
+            PostgresEmbebido.limpiar();
+            UUID aplicacionId = datos.aplicacion("crm");
+            accionId = datos.accion(aplicacionId, datos.seccion("Clientes"), "ver_clientes");
+            tipoId = datos.tipoUsuario(aplicacionId, "Vendedor");
+            datos.permiso(tipoId, accionId);
+        }
+
+        @AfterEach
+        void cerrar() {
+            service.shutdown();
+        }
+
+        private void tiposValidos(UUID... ids) {
+            List<TipoUsuarioSimpleDTO> tipos = new ArrayList<>();
+            for (UUID id : ids) {
+                tipos.add(new TipoUsuarioSimpleDTO() {
+                    @Override
+                    public UUID getId() {
+                        return id;
+                    }
+
+                    @Override
+                    public String getNombre() {
+                        return "Tipo";
+                    }
+                });
+            }
+            when(tipoUsuarioRepository.findAllSelect()).thenReturn(tipos);
+        }
+
+        private UsuarioImportResponseDTO importar(String contenido, UsuariosImportService.Formato formato) throws IOException {
+            return service.importar(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), formato);
+        }
+
+        private UUID usuarioId(String email) {
+            return jdbcTemplate.queryForObject("SELECT id FROM usuarios WHERE email = ?", UUID.class, email);
+        }
+
+        private boolean tienePermiso(UUID usuarioId, UUID accionId) {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM usuario_permisos_efectivos " +
+                    "WHERE usuario_id = ? AND accion_id = ?)", Boolean.class, usuarioId, accionId));
+        }
+
+        @Test
+        void filasInvalidasYDuplicadasSeRechazanSinAbortarLaImportacion() throws IOException {
+            tiposValidos(tipoId);
+            datos.usuario("existente@example.com");
+
+            UsuarioImportResponseDTO resultado = importar(ENCABEZADO +
+                    "\"Pérez, Ana\",Gómez,ana@example.com,Clave123!,activo,false," + tipoId + "\r\n" +
+                    "Luis,Díaz,LUIS@Example.com,Clave123!,activo,true,\r\n" +
+                    "Eva,Ruiz,existente@example.com,Clave123!,activo,false,\r\n" +
+                    "Sol,Mar,ANA@example.com,Clave123!,activo,false,\r\n" +
+                    "Bad,Email,no-es-email,Clave123!,activo,false,\r\n" +
+                    "Tipo,Inexistente,tipo@example.com,Clave123!,activo,false," + UUID.randomUUID() + "\r\n" +
+                    "Solo,Tres,columnas\r\n" +
+                    "Est,Ado,estado@example.com,Clave123!,otro,false,\r\n", UsuariosImportService.Formato.CSV);
+
+            assertThat(resultado.getTotalFilas()).isEqualTo(8);
+            assertThat(resultado.getCreados()).isEqualTo(2);
+            assertThat(resultado.getRechazados()).isEqualTo(6);
+            assertThat(resultado.isErroresTruncados()).isFalse();
+            assertThat(resultado.getErrores()).extracting(UsuarioImportErrorDTO::getFila).containsExactly(3L, 4L, 5L, 6L, 7L, 8L);
+            assertThat(resultado.getErrores().get(0).getMensaje()).isEqualTo("El email ya está registrado");
+            assertThat(resultado.getErrores().get(1).getMensaje()).isEqualTo("El email está repetido en el archivo");
+            assertThat(resultado.getErrores().get(2).getMensaje()).contains("email");
+            assertThat(resultado.getErrores().get(3).getMensaje()).startsWith("Tipo de usuario no encontrado");
+            assertThat(resultado.getErrores().get(4).getMensaje()).contains("columnas");
+            assertThat(resultado.getErrores().get(5).getMensaje()).contains("estado");
+
+            // El email existente conserva su fila original (ON CONFLICT DO NOTHING)
+            assertThat(jdbcTemplate.queryForObject("SELECT contrasena FROM usuarios WHERE email = 'existente@example.com'",
+                    String.class)).isEqualTo("x");
+            String hash = jdbcTemplate.queryForObject("SELECT contrasena FROM usuarios WHERE email = 'ana@example.com'", String.class);
+            assertThat(new BCryptPasswordEncoder().matches("Clave123!", hash)).isTrue();
+            assertThat(usuarioId("luis@example.com")).isNotNull();
+
+            // Asignación y permisos efectivos en la misma transacción del lote
+            UUID ana = usuarioId("ana@example.com");
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuarios_tipo_usuario WHERE usuario_id = ?",
+                    Integer.class, ana)).isEqualTo(1);
+            assertThat(tienePermiso(ana, accionId)).isTrue();
+            assertThat(store.check().consistente()).isTrue();
+
+            verify(emailMembershipFilter).add("ana@example.com");
+            verify(emailMembershipFilter).add("luis@example.com");
+            verify(emailMembershipFilter, never()).add("existente@example.com");
+            verify(permissionMatrix).actualizarUsuarios(List.of(ana));
+        }
+
+        @Test
+        void unLoteFallidoSeRechazaCompletoYLosDemasSeConfirman() throws IOException {
+            // El tipo existe al validar pero no en la base de datos: falla la FK del segundo lote
+            UUID eliminado = UUID.randomUUID();
+            tiposValidos(tipoId, eliminado);
+
+            UsuarioImportResponseDTO resultado = importar(ENCABEZADO +
+                    "Ana,Gómez,ana@example.com,Clave123!,activo,false," + tipoId + "\n" +
+                    "Luis,Díaz,luis@example.com,Clave123!,activo,false,\n" +
+                    "Eva,Ruiz,eva@example.com,Clave123!,activo,false,\n" +
+                    "Sol,Mar,sol@example.com,Clave123!,activo,false," + eliminado + "\n" +
+                    "Paz,Luna,paz@example.com,Clave123!,inactivo,false,\n", UsuariosImportService.Formato.CSV);
+
+            assertThat(resultado.getCreados()).isEqualTo(3);
+            assertThat(resultado.getErrores()).extracting(UsuarioImportErrorDTO::getFila).containsExactly(3L, 4L);
+            assertThat(resultado.getErrores()).extracting(UsuarioImportErrorDTO::getMensaje)
+                    .containsOnly("No se pudo insertar el lote de la fila");
+            // El lote fallido se revierte completo, incluidos los usuarios sin tipos
+            assertThat(jdbcTemplate.queryForList("SELECT email FROM usuarios ORDER BY email", String.class))
+                    .containsExactly("ana@example.com", "luis@example.com", "paz@example.com");
+            assertThat(store.check().consistente()).isTrue();
+            verify(emailMembershipFilter, never()).add("eva@example.com");
+        }
+
+        @Test
+        void ndjsonConLineasMalFormadas() throws IOException {
+            tiposValidos(tipoId);
+
+            UsuarioImportResponseDTO resultado = importar(
+                    "{\"nombres\":\"Ana\",\"apellidos\":\"Gómez\",\"email\":\"ana@example.com\",\"contrasena\":\"Clave123!\"," +
+                            "\"estado\":\"activo\",\"tiposUsuario\":[\"" + tipoId + "\"]}\n" +
+                    "{\"nombres\":\"Luis\",\n" +
+                    "\n" +
+                    "[1, 2]\n" +
+                    "{\"nombres\":\"Eva\",\"apellidos\":\"Ruiz\",\"email\":\"eva@example.com\",\"contrasena\":\"Clave123!\"," +
+                            "\"estado\":\"activo\",\"dosFactorActivo\":true,\"tiposUsuario\":null}\n",
+                    UsuariosImportService.Formato.NDJSON);
+
+            assertThat(resultado.getTotalFilas()).isEqualTo(4);
+            assertThat(resultado.getCreados()).isEqualTo(2);
+            assertThat(resultado.getErrores()).extracting(UsuarioImportErrorDTO::getFila).containsExactly(2L, 4L);
+            assertThat(resultado.getErrores().get(0).getMensaje()).startsWith("JSON inválido");
+            assertThat(resultado.getErrores().get(1).getMensaje()).isEqualTo("Cada línea debe contener un objeto JSON");
+            assertThat(jdbcTemplate.queryForObject("SELECT dos_factor_activo FROM usuarios WHERE email = 'eva@example.com'",
+                    Boolean.class)).isTrue();
+            assertThat(tienePermiso(usuarioId("ana@example.com"), accionId)).isTrue();
+        }
+
+        @Test
+        void sinTiposAsignadosNoSeRecargaNingunUsuario() throws IOException {
+            tiposValidos();
+
+            importar(ENCABEZADO + "Ana,Gómez,ana@example.com,Clave123!,activo,false,\n", UsuariosImportService.Formato.CSV);
+
+            verify(permissionMatrix).actualizarUsuarios(List.of());
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario_permisos_efectivos", Integer.class)).isZero();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.api.api.service;
+
+import com.api.api.model.Usuarios;
+import com.api.api.repository.UsuariosRepository;
+import com.api.api.security.EffectivePermissionsStore;
+import com.api.api.security.EmailMembershipFilter;
+import com.api.api.security.PermissionMatrix;
+import com.api.api.security.PrincipalCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Los permisos efectivos de un usuario se recalculan cuando cambia su estado o se elimina lógicamente
+class UsuariosServiceTests {
+
+    private final UUID id = UUID.randomUUID();
+    private UsuariosRepository usuariosRepository;
+    private EffectivePermissionsStore effectivePermissionsStore;
+    private UsuariosService service;
+
+    @BeforeEach
+    void preparar() {
+        usuariosRepository = mock(UsuariosRepository.class);
+        effectivePermissionsStore = mock(EffectivePermissionsStore.class);
+        service = new UsuariosService(usuariosRepository, mock(PasswordEncoder.class), mock(PrincipalCache.class),
+                mock(EmailMembershipFilter.class), mock(PermissionMatrix.class), effectivePermissionsStore);
+
+        Usuarios existente = new Usuarios();
+        existente.setId(id);
+        existente.setEmail("ana@example.com");
+        existente.setEstado("activo");
+        when(usuariosRepository.findById(id)).thenReturn(Optional.of(existente));
+        when(usuariosRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private Usuarios cambios(String estado) {
+        Usuarios cambios = new Usuarios();
+        cambios.setEmail("ana@example.com");
+        cambios.setEstado(estado);
+        return cambios;
+    }
+
+    @Test
+    void elCambioDeEstadoRecalculaLosPermisosEfectivos() {
+        service.update(id, cambios("inactivo"));
+        verify(effectivePermissionsStore).recalcularUsuarios(List.of(id));
+    }
+
+    @Test
+    void sinCambioDeEstadoNoSeRecalcula() {
+        service.update(id, cambios("activo"));
+        verify(effectivePermissionsStore, never()).recalcularUsuarios(anyCollection());
+    }
+
+    @Test
+    void laEliminacionLogicaRecalculaLosPermisosEfectivos() {
+        service.softDelete(id);
+        verify(effectivePermissionsStore).recalcularUsuarios(List.of(id));
+    }
+}
@@ -0,0 +1,60 @@
+package com.api.api.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+/**
+ * Inserta filas del modelo de permisos (aplicaciones, acciones, tipos de usuario, usuarios y sus
+ * relaciones) directamente con SQL, sin pasar por los servicios.
+ */
+public final class DatosPermisos {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatosPermisos(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public UUID aplicacion(String llave) {
+        return insertar("INSERT INTO aplicaciones (nombre, url, llave_identificadora) VALUES (?, ?, ?) RETURNING id",
+                llave, "https://" + llave + ".example.com", llave);
+    }
+
+    public UUID seccion(String nombre) {
+        return insertar("INSERT INTO secciones (nombre) VALUES (?) RETURNING id", nombre);
+    }
+
+    public UUID accion(UUID aplicacionId, UUID seccionId, String nombre) {
+        return insertar("INSERT INTO acciones (nombre, aplicacion_id, seccion_id) VALUES (?, ?, ?) RETURNING id",
+                nombre, aplicacionId, seccionId);
+    }
+
+    public UUID tipoUsuario(UUID aplicacionId, String nombre) {
+        return insertar("INSERT INTO tipo_usuario (nombre, aplicacion_id) VALUES (?, ?) RETURNING id", nombre, aplicacionId);
+    }
+
+    public UUID permiso(UUID tipoUsuarioId, UUID accionId) {
+        return insertar("INSERT INTO permisos_tipo_usuario (tipo_usuario_id, accion_id) VALUES (?, ?) RETURNING id",
+                tipoUsuarioId, accionId);
+    }
+
+    public UUID usuario(String email) {
+        return insertar("INSERT INTO usuarios (nombres, apellidos, email, contrasena) VALUES ('Prueba', 'Prueba', ?, 'x') RETURNING id",
+                email);
+    }
+
+    public UUID asignacion(UUID usuarioId, UUID tipoUsuarioId) {
+        return insertar("INSERT INTO usuarios_tipo_usuario (usuario_id, tipo_usuario_id) VALUES (?, ?) RETURNING id",
+                usuarioId, tipoUsuarioId);
+    }
+
+    // Eliminación lógica de una fila de cualquiera de las tablas del modelo
+    public void eliminarLogicamente(String tabla, UUID id) {
+        jdbcTemplate.update("UPDATE " + tabla + " SET deleted_at = now() WHERE id = ?", id);
+    }
+
+    private UUID insertar(String sql, Object... params) {
+        return jdbcTemplate.queryForObject(sql, UUID.class, params);
+    }
+}
@@ -0,0 +1,101 @@
+package com.api.api.support;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * PostgreSQL embebido para las pruebas del SQL propio de PostgreSQL (ON CONFLICT, unnest, advisory locks, cursores).
+ * Se inicia una vez por JVM y aplica las migraciones del modelo de permisos y de auditoria_accesos
+ * en orden de dependencias.
+ * initdb no se ejecuta como root: en ese caso las pruebas que lo usan se omiten.
+ */
+public final class PostgresEmbebido {
+
+    // Orden de creación según las claves foráneas (los prefijos Vnnn no lo respetan)
+    private static final String[] MIGRACIONES = {
+            "V002__Create_aplicaciones_table.sql",
+            "V005__Create_secciones_table.sql",
+            "V007__Create_tipo_usuario_table.sql",
+            "V008__Create_usuarios_table.sql",
+            "V001__Create_acciones_table.sql",
+            "V003__Create_auditoria_accesos_table.sql",
+            "V012__Create_auditoria_accesos_default_partition.sql",
+            "V004__Create_permisos_tipo_usuario_table.sql",
+            "V009__Create_usuarios_tipo_usuario_table.sql",
+            "V021__Create_usuario_permisos_efectivos_table.sql"
+    };
+
+    // Contienen funciones PL/pgSQL ($$ ... $$): se envían completas, sin separar por ';'
+    private static final String[] MIGRACIONES_COMPLETAS = {
+            "V023__Create_permisos_cambios_notify_triggers.sql",
+            "V024__Create_usuarios_emails_notify_triggers.sql"
+    };
+
+    private static final String LIMPIAR_SQL = "TRUNCATE auditoria_accesos, usuario_permisos_efectivos, usuarios_tipo_usuario, " +
+            "permisos_tipo_usuario, usuarios, tipo_usuario, acciones, secciones, aplicaciones CASCADE";
+
+    private static DataSource dataSource;
+
+    private PostgresEmbebido() {
+    }
+
+    public static synchronized DataSource dataSource() {
+        Assumptions.assumeFalse("root".equals(System.getProperty("user.name")),
+                "PostgreSQL embebido no puede ejecutarse como root");
+        if (dataSource == null) {
+            try {
+                EmbeddedPostgres postgres = EmbeddedPostgres.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        postgres.close();
+                    } catch (IOException ignored) {
+                        // El proceso termina de todos modos
+                    }
+                }));
+                DataSource nuevo = postgres.getPostgresDatabase();
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+                for (String migracion : MIGRACIONES) {
+                    populator.addScript(new ClassPathResource("db/migration/" + migracion));
+                }
+                populator.execute(nuevo);
+                ResourceDatabasePopulator completas = new ResourceDatabasePopulator();
+                completas.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+                for (String migracion : MIGRACIONES_COMPLETAS) {
+                    completas.addScript(new ClassPathResource("db/migration/" + migracion));
+                }
+                completas.execute(nuevo);
+                dataSource = nuevo;
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo iniciar PostgreSQL embebido", e);
+            }
+        }
+        return dataSource;
+    }
+
+    public static JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource());
+    }
+
+    public static DataSourceTransactionManager transactionManager() {
+        return new DataSourceTransactionManager(dataSource());
+    }
+
+    public static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager());
+    }
+
+    // Vacía las tablas del modelo de permisos y de auditoría entre pruebas
+    public static void limpiar() {
+        jdbcTemplate().execute(LIMPIAR_SQL);
+    }
+}